@@ -0,0 +1,241 @@
+/*
+ * Copyright (c) 2004-2022 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.benchmarks;
+
+import com.google.common.collect.Range;
+import io.github.mzmine.datamodel.DataPoint;
+import io.github.mzmine.datamodel.MassSpectrumType;
+import io.github.mzmine.datamodel.PolarityType;
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.Scan;
+import io.github.mzmine.datamodel.impl.SimpleDataPoint;
+import io.github.mzmine.datamodel.impl.SimpleScan;
+import io.github.mzmine.project.impl.RawDataFileImpl;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+
+/**
+ * Synthetic, reproducible input data for the benchmarks. All methods use a seeded random
+ * generator, so every run of a benchmark works on the same data.
+ */
+public class BenchmarkData {
+
+  public static final long SEED = 42L;
+  public static final double MIN_MZ = 100d;
+  public static final double MAX_MZ = 1100d;
+
+  private BenchmarkData() {
+  }
+
+  /**
+   * A profile spectrum with gaussian shaped peaks on a regular m/z grid and some noise.
+   *
+   * @param numPoints number of data points
+   * @param numPeaks  number of peaks
+   * @return [mzs, intensities]
+   */
+  public static double[][] profileSpectrum(Random random, int numPoints, int numPeaks) {
+    final double[] mzs = new double[numPoints];
+    final double[] intensities = new double[numPoints];
+    final double step = (MAX_MZ - MIN_MZ) / numPoints;
+    for (int i = 0; i < numPoints; i++) {
+      mzs[i] = MIN_MZ + i * step;
+      intensities[i] = random.nextDouble() * 50d;
+    }
+
+    // peaks are about 8 data points wide
+    final double sigma = step * 2d;
+    for (int p = 0; p < numPeaks; p++) {
+      final int center = random.nextInt(numPoints);
+      final double height = logNormalIntensity(random);
+      for (int i = Math.max(0, center - 10); i < Math.min(numPoints, center + 11); i++) {
+        final double d = (mzs[i] - mzs[center]) / sigma;
+        intensities[i] += height * Math.exp(-0.5 * d * d);
+      }
+    }
+    return new double[][]{mzs, intensities};
+  }
+
+  /**
+   * A centroided spectrum with random m/z values and log normal distributed intensities.
+   *
+   * @return [mzs, intensities] sorted by m/z
+   */
+  public static double[][] centroidSpectrum(Random random, int numPoints) {
+    final double[] mzs = new double[numPoints];
+    for (int i = 0; i < numPoints; i++) {
+      mzs[i] = MIN_MZ + random.nextDouble() * (MAX_MZ - MIN_MZ);
+    }
+    Arrays.sort(mzs);
+    final double[] intensities = new double[numPoints];
+    for (int i = 0; i < numPoints; i++) {
+      intensities[i] = logNormalIntensity(random);
+    }
+    return new double[][]{mzs, intensities};
+  }
+
+  /**
+   * Shifts the m/z values by a small error and changes the intensities, e.g., to create a similar
+   * spectrum of the same compound.
+   *
+   * @param mzError maximum absolute m/z error
+   * @return [mzs, intensities] sorted by m/z
+   */
+  public static double[][] similarSpectrum(Random random, double[][] spectrum, double mzError) {
+    final double[] mzs = new double[spectrum[0].length];
+    final double[] intensities = new double[spectrum[0].length];
+    for (int i = 0; i < mzs.length; i++) {
+      mzs[i] = spectrum[0][i] + (random.nextDouble() * 2d - 1d) * mzError;
+      intensities[i] = spectrum[1][i] * (0.5 + random.nextDouble());
+    }
+    return new double[][]{mzs, intensities};
+  }
+
+  /**
+   * @return the data points sorted by descending intensity
+   */
+  public static DataPoint[] toDataPointsByIntensity(double[][] spectrum) {
+    final DataPoint[] dps = new DataPoint[spectrum[0].length];
+    for (int i = 0; i < dps.length; i++) {
+      dps[i] = new SimpleDataPoint(spectrum[0][i], spectrum[1][i]);
+    }
+    Arrays.sort(dps, Comparator.comparingDouble(DataPoint::getIntensity).reversed());
+    return dps;
+  }
+
+  /**
+   * An EIC with gaussian peaks of different widths and heights, partially overlapping, on a
+   * baseline with noise.
+   *
+   * @param numPoints number of data points (scans)
+   * @param numPeaks  number of chromatographic peaks
+   * @return [rts, intensities] with strictly increasing rts in minutes
+   */
+  public static double[][] chromatogram(Random random, int numPoints, int numPeaks) {
+    final double[] rts = new double[numPoints];
+    final double[] intensities = new double[numPoints];
+    // one scan per second
+    for (int i = 0; i < numPoints; i++) {
+      rts[i] = i / 60d;
+      intensities[i] = 1E3 + random.nextDouble() * 5E2;
+    }
+    for (int p = 0; p < numPeaks; p++) {
+      final double center = random.nextDouble() * rts[numPoints - 1];
+      final double sigma = (2d + random.nextDouble() * 6d) / 60d;
+      final double height = logNormalIntensity(random) * 10d;
+      for (int i = 0; i < numPoints; i++) {
+        final double d = (rts[i] - center) / sigma;
+        if (Math.abs(d) < 5d) {
+          intensities[i] += height * Math.exp(-0.5 * d * d);
+        }
+      }
+    }
+    return new double[][]{rts, intensities};
+  }
+
+  /**
+   * A raw data file with centroided MS1 scans, one per second. Each scan contains the data points
+   * of a fixed set of compounds eluting as gaussian peaks and additional random noise signals.
+   *
+   * @param numScans     number of scans
+   * @param numCompounds number of compounds
+   * @param numNoise     number of noise signals per scan
+   */
+  public static RawDataFile rawDataFile(Random random, String name, int numScans,
+      int numCompounds, int numNoise) {
+    final double[] compoundMzs = new double[numCompounds];
+    final double[] compoundRts = new double[numCompounds];
+    final double[] compoundHeights = new double[numCompounds];
+    for (int c = 0; c < numCompounds; c++) {
+      compoundMzs[c] = MIN_MZ + random.nextDouble() * (MAX_MZ - MIN_MZ);
+      compoundRts[c] = random.nextDouble() * numScans / 60d;
+      compoundHeights[c] = logNormalIntensity(random) * 10d;
+    }
+
+    final RawDataFile file = new RawDataFileImpl(name, null, null);
+    // peaks with a sigma of 4 s
+    final double sigma = 4d / 60d;
+    final double[] mzs = new double[numCompounds + numNoise];
+    final double[] intensities = new double[numCompounds + numNoise];
+    for (int s = 0; s < numScans; s++) {
+      final float rt = s / 60f;
+      int n = 0;
+      for (int c = 0; c < numCompounds; c++) {
+        final double d = (rt - compoundRts[c]) / sigma;
+        if (Math.abs(d) < 5d) {
+          mzs[n] = compoundMzs[c] + random.nextGaussian() * 0.0005;
+          intensities[n] = compoundHeights[c] * Math.exp(-0.5 * d * d);
+          n++;
+        }
+      }
+      for (int i = 0; i < numNoise; i++) {
+        mzs[n] = MIN_MZ + random.nextDouble() * (MAX_MZ - MIN_MZ);
+        intensities[n] = logNormalIntensity(random) / 10d;
+        n++;
+      }
+      final double[][] sorted = sortByMz(Arrays.copyOf(mzs, n), Arrays.copyOf(intensities, n));
+
+      final Scan scan = new SimpleScan(file, s + 1, 1, rt, null, sorted[0], sorted[1],
+          MassSpectrumType.CENTROIDED, PolarityType.POSITIVE, "",
+          Range.closed(MIN_MZ, MAX_MZ));
+      try {
+        file.addScan(scan);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+    return file;
+  }
+
+  /**
+   * @return [mzs, intensities] sorted by m/z
+   */
+  public static double[][] sortByMz(double[] mzs, double[] intensities) {
+    final Integer[] order = new Integer[mzs.length];
+    for (int i = 0; i < order.length; i++) {
+      order[i] = i;
+    }
+    Arrays.sort(order, Comparator.comparingDouble(i -> mzs[i]));
+    final double[] sortedMzs = new double[mzs.length];
+    final double[] sortedIntensities = new double[mzs.length];
+    for (int i = 0; i < order.length; i++) {
+      sortedMzs[i] = mzs[order[i]];
+      sortedIntensities[i] = intensities[order[i]];
+    }
+    return new double[][]{sortedMzs, sortedIntensities};
+  }
+
+  /**
+   * @return intensities spanning several orders of magnitude, median 1E4
+   */
+  public static double logNormalIntensity(Random random) {
+    return Math.exp(Math.log(1E4) + random.nextGaussian() * 1.5);
+  }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2004-2022 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.benchmarks;
+
+import io.github.mzmine.datamodel.FeatureStatus;
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.Scan;
+import io.github.mzmine.datamodel.data_access.CachedFeatureDataAccess;
+import io.github.mzmine.datamodel.featuredata.impl.SimpleIonTimeSeries;
+import io.github.mzmine.datamodel.features.FeatureListRow;
+import io.github.mzmine.datamodel.features.ModularFeature;
+import io.github.mzmine.datamodel.features.ModularFeatureList;
+import io.github.mzmine.datamodel.features.ModularFeatureListRow;
+import io.github.mzmine.datamodel.features.correlation.R2RFullCorrelationData;
+import io.github.mzmine.modules.dataprocessing.group_metacorrelate.correlation.FeatureCorrelationUtil;
+import io.github.mzmine.util.maths.similarity.SimilarityMeasure;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Row to row correlation of feature shapes and heights across samples, as used by metaCorrelate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FeatureCorrelationBenchmark {
+
+  private static final int NUM_SCANS = 120;
+
+  @Param({"10", "100"})
+  private int numRawFiles;
+
+  @Param({"15", "60"})
+  private int pointsPerFeature;
+
+  private List<RawDataFile> raws;
+  private FeatureListRow rowA;
+  private FeatureListRow rowB;
+  private CachedFeatureDataAccess directAccess;
+  private CachedFeatureDataAccess preloadedAccess;
+
+  @Setup
+  public void setup() {
+    final Random random = new Random(BenchmarkData.SEED);
+    raws = new ArrayList<>(numRawFiles);
+    for (int i = 0; i < numRawFiles; i++) {
+      // the scans only define the retention times of the features
+      raws.add(BenchmarkData.rawDataFile(random, "raw" + i, NUM_SCANS, 0, 1));
+    }
+
+    final ModularFeatureList flist = new ModularFeatureList("correlation", null, raws);
+    final ModularFeatureListRow a = new ModularFeatureListRow(flist, 1);
+    final ModularFeatureListRow b = new ModularFeatureListRow(flist, 2);
+    for (RawDataFile raw : raws) {
+      // both features co-elute, b has a slightly shifted apex and individual noise
+      final double height = BenchmarkData.logNormalIntensity(random);
+      a.addFeature(raw, createFeature(random, flist, raw, 250.1234, height, 0d));
+      b.addFeature(raw, createFeature(random, flist, raw, 251.1267, height * 0.3, 0.5d));
+    }
+    flist.addRow(a);
+    flist.addRow(b);
+    rowA = a;
+    rowB = b;
+
+    directAccess = new CachedFeatureDataAccess();
+    preloadedAccess = new CachedFeatureDataAccess(new FeatureListRow[]{a, b}, false, true);
+  }
+
+  private ModularFeature createFeature(Random random, ModularFeatureList flist, RawDataFile raw,
+      double mz, double height, double apexShift) {
+    final List<Scan> scans = raw.getScans()
+        .subList((NUM_SCANS - pointsPerFeature) / 2, (NUM_SCANS + pointsPerFeature) / 2);
+    final double[] mzs = new double[scans.size()];
+    final double[] intensities = new double[scans.size()];
+    final double center = (scans.size() - 1) / 2d + apexShift;
+    final double sigma = scans.size() / 6d;
+    for (int i = 0; i < scans.size(); i++) {
+      final double d = (i - center) / sigma;
+      mzs[i] = mz + random.nextGaussian() * 0.0005;
+      intensities[i] = height * Math.exp(-0.5 * d * d) * (0.95 + random.nextDouble() * 0.1);
+    }
+    return new ModularFeature(flist, raw, new SimpleIonTimeSeries(null, mzs, intensities, scans),
+        FeatureStatus.DETECTED);
+  }
+
+  @Benchmark
+  public R2RFullCorrelationData corrR2R() {
+    return FeatureCorrelationUtil.corrR2R(directAccess, raws, rowA, rowB, true, 5, 2, 5, 0d, 0d,
+        true, SimilarityMeasure.PEARSON, 0.5);
+  }
+
+  @Benchmark
+  public R2RFullCorrelationData corrR2RPreloaded() {
+    return FeatureCorrelationUtil.corrR2R(preloadedAccess, raws, rowA, rowB, true, 5, 2, 5, 0d,
+        0d, true, SimilarityMeasure.PEARSON, 0.5);
+  }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2004-2022 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.benchmarks;
+
+import io.github.mzmine.datamodel.MassSpectrum;
+import io.github.mzmine.datamodel.MassSpectrumType;
+import io.github.mzmine.datamodel.impl.SimpleMassSpectrum;
+import io.github.mzmine.modules.dataprocessing.featdet_massdetection.MassDetector;
+import io.github.mzmine.modules.dataprocessing.featdet_massdetection.auto.AutoMassDetector;
+import io.github.mzmine.modules.dataprocessing.featdet_massdetection.auto.AutoMassDetectorParameters;
+import io.github.mzmine.modules.dataprocessing.featdet_massdetection.centroid.CentroidMassDetector;
+import io.github.mzmine.modules.dataprocessing.featdet_massdetection.centroid.CentroidMassDetectorParameters;
+import io.github.mzmine.modules.dataprocessing.featdet_massdetection.exactmass.ExactMassDetector;
+import io.github.mzmine.modules.dataprocessing.featdet_massdetection.exactmass.ExactMassDetectorParameters;
+import io.github.mzmine.modules.dataprocessing.featdet_massdetection.factor_of_lowest.FactorOfLowestMassDetector;
+import io.github.mzmine.modules.dataprocessing.featdet_massdetection.factor_of_lowest.FactorOfLowestMassDetectorParameters;
+import io.github.mzmine.modules.dataprocessing.featdet_massdetection.localmaxima.LocalMaxMassDetector;
+import io.github.mzmine.modules.dataprocessing.featdet_massdetection.localmaxima.LocalMaxMassDetectorParameters;
+import io.github.mzmine.modules.dataprocessing.featdet_massdetection.recursive.RecursiveMassDetector;
+import io.github.mzmine.modules.dataprocessing.featdet_massdetection.recursive.RecursiveMassDetectorParameters;
+import io.github.mzmine.modules.dataprocessing.featdet_massdetection.wavelet.WaveletMassDetector;
+import io.github.mzmine.modules.dataprocessing.featdet_massdetection.wavelet.WaveletMassDetectorParameters;
+import io.github.mzmine.parameters.ParameterSet;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * All mass detectors on a single spectrum. The profile detectors work on a profile spectrum, the
+ * centroid detectors on a centroided spectrum with a comparable number of signals.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MassDetectorBenchmark {
+
+  private static final int PROFILE_POINTS = 50_000;
+  private static final int PEAKS = 1_000;
+  private static final double NOISE_LEVEL = 1E3;
+
+  @Param({"auto", "centroid", "exact", "factor_of_lowest", "local_max", "recursive", "wavelet"})
+  private String detectorName;
+
+  private MassDetector detector;
+  private ParameterSet parameters;
+  private MassSpectrum spectrum;
+
+  @Setup
+  public void setup() {
+    final Random random = new Random(BenchmarkData.SEED);
+    final double[][] profile = BenchmarkData.profileSpectrum(random, PROFILE_POINTS, PEAKS);
+    final double[][] centroid = BenchmarkData.centroidSpectrum(random, PEAKS * 2);
+    final MassSpectrum profileSpectrum = new SimpleMassSpectrum(profile[0], profile[1],
+        MassSpectrumType.PROFILE);
+    final MassSpectrum centroidSpectrum = new SimpleMassSpectrum(centroid[0], centroid[1],
+        MassSpectrumType.CENTROIDED);
+
+    switch (detectorName) {
+      case "auto" -> {
+        detector = new AutoMassDetector();
+        parameters = new AutoMassDetectorParameters();
+        parameters.setParameter(AutoMassDetectorParameters.noiseLevel, NOISE_LEVEL);
+        parameters.setParameter(AutoMassDetectorParameters.detectIsotopes, false);
+        spectrum = profileSpectrum;
+      }
+      case "centroid" -> {
+        detector = new CentroidMassDetector();
+        parameters = new CentroidMassDetectorParameters();
+        parameters.setParameter(CentroidMassDetectorParameters.noiseLevel, NOISE_LEVEL);
+        parameters.setParameter(CentroidMassDetectorParameters.detectIsotopes, false);
+        spectrum = centroidSpectrum;
+      }
+      case "exact" -> {
+        detector = new ExactMassDetector();
+        parameters = new ExactMassDetectorParameters();
+        parameters.setParameter(ExactMassDetectorParameters.noiseLevel, NOISE_LEVEL);
+        parameters.setParameter(ExactMassDetectorParameters.detectIsotopes, false);
+        spectrum = profileSpectrum;
+      }
+      case "factor_of_lowest" -> {
+        detector = new FactorOfLowestMassDetector();
+        parameters = new FactorOfLowestMassDetectorParameters();
+        parameters.setParameter(FactorOfLowestMassDetectorParameters.noiseFactor, 2.5);
+        spectrum = centroidSpectrum;
+      }
+      case "local_max" -> {
+        detector = new LocalMaxMassDetector();
+        parameters = new LocalMaxMassDetectorParameters();
+        parameters.setParameter(LocalMaxMassDetectorParameters.noiseLevel, NOISE_LEVEL);
+        spectrum = profileSpectrum;
+      }
+      case "recursive" -> {
+        detector = new RecursiveMassDetector();
+        parameters = new RecursiveMassDetectorParameters();
+        parameters.setParameter(RecursiveMassDetectorParameters.noiseLevel, NOISE_LEVEL);
+        parameters.setParameter(RecursiveMassDetectorParameters.minimumMZPeakWidth, 0.001);
+        parameters.setParameter(RecursiveMassDetectorParameters.maximumMZPeakWidth, 0.2);
+        spectrum = profileSpectrum;
+      }
+      case "wavelet" -> {
+        detector = new WaveletMassDetector();
+        parameters = new WaveletMassDetectorParameters();
+        parameters.setParameter(WaveletMassDetectorParameters.noiseLevel, NOISE_LEVEL);
+        parameters.setParameter(WaveletMassDetectorParameters.scaleLevel, 3);
+        parameters.setParameter(WaveletMassDetectorParameters.waveletWindow, 0.3);
+        spectrum = profileSpectrum;
+      }
+      default -> throw new IllegalArgumentException("Unknown mass detector " + detectorName);
+    }
+  }
+
+  @Benchmark
+  public double[][] detectMasses() {
+    return detector.getMassValues(spectrum, parameters);
+  }
+}
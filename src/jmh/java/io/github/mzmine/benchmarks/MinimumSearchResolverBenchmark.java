@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2004-2022 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.benchmarks;
+
+import com.google.common.collect.Range;
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.features.ModularFeatureList;
+import io.github.mzmine.modules.dataprocessing.featdet_chromatogramdeconvolution.minimumsearch.MinimumSearchFeatureResolver;
+import io.github.mzmine.modules.dataprocessing.featdet_chromatogramdeconvolution.minimumsearch.MinimumSearchFeatureResolverParameters;
+import io.github.mzmine.parameters.ParameterSet;
+import io.github.mzmine.project.impl.RawDataFileImpl;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The local minimum resolver on a single chromatogram with multiple overlapping peaks.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MinimumSearchResolverBenchmark {
+
+  @Param({"600", "3600"})
+  private int numScans;
+
+  @Param({"5", "50"})
+  private int numPeaks;
+
+  private MinimumSearchFeatureResolver resolver;
+  private double[] rts;
+  private double[] intensities;
+  private double[] intensitiesCopy;
+
+  @Setup
+  public void setup() {
+    final Random random = new Random(BenchmarkData.SEED);
+    final double[][] chromatogram = BenchmarkData.chromatogram(random, numScans, numPeaks);
+    rts = chromatogram[0];
+    intensities = chromatogram[1];
+    intensitiesCopy = new double[intensities.length];
+
+    final ParameterSet parameters = new MinimumSearchFeatureResolverParameters();
+    parameters.setParameter(MinimumSearchFeatureResolverParameters.CHROMATOGRAPHIC_THRESHOLD_LEVEL,
+        0.5);
+    parameters.setParameter(MinimumSearchFeatureResolverParameters.SEARCH_RT_RANGE, 0.05);
+    parameters.setParameter(MinimumSearchFeatureResolverParameters.MIN_RELATIVE_HEIGHT, 0d);
+    parameters.setParameter(MinimumSearchFeatureResolverParameters.MIN_ABSOLUTE_HEIGHT, 5E3);
+    parameters.setParameter(MinimumSearchFeatureResolverParameters.MIN_RATIO, 1.7);
+    parameters.setParameter(MinimumSearchFeatureResolverParameters.PEAK_DURATION,
+        Range.closed(0d, 2d));
+    parameters.setParameter(MinimumSearchFeatureResolverParameters.MIN_NUMBER_OF_DATAPOINTS, 4);
+
+    final RawDataFile file = new RawDataFileImpl("resolver", null, null);
+    resolver = new MinimumSearchFeatureResolver(parameters,
+        new ModularFeatureList("resolver", null, file));
+  }
+
+  @Benchmark
+  public List<Range<Double>> resolve() {
+    // the resolver sets intensities below the chromatographic threshold to 0
+    System.arraycopy(intensities, 0, intensitiesCopy, 0, intensities.length);
+    return resolver.resolve(rts, intensitiesCopy);
+  }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2004-2022 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.benchmarks;
+
+import io.github.msdk.MSDKException;
+import io.github.mzmine.modules.io.import_rawdata_mzml.msdk.data.MzMLBinaryDataInfo;
+import io.github.mzmine.modules.io.import_rawdata_mzml.msdk.data.MzMLBitLength;
+import io.github.mzmine.modules.io.import_rawdata_mzml.msdk.data.MzMLCompressionType;
+import io.github.mzmine.modules.io.import_rawdata_mzml.msdk.data.MzMLPeaksDecoder;
+import io.github.mzmine.modules.io.import_rawdata_mzml.msdk.util.MSNumpress;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.DataFormatException;
+import java.util.zip.DeflaterOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Decoding of the base64 encoded binary m/z array of an mzML spectrum with the different
+ * compressions.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MzMLPeaksDecoderBenchmark {
+
+  @Param({"NO_COMPRESSION", "ZLIB", "NUMPRESS_LINPRED", "NUMPRESS_LINPRED_ZLIB"})
+  private MzMLCompressionType compression;
+
+  @Param({"1000", "50000"})
+  private int numPoints;
+
+  private byte[] encoded;
+  private MzMLBinaryDataInfo info;
+  private double[] buffer;
+
+  @Setup
+  public void setup() throws IOException {
+    final Random random = new Random(BenchmarkData.SEED);
+    final double[] mzs = BenchmarkData.profileSpectrum(random, numPoints, numPoints / 50)[0];
+
+    byte[] bytes = switch (compression) {
+      case NUMPRESS_LINPRED, NUMPRESS_LINPRED_ZLIB -> {
+        // the numpress buffer needs at most 5 bytes per value and an 8 byte header
+        final byte[] result = new byte[numPoints * 5 + 8];
+        final int length = MSNumpress.encodeLinear(mzs, numPoints, result,
+            MSNumpress.optimalLinearFixedPoint(mzs, numPoints));
+        yield Arrays.copyOf(result, length);
+      }
+      default -> {
+        final ByteBuffer byteBuffer = ByteBuffer.allocate(numPoints * Double.BYTES)
+            .order(ByteOrder.LITTLE_ENDIAN);
+        byteBuffer.asDoubleBuffer().put(mzs);
+        yield byteBuffer.array();
+      }
+    };
+
+    if (compression == MzMLCompressionType.ZLIB
+        || compression == MzMLCompressionType.NUMPRESS_LINPRED_ZLIB) {
+      final ByteArrayOutputStream out = new ByteArrayOutputStream();
+      try (DeflaterOutputStream deflater = new DeflaterOutputStream(out)) {
+        deflater.write(bytes);
+      }
+      bytes = out.toByteArray();
+    }
+
+    encoded = Base64.getEncoder().encode(bytes);
+    info = new MzMLBinaryDataInfo(encoded.length, numPoints);
+    info.setCompressionType(compression);
+    info.setBitLength(MzMLBitLength.SIXTY_FOUR_BIT_FLOAT);
+    buffer = new double[numPoints];
+  }
+
+  @Benchmark
+  public double[] decode() throws DataFormatException, IOException, MSDKException {
+    return MzMLPeaksDecoder.decodeToDouble(new ByteArrayInputStream(encoded), info, buffer);
+  }
+}
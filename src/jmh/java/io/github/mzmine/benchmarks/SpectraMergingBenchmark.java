@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2004-2022 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.benchmarks;
+
+import io.github.mzmine.datamodel.MassSpectrum;
+import io.github.mzmine.datamodel.impl.SimpleMassSpectrum;
+import io.github.mzmine.util.scans.SpectraMerging;
+import io.github.mzmine.util.scans.SpectraMerging.IntensityMergingType;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Merging of multiple spectra of the same compound, e.g., all MS2 scans of a feature.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SpectraMergingBenchmark {
+
+  @Param({"5", "50"})
+  private int numSpectra;
+
+  @Param({"100", "1000"})
+  private int numSignals;
+
+  private List<MassSpectrum> spectra;
+
+  @Setup
+  public void setup() {
+    final Random random = new Random(BenchmarkData.SEED);
+    final double[][] base = BenchmarkData.centroidSpectrum(random, numSignals);
+    spectra = new ArrayList<>(numSpectra);
+    for (int i = 0; i < numSpectra; i++) {
+      final double[][] similar = BenchmarkData.similarSpectrum(random, base, 0.002);
+      // the m/z errors may change the order of close signals
+      final double[][] sorted = BenchmarkData.sortByMz(similar[0], similar[1]);
+      spectra.add(new SimpleMassSpectrum(sorted[0], sorted[1]));
+    }
+  }
+
+  @Benchmark
+  public double[][] mergeSummed() {
+    return SpectraMerging.calculatedMergedMzsAndIntensities(spectra,
+        SpectraMerging.defaultMs1MergeTol, IntensityMergingType.SUMMED,
+        SpectraMerging.DEFAULT_CENTER_FUNCTION, null, null, null);
+  }
+
+  @Benchmark
+  public double[][] mergeMinPeaks() {
+    return SpectraMerging.calculatedMergedMzsAndIntensities(spectra,
+        SpectraMerging.defaultMs1MergeTol, IntensityMergingType.MAXIMUM,
+        SpectraMerging.DEFAULT_CENTER_FUNCTION, 1E3, null, Math.max(2, numSpectra / 5));
+  }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2004-2022 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.benchmarks;
+
+import io.github.mzmine.datamodel.DataPoint;
+import io.github.mzmine.parameters.ParameterSet;
+import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
+import io.github.mzmine.util.scans.ScanAlignment;
+import io.github.mzmine.util.scans.similarity.SpectralSimilarity;
+import io.github.mzmine.util.scans.similarity.impl.cosine.WeightedCosineSpectralSimilarity;
+import io.github.mzmine.util.scans.similarity.impl.cosine.WeightedCosineSpectralSimilarityParameters;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Alignment of two spectra and the weighted cosine similarity, as used by spectral library
+ * matching and molecular networking.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SpectralSimilarityBenchmark {
+
+  private final MZTolerance mzTol = new MZTolerance(0.005, 10);
+  private final WeightedCosineSpectralSimilarity cosine = new WeightedCosineSpectralSimilarity();
+
+  @Param({"20", "200", "1000"})
+  private int numSignals;
+
+  private DataPoint[] library;
+  private DataPoint[] query;
+  private ParameterSet cosineParameters;
+
+  @Setup
+  public void setup() {
+    final Random random = new Random(BenchmarkData.SEED);
+    final double[][] spectrum = BenchmarkData.centroidSpectrum(random, numSignals);
+    library = BenchmarkData.toDataPointsByIntensity(spectrum);
+    query = BenchmarkData.toDataPointsByIntensity(
+        BenchmarkData.similarSpectrum(random, spectrum, 0.003));
+    cosineParameters = new WeightedCosineSpectralSimilarityParameters();
+  }
+
+  @Benchmark
+  public List<DataPoint[]> align() {
+    return ScanAlignment.align(mzTol, library, query);
+  }
+
+  @Benchmark
+  public List<DataPoint[]> alignOfSorted() {
+    return ScanAlignment.alignOfSorted(mzTol, library, query);
+  }
+
+  @Benchmark
+  public SpectralSimilarity weightedCosine() {
+    return cosine.getSimilarity(cosineParameters, mzTol, 0, library, query);
+  }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2004-2022 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.modules.dataprocessing.featdet_adapchromatogrambuilder;
+
+import com.google.common.collect.RangeMap;
+import io.github.mzmine.benchmarks.BenchmarkData;
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.Scan;
+import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
+import io.github.mzmine.util.DataPointSorter;
+import io.github.mzmine.util.SortingDirection;
+import io.github.mzmine.util.SortingProperty;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Assignment of all data points of a raw data file to chromatograms by the ADAP chromatogram
+ * builder. In the same package as the builder to access the package private assignment.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ADAPPointAssignmentBenchmark {
+
+  private final MZTolerance mzTolerance = new MZTolerance(0.002, 10);
+
+  @Param({"600", "3600"})
+  private int numScans;
+
+  @Param({"500", "5000"})
+  private int numCompounds;
+
+  private List<ExpandedDataPoint> sortedDataPoints;
+
+  @Setup
+  public void setup() {
+    final Random random = new Random(BenchmarkData.SEED);
+    final RawDataFile file = BenchmarkData.rawDataFile(random, "adap", numScans, numCompounds,
+        200);
+
+    sortedDataPoints = new ArrayList<>();
+    for (Scan scan : file.getScans()) {
+      for (int i = 0; i < scan.getNumberOfDataPoints(); i++) {
+        sortedDataPoints.add(
+            new ExpandedDataPoint(scan.getMzValue(i), scan.getIntensityValue(i), scan));
+      }
+    }
+    sortedDataPoints.sort(
+        new DataPointSorter(SortingProperty.Intensity, SortingDirection.Descending));
+  }
+
+  @Benchmark
+  public RangeMap<Double, ADAPChromatogram> assignDataPoints() {
+    return ModularADAPChromatogramBuilderTask.assignDataPoints(sortedDataPoints, mzTolerance,
+        5E3, () -> false, () -> {
+        });
+  }
+}
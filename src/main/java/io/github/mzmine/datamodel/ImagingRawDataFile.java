@@ -25,8 +25,10 @@
 
 package io.github.mzmine.datamodel;
 
-import java.util.List;
+import io.github.mzmine.datamodel.impl.ScanMzIndex;
 import io.github.mzmine.modules.io.import_rawdata_imzml.ImagingParameters;
+import java.util.List;
+import org.jetbrains.annotations.Nullable;
 
 
 /**
@@ -54,4 +56,13 @@ public interface ImagingRawDataFile extends RawDataFile {
    */
   List<Scan> getScansInArea(float x, float y, float x2, float y2);
 
+  /**
+   * The m/z index allows fast extraction of ion images for any m/z range. It is created on first
+   * access and reused afterwards, if enabled in the preferences
+   * ({@link ScanMzIndex#isImagingIndexEnabled()}).
+   *
+   * @return the m/z index of the raw data of all imaging scans in this file or null if disabled
+   */
+  @Nullable ScanMzIndex getImagingMzIndex();
+
 }
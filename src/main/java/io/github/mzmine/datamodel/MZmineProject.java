@@ -31,8 +31,10 @@ import io.github.mzmine.modules.visualization.projectmetadata.table.MetadataTabl
 import io.github.mzmine.parameters.UserParameter;
 import io.github.mzmine.project.impl.ProjectChangeEvent.Type;
 import io.github.mzmine.project.impl.ProjectChangeListener;
+import io.github.mzmine.util.MemoryMapStorage;
 import io.github.mzmine.util.spectraldb.entry.SpectralLibrary;
 import java.io.File;
+import java.util.Collection;
 import java.util.Hashtable;
 import java.util.List;
 import org.jetbrains.annotations.NotNull;
@@ -143,6 +145,19 @@ public interface MZmineProject {
 
   void removeFeatureLists(@NotNull List<FeatureList> featureLists);
 
+  /**
+   * The feature list storages of all feature lists that were removed from this project. Rows that
+   * were copied from the removed lists may still reference data in these storages.
+   *
+   * @return copy of the storages of removed feature lists
+   */
+  @NotNull List<MemoryMapStorage> getStoragesOfRemovedFeatureLists();
+
+  /**
+   * Stops tracking storages of removed feature lists, e.g., after they were discarded.
+   */
+  void forgetStoragesOfRemovedFeatureLists(@NotNull Collection<MemoryMapStorage> storages);
+
   /**
    * Returns all feature lists which contain given data file
    */
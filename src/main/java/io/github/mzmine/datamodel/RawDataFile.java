@@ -26,7 +26,9 @@
 package io.github.mzmine.datamodel;
 
 import com.google.common.collect.Range;
+import io.github.mzmine.datamodel.data_access.EfficientDataAccess.ScanDataType;
 import io.github.mzmine.datamodel.features.FeatureList.FeatureListAppliedMethod;
+import io.github.mzmine.datamodel.impl.ScanMzIndex;
 import io.github.mzmine.util.MemoryMapStorage;
 import java.io.IOException;
 import java.time.LocalDateTime;
@@ -209,6 +211,18 @@ public interface RawDataFile {
 
   @Nullable MemoryMapStorage getMemoryMapStorage();
 
+  /**
+   * An m/z index of all scans in this file to extract ion chromatograms without reading all data
+   * points. The index is created on first access, if enabled in the preferences
+   * ({@link ScanMzIndex#isXicIndexEnabled()}).
+   *
+   * @param type index the raw data or the mass lists
+   * @return the index or null if disabled or not available (e.g., missing mass lists)
+   */
+  default @Nullable ScanMzIndex getXicIndex(@NotNull ScanDataType type) {
+    return null;
+  }
+
   void addScan(Scan newScan) throws IOException;
 
 
@@ -0,0 +1,201 @@
+/*
+ * Copyright (c) 2004-2022 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.datamodel.featuredata.impl;
+
+import io.github.mzmine.datamodel.Scan;
+import io.github.mzmine.util.MemoryMapStorage;
+import java.nio.IntBuffer;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Unmodifiable list of scans that references the scans by their index in the scan list of the raw
+ * data file instead of holding a reference to every scan. Contiguous scans are stored as runs of
+ * indices, otherwise the indices are stored in an int buffer, which may be memory mapped. The scans
+ * are retrieved from the raw data file on access, so the same instances are returned.
+ *
+ * @param <T> the scan type
+ */
+public class ScanIndexList<T extends Scan> extends AbstractList<T> implements RandomAccess {
+
+  private final List<? extends T> allScans;
+  private final int size;
+  /**
+   * Either the first scan index of each run and the position of each run in this list, or the
+   * index of every scan. The unused fields are null.
+   */
+  private final int[] runStarts;
+  private final int[] runPositions;
+  private final IntBuffer indices;
+  /**
+   * The storage of the indices or null if they are kept in ram
+   */
+  private final MemoryMapStorage storage;
+
+  private ScanIndexList(List<? extends T> allScans, int size, int[] runStarts, int[] runPositions,
+      IntBuffer indices, MemoryMapStorage storage) {
+    this.allScans = allScans;
+    this.size = size;
+    this.runStarts = runStarts;
+    this.runPositions = runPositions;
+    this.indices = indices;
+    this.storage = storage;
+  }
+
+  /**
+   * Creates a compact representation of the given scans, if all scans are contained in the given
+   * list of all scans in the same order.
+   *
+   * @param storage  the storage for the scan indices. May be null to keep the indices in ram.
+   * @param scans    the scans of a series.
+   * @param allScans all scans of the raw data file, sorted by retention time.
+   * @return the compact list or the original list, if the scans could not be found. A compact list
+   * is reused, if its indices are not stored or already stored in the given storage.
+   */
+  public static <T extends Scan> List<T> of(@Nullable MemoryMapStorage storage,
+      @NotNull List<T> scans, @NotNull List<? extends T> allScans) {
+    if (scans instanceof ScanIndexList<T> indexList) {
+      return indexList.withStorage(storage);
+    }
+    if (scans.isEmpty()) {
+      return scans;
+    }
+
+    final int[] scanIndices = new int[scans.size()];
+    int numRuns = 0;
+    int previous = -2;
+    for (int i = 0; i < scanIndices.length; i++) {
+      final int index = indexOf(allScans, scans.get(i), previous + 1);
+      if (index == -1) {
+        return scans;
+      }
+      if (index != previous + 1) {
+        numRuns++;
+      }
+      scanIndices[i] = index;
+      previous = index;
+    }
+
+    // two ints per run vs one int per scan
+    if (numRuns * 2 < scanIndices.length) {
+      final int[] runStarts = new int[numRuns];
+      final int[] runPositions = new int[numRuns];
+      int run = -1;
+      for (int i = 0; i < scanIndices.length; i++) {
+        if (i == 0 || scanIndices[i] != scanIndices[i - 1] + 1) {
+          run++;
+          runStarts[run] = scanIndices[i];
+          runPositions[run] = i;
+        }
+      }
+      return new ScanIndexList<>(allScans, scanIndices.length, runStarts, runPositions, null,
+          null);
+    }
+
+    return new ScanIndexList<>(allScans, scanIndices.length, null, null,
+        StorageUtils.storeValuesToIntBuffer(storage, scanIndices), storage);
+  }
+
+  /**
+   * Copies the stored indices into another storage, e.g., when a series is copied to a new
+   * storage, so that the copy does not reference the buffers of the old storage.
+   *
+   * @return this list, if the indices are not stored or already in the given storage
+   */
+  private ScanIndexList<T> withStorage(@Nullable MemoryMapStorage storage) {
+    if (indices == null || storage == this.storage) {
+      return this;
+    }
+    final int[] scanIndices = new int[size];
+    indices.get(0, scanIndices);
+    return new ScanIndexList<>(allScans, size, null, null,
+        StorageUtils.storeValuesToIntBuffer(storage, scanIndices), storage);
+  }
+
+  /**
+   * Finds the index of the scan. Series usually contain consecutive scans, so the expected index
+   * is checked first, before the index is searched by retention time.
+   *
+   * @return the index or -1
+   */
+  private static int indexOf(List<? extends Scan> allScans, Scan scan, int expectedIndex) {
+    if (expectedIndex >= 0 && expectedIndex < allScans.size()
+        && allScans.get(expectedIndex) == scan) {
+      return expectedIndex;
+    }
+
+    // first scan with a retention time >= the scan's retention time
+    final float rt = scan.getRetentionTime();
+    int low = 0;
+    int high = allScans.size();
+    while (low < high) {
+      final int mid = (low + high) >>> 1;
+      if (allScans.get(mid).getRetentionTime() < rt) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    for (int i = low; i < allScans.size() && allScans.get(i).getRetentionTime() <= rt; i++) {
+      if (allScans.get(i) == scan) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  @Override
+  public T get(int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException(index);
+    }
+    return allScans.get(getScanIndex(index));
+  }
+
+  /**
+   * @return the index of the scan in the scan list of the raw data file.
+   */
+  public int getScanIndex(int index) {
+    if (indices != null) {
+      return indices.get(index);
+    }
+    int run = Arrays.binarySearch(runPositions, index);
+    if (run < 0) {
+      // the run that contains the index
+      run = -run - 2;
+    }
+    return runStarts[run] + index - runPositions[run];
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+}
@@ -27,6 +27,7 @@ package io.github.mzmine.datamodel.featuredata.impl;
 
 import com.google.common.collect.Comparators;
 import io.github.mzmine.datamodel.Frame;
+import io.github.mzmine.datamodel.IMSRawDataFile;
 import io.github.mzmine.datamodel.MobilityScan;
 import io.github.mzmine.datamodel.MobilityType;
 import io.github.mzmine.datamodel.RawDataFile;
@@ -103,7 +104,8 @@ public class SimpleIonMobilogramTimeSeries implements IonMobilogramTimeSeries {
     }
 
     this.mobilograms = storeMobilograms(storage, mobilograms);
-    this.frames = frames;
+    this.frames = frames.isEmpty() ? frames : ScanIndexList.of(storage, frames,
+        ((IMSRawDataFile) frames.get(0).getDataFile()).getFrames());
     this.summedMobilogram = summedMobilogram;
 
     mzValues = StorageUtils.storeValuesToDoubleBuffer(storage, mzs);
@@ -80,7 +80,9 @@ public class SimpleIonTimeSeries implements IonTimeSeries<Scan> {
       }
     }
 
-    this.scans = scans;
+    // reference the scans by index to reduce the memory of large feature lists
+    this.scans = scans.isEmpty() ? scans
+        : ScanIndexList.of(storage, scans, scans.get(0).getDataFile().getScans());
 
     this.mzValues = StorageUtils.storeValuesToDoubleBuffer(storage, mzValues);
     this.intensityValues = StorageUtils.storeValuesToDoubleBuffer(storage, intensityValues);
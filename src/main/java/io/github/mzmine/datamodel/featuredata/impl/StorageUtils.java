@@ -30,6 +30,7 @@ import io.github.mzmine.util.DataPointUtils;
 import io.github.mzmine.util.MemoryMapStorage;
 import java.io.IOException;
 import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -184,6 +185,34 @@ public class StorageUtils {
     return buffer;
   }
 
+  /**
+   * Stores the given array into a float buffer.
+   *
+   * @param storage The storage to be used. If null, the values will be wrapped using {@link
+   *                FloatBuffer#wrap(float[])}.
+   * @param values  The values to be stored. If storage is null, a float buffer will be wrapped
+   *                around this array. Changes in the array will therefore be reflected in the
+   *                FloatBuffer.
+   * @return The float buffer the values were stored in.
+   */
+  @NotNull
+  public static FloatBuffer storeValuesToFloatBuffer(@Nullable final MemoryMapStorage storage,
+      @NotNull final float[] values) {
+
+    FloatBuffer buffer;
+    if (storage != null) {
+      try {
+        buffer = storage.storeData(values);
+      } catch (IOException e) {
+        e.printStackTrace();
+        buffer = FloatBuffer.wrap(values);
+      }
+    } else {
+      buffer = FloatBuffer.wrap(values);
+    }
+    return buffer;
+  }
+
   /**
    * Stores the given array into an int buffer.
    *
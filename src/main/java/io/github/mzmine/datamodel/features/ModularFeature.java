@@ -44,6 +44,7 @@ import io.github.mzmine.datamodel.features.types.FeatureInformationType;
 import io.github.mzmine.datamodel.features.types.IsotopePatternType;
 import io.github.mzmine.datamodel.features.types.MobilityUnitType;
 import io.github.mzmine.datamodel.features.types.RawFileType;
+import io.github.mzmine.datamodel.features.types.graphicalnodes.ChartImageCache;
 import io.github.mzmine.datamodel.features.types.numbers.AreaType;
 import io.github.mzmine.datamodel.features.types.numbers.AsymmetryFactorType;
 import io.github.mzmine.datamodel.features.types.numbers.BestScanNumberType;
@@ -281,6 +282,7 @@ public class ModularFeature implements Feature, ModularDataModel {
       }
     });
     buffertColCharts.clear();
+    ChartImageCache.invalidate(this);
   }
 
   @Override
@@ -29,11 +29,8 @@ import io.github.mzmine.datamodel.RawDataFile;
 import io.github.mzmine.datamodel.features.ModularFeature;
 import io.github.mzmine.datamodel.features.ModularFeatureListRow;
 import io.github.mzmine.datamodel.features.types.graphicalnodes.AreaShareChart;
+import io.github.mzmine.datamodel.features.types.graphicalnodes.ChartImageCache;
 import io.github.mzmine.datamodel.features.types.modifiers.GraphicalColumType;
-import io.github.mzmine.datamodel.features.types.tasks.FeaturesGraphicalNodeTask;
-import io.github.mzmine.main.MZmineCore;
-import io.github.mzmine.taskcontrol.Task;
-import io.github.mzmine.taskcontrol.TaskPriority;
 import java.util.Map;
 import javafx.beans.property.MapProperty;
 import javafx.beans.property.Property;
@@ -42,7 +39,6 @@ import javafx.beans.property.SimpleObjectProperty;
 import javafx.scene.Node;
 import javafx.scene.control.TreeTableCell;
 import javafx.scene.control.TreeTableColumn;
-import javafx.scene.layout.StackPane;
 import org.jetbrains.annotations.NotNull;
 
 public class AreaShareType extends DataType<Map<RawDataFile, ModularFeature>>
@@ -80,19 +76,11 @@ public class AreaShareType extends DataType<Map<RawDataFile, ModularFeature>>
     if (row == null)
       return null;
 
-    // get existing buffered node from row (for column name)
-    // TODO listen to changes in features data
-    Node node = row.getBufferedColChart(coll.getText());
-    if (node != null)
-      return node;
-
-    StackPane pane = new StackPane();
-
-    // TODO stop task if new task is started
-    Task task = new FeaturesGraphicalNodeTask(AreaShareChart.class, pane, row, coll.getText());
-    MZmineCore.getTaskController().addTask(task, TaskPriority.NORMAL);
-
-    return pane;
+    // render charts into cached images, the live chart is only created on click
+    final int width = ChartImageCache.getImageWidth(coll.getWidth(), getColumnWidth());
+    return ChartImageCache.getCellNode(row, coll.getText(), width, 30,
+        ChartImageCache.areaStamp(row),
+        (w, h) -> AreaShareChart.renderImage(row, w, h), () -> new AreaShareChart(row, null));
   }
 
   @Override
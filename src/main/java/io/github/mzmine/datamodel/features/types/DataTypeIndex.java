@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2004-2022 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.datamodel.features.types;
+
+import com.google.common.reflect.ClassPath;
+import com.google.common.reflect.ClassPath.ClassInfo;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Index of all {@link DataType} implementations. The index is generated during the build by the
+ * gradle task generateDataTypeIndex, which runs {@link #main(String[])} on the compiled classes.
+ * Reading the index at startup replaces scanning the whole class path for data types. The class
+ * path is only scanned if the index is missing, e.g., when running from an IDE without the gradle
+ * build.
+ */
+final class DataTypeIndex {
+
+  /**
+   * Resource next to this class. One fully qualified class name per line.
+   */
+  static final String INDEX_RESOURCE = "datatypes.index";
+  private static final String TYPES_PACKAGE = "io.github.mzmine.datamodel.features.types";
+
+  private static final Logger logger = Logger.getLogger(DataTypeIndex.class.getName());
+
+  private DataTypeIndex() {
+  }
+
+  /**
+   * @return the class names of all data types or null if there is no index on the class path
+   */
+  @Nullable
+  static List<String> readIndex() throws IOException {
+    final InputStream in = DataTypeIndex.class.getResourceAsStream(INDEX_RESOURCE);
+    if (in == null) {
+      return null;
+    }
+    try (BufferedReader reader = new BufferedReader(
+        new InputStreamReader(in, StandardCharsets.UTF_8))) {
+      return reader.lines().map(String::trim).filter(line -> !line.isEmpty()).toList();
+    }
+  }
+
+  /**
+   * @return all top level classes in the data types package and its sub packages
+   */
+  @NotNull
+  static List<String> scanClassPath() throws IOException {
+    final ClassPath classPath = ClassPath.from(DataType.class.getClassLoader());
+    return classPath.getTopLevelClassesRecursive(TYPES_PACKAGE).stream().map(ClassInfo::getName)
+        .toList();
+  }
+
+  /**
+   * @param className a class name from the index or the class path
+   * @return a new instance or null if the class is no data type or cannot be instantiated (e.g.,
+   * abstract classes or classes that fail to initialize)
+   */
+  @Nullable
+  static DataType<?> createInstance(String className) {
+    try {
+      final Class<?> clazz = Class.forName(className, true, DataType.class.getClassLoader());
+      if (!DataType.class.isAssignableFrom(clazz)) {
+        return null;
+      }
+      return (DataType<?>) clazz.getDeclaredConstructor().newInstance();
+    } catch (ClassNotFoundException | InstantiationException | IllegalAccessException | InvocationTargetException | NoSuchMethodException e) {
+      return null;
+    } catch (LinkageError e) {
+      // e.g., ExceptionInInitializerError or NoClassDefFoundError of a single type
+      logger.log(Level.WARNING, "Cannot load data type " + className, e);
+      return null;
+    }
+  }
+
+  /**
+   * Strict variant of {@link #createInstance(String)} for the index generation. A data type that is
+   * missing from the index would silently be unavailable at runtime, so every concrete data type
+   * must be instantiable.
+   *
+   * @param className a class name from the class path
+   * @return a new instance or null if the class is no concrete data type
+   * @throws IllegalStateException if a concrete data type cannot be instantiated
+   */
+  @Nullable
+  private static DataType<?> createIndexedInstance(String className) {
+    final Class<?> clazz;
+    try {
+      clazz = Class.forName(className, false, DataType.class.getClassLoader());
+    } catch (ClassNotFoundException | LinkageError e) {
+      throw new IllegalStateException("FATAL: Cannot load class " + className, e);
+    }
+    if (!DataType.class.isAssignableFrom(clazz) || clazz.isInterface() || Modifier.isAbstract(
+        clazz.getModifiers())) {
+      return null;
+    }
+    try {
+      return (DataType<?>) clazz.getDeclaredConstructor().newInstance();
+    } catch (ReflectiveOperationException | LinkageError e) {
+      throw new IllegalStateException("FATAL: Cannot instantiate data type " + className, e);
+    }
+  }
+
+  /**
+   * Scans the class path for all data types and writes their class names to the index file.
+   * Fails if multiple data types share a unique ID or if a data type cannot be instantiated.
+   *
+   * @param args the index file
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length != 1) {
+      throw new IllegalArgumentException("Usage: DataTypeIndex <index file>");
+    }
+
+    final Map<String, DataType<?>> uniqueIds = new HashMap<>();
+    final List<String> classNames = new ArrayList<>();
+    for (String className : scanClassPath()) {
+      final DataType<?> dt = createIndexedInstance(className);
+      if (dt == null) {
+        continue;
+      }
+      final DataType<?> value = uniqueIds.put(dt.getUniqueID(), dt);
+      if (value != null) {
+        throw new IllegalStateException(
+            "FATAL: Multiple data types with unique ID " + dt.getUniqueID() + "\n"
+                + value.getClass().getName() + "\n" + dt.getClass().getName());
+      }
+      classNames.add(className);
+    }
+    classNames.sort(String::compareTo);
+
+    final Path file = Path.of(args[0]);
+    Files.createDirectories(file.toAbsolutePath().getParent());
+    Files.write(file, classNames, StandardCharsets.UTF_8);
+    System.out.println("Indexed " + classNames.size() + " data types in " + file);
+  }
+}
@@ -25,13 +25,12 @@
 
 package io.github.mzmine.datamodel.features.types;
 
-import com.google.common.reflect.ClassPath;
 import io.github.mzmine.datamodel.features.types.modifiers.AnnotationType;
 import io.github.mzmine.datamodel.features.types.modifiers.SubColumnsFactory;
 import java.io.IOException;
-import java.lang.reflect.InvocationTargetException;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.logging.Logger;
 import org.jetbrains.annotations.Nullable;
 
@@ -51,27 +50,26 @@ public class DataTypes {
 
   static {
     try {
-      ClassPath classPath = ClassPath.from(DataType.class.getClassLoader());
-      classPath.getTopLevelClassesRecursive("io.github.mzmine.datamodel.features.types")
-          .forEach(classInfo -> {
-            try {
-              Object o = classInfo.load().getDeclaredConstructor().newInstance();
-              if (o instanceof DataType dt) {
-                var value = map.put(dt.getUniqueID(), dt);
-                if (value != null) {
-                  throw new IllegalStateException(
-                      "FATAL: Multiple data types with unique ID " + dt.getUniqueID() + "\n"
-                          + value.getClass().getName() + "\n" + dt.getClass().getName());
-                }
-                TYPES.put(dt.getClass(), dt);
-              }
-            } catch (InstantiationException | IllegalAccessException | InvocationTargetException | NoSuchMethodException e) {
-              //               can go silent
-              //              logger.log(Level.INFO, e.getMessage(), e);
-            }
-          });
+      List<String> classNames = DataTypeIndex.readIndex();
+      if (classNames == null) {
+        logger.fine("No data type index found, scanning the class path for data types.");
+        classNames = DataTypeIndex.scanClassPath();
+      }
+      for (String className : classNames) {
+        final DataType<?> dt = DataTypeIndex.createInstance(className);
+        if (dt == null) {
+          continue;
+        }
+        var value = map.put(dt.getUniqueID(), dt);
+        if (value != null) {
+          throw new IllegalStateException(
+              "FATAL: Multiple data types with unique ID " + dt.getUniqueID() + "\n"
+                  + value.getClass().getName() + "\n" + dt.getClass().getName());
+        }
+        TYPES.put(dt.getClass(), dt);
+      }
     } catch (IOException e) {
-      logger.severe("Cannot instantiate classPath for DataType.class. Cannot load projects.");
+      logger.severe("Cannot read the data types for DataType.class. Cannot load projects.");
     }
   }
 
@@ -29,15 +29,11 @@ import io.github.mzmine.datamodel.ImagingRawDataFile;
 import io.github.mzmine.datamodel.RawDataFile;
 import io.github.mzmine.datamodel.features.ModularFeature;
 import io.github.mzmine.datamodel.features.ModularFeatureListRow;
+import io.github.mzmine.datamodel.features.types.graphicalnodes.ChartImageCache;
 import io.github.mzmine.datamodel.features.types.graphicalnodes.ImageChart;
-import io.github.mzmine.datamodel.features.types.tasks.FeatureGraphicalNodeTask;
-import io.github.mzmine.main.MZmineCore;
-import io.github.mzmine.taskcontrol.Task;
-import io.github.mzmine.taskcontrol.TaskPriority;
 import javafx.scene.Node;
 import javafx.scene.control.TreeTableCell;
 import javafx.scene.control.TreeTableColumn;
-import javafx.scene.layout.StackPane;
 import org.jetbrains.annotations.NotNull;
 
 public class ImageType extends LinkedGraphicalType {
@@ -73,20 +69,11 @@ public class ImageType extends LinkedGraphicalType {
       return null;
     }
 
-    // get existing buffered node from row (for column name)
-    // TODO listen to changes in features data
-    Node node = feature.getBufferedColChart(coll.getText());
-    if (node != null) {
-      return node;
-    }
-
-    StackPane pane = new StackPane();
-
-    // TODO stop task if new task is started
-    Task task = new FeatureGraphicalNodeTask(ImageChart.class, pane, feature, coll.getText());
-    MZmineCore.getTaskController().addTask(task, TaskPriority.NORMAL);
-
-    return pane;
+    // render images into the cache, the live chart is only created on click
+    return ChartImageCache.getCellNode(feature, coll.getText(),
+        ImageChart.getImageWidth(imagingFile), DEFAULT_IMAGE_CELL_HEIGHT,
+        System.identityHashCode(feature.getFeatureData()),
+        (w, h) -> ImageChart.renderImage(feature, w, h), () -> ImageChart.createChart(feature));
   }
 
   @Override
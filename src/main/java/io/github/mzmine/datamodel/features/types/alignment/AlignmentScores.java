@@ -143,6 +143,36 @@ public record AlignmentScores(float rate, int alignedFeatures, int extraFeatures
         average(mobilityDelta, other.mobilityDelta, total, otherTotal, totalFeatures));
   }
 
+  /**
+   * Merges the scores of two alignment passes on disjoint sets of samples, e.g., when new samples
+   * are added to an aligned feature list. The rate is based on the samples of both passes and the
+   * deltas are weighted by the aligned features of each pass, so a pass without aligned features
+   * keeps the deltas of the other pass.
+   *
+   * @param samples      the number of samples scored by this pass
+   * @param other        the scores of the other pass or null if the row was not scored
+   * @param otherSamples the number of samples scored by the other pass
+   * @return merged score
+   */
+  public AlignmentScores merge(final int samples, @Nullable AlignmentScores other,
+      final int otherSamples) {
+    if (other == null) {
+      other = new AlignmentScores();
+    }
+    final int otherAligned = other.alignedFeatures;
+    final int totalAligned = alignedFeatures + otherAligned;
+    final int totalSamples = samples + otherSamples;
+    final float mergedRate = totalSamples > 0 ? totalAligned / (float) totalSamples : 0f;
+
+    return new AlignmentScores(mergedRate, totalAligned, extraFeatures + other.extraFeatures,
+        average(weightedDistanceScore, other.weightedDistanceScore, alignedFeatures, otherAligned,
+            totalAligned),
+        average(mzPpmDelta, other.mzPpmDelta, alignedFeatures, otherAligned, totalAligned),
+        average(mzDelta, other.mzDelta, alignedFeatures, otherAligned, totalAligned),
+        average(rtDelta, other.rtDelta, alignedFeatures, otherAligned, totalAligned),
+        average(mobilityDelta, other.mobilityDelta, alignedFeatures, otherAligned, totalAligned));
+  }
+
   private Double average(final Double a, final Double b, final int total, final int otherTotal,
       final int totalFeatures) {
     if (a == null && b == null) {
@@ -151,9 +181,12 @@ public record AlignmentScores(float rate, int alignedFeatures, int extraFeatures
     if (a == null) {
       return b;
     }
-    if (b == null) {
+    if (b == null || otherTotal == 0) {
       return a;
     }
+    if (total == 0) {
+      return b;
+    }
     return (a * total + b * otherTotal) / totalFeatures;
   }
 
@@ -165,9 +198,12 @@ public record AlignmentScores(float rate, int alignedFeatures, int extraFeatures
     if (a == null) {
       return b;
     }
-    if (b == null) {
+    if (b == null || otherTotal == 0) {
       return a;
     }
+    if (total == 0) {
+      return b;
+    }
     return (a * total + b * otherTotal) / totalFeatures;
   }
 }
@@ -30,6 +30,11 @@ import io.github.mzmine.datamodel.RawDataFile;
 import io.github.mzmine.datamodel.features.ModularFeature;
 import io.github.mzmine.datamodel.features.ModularFeatureListRow;
 import io.github.mzmine.util.color.ColorsFX;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.Map;
 import java.util.Map.Entry;
 import javafx.beans.value.ChangeListener;
 import javafx.scene.Node;
@@ -84,4 +89,42 @@ public class AreaBarChart extends StackPane {
     this.getChildren().add(bc);
   }
 
+  /**
+   * Draws the bars without creating the JavaFX chart, may be called on any thread. Bars are
+   * scaled to the largest area of the row.
+   */
+  public static BufferedImage renderImage(@NotNull ModularFeatureListRow row, int width,
+      int height) {
+    final Map<RawDataFile, ModularFeature> features = row.getFilesFeatures();
+    final BufferedImage img = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+    if (features.isEmpty()) {
+      return img;
+    }
+
+    float max = 0f;
+    for (ModularFeature feature : features.values()) {
+      final Float area = feature.getArea();
+      max = Math.max(max, area == null ? 0f : area);
+    }
+
+    final Graphics2D g = img.createGraphics();
+    try {
+      g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+      final double barWidth = (double) width / features.size();
+      final double gap = barWidth > 6 ? 2d : 0d;
+      int i = 0;
+      for (Entry<RawDataFile, ModularFeature> entry : features.entrySet()) {
+        final Float area = entry.getValue().getArea();
+        final double barHeight = max > 0 && area != null ? area / max * (height - 1) : 0d;
+        final java.awt.Color fileColor = entry.getKey().getColorAWT();
+        g.setColor(fileColor != null ? fileColor : java.awt.Color.ORANGE);
+        g.fill(new Rectangle2D.Double(i * barWidth + gap / 2, height - barHeight,
+            Math.max(barWidth - gap, 1d), barHeight));
+        i++;
+      }
+    } finally {
+      g.dispose();
+    }
+    return img;
+  }
 }
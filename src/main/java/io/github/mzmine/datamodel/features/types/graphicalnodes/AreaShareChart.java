@@ -30,6 +30,9 @@ import io.github.mzmine.datamodel.RawDataFile;
 import io.github.mzmine.datamodel.features.Feature;
 import io.github.mzmine.datamodel.features.ModularFeature;
 import io.github.mzmine.datamodel.features.ModularFeatureListRow;
+import java.awt.Graphics2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map.Entry;
@@ -79,4 +82,40 @@ public class AreaShareChart extends StackPane {
 
     this.getChildren().add(box);
   }
+
+  /**
+   * Draws the area shares without creating the JavaFX nodes, may be called on any thread.
+   */
+  public static BufferedImage renderImage(@NotNull ModularFeatureListRow row, int width,
+      int height) {
+    final BufferedImage img = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+    final float sum = row.streamFeatures().map(Feature::getArea).filter(Objects::nonNull)
+        .reduce(0f, Float::sum);
+    if (sum <= 0f) {
+      return img;
+    }
+
+    final Graphics2D g = img.createGraphics();
+    try {
+      double x = 0d;
+      int i = 0;
+      for (Entry<RawDataFile, ModularFeature> entry : row.getFilesFeatures().entrySet()) {
+        final Float area = entry.getValue().getArea();
+        if (area == null) {
+          continue;
+        }
+        final java.awt.Color fileColor = entry.getKey().getColorAWT();
+        g.setColor(fileColor != null ? fileColor : java.awt.Color.ORANGE);
+        // alternating heights as in the JavaFX node
+        final double rectHeight = Math.min(i % 2 == 0 ? 20 : 25, height);
+        final double rectWidth = area / sum * width;
+        g.fill(new Rectangle2D.Double(x, (height - rectHeight) / 2, rectWidth, rectHeight));
+        x += rectWidth;
+        i++;
+      }
+    } finally {
+      g.dispose();
+    }
+    return img;
+  }
 }
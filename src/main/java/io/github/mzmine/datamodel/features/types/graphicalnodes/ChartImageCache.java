@@ -0,0 +1,442 @@
+/*
+ * Copyright (c) 2004-2022 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.datamodel.features.types.graphicalnodes;
+
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.features.ModularFeature;
+import io.github.mzmine.datamodel.features.ModularFeatureListRow;
+import io.github.mzmine.main.MZmineCore;
+import java.awt.image.BufferedImage;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javafx.embed.swing.SwingFXUtils;
+import javafx.scene.Node;
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
+import javafx.scene.layout.StackPane;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Renders the charts of graphical feature table columns into images on background threads and
+ * keeps the images in a bounded LRU cache. Table cells only show an {@link ImageView}, which is
+ * cheap to create while scrolling. The live chart is created when the image is clicked.
+ * <p>
+ * Images are keyed by the row or feature, the column, the size and a stamp of the displayed data,
+ * so changed data is rendered again and outdated images drop out of the cache. The row or feature
+ * is only weakly referenced, images of removed feature lists are dropped once their rows are
+ * garbage collected.
+ */
+public final class ChartImageCache {
+
+  private static final Logger logger = Logger.getLogger(ChartImageCache.class.getName());
+
+  /**
+   * Upper limit for the pixel data of all cached images
+   */
+  private static final long MAX_CACHED_BYTES = 128L * 1024 * 1024;
+  /**
+   * Above this number of pending requests, requests of cells that were scrolled past are dropped.
+   * The newest requests are rendered first.
+   */
+  private static final int MAX_PENDING = 256;
+  private static final int NUM_RENDER_THREADS = Math.max(1,
+      Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+
+  private static final LinkedHashMap<Key, Image> images = new LinkedHashMap<>(256, 0.75f, true);
+  private static long cachedBytes = 0;
+  private static final ReferenceQueue<Object> collectedOwners = new ReferenceQueue<>();
+
+  private static final Map<Key, RenderRequest> pending = new ConcurrentHashMap<>();
+  private static final LinkedBlockingDeque<RenderRequest> queue = new LinkedBlockingDeque<>();
+
+  private static boolean started = false;
+
+  private ChartImageCache() {
+  }
+
+  /**
+   * Renders a chart into an image. Called on a background thread.
+   */
+  @FunctionalInterface
+  public interface ImageRenderer {
+
+    BufferedImage render(int width, int height);
+  }
+
+  /**
+   * Creates the node of a table cell. The cached image is shown directly, otherwise the image is
+   * rendered in the background and added once it is available.
+   *
+   * @param owner     the row or feature of the cell
+   * @param column    the column header
+   * @param dataStamp changes when the displayed data changes, e.g., a hash of the data objects
+   * @param renderer  renders the image
+   * @param liveChart creates the interactive chart, when the image is clicked
+   * @return the cell node
+   */
+  public static Node getCellNode(@NotNull Object owner, @NotNull String column, int width,
+      int height, int dataStamp, @NotNull ImageRenderer renderer,
+      @NotNull Supplier<Node> liveChart) {
+    final StackPane pane = new StackPane();
+    pane.setPrefHeight(height);
+
+    final Key key = new Key(owner, column, width, height, dataStamp);
+    final Image image = get(key);
+    if (image != null) {
+      pane.getChildren().add(createImageView(pane, image, liveChart));
+      return pane;
+    }
+
+    request(key, renderer, new CellTarget(pane, liveChart));
+    return pane;
+  }
+
+  /**
+   * Column widths are rounded up in steps of 20 px, so resizing a column does not render all
+   * images again for every pixel.
+   */
+  public static int getImageWidth(double columnWidth, double minWidth) {
+    final int width = (int) Math.ceil(Math.max(columnWidth, minWidth));
+    return (width + 19) / 20 * 20;
+  }
+
+  /**
+   * @return a stamp that changes when the features or their data of the row are replaced
+   */
+  public static int featureDataStamp(@NotNull ModularFeatureListRow row) {
+    int stamp = 1;
+    for (ModularFeature feature : row.getFeatures()) {
+      stamp = 31 * stamp + System.identityHashCode(feature);
+      stamp = 31 * stamp + System.identityHashCode(feature.getFeatureData());
+    }
+    return stamp;
+  }
+
+  /**
+   * @return a stamp that changes when the areas or the colors of the raw data files change
+   */
+  public static int areaStamp(@NotNull ModularFeatureListRow row) {
+    int stamp = 1;
+    for (Map.Entry<RawDataFile, ModularFeature> entry : row.getFilesFeatures().entrySet()) {
+      stamp = 31 * stamp + Objects.hashCode(entry.getKey().getColor());
+      stamp = 31 * stamp + Objects.hashCode(entry.getValue().getArea());
+    }
+    return stamp;
+  }
+
+  private static ImageView createImageView(StackPane pane, Image image,
+      Supplier<Node> liveChart) {
+    final ImageView view = new ImageView(image);
+    view.setOnMouseClicked(e -> pane.getChildren().setAll(liveChart.get()));
+    return view;
+  }
+
+  /**
+   * Removes all images of the row or feature
+   */
+  public static void invalidate(@NotNull Object owner) {
+    synchronized (images) {
+      if (images.isEmpty()) {
+        return;
+      }
+      for (Iterator<Map.Entry<Key, Image>> it = images.entrySet().iterator(); it.hasNext(); ) {
+        final Map.Entry<Key, Image> entry = it.next();
+        if (entry.getKey().owner.get() == owner) {
+          cachedBytes -= getBytes(entry.getValue());
+          it.remove();
+        }
+      }
+    }
+  }
+
+  public static void clear() {
+    synchronized (images) {
+      images.clear();
+      cachedBytes = 0;
+    }
+  }
+
+  @Nullable
+  private static Image get(Key key) {
+    synchronized (images) {
+      return images.get(key);
+    }
+  }
+
+  private static void put(Key key, Image image) {
+    synchronized (images) {
+      removeCollectedOwners();
+      final Image old = images.put(key, image);
+      if (old != null) {
+        cachedBytes -= getBytes(old);
+      }
+      cachedBytes += getBytes(image);
+
+      // remove the least recently used images
+      final Iterator<Image> it = images.values().iterator();
+      while (cachedBytes > MAX_CACHED_BYTES && it.hasNext()) {
+        final Image eldest = it.next();
+        if (eldest == image) {
+          break;
+        }
+        cachedBytes -= getBytes(eldest);
+        it.remove();
+      }
+    }
+  }
+
+  /**
+   * Removes the images of rows and features that were garbage collected. Called within the lock
+   * of the images.
+   */
+  private static void removeCollectedOwners() {
+    if (collectedOwners.poll() == null) {
+      return;
+    }
+    while (collectedOwners.poll() != null) {
+      // drain, all entries are checked below
+    }
+    for (Iterator<Map.Entry<Key, Image>> it = images.entrySet().iterator(); it.hasNext(); ) {
+      final Map.Entry<Key, Image> entry = it.next();
+      if (entry.getKey().owner.get() == null) {
+        cachedBytes -= getBytes(entry.getValue());
+        it.remove();
+      }
+    }
+  }
+
+  private static long getBytes(Image image) {
+    return (long) image.getWidth() * (long) image.getHeight() * Integer.BYTES;
+  }
+
+  /**
+   * The render threads are only started once a table shows a chart column
+   */
+  private static synchronized void startRenderThreads() {
+    if (started) {
+      return;
+    }
+    started = true;
+    for (int i = 0; i < NUM_RENDER_THREADS; i++) {
+      final Thread thread = new Thread(ChartImageCache::renderLoop, "chart-image-renderer-" + i);
+      thread.setDaemon(true);
+      thread.setPriority(Thread.NORM_PRIORITY - 1);
+      thread.start();
+    }
+  }
+
+  /**
+   * Called on the JavaFX thread by the table cells.
+   */
+  private static void request(Key key, ImageRenderer renderer, CellTarget target) {
+    startRenderThreads();
+    pending.compute(key, (k, request) -> {
+      if (request == null) {
+        request = new RenderRequest(k, renderer, new ArrayList<>());
+        queue.offerFirst(request);
+      }
+      request.targets().add(target);
+      return request;
+    });
+
+    if (queue.size() <= MAX_PENDING) {
+      return;
+    }
+    // drop the oldest requests of cells that are no longer shown. Shown cells are always rendered,
+    // they would stay empty otherwise
+    for (Iterator<RenderRequest> it = queue.descendingIterator();
+        it.hasNext() && queue.size() > MAX_PENDING; ) {
+      final RenderRequest request = it.next();
+      if (request.targets().stream().allMatch(CellTarget::isScrolledPast)) {
+        it.remove();
+        pending.remove(request.key(), request);
+      }
+    }
+  }
+
+  private static void renderLoop() {
+    while (true) {
+      final RenderRequest request;
+      try {
+        request = queue.takeFirst();
+      } catch (InterruptedException e) {
+        return;
+      }
+
+      Image image = null;
+      try {
+        final Key key = request.key();
+        final BufferedImage img = request.renderer().render(key.width(), key.height());
+        if (img != null) {
+          image = SwingFXUtils.toFXImage(img, null);
+          put(key, image);
+        }
+      } catch (Exception e) {
+        logger.log(Level.WARNING, "Cannot render chart image " + request.key().column(), e);
+      }
+
+      // no more targets can be added after the request was removed
+      final List<CellTarget> targets = new ArrayList<>();
+      pending.computeIfPresent(request.key(), (k, r) -> {
+        if (r == request) {
+          targets.addAll(r.targets());
+          return null;
+        }
+        return r;
+      });
+
+      if (image != null && !targets.isEmpty()) {
+        final Image finalImage = image;
+        MZmineCore.runLater(() -> targets.forEach(t -> t.show(finalImage)));
+      }
+    }
+  }
+
+  private record RenderRequest(Key key, ImageRenderer renderer, List<CellTarget> targets) {
+
+  }
+
+  /**
+   * The cell node that shows the image once it is rendered. Created on the JavaFX thread.
+   */
+  private static final class CellTarget {
+
+    private final StackPane pane;
+    private final Supplier<Node> liveChart;
+    /**
+     * The node was shown and removed from the table, e.g., when the cell was reused
+     */
+    private boolean removed = false;
+
+    private CellTarget(StackPane pane, Supplier<Node> liveChart) {
+      this.pane = pane;
+      this.liveChart = liveChart;
+      pane.sceneProperty().addListener((obs, old, scene) -> {
+        if (old != null && scene == null) {
+          removed = true;
+        }
+      });
+    }
+
+    /**
+     * Nodes that were not added to the table yet are still shown. Called on the JavaFX thread.
+     *
+     * @return true if the node was removed from the table or its cell is hidden
+     */
+    private boolean isScrolledPast() {
+      if (removed) {
+        return true;
+      }
+      if (pane.getScene() == null) {
+        return false;
+      }
+      for (Node n = pane; n != null; n = n.getParent()) {
+        if (!n.isVisible()) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    private void show(Image image) {
+      if (pane.getChildren().isEmpty()) {
+        pane.getChildren().add(createImageView(pane, image, liveChart));
+      }
+    }
+  }
+
+  /**
+   * Compares the row or feature by identity, as rows and features may implement equals on their
+   * content. The row or feature is weakly referenced, keys of collected owners are not equal to any
+   * other key.
+   */
+  private static final class Key {
+
+    private final WeakReference<Object> owner;
+    private final String column;
+    private final int width;
+    private final int height;
+    private final int dataStamp;
+    private final int hash;
+
+    private Key(Object owner, String column, int width, int height, int dataStamp) {
+      this.owner = new WeakReference<>(owner, collectedOwners);
+      this.column = column;
+      this.width = width;
+      this.height = height;
+      this.dataStamp = dataStamp;
+
+      int result = System.identityHashCode(owner);
+      result = 31 * result + column.hashCode();
+      result = 31 * result + width;
+      result = 31 * result + height;
+      result = 31 * result + dataStamp;
+      hash = result;
+    }
+
+    private String column() {
+      return column;
+    }
+
+    private int width() {
+      return width;
+    }
+
+    private int height() {
+      return height;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (o == this) {
+        return true;
+      }
+      if (!(o instanceof Key key)) {
+        return false;
+      }
+      final Object value = owner.get();
+      return value != null && value == key.owner.get() && width == key.width
+          && height == key.height && dataStamp == key.dataStamp && column.equals(key.column);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+  }
+}
@@ -37,15 +37,22 @@ import io.github.mzmine.gui.chartbasics.simplechart.SimpleXYChart;
 import io.github.mzmine.gui.chartbasics.simplechart.datasets.ColoredXYDataset;
 import io.github.mzmine.gui.chartbasics.simplechart.datasets.RunOption;
 import io.github.mzmine.gui.chartbasics.simplechart.providers.impl.series.IonTimeSeriesToXYProvider;
+import io.github.mzmine.gui.chartbasics.simplechart.renderers.ColoredXYLineRenderer;
 import io.github.mzmine.gui.preferences.UnitFormat;
 import io.github.mzmine.main.MZmineCore;
 import io.github.mzmine.util.RangeUtils;
 import java.awt.Color;
+import java.awt.image.BufferedImage;
 import java.util.LinkedHashSet;
 import java.util.Set;
 import javafx.application.Platform;
 import javafx.scene.layout.StackPane;
 import org.jetbrains.annotations.NotNull;
+import org.jfree.chart.ChartFactory;
+import org.jfree.chart.JFreeChart;
+import org.jfree.chart.axis.NumberAxis;
+import org.jfree.chart.plot.PlotOrientation;
+import org.jfree.chart.plot.XYPlot;
 import org.jfree.data.Range;
 
 public class FeatureShapeChart extends StackPane {
@@ -61,10 +68,59 @@ public class FeatureShapeChart extends StackPane {
     chart.setDomainAxisNumberFormatOverride(MZmineCore.getConfiguration().getRTFormat());
     chart.setLegendItemsVisible(false);
 
+    final Set<ColoredXYDataset> datasets = createDatasets(row, progress);
+
+    chart.getChart().setBackgroundPaint((new Color(0, 0, 0, 0)));
+    chart.getXYPlot().setBackgroundPaint((new Color(0, 0, 0, 0)));
+
+    final Range defaultRange = getDefaultRange(row);
+
+    setPrefHeight(GraphicalColumType.DEFAULT_GRAPHICAL_CELL_HEIGHT);
+    Platform.runLater(() -> {
+      getChildren().add(chart);
+      chart.addDatasets(datasets);
+
+      chart.getXYPlot().getDomainAxis().setRange(defaultRange);
+      chart.getXYPlot().getDomainAxis().setDefaultAutoRange(defaultRange);
+    });
+  }
+
+  /**
+   * Renders the chart without creating the JavaFX node, may be called on any thread.
+   */
+  public static BufferedImage renderImage(@NotNull ModularFeatureListRow row, int width,
+      int height) {
+    final UnitFormat uf = MZmineCore.getConfiguration().getUnitFormat();
+    final JFreeChart chart = ChartFactory.createXYLineChart(null,
+        uf.format("Retention time", "min"), uf.format("Intensity", "a.u."), null,
+        PlotOrientation.VERTICAL, false, false, false);
+    MZmineCore.getConfiguration().getDefaultChartTheme().apply(chart);
+    chart.setBackgroundPaint(new Color(0, 0, 0, 0));
+
+    final XYPlot plot = chart.getXYPlot();
+    plot.setBackgroundPaint(new Color(0, 0, 0, 0));
+    int i = 0;
+    for (ColoredXYDataset dataset : createDatasets(row, null)) {
+      plot.setDataset(i, dataset);
+      plot.setRenderer(i, new ColoredXYLineRenderer());
+      i++;
+    }
+
+    ((NumberAxis) plot.getRangeAxis()).setNumberFormatOverride(
+        MZmineCore.getConfiguration().getIntensityFormat());
+    final NumberAxis domainAxis = (NumberAxis) plot.getDomainAxis();
+    domainAxis.setNumberFormatOverride(MZmineCore.getConfiguration().getRTFormat());
+    domainAxis.setRange(getDefaultRange(row));
+
+    return chart.createBufferedImage(width, height, BufferedImage.TYPE_INT_ARGB, null);
+  }
+
+  private static Set<ColoredXYDataset> createDatasets(@NotNull ModularFeatureListRow row,
+      AtomicDouble progress) {
     Set<ColoredXYDataset> datasets = new LinkedHashSet<>();
     int size = row.getFilesFeatures().size();
     for (Feature f : row.getFeatures()) {
-      if(f.getRawDataFile() instanceof ImagingRawDataFile) {
+      if (f.getRawDataFile() instanceof ImagingRawDataFile) {
         continue;
       }
       IonTimeSeries<? extends Scan> dpSeries = ((ModularFeature) f).getFeatureData();
@@ -77,39 +133,26 @@ public class FeatureShapeChart extends StackPane {
         progress.addAndGet(1.0 / size);
       }
     }
+    return datasets;
+  }
 
-    chart.getChart().setBackgroundPaint((new Color(0, 0, 0, 0)));
-    chart.getXYPlot().setBackgroundPaint((new Color(0, 0, 0, 0)));
-
+  private static Range getDefaultRange(@NotNull ModularFeatureListRow row) {
     final ModularFeature bestFeature = row.getBestFeature();
-    final org.jfree.data.Range defaultRange;
-    if (bestFeature != null) {
-      final Float rt = bestFeature.getRT();
-
-      if (bestFeature.getFWHM() != null && !Float.isNaN(bestFeature.getFWHM())
-          && bestFeature.getFWHM() > 0f) {
-        final Float fwhm = bestFeature.getFWHM();
-        defaultRange = new org.jfree.data.Range(Math.max(rt - 5 * fwhm, 0),
-            Math.min(rt + 5 * fwhm, bestFeature.getRawDataFile().getDataRTRange().upperEndpoint()));
-
-      } else {
-        final Float length = Math.max(RangeUtils.rangeLength(bestFeature.getRawDataPointsRTRange()),
-            0.001f);
-        defaultRange = new org.jfree.data.Range(Math.max(rt - 3 * length, 0),
-            Math.min(rt + 3 * length,
-                bestFeature.getRawDataFile().getDataRTRange().upperEndpoint()));
-      }
-    } else {
-      defaultRange = new Range(0, 1);
+    if (bestFeature == null) {
+      return new Range(0, 1);
     }
 
-    setPrefHeight(GraphicalColumType.DEFAULT_GRAPHICAL_CELL_HEIGHT);
-    Platform.runLater(() -> {
-      getChildren().add(chart);
-      chart.addDatasets(datasets);
+    final Float rt = bestFeature.getRT();
+    if (bestFeature.getFWHM() != null && !Float.isNaN(bestFeature.getFWHM())
+        && bestFeature.getFWHM() > 0f) {
+      final Float fwhm = bestFeature.getFWHM();
+      return new Range(Math.max(rt - 5 * fwhm, 0),
+          Math.min(rt + 5 * fwhm, bestFeature.getRawDataFile().getDataRTRange().upperEndpoint()));
+    }
 
-      chart.getXYPlot().getDomainAxis().setRange(defaultRange);
-      chart.getXYPlot().getDomainAxis().setDefaultAutoRange(defaultRange);
-    });
+    final Float length = Math.max(RangeUtils.rangeLength(bestFeature.getRawDataPointsRTRange()),
+        0.001f);
+    return new Range(Math.max(rt - 3 * length, 0),
+        Math.min(rt + 3 * length, bestFeature.getRawDataFile().getDataRTRange().upperEndpoint()));
   }
 }
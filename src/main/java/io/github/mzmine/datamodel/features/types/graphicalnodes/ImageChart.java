@@ -57,6 +57,48 @@ public class ImageChart extends StackPane {
   private static Logger logger = Logger.getLogger(ImageChart.class.getName());
 
   public ImageChart(@NotNull ModularFeature f, AtomicDouble progress) {
+    final SimpleXYZScatterPlot<FeatureImageProvider> chart = createChart(f);
+    final double width = getImageWidth((ImagingRawDataFile) f.getRawDataFile());
+    final double height = GraphicalColumType.DEFAULT_IMAGE_CELL_HEIGHT;
+
+    setPrefHeight(height);
+    setPrefWidth(width);
+
+    BufferedImage img = chart.getChart().createBufferedImage((int) width, (int) height);
+
+    ImageView view = new ImageView(SwingFXUtils.toFXImage(img, null));
+    view.setOnMouseClicked(e -> MZmineCore.runLater(() -> {
+      getChildren().remove(view);
+      getChildren().add(chart);
+    }));
+
+    MZmineCore.runLater(() -> getChildren().add(view));
+  }
+
+  /**
+   * Renders the image of the feature, may be called on any thread.
+   */
+  public static BufferedImage renderImage(@NotNull ModularFeature f, int width, int height) {
+    return createChart(f).getChart().createBufferedImage(width, height);
+  }
+
+  /**
+   * @return the width of the image cell, depends on the aspect ratio of the imaging file
+   */
+  public static int getImageWidth(@NotNull ImagingRawDataFile imagingFile) {
+    final boolean lockOnAspectRatio = MZmineCore.getConfiguration()
+        .getModuleParameters(FeatureTableFXModule.class).getParameter(
+            FeatureTableFXParameters.lockImagesToAspectRatio).getValue();
+    ImagingParameters param = imagingFile.getImagingParam();
+
+    return (int) (lockOnAspectRatio ?
+        Math.min(
+            GraphicalColumType.DEFAULT_IMAGE_CELL_HEIGHT / (float) param.getMaxNumberOfPixelY()
+                * param.getMaxNumberOfPixelX(), GraphicalColumType.MAXIMUM_GRAPHICAL_CELL_WIDTH)
+        : GraphicalColumType.LARGE_GRAPHICAL_CELL_WIDTH);
+  }
+
+  public static SimpleXYZScatterPlot<FeatureImageProvider> createChart(@NotNull ModularFeature f) {
     FeatureImageProvider<ImagingScan> prov = new FeatureImageProvider<>(f);
     ColoredXYZDataset ds = new ColoredXYZDataset(prov, RunOption.THIS_THREAD);
     // checked in ImagingChart.class
@@ -85,31 +127,8 @@ public class ImageChart extends StackPane {
     axis.setRange(new Range(0, imagingFile.getImagingParam().getLateralWidth()));
     axis.setVisible(!hideAxes);
 
-    final boolean lockOnAspectRatio = MZmineCore.getConfiguration()
-        .getModuleParameters(FeatureTableFXModule.class).getParameter(
-            FeatureTableFXParameters.lockImagesToAspectRatio).getValue();
-    ImagingParameters param = imagingFile.getImagingParam();
-
-    final double width = lockOnAspectRatio ?
-        Math.min(
-            GraphicalColumType.DEFAULT_IMAGE_CELL_HEIGHT / (float) param.getMaxNumberOfPixelY()
-                * param.getMaxNumberOfPixelX(), GraphicalColumType.MAXIMUM_GRAPHICAL_CELL_WIDTH)
-        : GraphicalColumType.LARGE_GRAPHICAL_CELL_WIDTH;
-    final double height = GraphicalColumType.DEFAULT_IMAGE_CELL_HEIGHT;
-
-    setPrefHeight(height);
-    setPrefWidth(width);
     chart.getXYPlot().setBackgroundPaint(Color.BLACK);
-
-    BufferedImage img = chart.getChart().createBufferedImage((int) width, (int) height);
-
-    ImageView view = new ImageView(SwingFXUtils.toFXImage(img, null));
-    view.setOnMouseClicked(e -> MZmineCore.runLater(() -> {
-      getChildren().remove(view);
-      getChildren().add(chart);
-    }));
-
-    MZmineCore.runLater(() -> getChildren().add(view));
+    return chart;
   }
 
 }
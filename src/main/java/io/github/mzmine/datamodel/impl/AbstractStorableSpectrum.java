@@ -62,6 +62,20 @@ public abstract class AbstractStorableSpectrum extends AbstractMassSpectrum {
     setDataPoints(storage, mzValues, intensityValues);
   }
 
+  /**
+   * Uses the given buffers directly, e.g., buffers mapped from a raw data snapshot of a project.
+   *
+   * @param mzValues        the m/z values, sorted in ascending order.
+   * @param intensityValues the intensity values.
+   */
+  public AbstractStorableSpectrum(@NotNull DoubleBuffer mzValues,
+      @NotNull DoubleBuffer intensityValues) {
+    assert mzValues.capacity() == intensityValues.capacity();
+    this.mzValues = mzValues;
+    this.intensityValues = intensityValues;
+    updateMzRangeAndTICValues();
+  }
+
   protected synchronized void setDataPoints(@Nullable MemoryMapStorage storage,
       @Nullable double[] mzValues,
       @Nullable double[] intensityValues) {
@@ -28,6 +28,7 @@ package io.github.mzmine.datamodel.impl;
 import io.github.mzmine.datamodel.IMSImagingRawDataFile;
 import io.github.mzmine.datamodel.ImagingScan;
 import io.github.mzmine.datamodel.Scan;
+import io.github.mzmine.datamodel.data_access.EfficientDataAccess.ScanDataType;
 import io.github.mzmine.modules.io.import_rawdata_imzml.Coordinates;
 import io.github.mzmine.modules.io.import_rawdata_imzml.ImagingParameters;
 import io.github.mzmine.project.impl.IMSRawDataFileImpl;
@@ -47,6 +48,9 @@ public class IMSImagingRawDataFileImpl extends IMSRawDataFileImpl implements IMS
   // TODO add ms level - one array for each level
   private Scan[][][] xyzScanNumbers;
 
+  // lazily created index for ion image extraction
+  private volatile ScanMzIndex.Lazy imagingMzIndex;
+
 
   public IMSImagingRawDataFileImpl(String dataFileName, @Nullable final String absPath,
       @Nullable MemoryMapStorage storage) throws IOException {
@@ -140,4 +144,24 @@ public class IMSImagingRawDataFileImpl extends IMSRawDataFileImpl implements IMS
     }
     return xyzScanNumbers;
   }
+
+  @Override
+  public @Nullable ScanMzIndex getImagingMzIndex() {
+    if (!ScanMzIndex.isImagingIndexEnabled()) {
+      return null;
+    }
+    ScanMzIndex.Lazy index = imagingMzIndex;
+    if (index == null) {
+      // only take the snapshot of the scans under the lock, the index is built outside
+      synchronized (this) {
+        if (imagingMzIndex == null) {
+          imagingMzIndex = new ScanMzIndex.Lazy(
+              getScans().stream().filter(ImagingScan.class::isInstance).toList(),
+              ScanDataType.RAW, getMemoryMapStorage());
+        }
+        index = imagingMzIndex;
+      }
+    }
+    return index.get();
+  }
 }
@@ -0,0 +1,465 @@
+/*
+ * Copyright (c) 2004-2022 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.datamodel.impl;
+
+import com.google.common.collect.Range;
+import io.github.mzmine.datamodel.MassSpectrum;
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.Scan;
+import io.github.mzmine.datamodel.data_access.EfficientDataAccess.ScanDataType;
+import io.github.mzmine.datamodel.featuredata.impl.StorageUtils;
+import io.github.mzmine.gui.preferences.MZminePreferences;
+import io.github.mzmine.main.MZmineCore;
+import io.github.mzmine.util.MemoryMapStorage;
+import it.unimi.dsi.fastutil.Arrays;
+import it.unimi.dsi.fastutil.objects.Reference2IntOpenHashMap;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.logging.Logger;
+import java.util.stream.IntStream;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Inverted m/z index of the data points of a list of scans. All data points are grouped into
+ * equally sized m/z bins. Within each bin, the entries are sorted by the index of their scan and
+ * then by m/z. Each entry stores the m/z, the intensity and the scan index. Ion traces or ion
+ * images of any m/z window (and scan range) are extracted by reading the matching entries of the
+ * overlapping bins only, instead of reading all scans. The cost of a query is therefore
+ * proportional to the size of the result and not to the size of the data file.
+ * <p>
+ * The entries are stored in blocks of consecutive bins in the {@link MemoryMapStorage} of the raw
+ * data file. Data points are copied from either the raw scans or the mass lists (see
+ * {@link ScanDataType}).
+ */
+public class ScanMzIndex {
+
+  private static final Logger logger = Logger.getLogger(ScanMzIndex.class.getName());
+
+  /**
+   * Maximum number of entries per stored block (keeps single blocks well below the size of one
+   * memory mapped file)
+   */
+  private static final int MAX_BLOCK_ENTRIES = 1 << 24;
+  private static final int MIN_BINS = 1024;
+  private static final int MAX_BINS = 1 << 20;
+  /**
+   * Aim for this average number of entries per bin
+   */
+  private static final int ENTRIES_PER_BIN = 64;
+
+  private final List<Scan> scans;
+  private final List<MassSpectrum> spectra;
+  private final ScanDataType scanDataType;
+  private final Reference2IntOpenHashMap<Scan> scanIndices;
+  private final double minMz;
+  private final double binWidth;
+  private final int numBins;
+  /**
+   * start of each bin in the global entry order. binStart[numBins] is the total number of entries.
+   */
+  private final long[] binStart;
+  private final List<Block> blocks = new ArrayList<>();
+  /**
+   * block index for each bin
+   */
+  private final int[] binBlock;
+
+  private ScanMzIndex(List<Scan> scans, List<MassSpectrum> spectra, ScanDataType scanDataType,
+      double minMz, double maxMz, long numEntries) {
+    this.scans = scans;
+    this.spectra = spectra;
+    this.scanDataType = scanDataType;
+    this.minMz = minMz;
+    numBins = (int) Math.max(MIN_BINS, Math.min(MAX_BINS, numEntries / ENTRIES_PER_BIN));
+    binWidth = maxMz > minMz ? (maxMz - minMz) / numBins : 1d;
+    binStart = new long[numBins + 1];
+    binBlock = new int[numBins];
+
+    scanIndices = new Reference2IntOpenHashMap<>(scans.size());
+    scanIndices.defaultReturnValue(-1);
+    for (int i = 0; i < scans.size(); i++) {
+      scanIndices.put(scans.get(i), i);
+    }
+  }
+
+  /**
+   * Creates the index for a list of scans. The bins are filled in parallel.
+   *
+   * @param scans   the scans, usually sorted by retention time
+   * @param type    index the raw data or the mass lists of the scans
+   * @param storage the storage for the index or null to keep it in memory
+   * @return the index or null if type is {@link ScanDataType#CENTROID} and a scan is missing its
+   * mass list
+   */
+  @Nullable
+  public static ScanMzIndex build(@NotNull List<? extends Scan> scans,
+      @NotNull ScanDataType type, @Nullable MemoryMapStorage storage) {
+    final List<MassSpectrum> spectra = new ArrayList<>(scans.size());
+    for (Scan scan : scans) {
+      final MassSpectrum spectrum = switch (type) {
+        case RAW -> scan;
+        case CENTROID -> scan.getMassList();
+      };
+      if (spectrum == null) {
+        return null;
+      }
+      spectra.add(spectrum);
+    }
+
+    double minMz = Double.POSITIVE_INFINITY;
+    double maxMz = Double.NEGATIVE_INFINITY;
+    long numEntries = 0;
+    for (MassSpectrum spectrum : spectra) {
+      final int numDp = spectrum.getNumberOfDataPoints();
+      if (numDp == 0) {
+        continue;
+      }
+      minMz = Math.min(minMz, spectrum.getMzValue(0));
+      maxMz = Math.max(maxMz, spectrum.getMzValue(numDp - 1));
+      numEntries += numDp;
+    }
+    if (numEntries == 0) {
+      minMz = 0;
+      maxMz = 0;
+    }
+
+    final ScanMzIndex index = new ScanMzIndex(List.copyOf(scans), spectra, type, minMz, maxMz,
+        numEntries);
+    index.fill(storage);
+    logger.finest(() -> "Created m/z index of %d scans with %d bins and %d blocks".formatted(
+        scans.size(), index.numBins, index.blocks.size()));
+    return index;
+  }
+
+  /**
+   * @return true if raw data files shall create an index for ion chromatogram extraction (see
+   * {@link RawDataFile#getXicIndex(ScanDataType)})
+   */
+  public static boolean isXicIndexEnabled() {
+    final var config = MZmineCore.getConfiguration();
+    return config != null && config.getPreferences() != null
+        && config.getPreferences().getValue(MZminePreferences.xicIndex);
+  }
+
+  /**
+   * @return true if imaging raw data files shall create an index for ion image extraction (see
+   * {@link io.github.mzmine.datamodel.ImagingRawDataFile#getImagingMzIndex()})
+   */
+  public static boolean isImagingIndexEnabled() {
+    final var config = MZmineCore.getConfiguration();
+    return config == null || config.getPreferences() == null
+        || config.getPreferences().getValue(MZminePreferences.imagingIndex);
+  }
+
+  private int binOf(double mz) {
+    final int bin = (int) ((mz - minMz) / binWidth);
+    return Math.min(numBins - 1, Math.max(0, bin));
+  }
+
+  private void fill(@Nullable MemoryMapStorage storage) {
+    // count entries per bin
+    final AtomicIntegerArray counts = new AtomicIntegerArray(numBins);
+    spectra.parallelStream().forEach(spectrum -> {
+      for (int i = 0, numDp = spectrum.getNumberOfDataPoints(); i < numDp; i++) {
+        counts.incrementAndGet(binOf(spectrum.getMzValue(i)));
+      }
+    });
+
+    // split bins into blocks
+    int blockFirstBin = 0;
+    for (int bin = 0; bin < numBins; bin++) {
+      binStart[bin + 1] = binStart[bin] + counts.get(bin);
+      if (binStart[bin + 1] - binStart[blockFirstBin] > MAX_BLOCK_ENTRIES && bin > blockFirstBin) {
+        blocks.add(new Block(blockFirstBin, bin));
+        blockFirstBin = bin;
+      }
+      binBlock[bin] = blocks.size();
+    }
+    blocks.add(new Block(blockFirstBin, numBins));
+
+    for (Block block : blocks) {
+      block.fill(storage);
+    }
+  }
+
+  /**
+   * Passes all data points within the m/z range of the scans fromScanIndex (inclusive) to
+   * toScanIndex (exclusive) to the consumer. The data points of each scan are passed in ascending
+   * m/z order.
+   *
+   * @param mzRange       the m/z range
+   * @param fromScanIndex the first scan index, inclusive
+   * @param toScanIndex   the last scan index, exclusive
+   * @param consumer      receives the data points
+   */
+  public void forEachDataPoint(@NotNull Range<Double> mzRange, int fromScanIndex,
+      int toScanIndex, @NotNull IndexedDataPointConsumer consumer) {
+    final double lower = mzRange.lowerEndpoint();
+    final double upper = mzRange.upperEndpoint();
+    if (upper < minMz || lower > minMz + binWidth * numBins || fromScanIndex >= toScanIndex) {
+      return;
+    }
+
+    for (int bin = binOf(lower), last = binOf(upper); bin <= last; bin++) {
+      final Block block = blocks.get(binBlock[bin]);
+      final int binFrom = (int) (binStart[bin] - block.firstEntry);
+      final int binTo = (int) (binStart[bin + 1] - block.firstEntry);
+      for (int i = block.firstEntryOfScan(binFrom, binTo, fromScanIndex); i < binTo; i++) {
+        final int scan = block.scanIndices.get(i);
+        if (scan >= toScanIndex) {
+          break;
+        }
+        final double mz = block.mzs.get(i);
+        if (mz < lower || mz > upper) {
+          continue;
+        }
+        consumer.accept(scan, mz, block.intensities.get(i));
+      }
+    }
+  }
+
+  /**
+   * Extracts the most intense data point (and optionally the summed intensity) within the m/z
+   * range for each of the given scans.
+   *
+   * @param mzRange           the m/z range
+   * @param scans             the scans. Must be part of this index.
+   * @param basePeakMzs       (out) m/z of the most intense data point for each scan or 0 if there
+   *                          is none
+   * @param basePeakIntensity (out) intensity of the most intense data point or 0 if there is none
+   * @param sums              (out, optional) the summed intensity for each scan
+   * @return false if a scan is not part of this index. The output is undefined in this case.
+   */
+  public boolean extractIonTrace(@NotNull Range<Double> mzRange,
+      @NotNull List<? extends Scan> scans, double[] basePeakMzs, double[] basePeakIntensity,
+      @Nullable double[] sums) {
+    assert basePeakMzs.length >= scans.size() && basePeakIntensity.length >= scans.size();
+    java.util.Arrays.fill(basePeakMzs, 0, scans.size(), 0d);
+    java.util.Arrays.fill(basePeakIntensity, 0, scans.size(), 0d);
+    if (sums != null) {
+      java.util.Arrays.fill(sums, 0, scans.size(), 0d);
+    }
+    if (scans.isEmpty()) {
+      return true;
+    }
+
+    int minIndex = Integer.MAX_VALUE;
+    int maxIndex = -1;
+    final int[] indices = new int[scans.size()];
+    for (int i = 0; i < scans.size(); i++) {
+      indices[i] = indexOf(scans.get(i));
+      if (indices[i] == -1) {
+        return false;
+      }
+      minIndex = Math.min(minIndex, indices[i]);
+      maxIndex = Math.max(maxIndex, indices[i]);
+    }
+
+    // map the scan index to the position in the output arrays
+    final int[] positions = new int[maxIndex - minIndex + 1];
+    java.util.Arrays.fill(positions, -1);
+    for (int i = 0; i < indices.length; i++) {
+      positions[indices[i] - minIndex] = i;
+    }
+
+    final int offset = minIndex;
+    forEachDataPoint(mzRange, minIndex, maxIndex + 1, (scanIndex, mz, intensity) -> {
+      final int pos = positions[scanIndex - offset];
+      if (pos == -1) {
+        return;
+      }
+      if (sums != null) {
+        sums[pos] += intensity;
+      }
+      if (intensity > basePeakIntensity[pos]) {
+        basePeakIntensity[pos] = intensity;
+        basePeakMzs[pos] = mz;
+      }
+    });
+    return true;
+  }
+
+  /**
+   * @param scan the scan
+   * @return the index of the scan in {@link #getScans()} or -1 if the scan is not part of this
+   * index
+   */
+  public int indexOf(@NotNull Scan scan) {
+    return scanIndices.getInt(scan);
+  }
+
+  /**
+   * @return all indexed scans
+   */
+  @NotNull
+  public List<Scan> getScans() {
+    return scans;
+  }
+
+  @NotNull
+  public ScanDataType getScanDataType() {
+    return scanDataType;
+  }
+
+  @FunctionalInterface
+  public interface IndexedDataPointConsumer {
+
+    void accept(int scanIndex, double mz, double intensity);
+  }
+
+  /**
+   * Consecutive bins of the index stored in one set of buffers
+   */
+  private class Block {
+
+    private final int firstBin;
+    private final int lastBinExclusive;
+    private final long firstEntry;
+    private DoubleBuffer mzs;
+    private DoubleBuffer intensities;
+    private IntBuffer scanIndices;
+
+    private Block(int firstBin, int lastBinExclusive) {
+      this.firstBin = firstBin;
+      this.lastBinExclusive = lastBinExclusive;
+      this.firstEntry = binStart[firstBin];
+    }
+
+    /**
+     * @return the first entry within [from, to) with a scan index >= scanIndex
+     */
+    private int firstEntryOfScan(int from, int to, int scanIndex) {
+      int low = from;
+      int high = to;
+      while (low < high) {
+        final int mid = (low + high) >>> 1;
+        if (scanIndices.get(mid) < scanIndex) {
+          low = mid + 1;
+        } else {
+          high = mid;
+        }
+      }
+      return low;
+    }
+
+    private void fill(@Nullable MemoryMapStorage storage) {
+      final int numEntries = (int) (binStart[lastBinExclusive] - firstEntry);
+      final double[] mzs = new double[numEntries];
+      final double[] intensities = new double[numEntries];
+      final int[] scanIndices = new int[numEntries];
+
+      final AtomicIntegerArray cursor = new AtomicIntegerArray(lastBinExclusive - firstBin);
+      IntStream.range(0, spectra.size()).parallel().forEach(scanIndex -> {
+        final MassSpectrum spectrum = spectra.get(scanIndex);
+        final int numDp = spectrum.getNumberOfDataPoints();
+        // data points are sorted by m/z, start with the first one in this block
+        int dp = spectrum.binarySearch(minMz + firstBin * binWidth, true, 0, numDp);
+        while (dp > 0 && binOf(spectrum.getMzValue(dp - 1)) >= firstBin) {
+          dp--;
+        }
+        for (; dp >= 0 && dp < numDp; dp++) {
+          final double mz = spectrum.getMzValue(dp);
+          final int bin = binOf(mz);
+          if (bin < firstBin) {
+            continue;
+          }
+          if (bin >= lastBinExclusive) {
+            break;
+          }
+          final int pos = (int) (binStart[bin] - firstEntry) + cursor.getAndIncrement(
+              bin - firstBin);
+          mzs[pos] = mz;
+          intensities[pos] = spectrum.getIntensityValue(dp);
+          scanIndices[pos] = scanIndex;
+        }
+      });
+
+      // sort every bin by scan index and m/z
+      IntStream.range(firstBin, lastBinExclusive).parallel().forEach(bin -> {
+        final int from = (int) (binStart[bin] - firstEntry);
+        final int to = (int) (binStart[bin + 1] - firstEntry);
+        Arrays.quickSort(from, to, (a, b) -> {
+          final int scanCompare = Integer.compare(scanIndices[a], scanIndices[b]);
+          return scanCompare != 0 ? scanCompare : Double.compare(mzs[a], mzs[b]);
+        }, (a, b) -> {
+          final double mz = mzs[a];
+          mzs[a] = mzs[b];
+          mzs[b] = mz;
+          final double intensity = intensities[a];
+          intensities[a] = intensities[b];
+          intensities[b] = intensity;
+          final int scan = scanIndices[a];
+          scanIndices[a] = scanIndices[b];
+          scanIndices[b] = scan;
+        });
+      });
+
+      this.mzs = StorageUtils.storeValuesToDoubleBuffer(storage, mzs);
+      this.intensities = StorageUtils.storeValuesToDoubleBuffer(storage, intensities);
+      this.scanIndices = StorageUtils.storeValuesToIntBuffer(storage, scanIndices);
+    }
+  }
+
+  /**
+   * Builds the index of a list of scans on first access. Concurrent callers wait for the same build
+   * without holding any other lock, e.g., the monitor of the raw data file. The result is also kept
+   * if the scans cannot be indexed (null), so the build is not repeated until the holder is
+   * replaced.
+   */
+  public static final class Lazy {
+
+    private final ScanDataType type;
+    private final MemoryMapStorage storage;
+    private List<? extends Scan> scans;
+    private ScanMzIndex index;
+
+    /**
+     * @param scans a snapshot of the scans to index
+     */
+    public Lazy(@NotNull List<? extends Scan> scans, @NotNull ScanDataType type,
+        @Nullable MemoryMapStorage storage) {
+      this.scans = scans;
+      this.type = type;
+      this.storage = storage;
+    }
+
+    /**
+     * @return the index or null if the scans cannot be indexed
+     */
+    @Nullable
+    public synchronized ScanMzIndex get() {
+      if (scans != null) {
+        index = build(scans, type, storage);
+        scans = null;
+      }
+      return index;
+    }
+  }
+}
@@ -34,6 +34,7 @@ import io.github.mzmine.datamodel.Scan;
 import io.github.mzmine.datamodel.msms.MsMsInfo;
 import io.github.mzmine.taskcontrol.TaskStatus;
 import io.github.mzmine.util.scans.ScanUtils;
+import java.nio.DoubleBuffer;
 import javax.validation.constraints.Null;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -100,6 +101,28 @@ public class SimpleScan extends AbstractStorableSpectrum implements Scan {
   }
 
 
+  /**
+   * Constructor for a scan with data points in existing buffers, e.g., buffers mapped from a raw
+   * data snapshot of a project.
+   */
+  public SimpleScan(@NotNull RawDataFile dataFile, int scanNumber, int msLevel, float retentionTime,
+      @NotNull DoubleBuffer mzValues, @NotNull DoubleBuffer intensityValues,
+      MassSpectrumType spectrumType, PolarityType polarity, String scanDefinition,
+      Range<Double> scanMZRange, @Nullable Float injectionTime) {
+
+    super(mzValues, intensityValues);
+
+    this.dataFile = dataFile;
+    this.scanNumber = scanNumber;
+    this.msLevel = msLevel;
+    this.retentionTime = retentionTime;
+    this.polarity = polarity;
+    this.scanDefinition = scanDefinition;
+    this.scanMZRange = scanMZRange;
+    setSpectrumType(spectrumType);
+    this.injectionTime = injectionTime;
+  }
+
   /**
    * @see io.github.mzmine.datamodel.Scan#getScanNumber()
    */
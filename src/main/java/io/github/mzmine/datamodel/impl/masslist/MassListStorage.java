@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2004-2022 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.datamodel.impl.masslist;
+
+import io.github.mzmine.datamodel.MassList;
+import io.github.mzmine.datamodel.featuredata.impl.StorageUtils;
+import io.github.mzmine.util.MemoryMapStorage;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Stores the mass lists of multiple scans in one contiguous m/z and intensity buffer, indexed by
+ * storage offsets (analogous to the mass lists in
+ * {@link io.github.mzmine.datamodel.impl.MobilityScanStorage}). The individual mass lists are
+ * accessed via {@link StoredMassList} wrappers.
+ */
+public class MassListStorage {
+
+  private final DoubleBuffer mzValues;
+  private final DoubleBuffer intensityValues;
+  private final IntBuffer storageOffsets;
+  private final IntBuffer basePeakIndices;
+  private final int maxNumPoints;
+
+  /**
+   * @param storage the storage for the data points. If null, the values are kept in ram.
+   * @param data    the mass lists as [0,1] as [mzs, intensities] arrays, one for each scan. May
+   *                not be empty.
+   */
+  public MassListStorage(@Nullable MemoryMapStorage storage, @NotNull List<double[][]> data) {
+    if (data.isEmpty()) {
+      throw new IllegalArgumentException("Cannot create a mass list storage without mass lists.");
+    }
+
+    final AtomicInteger biggestOffset = new AtomicInteger(0);
+    final int[] offsets = StorageUtils.generateOffsets(data, biggestOffset);
+    storageOffsets = StorageUtils.storeValuesToIntBuffer(storage, offsets);
+
+    final int lastNumPoints = data.get(data.size() - 1)[0].length;
+    maxNumPoints = Math.max(biggestOffset.get(), lastNumPoints);
+
+    final int numDp = offsets[offsets.length - 1] + lastNumPoints;
+    final double[] mzs = new double[numDp];
+    final double[] intensities = new double[numDp];
+
+    StorageUtils.putAllValuesIntoOneArray(data, 0, mzs);
+    final int[] basePeaks = StorageUtils.putAllValuesIntoOneArray(data, 1, intensities);
+    basePeakIndices = StorageUtils.storeValuesToIntBuffer(storage, basePeaks);
+    mzValues = StorageUtils.storeValuesToDoubleBuffer(storage, mzs);
+    intensityValues = StorageUtils.storeValuesToDoubleBuffer(storage, intensities);
+  }
+
+  /**
+   * Uses the given buffers directly, e.g., buffers mapped from a raw data snapshot of a project.
+   *
+   * @param mzValues        the m/z values of all mass lists.
+   * @param intensityValues the intensity values of all mass lists.
+   * @param storageOffsets  the index of the first data point of each mass list.
+   * @param basePeakIndices the base peak index of each mass list or -1 for empty mass lists.
+   */
+  public MassListStorage(@NotNull DoubleBuffer mzValues, @NotNull DoubleBuffer intensityValues,
+      @NotNull int[] storageOffsets, @NotNull int[] basePeakIndices) {
+    if (storageOffsets.length == 0) {
+      throw new IllegalArgumentException("Cannot create a mass list storage without mass lists.");
+    }
+    this.mzValues = mzValues;
+    this.intensityValues = intensityValues;
+    this.storageOffsets = IntBuffer.wrap(storageOffsets);
+    this.basePeakIndices = IntBuffer.wrap(basePeakIndices);
+
+    int max = 0;
+    for (int i = 0; i < storageOffsets.length; i++) {
+      max = Math.max(max, getNumberOfDatapoints(i));
+    }
+    maxNumPoints = max;
+  }
+
+  /**
+   * Creates a {@link StoredMassList} wrapper for the given index. The wrapper should be added to
+   * the respective scan and reused.
+   *
+   * @param index the index of the mass list in the list this storage was created with.
+   * @return the mass list.
+   */
+  public MassList getMassList(int index) {
+    assert index < getNumberOfMassLists();
+    return new StoredMassList(index, this);
+  }
+
+  public int getNumberOfMassLists() {
+    return storageOffsets.capacity();
+  }
+
+  /**
+   * @return The maximum number of data points in a single mass list.
+   */
+  public int getMaxNumPoints() {
+    return maxNumPoints;
+  }
+
+  /**
+   * @param index The mass list index.
+   * @return The number of points in the mass list.
+   */
+  public int getNumberOfDatapoints(int index) {
+    assert index < getNumberOfMassLists();
+    if (index < storageOffsets.capacity() - 1) {
+      return storageOffsets.get(index + 1) - storageOffsets.get(index);
+    } else {
+      return mzValues.capacity() - storageOffsets.get(index);
+    }
+  }
+
+  /**
+   * @param index The mass list index.
+   * @return The storage offset (where data points of this mass list start)
+   */
+  public int getStorageOffset(int index) {
+    return storageOffsets.get(index);
+  }
+
+  /**
+   * @param index The mass list index.
+   * @return The base peak index or -1 if no base peak was found (mass list empty).
+   */
+  public int getBasePeakIndex(int index) {
+    return basePeakIndices.get(index);
+  }
+
+  public void getMzValues(int index, double[] dst, int offset) {
+    assert getNumberOfDatapoints(index) + offset <= dst.length;
+    mzValues.get(getStorageOffset(index), dst, offset, getNumberOfDatapoints(index));
+  }
+
+  public void getIntensityValues(int index, double[] dst, int offset) {
+    assert getNumberOfDatapoints(index) + offset <= dst.length;
+    intensityValues.get(getStorageOffset(index), dst, offset, getNumberOfDatapoints(index));
+  }
+
+  public double getMzValue(int index, int dataPointIndex) {
+    return mzValues.get(getStorageOffset(index) + dataPointIndex);
+  }
+
+  public double getIntensityValue(int index, int dataPointIndex) {
+    return intensityValues.get(getStorageOffset(index) + dataPointIndex);
+  }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2004-2022 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.datamodel.impl.masslist;
+
+import com.google.common.collect.Range;
+import io.github.mzmine.datamodel.DataPoint;
+import io.github.mzmine.datamodel.MassList;
+import io.github.mzmine.datamodel.MassSpectrum;
+import io.github.mzmine.datamodel.MassSpectrumType;
+import java.util.Iterator;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A mass list of a single scan, backed by a {@link MassListStorage} that holds the mass lists of
+ * multiple scans.
+ */
+public class StoredMassList implements MassList {
+
+  private final MassListStorage storage;
+  private final int index;
+
+  /**
+   * @param index The index of this mass list in the storage.
+   */
+  public StoredMassList(int index, @NotNull final MassListStorage storage) {
+    this.storage = storage;
+    this.index = index;
+  }
+
+  @Override
+  public int getNumberOfDataPoints() {
+    return storage.getNumberOfDatapoints(index);
+  }
+
+  @Override
+  public MassSpectrumType getSpectrumType() {
+    return MassSpectrumType.CENTROIDED;
+  }
+
+  @Override
+  public double[] getMzValues(@NotNull double[] dst) {
+    if (dst.length < getNumberOfDataPoints()) {
+      dst = new double[getNumberOfDataPoints()];
+    }
+    storage.getMzValues(index, dst, 0);
+    return dst;
+  }
+
+  @Override
+  public double[] getIntensityValues(@NotNull double[] dst) {
+    if (dst.length < getNumberOfDataPoints()) {
+      dst = new double[getNumberOfDataPoints()];
+    }
+    storage.getIntensityValues(index, dst, 0);
+    return dst;
+  }
+
+  @Override
+  public double getMzValue(int index) {
+    return storage.getMzValue(this.index, index);
+  }
+
+  @Override
+  public double getIntensityValue(int index) {
+    return storage.getIntensityValue(this.index, index);
+  }
+
+  @Nullable
+  @Override
+  public Double getBasePeakMz() {
+    final int basePeakIndex = storage.getBasePeakIndex(index);
+    return basePeakIndex != -1 ? getMzValue(basePeakIndex) : null;
+  }
+
+  @Nullable
+  @Override
+  public Double getBasePeakIntensity() {
+    final int basePeakIndex = storage.getBasePeakIndex(index);
+    return basePeakIndex != -1 ? getIntensityValue(basePeakIndex) : null;
+  }
+
+  @Nullable
+  @Override
+  public Integer getBasePeakIndex() {
+    final int basePeakIndex = storage.getBasePeakIndex(index);
+    return basePeakIndex != -1 ? basePeakIndex : null;
+  }
+
+  @Nullable
+  @Override
+  public Range<Double> getDataPointMZRange() {
+    final int numDp = getNumberOfDataPoints();
+    return numDp > 0 ? Range.closed(getMzValue(0), getMzValue(numDp - 1)) : null;
+  }
+
+  @Nullable
+  @Override
+  public Double getTIC() {
+    double tic = 0d;
+    for (int i = 0, numDp = getNumberOfDataPoints(); i < numDp; i++) {
+      tic += getIntensityValue(i);
+    }
+    return tic;
+  }
+
+  @Override
+  public Iterator<DataPoint> iterator() {
+    return new DataPointIterator(this);
+  }
+
+  private static class DataPointIterator implements Iterator<DataPoint>, DataPoint {
+
+    private final MassSpectrum spectrum;
+    // We start at -1 so the first call to next() moves us to index 0
+    private int cursor = -1;
+
+    DataPointIterator(MassSpectrum spectrum) {
+      this.spectrum = spectrum;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return (cursor + 1) < spectrum.getNumberOfDataPoints();
+    }
+
+    @Override
+    public DataPoint next() {
+      cursor++;
+      return this;
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public double getMZ() {
+      return spectrum.getMzValue(cursor);
+    }
+
+    @Override
+    public double getIntensity() {
+      return spectrum.getIntensityValue(cursor);
+    }
+  }
+}
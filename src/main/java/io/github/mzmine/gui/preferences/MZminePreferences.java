@@ -153,6 +153,19 @@ public class MZminePreferences extends SimpleParameterSet {
       KeepInMemory.ALL, KeepInMemory.MASSES_AND_FEATURES), KeepInMemory.values(),
       KeepInMemory.NONE);
 
+  public static final BooleanParameter xicIndex = new BooleanParameter(
+      "Index raw data for ion chromatograms",
+      "If selected, an m/z index of each raw data file is created on first use by XIC plots, "
+          + "manual feature picking, targeted feature detection and gap filling. Extracting ion "
+          + "chromatograms only reads the matching data points afterwards. Requires additional "
+          + "temporary storage comparable to the size of the (centroided) data.", false);
+
+  public static final BooleanParameter imagingIndex = new BooleanParameter(
+      "Index imaging data for ion images",
+      "If selected, an m/z index of each imaging raw data file is created on first use by the "
+          + "image viewer. Extracting ion images only reads the matching data points afterwards. "
+          + "Requires additional temporary storage comparable to the size of the raw data.", true);
+
   public static final BooleanParameter showPrecursorWindow = new BooleanParameter(
       "Show precursor windows", "Show the isolation window instead of just the precursor m/z.",
       false);
@@ -177,7 +190,8 @@ public class MZminePreferences extends SimpleParameterSet {
   public MZminePreferences() {
     super(new Parameter[]{
         // start with performance
-        numOfThreads, memoryOption, tempDirectory, proxySettings, rExecPath, sendStatistics,
+        numOfThreads, memoryOption, tempDirectory, xicIndex, imagingIndex, proxySettings,
+        rExecPath, sendStatistics,
         // visuals
         // number formats
         mzFormat, rtFormat, mobilityFormat, ccsFormat, intensityFormat, ppmFormat, scoreFormat,
@@ -202,8 +216,8 @@ public class MZminePreferences extends SimpleParameterSet {
 
     // add groups
     dialog.addParameterGroup("General",
-        new Parameter[]{numOfThreads, memoryOption, tempDirectory, proxySettings, rExecPath,
-            sendStatistics});
+        new Parameter[]{numOfThreads, memoryOption, tempDirectory, xicIndex, imagingIndex,
+            proxySettings, rExecPath, sendStatistics});
     dialog.addParameterGroup("Formats",
         new Parameter[]{mzFormat, rtFormat, mobilityFormat, ccsFormat, intensityFormat, ppmFormat,
             scoreFormat, unitFormat});
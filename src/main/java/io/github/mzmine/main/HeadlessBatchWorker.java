@@ -0,0 +1,347 @@
+/*
+ * Copyright (c) 2004-2022 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.main;
+
+import io.github.mzmine.datamodel.MZmineProject;
+import io.github.mzmine.modules.batchmode.BatchModeModule;
+import io.github.mzmine.modules.io.import_spectral_library.SpectralLibraryCache;
+import io.github.mzmine.project.impl.MZmineProjectImpl;
+import io.github.mzmine.util.ExitCode;
+import io.github.mzmine.util.MemoryMapStorage;
+import io.github.mzmine.util.files.FileAndPathUtil;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchService;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Long running headless worker that keeps the JVM, the initialized modules and the imported
+ * spectral libraries warm and runs batch files submitted to a spool directory. Started with the
+ * -w / --worker argument.
+ * <p>
+ * Jobs are batch files with the extension .xml in the spool directory. Schedulers should write a
+ * job under a different name and rename it afterwards, so that a job is never read before it is
+ * complete. Jobs are run one after another in the order of submission, each one in a new project.
+ * A running job is moved to the sub directory running, a finished job to done or failed. A status
+ * file with the exit code and a {@link io.github.mzmine.modules.batchmode.BatchReport} with the
+ * resource usage of all batch steps (.json and .csv) are written next to the finished job. The
+ * worker stops after the current job if a file named {@value #STOP_FILE} is created in the spool
+ * directory. The stop file is deleted when the worker stops.
+ */
+public class HeadlessBatchWorker {
+
+  public static final String STOP_FILE = "worker.stop";
+  private static final Logger logger = Logger.getLogger(HeadlessBatchWorker.class.getName());
+  private static final String JOB_EXTENSION = ".xml";
+  private static final String STATUS_EXTENSION = ".status";
+  private static final String REPORT_SUFFIX = "_report";
+  private static final List<String> REPORT_FORMATS = List.of("json", "csv");
+  // wake up regularly, watch services may miss events on network file systems
+  private static final long POLL_SECONDS = 5;
+
+  private final Path spoolDir;
+  private final Path runningDir;
+  private final Path doneDir;
+  private final Path failedDir;
+  // jobs that could neither be run nor moved to failed, skipped until the worker is restarted
+  private final Set<Path> skippedJobs = new HashSet<>();
+
+  public HeadlessBatchWorker(@NotNull File spoolDir) {
+    this.spoolDir = spoolDir.toPath().toAbsolutePath();
+    runningDir = this.spoolDir.resolve("running");
+    doneDir = this.spoolDir.resolve("done");
+    failedDir = this.spoolDir.resolve("failed");
+  }
+
+  /**
+   * Runs jobs until the stop file is created.
+   *
+   * @return {@link ExitCode#OK} if the worker was stopped or {@link ExitCode#ERROR} if the spool
+   * directory is not accessible
+   */
+  public ExitCode run() {
+    for (Path dir : List.of(spoolDir, runningDir, doneDir, failedDir)) {
+      if (!FileAndPathUtil.createDirectory(dir.toFile())) {
+        logger.severe("Cannot create or access the worker directory " + dir);
+        return ExitCode.ERROR;
+      }
+    }
+    recoverInterruptedJobs();
+
+    SpectralLibraryCache.setEnabled(true);
+    logger.info("Headless worker is waiting for batch jobs in " + spoolDir);
+
+    try (WatchService watchService = FileSystems.getDefault().newWatchService()) {
+      spoolDir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+          StandardWatchEventKinds.ENTRY_MODIFY);
+
+      while (!Files.exists(spoolDir.resolve(STOP_FILE))) {
+        final List<Path> jobs = findJobs();
+        if (!jobs.isEmpty()) {
+          runJob(jobs.get(0));
+          continue;
+        }
+
+        final var key = watchService.poll(POLL_SECONDS, TimeUnit.SECONDS);
+        if (key != null) {
+          key.pollEvents();
+          key.reset();
+        }
+      }
+    } catch (IOException e) {
+      logger.log(Level.SEVERE, "Error while watching the spool directory " + spoolDir, e);
+      return ExitCode.ERROR;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      SpectralLibraryCache.setEnabled(false);
+      deleteStopFile();
+    }
+
+    logger.info("Headless worker stopped");
+    return ExitCode.OK;
+  }
+
+  /**
+   * A restarted worker would stop immediately if the stop file remains
+   */
+  private void deleteStopFile() {
+    final Path stopFile = spoolDir.resolve(STOP_FILE);
+    try {
+      Files.deleteIfExists(stopFile);
+    } catch (IOException e) {
+      logger.log(Level.WARNING, "Cannot delete the stop file " + stopFile, e);
+    }
+  }
+
+  /**
+   * Jobs that are still in the running directory were interrupted by a crash or kill of a previous
+   * worker. They are reported as failed.
+   */
+  private void recoverInterruptedJobs() {
+    try (Stream<Path> files = Files.list(runningDir)) {
+      for (Path job : files.filter(this::isJob).toList()) {
+        logger.warning("Job " + job.getFileName() + " was interrupted by a previous worker");
+        final Path failed = move(job, failedDir);
+        writeStatus(failed, ExitCode.ERROR, null, Instant.now(), "interrupted");
+      }
+    } catch (IOException e) {
+      logger.log(Level.WARNING, "Cannot check for interrupted jobs in " + runningDir, e);
+    }
+  }
+
+  /**
+   * @return all submitted jobs, oldest first
+   */
+  private List<Path> findJobs() throws IOException {
+    try (Stream<Path> files = Files.list(spoolDir)) {
+      return files.filter(this::isJob).filter(job -> !skippedJobs.contains(job)).sorted(
+              Comparator.comparing((Path p) -> p.toFile().lastModified()).thenComparing(Path::toString))
+          .toList();
+    }
+  }
+
+  private boolean isJob(Path file) {
+    return Files.isRegularFile(file) && file.getFileName().toString().toLowerCase()
+        .endsWith(JOB_EXTENSION);
+  }
+
+  /**
+   * Runs a job and moves it to done or failed. Errors of a single job never stop the worker.
+   */
+  private void runJob(Path submitted) {
+    final Path job;
+    try {
+      job = move(submitted, runningDir);
+    } catch (IOException e) {
+      logger.log(Level.SEVERE, "Cannot start batch job " + submitted.getFileName(), e);
+      failJob(submitted, null, e);
+      return;
+    }
+    final Instant start = Instant.now();
+    logger.info("Starting batch job " + job.getFileName());
+
+    // every job gets a new project, closes the data files of the previous job
+    final MZmineProject project = new MZmineProjectImpl();
+    MZmineCore.getProjectManager().setCurrentProject(project);
+    final List<MemoryMapStorage> storagesBefore = new ArrayList<>(MZmineCore.getStorageList());
+
+    ExitCode exitCode;
+    String message = null;
+    try {
+      exitCode = BatchModeModule.runBatch(project, job.toFile(), start,
+          getReportFile(job).toFile());
+    } catch (Throwable t) {
+      logger.log(Level.SEVERE, "Batch job " + job.getFileName() + " failed", t);
+      exitCode = ExitCode.ERROR;
+      message = t.getMessage();
+    }
+
+    final Instant end = Instant.now();
+    try {
+      final Path finishedDir = exitCode == ExitCode.OK ? doneDir : failedDir;
+      moveReport(job, finishedDir);
+      final Path finished = move(job, finishedDir);
+      writeStatus(finished, exitCode, start, end, message);
+      logger.info(() -> "Finished batch job " + finished.getFileName() + " in "
+          + Duration.between(start, end).toSeconds() + " s");
+    } catch (IOException e) {
+      logger.log(Level.SEVERE, "Cannot finish batch job " + job.getFileName(), e);
+      failJob(job, start, e);
+    } finally {
+      // release the data of this job
+      MZmineCore.getProjectManager().setCurrentProject(new MZmineProjectImpl());
+      discardStorages(storagesBefore);
+    }
+  }
+
+  /**
+   * Moves a job that could not be started or finished to failed. If this is not possible either,
+   * the job is skipped until the worker is restarted, so it is not run again and again.
+   */
+  private void failJob(Path job, @Nullable Instant start, IOException cause) {
+    try {
+      final Path failed = move(job, failedDir);
+      writeStatus(failed, ExitCode.ERROR, start, Instant.now(), cause.getMessage());
+    } catch (IOException e) {
+      logger.log(Level.SEVERE, "Cannot move batch job " + job.getFileName() + " to " + failedDir
+          + ", the job is skipped", e);
+      skippedJobs.add(job);
+    }
+  }
+
+  /**
+   * Deletes the temporary files of all storages that were created during the last job, except
+   * the storages of cached spectral libraries. Otherwise, the temp files of all jobs would remain
+   * until the worker is stopped.
+   */
+  private void discardStorages(List<MemoryMapStorage> storagesBefore) {
+    final Set<MemoryMapStorage> keep = SpectralLibraryCache.getStorages();
+    final List<MemoryMapStorage> storages = MZmineCore.getStorageList();
+    final List<MemoryMapStorage> discard = new ArrayList<>();
+    synchronized (storages) {
+      for (MemoryMapStorage storage : storages) {
+        if (!keep.contains(storage) && !storagesBefore.contains(storage)) {
+          discard.add(storage);
+        }
+      }
+      storages.removeAll(discard);
+    }
+
+    for (MemoryMapStorage storage : discard) {
+      try {
+        // the mapped buffers are released by the garbage collector
+        storage.discard(null);
+      } catch (IOException e) {
+        logger.log(Level.WARNING, "Cannot discard temporary files", e);
+      }
+    }
+  }
+
+  /**
+   * @return the report file without format, next to the job
+   */
+  private Path getReportFile(Path job) {
+    return job.resolveSibling(getJobName(job) + REPORT_SUFFIX);
+  }
+
+  private String getJobName(Path job) {
+    final String name = job.getFileName().toString();
+    return name.substring(0, name.length() - JOB_EXTENSION.length());
+  }
+
+  /**
+   * Moves the report files next to the finished job. A report that cannot be moved is left in the
+   * running directory and does not fail the job.
+   */
+  private void moveReport(Path job, Path dir) {
+    final File report = getReportFile(job).toFile();
+    for (String format : REPORT_FORMATS) {
+      final Path file = FileAndPathUtil.getRealFilePath(report, format).toPath();
+      if (!Files.exists(file)) {
+        continue;
+      }
+      try {
+        move(file, dir);
+      } catch (IOException e) {
+        logger.log(Level.WARNING, "Cannot move the report " + file + " to " + dir, e);
+      }
+    }
+  }
+
+  private Path move(Path file, Path dir) throws IOException {
+    final Path target = dir.resolve(file.getFileName());
+    try {
+      return Files.move(file, target, StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } catch (AtomicMoveNotSupportedException e) {
+      return Files.move(file, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  private void writeStatus(Path job, ExitCode exitCode, Instant start, Instant end,
+      String message) {
+    final String name = job.getFileName().toString();
+    final Path statusFile = job.resolveSibling(
+        name.substring(0, name.length() - JOB_EXTENSION.length()) + STATUS_EXTENSION);
+
+    final List<String> lines = new ArrayList<>();
+    lines.add("exitCode=" + exitCode);
+    if (start != null) {
+      lines.add("start=" + start);
+      lines.add("durationSeconds=" + Duration.between(start, end).toSeconds());
+    }
+    lines.add("end=" + end);
+    if (message != null) {
+      lines.add("message=" + message.replaceAll("\\R", " "));
+    }
+
+    try {
+      Files.write(statusFile, lines, StandardCharsets.UTF_8);
+    } catch (IOException e) {
+      logger.log(Level.WARNING, "Cannot write status file " + statusFile, e);
+    }
+  }
+}
@@ -49,6 +49,8 @@ public class MZmineArgumentParser {
   private File batchFile;
   private File preferencesFile;
   private File tempDirectory;
+  private File workerSpoolDirectory;
+  private File reportFile;
   private boolean isKeepRunningAfterBatch = false;
   private boolean loadTdfPseudoProfile = false;
   private KeepInMemory isKeepInMemory = null;
@@ -74,6 +76,17 @@ public class MZmineArgumentParser {
     keepRunning.setRequired(false);
     options.addOption(keepRunning);
 
+    Option worker = new Option("w", "worker", true,
+        "run as headless worker that executes batch files submitted to this spool directory");
+    worker.setRequired(false);
+    options.addOption(worker);
+
+    Option report = new Option("rp", "report", true,
+        "write the runtime, CPU time, allocated memory and temporary storage of each batch step "
+            + "to this file (as .json and .csv)");
+    report.setRequired(false);
+    options.addOption(report);
+
     Option keepInMemory = new Option("m", "memory", true,
         "keep objects (scan data, features, etc) in memory. Options: none, all, features, centroids, raw, masses_features (masses_features for features and centroids)");
     keepInMemory.setRequired(false);
@@ -117,6 +130,18 @@ public class MZmineArgumentParser {
             () -> "the -r / --running argument was set to keep MZmine alive after batch is finished");
       }
 
+      String sworker = cmd.getOptionValue(worker.getLongOpt());
+      if (sworker != null) {
+        logger.info(() -> "Headless worker spool directory set by command line: " + sworker);
+        workerSpoolDirectory = new File(sworker);
+      }
+
+      String sreport = cmd.getOptionValue(report.getLongOpt());
+      if (sreport != null) {
+        logger.info(() -> "Batch report file set by command line: " + sreport);
+        reportFile = new File(sreport);
+      }
+
       String keepInData = cmd.getOptionValue(keepInMemory.getLongOpt());
       if (keepInData != null) {
         isKeepInMemory = KeepInMemory.parse(keepInData);
@@ -155,6 +180,27 @@ public class MZmineArgumentParser {
     return batchFile;
   }
 
+  /**
+   * Run as a headless worker that executes batch files from this directory, see
+   * {@link HeadlessBatchWorker}
+   *
+   * @return the spool directory or null
+   */
+  @Nullable
+  public File getWorkerSpoolDirectory() {
+    return workerSpoolDirectory;
+  }
+
+  /**
+   * The resource usage of all batch steps is written to this file as .json and .csv
+   *
+   * @return the report file or null
+   */
+  @Nullable
+  public File getReportFile() {
+    return reportFile;
+  }
+
   /**
    * After batch is finished, keep mzmine running
    *
@@ -192,13 +192,15 @@ public final class MZmineCore {
       // batch mode defined by command line argument
       File batchFile = argsParser.getBatchFile();
       boolean keepRunningInHeadless = argsParser.isKeepRunningAfterBatch();
+      File workerSpoolDir = argsParser.getWorkerSpoolDirectory();
 
       // track version use
       String versionString = "MZmine version " + version;
       GoogleAnalyticsTracker.track(versionString, versionString);
       GoogleAnalyticsTracker.track("MZmine3_start", "MZmine3_start");
 
-      getInstance().headLessMode = (batchFile != null || keepRunningInHeadless);
+      getInstance().headLessMode = (batchFile != null || keepRunningInHeadless
+          || workerSpoolDir != null);
       // If we have no arguments, run in GUI mode, otherwise run in batch mode
       if (!getInstance().headLessMode) {
         try {
@@ -224,7 +226,16 @@ public final class MZmineCore {
 
           // run batch file
           getInstance().batchExitCode = BatchModeModule.runBatch(
-              getInstance().projectManager.getCurrentProject(), batchFile, Instant.now());
+              getInstance().projectManager.getCurrentProject(), batchFile, Instant.now(),
+              argsParser.getReportFile());
+        }
+
+        // keep running and execute batch files submitted to the spool directory
+        if (workerSpoolDir != null) {
+          final ExitCode workerExitCode = new HeadlessBatchWorker(workerSpoolDir).run();
+          if (workerExitCode != ExitCode.OK) {
+            getInstance().batchExitCode = workerExitCode;
+          }
         }
 
         // option to keep MZmine running after the batch is finished
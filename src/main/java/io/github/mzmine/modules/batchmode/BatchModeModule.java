@@ -35,6 +35,7 @@ import io.github.mzmine.taskcontrol.TaskStatus;
 import io.github.mzmine.util.DialogLoggerUtil;
 import io.github.mzmine.util.ExitCode;
 import java.io.File;
+import java.io.IOException;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -44,6 +45,7 @@ import java.util.logging.Logger;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.w3c.dom.Document;
 
 /**
@@ -63,6 +65,19 @@ public class BatchModeModule implements MZmineProcessingModule {
    */
   public static ExitCode runBatch(@NotNull MZmineProject project, File batchFile,
       @NotNull Instant moduleCallDate) {
+    return runBatch(project, batchFile, moduleCallDate, null);
+  }
+
+  /**
+   * Run from batch file (usually in headless mode)
+   *
+   * @param batchFile  local file
+   * @param reportFile writes the resource usage of all batch steps as {@link BatchReport} to
+   *                   reportFile.json and reportFile.csv. May be null.
+   * @return exit code that reflects if the batch mode was started
+   */
+  public static ExitCode runBatch(@NotNull MZmineProject project, File batchFile,
+      @NotNull Instant moduleCallDate, @Nullable File reportFile) {
 
     if (MZmineCore.getTaskController().isTaskInstanceRunningOrQueued(BatchTask.class)) {
       MZmineCore.getDesktop().displayErrorMessage(
@@ -90,8 +105,11 @@ public class BatchModeModule implements MZmineProcessingModule {
 
       ParameterSet parameters = new BatchModeParameters();
       parameters.getParameter(BatchModeParameters.batchQueue).setValue(newQueue);
-      Task batchTask = new BatchTask(project, parameters, moduleCallDate);
+      BatchTask batchTask = new BatchTask(project, parameters, moduleCallDate);
       batchTask.run();
+      if (reportFile != null) {
+        writeReport(batchTask.getReport(), reportFile);
+      }
       if (batchTask.getStatus() == TaskStatus.FINISHED) {
         return ExitCode.OK;
       } else {
@@ -104,6 +122,15 @@ public class BatchModeModule implements MZmineProcessingModule {
     }
   }
 
+  private static void writeReport(BatchReport report, File reportFile) {
+    try {
+      report.write(reportFile);
+      logger.info("Wrote batch report to " + reportFile);
+    } catch (IOException e) {
+      logger.log(Level.WARNING, "Cannot write batch report to " + reportFile, e);
+    }
+  }
+
   @Override
   public @NotNull String getName() {
     return MODULE_NAME;
@@ -59,6 +59,7 @@ import io.github.mzmine.modules.dataprocessing.filter_alignscans.AlignScansModul
 import io.github.mzmine.modules.dataprocessing.filter_baselinecorrection.BaselineCorrectionModule;
 import io.github.mzmine.modules.dataprocessing.filter_blanksubtraction.FeatureListBlankSubtractionModule;
 import io.github.mzmine.modules.dataprocessing.filter_clearannotations.ClearFeatureAnnotationsModule;
+import io.github.mzmine.modules.dataprocessing.filter_compactlist.CompactFeatureListModule;
 import io.github.mzmine.modules.dataprocessing.filter_cropfilter.CropFilterModule;
 import io.github.mzmine.modules.dataprocessing.filter_diams2.DiaMs2CorrModule;
 import io.github.mzmine.modules.dataprocessing.filter_duplicatefilter.DuplicateFilterModule;
@@ -274,6 +275,7 @@ public class BatchModeModulesList {
        * {@link io.github.mzmine.modules.MZmineModuleCategory.MainCategory#FEATURE_PROCESSING}
        */
       ClearFeatureAnnotationsModule.class, //
+      CompactFeatureListModule.class, //
       LinearNormalizerModule.class, //
       RTCalibrationModule.class, //
       StandardCompoundNormalizerModule.class, //
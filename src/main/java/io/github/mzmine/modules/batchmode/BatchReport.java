@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2004-2022 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.modules.batchmode;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.mzmine.taskcontrol.Task;
+import io.github.mzmine.taskcontrol.TaskResourceUsage;
+import io.github.mzmine.taskcontrol.TaskStatus;
+import io.github.mzmine.util.files.FileAndPathUtil;
+import io.github.mzmine.util.io.CSVUtils;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Collects the {@link TaskResourceUsage} of all tasks of a batch run, one entry per task of each
+ * batch step. Most modules create one task per raw data file or feature list, which is named in
+ * the task description. Written as JSON and CSV at the end of a headless batch run to find the
+ * steps that dominate the processing time and memory.
+ */
+public class BatchReport {
+
+  private static final String SEP = ",";
+
+  private final Instant start = Instant.now();
+  private final List<Entry> tasks = Collections.synchronizedList(new ArrayList<>());
+
+  /**
+   * @param dataset            the dataset name of an advanced batch or an empty string
+   * @param step               the batch step number starting at 1
+   * @param module             the module name
+   * @param stepWallTimeMillis the time from the start to the end of the step
+   * @param task               the finished, canceled or failed task of this step
+   */
+  public void add(@NotNull String dataset, int step, @NotNull String module,
+      long stepWallTimeMillis, @NotNull Task task) {
+    tasks.add(new Entry(dataset, step, module, Objects.requireNonNullElse(
+        task.getTaskDescription(), ""), task.getStatus(), stepWallTimeMillis,
+        task.getResourceUsage()));
+  }
+
+  public Instant getStart() {
+    return start;
+  }
+
+  public List<Entry> getTasks() {
+    return List.copyOf(tasks);
+  }
+
+  /**
+   * Writes the report to file.json and file.csv
+   *
+   * @param file the file path, the format is replaced
+   */
+  public void write(@NotNull File file) throws IOException {
+    final File json = FileAndPathUtil.getRealFilePath(file, "json");
+    final File csv = FileAndPathUtil.getRealFilePath(file, "csv");
+    FileAndPathUtil.createDirectory(json.getAbsoluteFile().getParentFile());
+    writeJson(json);
+    writeCsv(csv);
+  }
+
+  public void writeJson(@NotNull File file) throws IOException {
+    new ObjectMapper().writerWithDefaultPrettyPrinter()
+        .writeValue(file, new JsonReport(start.toString(), getTasks()));
+  }
+
+  public void writeCsv(@NotNull File file) throws IOException {
+    try (BufferedWriter writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+      writer.write(String.join(SEP, "dataset", "step", "module", "task", "status",
+          "step_wall_time_ms", "wall_time_ms", "task_thread_cpu_time_ms",
+          "task_thread_allocated_bytes", "storage_bytes", "processed_items"));
+      writer.newLine();
+      for (Entry e : getTasks()) {
+        final TaskResourceUsage usage = e.usage();
+        writer.write(String.join(SEP, CSVUtils.escape(e.dataset(), SEP), String.valueOf(e.step()),
+            CSVUtils.escape(e.module(), SEP), CSVUtils.escape(e.task(), SEP),
+            String.valueOf(e.status()), String.valueOf(e.stepWallTimeMillis()),
+            usage == null ? "" : String.valueOf(usage.wallTimeMillis()),
+            usage == null ? "" : String.valueOf(usage.taskThreadCpuTimeMillis()),
+            usage == null ? "" : String.valueOf(usage.taskThreadAllocatedBytes()),
+            usage == null ? "" : String.valueOf(usage.storageBytes()),
+            usage == null ? "" : String.valueOf(usage.processedItems())));
+        writer.newLine();
+      }
+    }
+  }
+
+  /**
+   * @param usage null if the task did not track its resources
+   */
+  public record Entry(String dataset, int step, String module, String task, TaskStatus status,
+                      long stepWallTimeMillis, @Nullable TaskResourceUsage usage) {
+
+  }
+
+  record JsonReport(String start, List<Entry> tasks) {
+
+  }
+}
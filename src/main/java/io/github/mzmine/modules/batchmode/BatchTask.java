@@ -84,6 +84,8 @@ public class BatchTask extends AbstractTask {
   private Boolean createResultsDir;
   private File parentDir;
   private int currentDataset;
+  // resource usage of all tasks
+  private final BatchReport report = new BatchReport();
 
   BatchTask(MZmineProject project, ParameterSet parameters, @NotNull Instant moduleCallDate) {
     this(project, parameters, moduleCallDate,
@@ -296,6 +298,7 @@ public class BatchTask extends AbstractTask {
     }
 
     List<Task> currentStepTasks = new ArrayList<>();
+    final long stepStart = System.nanoTime();
     Instant moduleCallDate = Instant.now();
     logger.finest(() -> "Module " + method.getName() + " called at " + moduleCallDate.toString());
     ExitCode exitCode = method.runModule(project, batchStepParameters, currentStepTasks,
@@ -329,6 +332,7 @@ public class BatchTask extends AbstractTask {
         for (WrappedTask stepTask : currentStepWrappedTasks) {
           stepTask.getActualTask().cancel();
         }
+        addToReport(stepNumber, method, currentStepWrappedTasks, stepStart);
         return;
       }
 
@@ -350,6 +354,7 @@ public class BatchTask extends AbstractTask {
           setErrorMessage(
               stepTask.getActualTask().getTaskDescription() + ": " + stepTask.getActualTask()
                   .getErrorMessage());
+          addToReport(stepNumber, method, currentStepWrappedTasks, stepStart);
           return;
         }
 
@@ -360,6 +365,7 @@ public class BatchTask extends AbstractTask {
           for (WrappedTask t : currentStepWrappedTasks) {
             t.getActualTask().cancel();
           }
+          addToReport(stepNumber, method, currentStepWrappedTasks, stepStart);
           return;
         }
 
@@ -377,6 +383,8 @@ public class BatchTask extends AbstractTask {
       }
     }
 
+    addToReport(stepNumber, method, currentStepWrappedTasks, stepStart);
+
     createdDataFiles = new ArrayList<>(project.getCurrentRawDataFiles());
     createdFeatureLists = new ArrayList<>(project.getCurrentFeatureLists());
     createdDataFiles.removeAll(beforeDataFiles);
@@ -391,6 +399,25 @@ public class BatchTask extends AbstractTask {
     }
   }
 
+  private void addToReport(int stepNumber, MZmineProcessingModule method,
+      WrappedTask[] stepTasks, long stepStart) {
+    final long stepWallTime = (System.nanoTime() - stepStart) / 1_000_000L;
+    final String dataset = useAdvanced && subDirectories != null && currentDataset >= 0
+        && currentDataset < subDirectories.size() ? subDirectories.get(currentDataset).getName()
+        : "";
+    for (WrappedTask stepTask : stepTasks) {
+      report.add(dataset, stepNumber + 1, method.getName(), stepWallTime,
+          stepTask.getActualTask());
+    }
+  }
+
+  /**
+   * @return the resource usage of all tasks processed so far
+   */
+  public BatchReport getReport() {
+    return report;
+  }
+
   /**
    * Recursively sets the last feature lists to the parameters since there might be embedded
    * parameters.
@@ -33,6 +33,7 @@ import io.github.mzmine.parameters.Parameter;
 import io.github.mzmine.parameters.UserParameter;
 import io.github.mzmine.parameters.dialogs.ParameterSetupDialog;
 import io.github.mzmine.parameters.impl.SimpleParameterSet;
+import io.github.mzmine.parameters.parametertypes.BooleanParameter;
 import io.github.mzmine.parameters.parametertypes.ComboParameter;
 import io.github.mzmine.util.ExitCode;
 
@@ -45,8 +46,13 @@ public class AnovaParameters extends SimpleParameterSet {
           "One sample parameter has to be selected to be used in the test calculation. They can be defined in \"Project -> Set sample parameters\"",
           new UserParameter[0]);
 
+  public static final BooleanParameter correctPValues = new BooleanParameter(
+      "Benjamini-Hochberg correction",
+      "Also calculates p-values adjusted for the false discovery rate (column ANOVA_Q_VALUE)",
+      true);
+
   public AnovaParameters() {
-    super(new Parameter[] {featureLists, selectionData});
+    super(new Parameter[] {featureLists, selectionData, correctPValues});
   }
 
   @Override
@@ -28,7 +28,6 @@ package io.github.mzmine.modules.dataanalysis.anova;
 import io.github.mzmine.datamodel.FeatureInformation;
 import io.github.mzmine.datamodel.MZmineProject;
 import io.github.mzmine.datamodel.RawDataFile;
-import io.github.mzmine.datamodel.features.Feature;
 import io.github.mzmine.datamodel.features.FeatureListRow;
 import io.github.mzmine.datamodel.impl.SimpleFeatureInformation;
 import io.github.mzmine.main.MZmineCore;
@@ -37,21 +36,12 @@ import io.github.mzmine.parameters.UserParameter;
 import io.github.mzmine.taskcontrol.AbstractTask;
 import io.github.mzmine.taskcontrol.TaskStatus;
 import java.time.Instant;
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
-import java.util.List;
+import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.Map.Entry;
-import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
-import org.apache.commons.math3.distribution.FDistribution;
-import org.apache.commons.math3.exception.MathIllegalArgumentException;
 import org.jetbrains.annotations.NotNull;
-import org.jetbrains.annotations.Nullable;
 
 public class AnovaTask extends AbstractTask {
 
@@ -59,16 +49,20 @@ public class AnovaTask extends AbstractTask {
 
   private static final String P_VALUE_KEY = "ANOVA_P_VALUE";
 
+  private static final String Q_VALUE_KEY = "ANOVA_Q_VALUE";
+
   private Logger logger = Logger.getLogger(this.getClass().getName());
   private double finishedPercentage = 0.0;
 
   private final FeatureListRow[] featureListRows;
   private final UserParameter userParameter;
+  private final boolean correctPValues;
 
   public AnovaTask(FeatureListRow[] featureListRows, ParameterSet parameters, @NotNull Instant moduleCallDate) {
     super(null, moduleCallDate);
     this.featureListRows = featureListRows;
     this.userParameter = parameters.getParameter(AnovaParameters.selectionData).getValue();
+    this.correctPValues = parameters.getParameter(AnovaParameters.correctPValues).getValue();
   }
 
   public String getTaskDescription() {
@@ -117,112 +111,64 @@ public class AnovaTask extends AbstractTask {
       return;
     }
 
-    List<Set<RawDataFile>> groups = getGroups(userParameter);
+    // shared group layout of all rows
+    final RawDataFile[] files = Arrays.stream(featureListRows)
+        .flatMap(row -> row.getRawDataFiles().stream()).distinct().toArray(RawDataFile[]::new);
+    final Map<Object, Integer> groups = new LinkedHashMap<>();
+    final int[] groupOfFile = getGroupOfFile(files, userParameter, groups);
 
     finishedPercentage = 0.0;
-    final double finishedStep = 1.0 / featureListRows.length;
-
-    for (FeatureListRow row : featureListRows) {
-
-      if (isCanceled()) {
-        break;
-      }
-
-      finishedPercentage += finishedStep;
-
-      double[][] intensityGroups = new double[groups.size()][];
-      for (int i = 0; i < groups.size(); ++i) {
-        Set<RawDataFile> groupFiles = groups.get(i);
-        intensityGroups[i] =
-            row.getFeatures().stream().filter(feature -> groupFiles.contains(feature.getRawDataFile()))
-                .mapToDouble(Feature::getHeight).toArray();
-      }
+    final double[] heights = OneWayAnova.extractHeights(featureListRows, files);
+    finishedPercentage = 0.3;
+    if (isCanceled()) {
+      return;
+    }
 
-      Double pValue = oneWayAnova(intensityGroups);
+    final double[] pValues = OneWayAnova.pValues(heights, groupOfFile, groups.size());
+    final double[] qValues = correctPValues ? OneWayAnova.benjaminiHochberg(pValues) : null;
+    finishedPercentage = 0.8;
+    if (isCanceled()) {
+      return;
+    }
 
-      // Save results
+    // Save results
+    for (int i = 0; i < featureListRows.length; i++) {
+      final FeatureListRow row = featureListRows[i];
       FeatureInformation featureInformation = row.getFeatureInformation();
       if (featureInformation == null) {
         featureInformation = new SimpleFeatureInformation();
       }
-      featureInformation.getAllProperties().put(P_VALUE_KEY,
-          pValue == null ? EMPTY_STRING : pValue.toString());
+      featureInformation.getAllProperties().put(P_VALUE_KEY, toString(pValues[i]));
+      if (qValues != null) {
+        featureInformation.getAllProperties().put(Q_VALUE_KEY, toString(qValues[i]));
+      }
       row.setFeatureInformation(featureInformation);
     }
+    finishedPercentage = 1.0;
   }
 
-  private List<Set<RawDataFile>> getGroups(UserParameter factor) {
-
-    MZmineProject project = MZmineCore.getProjectManager().getCurrentProject();
-
-    // Find the parameter value of each data file
-    Map<RawDataFile, Object> paramMap = new HashMap<>();
-    for (FeatureListRow row : featureListRows) {
-      for (RawDataFile file : row.getRawDataFiles()) {
-        Object paramValue = project.getParameterValue(factor, file);
-        if (paramValue != null) {
-          paramMap.put(file, paramValue);
-        }
-      }
-    }
-
-    // Find unique parameter values
-    Object[] paramValues = paramMap.values().stream().distinct().toArray();
-
-    // Form groups of files for each parameter value
-    List<Set<RawDataFile>> groups = new ArrayList<>(paramValues.length);
-    for (Object paramValue : paramValues) {
-      groups.add(paramMap.entrySet().stream().filter(e -> paramValue.equals(e.getValue()))
-          .map(Entry::getKey).collect(Collectors.toSet()));
-    }
-
-    return groups;
+  private static String toString(double value) {
+    return Double.isNaN(value) ? EMPTY_STRING : Double.toString(value);
   }
 
-  @Nullable
-  private Double oneWayAnova(@NotNull double[][] intensityGroups) {
-
-    int numGroups = intensityGroups.length;
-    long numIntensities = Arrays.stream(intensityGroups).flatMapToDouble(Arrays::stream).count();
-
-    double[] groupMeans = Arrays.stream(intensityGroups)
-        .mapToDouble(intensities -> Arrays.stream(intensities).average().orElse(0.0)).toArray();
-
-    double overallMean =
-        Arrays.stream(intensityGroups).flatMapToDouble(Arrays::stream).average().orElse(0.0);
-
-    double sumOfSquaresOfError = IntStream.range(0, intensityGroups.length).mapToDouble(
-        i -> Arrays.stream(intensityGroups[i]).map(x -> x - groupMeans[i]).map(x -> x * x).sum())
-        .sum();
-
-    double sumOfSquaresOfTreatment =
-        (numGroups - 1) * Arrays.stream(groupMeans).map(x -> x - overallMean).map(x -> x * x).sum();
+  /**
+   * @param files  the files
+   * @param factor the sample parameter
+   * @param groups filled with the parameter value and index of each group
+   * @return the group index of each file, -1 for files without parameter value
+   */
+  private int[] getGroupOfFile(RawDataFile[] files, UserParameter factor,
+      Map<Object, Integer> groups) {
 
-    long degreesOfFreedomOfTreatment = numGroups - 1;
-    long degreesOfFreedomOfError = numIntensities - numGroups;
-
-    if (degreesOfFreedomOfTreatment <= 0 || degreesOfFreedomOfError <= 0) {
-      return null;
-    }
-
-    double meanSquareOfTreatment = sumOfSquaresOfTreatment / degreesOfFreedomOfTreatment;
-    double meanSquareOfError = sumOfSquaresOfError / degreesOfFreedomOfError;
-
-    if (meanSquareOfError == 0.0) {
-      return null;
-    }
-
-    double anovaStatistics = meanSquareOfTreatment / meanSquareOfError;
+    MZmineProject project = MZmineCore.getProjectManager().getCurrentProject();
 
-    Double pValue = null;
-    try {
-      FDistribution distribution =
-          new FDistribution(degreesOfFreedomOfTreatment, degreesOfFreedomOfError);
-      pValue = 1.0 - distribution.cumulativeProbability(anovaStatistics);
-    } catch (MathIllegalArgumentException ex) {
-      logger.warning("Error during F-distribution calculation: " + ex.getMessage());
+    // Find the parameter value of each data file, one group for each unique value
+    final int[] groupOfFile = new int[files.length];
+    for (int i = 0; i < files.length; i++) {
+      Object paramValue = project.getParameterValue(factor, files[i]);
+      groupOfFile[i] =
+          paramValue == null ? -1 : groups.computeIfAbsent(paramValue, v -> groups.size());
     }
-
-    return pValue;
+    return groupOfFile;
   }
 }
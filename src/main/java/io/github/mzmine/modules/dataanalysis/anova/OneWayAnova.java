@@ -0,0 +1,187 @@
+/*
+ * Copyright (c) 2004-2022 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.dataanalysis.anova;
+
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.features.Feature;
+import io.github.mzmine.datamodel.features.FeatureListRow;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+import org.apache.commons.math3.distribution.FDistribution;
+import org.apache.commons.math3.exception.MathIllegalArgumentException;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * One-way ANOVA of many rows that share the same layout of files in groups. The abundances of all
+ * rows are kept in one primitive row-major matrix, each row is tested in a single pass over its
+ * values.
+ */
+public class OneWayAnova {
+
+  /**
+   * @param rows  the rows
+   * @param files the files (columns of the matrix)
+   * @return the row-major height matrix, values[row * files.length + file]. NaN for missing
+   * features.
+   */
+  public static double[] extractHeights(@NotNull FeatureListRow[] rows,
+      @NotNull RawDataFile[] files) {
+    final int numFiles = files.length;
+    final double[] values = new double[Math.multiplyExact(rows.length, numFiles)];
+    IntStream.range(0, rows.length).parallel().forEach(row -> {
+      for (int file = 0; file < numFiles; file++) {
+        final Feature feature = rows[row].getFeature(files[file]);
+        final Float height = feature != null ? feature.getHeight() : null;
+        values[row * numFiles + file] = height != null ? height : Double.NaN;
+      }
+    });
+    return values;
+  }
+
+  /**
+   * Tests all rows of the matrix.
+   *
+   * @param values      row-major matrix with one column per file. Missing values are NaN
+   * @param groupOfFile the group index of each file or -1 if the file is not part of a group
+   * @param numGroups   number of groups
+   * @return the p-value of each row. NaN if the test is undefined, e.g., for less than two groups
+   * with values or without variance within the groups.
+   */
+  public static double[] pValues(@NotNull double[] values, @NotNull int[] groupOfFile,
+      int numGroups) {
+    final int numFiles = groupOfFile.length;
+    final int numRows = numFiles == 0 ? 0 : values.length / numFiles;
+    // rows with the same number of values share the distribution
+    final Map<Long, FDistribution> distributions = new ConcurrentHashMap<>();
+    return IntStream.range(0, numRows).parallel().mapToDouble(
+            row -> pValue(values, row * numFiles, groupOfFile, numGroups, distributions))
+        .toArray();
+  }
+
+  /**
+   * Tests one row.
+   *
+   * @param values      matrix or row values
+   * @param offset      index of the first value of the row
+   * @param groupOfFile the group index of each file or -1 if the file is not part of a group
+   * @param numGroups   number of groups
+   * @return the p-value or NaN if the test is undefined.
+   */
+  public static double pValue(@NotNull double[] values, int offset, @NotNull int[] groupOfFile,
+      int numGroups) {
+    return pValue(values, offset, groupOfFile, numGroups, new ConcurrentHashMap<>());
+  }
+
+  private static double pValue(double[] values, int offset, int[] groupOfFile, int numGroups,
+      Map<Long, FDistribution> distributions) {
+    final int[] n = new int[numGroups];
+    final double[] sums = new double[numGroups];
+    for (int file = 0; file < groupOfFile.length; file++) {
+      final int group = groupOfFile[file];
+      final double value = values[offset + file];
+      if (group >= 0 && !Double.isNaN(value)) {
+        n[group]++;
+        sums[group] += value;
+      }
+    }
+
+    int usedGroups = 0;
+    int numValues = 0;
+    double total = 0d;
+    for (int group = 0; group < numGroups; group++) {
+      if (n[group] > 0) {
+        usedGroups++;
+        numValues += n[group];
+        total += sums[group];
+      }
+    }
+    final int dfTreatment = usedGroups - 1;
+    final int dfError = numValues - usedGroups;
+    if (dfTreatment <= 0 || dfError <= 0) {
+      return Double.NaN;
+    }
+
+    // sums of squares between and within the groups, a second pass over the row is more stable
+    final double overallMean = total / numValues;
+    double ssTreatment = 0d;
+    for (int group = 0; group < numGroups; group++) {
+      if (n[group] > 0) {
+        final double diff = sums[group] / n[group] - overallMean;
+        ssTreatment += n[group] * diff * diff;
+      }
+    }
+    double ssError = 0d;
+    for (int file = 0; file < groupOfFile.length; file++) {
+      final int group = groupOfFile[file];
+      final double value = values[offset + file];
+      if (group >= 0 && !Double.isNaN(value)) {
+        final double diff = value - sums[group] / n[group];
+        ssError += diff * diff;
+      }
+    }
+
+    final double meanSquareError = ssError / dfError;
+    if (meanSquareError == 0d) {
+      return Double.NaN;
+    }
+    final double f = (ssTreatment / dfTreatment) / meanSquareError;
+
+    try {
+      final FDistribution distribution = distributions.computeIfAbsent(
+          ((long) dfTreatment << 32) | dfError, k -> new FDistribution(dfTreatment, dfError));
+      return 1d - distribution.cumulativeProbability(f);
+    } catch (MathIllegalArgumentException ex) {
+      return Double.NaN;
+    }
+  }
+
+  /**
+   * Benjamini-Hochberg correction for the false discovery rate.
+   *
+   * @param pValues the p-values, NaN values are ignored
+   * @return the adjusted p-values (q-values) in the same order, NaN for NaN p-values
+   */
+  public static double[] benjaminiHochberg(@NotNull double[] pValues) {
+    final int[] sorted = IntStream.range(0, pValues.length).filter(i -> !Double.isNaN(pValues[i]))
+        .boxed().sorted(Comparator.comparingDouble(i -> pValues[i])).mapToInt(Integer::intValue)
+        .toArray();
+    final int m = sorted.length;
+
+    final double[] adjusted = new double[pValues.length];
+    Arrays.fill(adjusted, Double.NaN);
+    // step up from the largest p-value, q values are monotone
+    double min = 1d;
+    for (int rank = m; rank >= 1; rank--) {
+      final int index = sorted[rank - 1];
+      min = Math.min(min, pValues[index] * m / rank);
+      adjusted[index] = min;
+    }
+    return adjusted;
+  }
+}
@@ -0,0 +1,225 @@
+/*
+ * Copyright (c) 2004-2022 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.dataanalysis.heatmaps;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.stream.IntStream;
+
+/**
+ * Hierarchical ordering of the rows and columns of a heat map, as done by heatmap.2 of the R
+ * package gplots: complete linkage clustering of the euclidean distances and reordering of the
+ * dendrogram branches by the summed weights (row or column means) of their leaves.
+ * <p>
+ * Missing values (NaN) are handled like the R function dist: distances are calculated over the
+ * values present in both vectors and scaled up to the full length.
+ */
+public class HeatMapClustering {
+
+  /**
+   * The clustering keeps a triangular distance matrix in memory. More rows are only ordered by
+   * their weights.
+   */
+  public static final int MAX_CLUSTERED_VECTORS = 10_000;
+
+  /**
+   * Finds the vectors that can be compared to all previous vectors, i.e., share at least one
+   * finite value with every vector before them. Same as removing the NA rows of the lower triangle
+   * of the distance matrix in R.
+   *
+   * @param vectors the row vectors
+   * @return true for all vectors that can be kept
+   */
+  public static boolean[] findComparableVectors(double[][] vectors) {
+    final BitSet[] finite = new BitSet[vectors.length];
+    for (int i = 0; i < vectors.length; i++) {
+      finite[i] = new BitSet(vectors[i].length);
+      for (int j = 0; j < vectors[i].length; j++) {
+        if (Double.isFinite(vectors[i][j])) {
+          finite[i].set(j);
+        }
+      }
+    }
+
+    final boolean[] comparable = new boolean[vectors.length];
+    IntStream.range(0, vectors.length).parallel().forEach(i -> {
+      comparable[i] = true;
+      for (int j = 0; j < i; j++) {
+        if (!finite[i].intersects(finite[j])) {
+          comparable[i] = false;
+          break;
+        }
+      }
+    });
+    return comparable;
+  }
+
+  /**
+   * Euclidean distance over all positions where both values are finite, scaled by the ratio of all
+   * positions to used positions.
+   *
+   * @return the distance or NaN if the vectors have no finite value in common
+   */
+  public static double distance(double[] a, double[] b) {
+    double sum = 0d;
+    int used = 0;
+    for (int i = 0; i < a.length; i++) {
+      if (Double.isFinite(a[i]) && Double.isFinite(b[i])) {
+        final double diff = a[i] - b[i];
+        sum += diff * diff;
+        used++;
+      }
+    }
+    if (used == 0) {
+      return Double.NaN;
+    }
+    return Math.sqrt(sum * a.length / used);
+  }
+
+  /**
+   * Orders the vectors by complete linkage clustering. The two branches of each node of the
+   * dendrogram are ordered by the sum of the weights of their leaves, the lighter branch first.
+   *
+   * @param vectors the vectors to cluster
+   * @param weights the weight of each vector, e.g., the row mean
+   * @return the vector indices in plot order
+   */
+  public static int[] order(double[][] vectors, double[] weights) {
+    final int n = vectors.length;
+    if (n == 0) {
+      return new int[0];
+    }
+    if (n > MAX_CLUSTERED_VECTORS) {
+      return IntStream.range(0, n).boxed().sorted(Comparator.comparingDouble(i -> weights[i]))
+          .mapToInt(Integer::intValue).toArray();
+    }
+
+    // condensed upper triangle, incomparable vectors have the largest possible distance
+    final float[] dist = new float[(int) ((long) n * (n - 1) / 2)];
+    IntStream.range(0, n).parallel().forEach(i -> {
+      for (int j = i + 1; j < n; j++) {
+        final double d = distance(vectors[i], vectors[j]);
+        dist[index(n, i, j)] = Double.isNaN(d) ? Float.POSITIVE_INFINITY : (float) d;
+      }
+    });
+
+    // dendrogram nodes: 0..n-1 are the leaves, n..2n-2 the merged clusters
+    final int[] left = new int[2 * n - 1];
+    final int[] right = new int[2 * n - 1];
+    final double[] nodeWeights = Arrays.copyOf(weights, 2 * n - 1);
+    final int[] nodeOfSlot = IntStream.range(0, n).toArray();
+    final boolean[] active = new boolean[n];
+    Arrays.fill(active, true);
+
+    // nearest neighbor chain, valid for complete linkage as it is a reducible linkage
+    final int[] chain = new int[n];
+    int chainSize = 0;
+    int nextNode = n;
+    while (nextNode < 2 * n - 1) {
+      if (chainSize == 0) {
+        chain[chainSize++] = firstActive(active);
+      }
+      final int a = chain[chainSize - 1];
+      final int previous = chainSize > 1 ? chain[chainSize - 2] : -1;
+
+      // prefer the previous chain element on ties, so the chain always ends in a merge
+      int nearest = previous;
+      float nearestDist = previous != -1 ? dist[index(n, a, previous)] : Float.POSITIVE_INFINITY;
+      for (int k = 0; k < n; k++) {
+        if (k == a || !active[k]) {
+          continue;
+        }
+        final float d = dist[index(n, a, k)];
+        if (d < nearestDist || nearest == -1) {
+          nearest = k;
+          nearestDist = d;
+        }
+      }
+
+      if (nearest != previous) {
+        chain[chainSize++] = nearest;
+        continue;
+      }
+
+      // merge a and its previous chain element into slot a
+      chainSize -= 2;
+      final int b = previous;
+      active[b] = false;
+      for (int k = 0; k < n; k++) {
+        if (active[k] && k != a) {
+          final int ak = index(n, a, k);
+          dist[ak] = Math.max(dist[ak], dist[index(n, b, k)]);
+        }
+      }
+      left[nextNode] = nodeOfSlot[a];
+      right[nextNode] = nodeOfSlot[b];
+      nodeWeights[nextNode] = nodeWeights[nodeOfSlot[a]] + nodeWeights[nodeOfSlot[b]];
+      nodeOfSlot[a] = nextNode;
+      nextNode++;
+    }
+
+    // depth first traversal from the root, lighter branches first
+    final int[] order = new int[n];
+    int orderSize = 0;
+    final int[] stack = new int[2 * n - 1];
+    int stackSize = 0;
+    stack[stackSize++] = 2 * n - 2;
+    while (stackSize > 0) {
+      final int node = stack[--stackSize];
+      if (node < n) {
+        order[orderSize++] = node;
+        continue;
+      }
+      final boolean leftFirst = nodeWeights[left[node]] <= nodeWeights[right[node]];
+      // push the branch that shall be visited first last
+      stack[stackSize++] = leftFirst ? right[node] : left[node];
+      stack[stackSize++] = leftFirst ? left[node] : right[node];
+    }
+    return order;
+  }
+
+  private static int firstActive(boolean[] active) {
+    for (int i = 0; i < active.length; i++) {
+      if (active[i]) {
+        return i;
+      }
+    }
+    throw new IllegalStateException("No active cluster left");
+  }
+
+  /**
+   * @return index of the distance between i and j in the condensed upper triangle
+   */
+  private static int index(int n, int i, int j) {
+    if (i > j) {
+      final int tmp = i;
+      i = j;
+      j = tmp;
+    }
+    return (int) ((long) i * n - (long) i * (i + 1) / 2 + (j - i - 1));
+  }
+}
@@ -39,11 +39,10 @@ import io.github.mzmine.parameters.parametertypes.IntegerParameter;
 import io.github.mzmine.parameters.parametertypes.filenames.FileNameParameter;
 import io.github.mzmine.parameters.parametertypes.filenames.FileSelectionType;
 import io.github.mzmine.util.ExitCode;
-import io.github.mzmine.util.R.REngineType;
 
 public class HeatMapParameters extends SimpleParameterSet {
 
-  public static final String[] fileTypes = {"pdf", "svg", "png", "fig"};
+  public static final String[] fileTypes = {"pdf", "svg", "png", "eps"};
 
   public static final FeatureListsParameter featureLists = new FeatureListsParameter(1, 1);
 
@@ -100,17 +99,14 @@ public class HeatMapParameters extends SimpleParameterSet {
   public static final IntegerParameter rowMargin =
       new IntegerParameter("Row margin", "Row margin of the heat map", 10);
 
-  /**
-   * R engine type.
-   */
-  public static final ComboParameter<REngineType> RENGINE_TYPE = new ComboParameter<REngineType>(
-      "R engine", "The R engine to be used for communicating with R.", REngineType.values(),
-      REngineType.RCALLER);
+  public static final BooleanParameter exportMatrix = new BooleanParameter("Export data matrix",
+      "Also writes the ordered heat map values (and p-value legend) as csv file next to the image",
+      true);
 
   public HeatMapParameters() {
     super(new Parameter[] {featureLists, fileName, fileTypeSelection, selectionData, referenceGroup,
         useIdenfiedRows, useFeatureArea, scale, log, showControlSamples, plegend, star, height, width,
-        columnMargin, rowMargin, RENGINE_TYPE});
+        columnMargin, rowMargin, exportMatrix});
   }
 
   @Override
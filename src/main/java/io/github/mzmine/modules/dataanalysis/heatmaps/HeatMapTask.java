@@ -30,36 +30,58 @@ import io.github.mzmine.datamodel.RawDataFile;
 import io.github.mzmine.datamodel.features.Feature;
 import io.github.mzmine.datamodel.features.FeatureList;
 import io.github.mzmine.datamodel.features.FeatureListRow;
+import io.github.mzmine.gui.chartbasics.graphicsexport.ChartExportUtil;
 import io.github.mzmine.parameters.ParameterSet;
 import io.github.mzmine.parameters.UserParameter;
 import io.github.mzmine.taskcontrol.AbstractTask;
 import io.github.mzmine.taskcontrol.TaskStatus;
-import io.github.mzmine.util.R.REngineType;
-import io.github.mzmine.util.R.RSessionWrapper;
-import io.github.mzmine.util.R.RSessionWrapperException;
-import io.github.mzmine.util.R.Rsession.Rsession;
+import io.github.mzmine.util.files.FileAndPathUtil;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Paint;
+import java.io.BufferedWriter;
 import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Vector;
+import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.IntStream;
 import org.apache.commons.math.MathException;
 import org.apache.commons.math.stat.descriptive.DescriptiveStatistics;
 import org.apache.commons.math.stat.inference.TTestImpl;
 import org.jetbrains.annotations.NotNull;
+import org.jfree.chart.JFreeChart;
+import org.jfree.chart.annotations.XYTextAnnotation;
+import org.jfree.chart.axis.AxisLocation;
+import org.jfree.chart.axis.NumberAxis;
+import org.jfree.chart.axis.SymbolAxis;
+import org.jfree.chart.plot.XYPlot;
+import org.jfree.chart.renderer.PaintScale;
+import org.jfree.chart.renderer.xy.XYBlockRenderer;
+import org.jfree.chart.title.PaintScaleLegend;
+import org.jfree.chart.ui.RectangleEdge;
+import org.jfree.data.xy.DefaultXYZDataset;
 
 public class HeatMapTask extends AbstractTask {
 
   private Logger logger = Logger.getLogger(this.getClass().getName());
 
-  private RSessionWrapper rSession;
-  private String errorMsg;
+  /**
+   * Width and height of vector graphics are given in inches
+   */
+  private static final int POINTS_PER_INCH = 72;
+  /**
+   * Space of one line of text for the margins
+   */
+  private static final int POINTS_PER_LINE = 12;
 
   private final MZmineProject project;
-  private final REngineType rEngineType;
   private final String outputType;
-  private final boolean log, rcontrol, scale, plegend, area, onlyIdentified;
+  private final boolean log, rcontrol, scale, plegend, area, onlyIdentified, exportMatrix;
   private final int height, width, columnMargin, rowMargin, starSize;
   private final File outputFile;
   private double[][] newFeatureList;
@@ -77,7 +99,6 @@ public class HeatMapTask extends AbstractTask {
     this.featureList = featureList;
 
     // Parameters
-    rEngineType = parameters.getParameter(HeatMapParameters.RENGINE_TYPE).getValue();
     outputFile = parameters.getParameter(HeatMapParameters.fileName).getValue();
     outputType = parameters.getParameter(HeatMapParameters.fileTypeSelection).getValue();
     selectedParameter = parameters.getParameter(HeatMapParameters.selectionData).getValue();
@@ -89,6 +110,7 @@ public class HeatMapTask extends AbstractTask {
     scale = parameters.getParameter(HeatMapParameters.scale).getValue();
     rcontrol = parameters.getParameter(HeatMapParameters.showControlSamples).getValue();
     plegend = parameters.getParameter(HeatMapParameters.plegend).getValue();
+    exportMatrix = parameters.getParameter(HeatMapParameters.exportMatrix).getValue();
 
     height = parameters.getParameter(HeatMapParameters.height).getValue();
     width = parameters.getParameter(HeatMapParameters.width).getValue();
@@ -106,27 +128,20 @@ public class HeatMapTask extends AbstractTask {
     return finishedPercentage;
   }
 
-  @Override
-  public void cancel() {
-
-    super.cancel();
-
-    // Turn off R instance, if already existing.
-    try {
-      if (rSession != null)
-        rSession.close(true);
-    } catch (RSessionWrapperException e) {
-      // Silent, always...
-    }
-  }
-
   public void run() {
-    errorMsg = null;
-
     setStatus(TaskStatus.PROCESSING);
 
     logger.info("Heat map plot");
 
+    if (outputType.contains("png")) {
+      if (height < 500 || width < 500) {
+        setStatus(TaskStatus.ERROR);
+        setErrorMessage(
+            "Figure height or width is too small. " + "Minimun height and width is 500.");
+        return;
+      }
+    }
+
     if (plegend) {
       newFeatureList = groupingDataset(selectedParameter, referenceGroup.toString());
     } else {
@@ -138,278 +153,333 @@ public class HeatMapTask extends AbstractTask {
       setErrorMessage("The data for heat map is empty.");
       return;
     }
+    finishedPercentage = 0.4;
+    if (isCanceled()) {
+      return;
+    }
 
-    try {
+    // one vector per row of the heat map
+    double[][] rows = transpose(newFeatureList);
+    String[][] stars = pValueMatrix != null ? transpose(pValueMatrix) : null;
+    String[] names = rowNames;
+
+    // Remove the rows with too many NA's. The distances between rows can't be calculated if the
+    // rows don't have at least one sample in common.
+    final boolean[] comparable = HeatMapClustering.findComparableVectors(rows);
+    final int[] keptRows = IntStream.range(0, rows.length).filter(i -> comparable[i]).toArray();
+    if (keptRows.length < rows.length) {
+      logger.info(
+          "Removed " + (rows.length - keptRows.length) + " rows without samples in common.");
+      final double[][] allRows = rows;
+      final String[] allNames = names;
+      rows = IntStream.of(keptRows).mapToObj(i -> allRows[i]).toArray(double[][]::new);
+      names = IntStream.of(keptRows).mapToObj(i -> allNames[i]).toArray(String[]::new);
+      if (stars != null) {
+        final String[][] allStars = stars;
+        stars = IntStream.of(keptRows).mapToObj(i -> allStars[i]).toArray(String[][]::new);
+      }
+    }
+    finishedPercentage = 0.5;
+    if (isCanceled()) {
+      return;
+    }
 
-      // Load gplots library
-      String[] reqPackages = {"gplots"};
-      rSession =
-          new RSessionWrapper(this.rEngineType, "HeatMap analysis module", reqPackages, null);
-      rSession.open();
+    // Order rows and columns by hierarchical clustering, branches are ordered by the means
+    if (rows.length > HeatMapClustering.MAX_CLUSTERED_VECTORS) {
+      logger.info("Too many rows for clustering, rows are ordered by their means.");
+    }
+    final double[][] columns = transpose(rows);
+    final int[] rowOrder = HeatMapClustering.order(rows, means(rows));
+    final int[] colOrder = HeatMapClustering.order(columns, means(columns));
+    finishedPercentage = 0.8;
+    if (isCanceled()) {
+      return;
+    }
 
-      finishedPercentage = 0.3f;
+    try {
+      final File imageFile = FileAndPathUtil.getRealFilePath(outputFile, outputType);
+      writeImage(createChart(rows, stars, names, rowOrder, colOrder), imageFile);
+      if (exportMatrix) {
+        writeMatrix(rows, stars, names, rowOrder, colOrder,
+            FileAndPathUtil.getRealFilePathWithSuffix(outputFile, "_matrix", "csv"));
+      }
+    } catch (Exception e) {
+      logger.log(Level.WARNING, "Error during heat map export: " + e.getMessage(), e);
+      setErrorMessage("Error during heatmap generation. \n" + e.getMessage());
+      setStatus(TaskStatus.ERROR);
+      return;
+    }
 
-      if (outputType.contains("png")) {
-        if (height < 500 || width < 500) {
+    finishedPercentage = 1.0;
+    setStatus(TaskStatus.FINISHED);
+  }
 
-          setStatus(TaskStatus.ERROR);
-          setErrorMessage(
-              "Figure height or width is too small. " + "Minimun height and width is 500.");
-          return;
+  /**
+   * Heat map with the first row (column) of the order at the bottom (left), like heatmap.2.
+   * Missing values are grey.
+   */
+  private JFreeChart createChart(double[][] rows, String[][] stars, String[] names,
+      int[] rowOrder, int[] colOrder) {
+    final int numCells = rowOrder.length * colOrder.length;
+    final double[] x = new double[numCells];
+    final double[] y = new double[numCells];
+    final double[] z = new double[numCells];
+    double min = Double.POSITIVE_INFINITY;
+    double max = Double.NEGATIVE_INFINITY;
+    for (int r = 0, i = 0; r < rowOrder.length; r++) {
+      for (int c = 0; c < colOrder.length; c++, i++) {
+        x[i] = c;
+        y[i] = r;
+        z[i] = rows[rowOrder[r]][colOrder[c]];
+        if (Double.isFinite(z[i])) {
+          min = Math.min(min, z[i]);
+          max = Math.max(max, z[i]);
         }
       }
+    }
+    if (!Double.isFinite(min)) {
+      min = 0d;
+      max = 0d;
+    }
 
-      rSession.eval("dataset<- matrix(\"\",nrow =" + newFeatureList[0].length + ",ncol="
-          + newFeatureList.length + ")");
-
-      if (plegend) {
-        rSession.eval("stars<- matrix(\"\",nrow =" + newFeatureList[0].length + ",ncol="
-            + newFeatureList.length + ")");
+    final DefaultXYZDataset dataset = new DefaultXYZDataset();
+    dataset.addSeries("heat map", new double[][]{x, y, z});
+
+    final String[] orderedColNames = IntStream.of(colOrder).mapToObj(c -> colNames[c])
+        .toArray(String[]::new);
+    final String[] orderedRowNames = IntStream.of(rowOrder).mapToObj(r -> names[r])
+        .toArray(String[]::new);
+    final SymbolAxis colAxis = new SymbolAxis(null, orderedColNames);
+    colAxis.setVerticalTickLabels(true);
+    colAxis.setGridBandsVisible(false);
+    final SymbolAxis rowAxis = new SymbolAxis(null, orderedRowNames);
+    rowAxis.setGridBandsVisible(false);
+
+    final BlueWhiteRedPaintScale paintScale = new BlueWhiteRedPaintScale(min, max);
+    final XYBlockRenderer renderer = new XYBlockRenderer();
+    renderer.setPaintScale(paintScale);
+
+    final XYPlot plot = new XYPlot(dataset, colAxis, rowAxis, renderer);
+    plot.setRangeAxisLocation(AxisLocation.BOTTOM_OR_RIGHT);
+    plot.setDomainGridlinesVisible(false);
+    plot.setRangeGridlinesVisible(false);
+    plot.setOutlineVisible(false);
+
+    if (stars != null) {
+      final Font starFont = new Font(Font.SANS_SERIF, Font.PLAIN, Math.max(1, starSize * 2));
+      for (int r = 0; r < rowOrder.length; r++) {
+        for (int c = 0; c < colOrder.length; c++) {
+          final String star = stars[rowOrder[r]][colOrder[c]];
+          if (star != null && !star.isEmpty()) {
+            final XYTextAnnotation annotation = new XYTextAnnotation(star, c, r);
+            annotation.setFont(starFont);
+            annotation.setPaint(Color.BLACK);
+            plot.addAnnotation(annotation, false);
+          }
+        }
       }
+    }
 
-      // assing the values to the matrix
-      for (int row = 0; row < newFeatureList[0].length; row++) {
-
-        for (int column = 0; column < newFeatureList.length; column++) {
-
-          int r = row + 1;
-          int c = column + 1;
+    final JFreeChart chart = new JFreeChart(null, JFreeChart.DEFAULT_TITLE_FONT, plot, false);
+    chart.setBackgroundPaint(Color.WHITE);
 
-          double value = newFeatureList[column][row];
+    // the margins reserve space for the column and row names, given in lines of text
+    colAxis.setFixedDimension(columnMargin * POINTS_PER_LINE);
+    rowAxis.setFixedDimension(rowMargin * POINTS_PER_LINE);
 
-          if (plegend) {
-            String pValue = pValueMatrix[column][row];
-            rSession.eval("stars[" + r + "," + c + "] = \"" + pValue + "\"");
-          }
-
-          if (!Double.isInfinite(value) && !Double.isNaN(value)) {
+    final NumberAxis scaleAxis = new NumberAxis("Value");
+    scaleAxis.setRange(min, max > min ? max : min + 1);
+    final PaintScaleLegend legend = new PaintScaleLegend(paintScale, scaleAxis);
+    legend.setPosition(RectangleEdge.TOP);
+    legend.setMargin(4, 4, 8, 4);
+    chart.addSubtitle(legend);
+    return chart;
+  }
 
-            rSession.eval("dataset[" + r + "," + c + "] = " + value);
-          } else {
+  private void writeImage(JFreeChart chart, File file) throws Exception {
+    if (outputType.contains("png")) {
+      ChartExportUtil.writeChartToPNG(chart, null, width, height, file);
+      return;
+    }
+    // same as in R, the size of vector graphics is given in inches
+    final int w = width * POINTS_PER_INCH;
+    final int h = height * POINTS_PER_INCH;
+    if (outputType.contains("pdf")) {
+      ChartExportUtil.writeChartToPDF(chart, w, h, file);
+    } else if (outputType.contains("svg")) {
+      ChartExportUtil.writeChartToSVG(chart, w, h, file);
+    } else if (outputType.contains("eps")) {
+      ChartExportUtil.writeChartToEPS(chart, w, h, file);
+    } else {
+      throw new IllegalArgumentException("Unsupported output type " + outputType);
+    }
+  }
 
-            rSession.eval("dataset[" + r + "," + c + "] = NA");
+  /**
+   * Writes the ordered heat map values and the p-value stars as comma separated table.
+   */
+  private void writeMatrix(double[][] rows, String[][] stars, String[] names, int[] rowOrder,
+      int[] colOrder, File file) throws IOException {
+    try (BufferedWriter writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+      writer.write("row");
+      for (int c : colOrder) {
+        writer.write("," + escape(colNames[c]));
+      }
+      if (stars != null) {
+        for (int c : colOrder) {
+          writer.write("," + escape(colNames[c] + " significance"));
+        }
+      }
+      writer.newLine();
+
+      // top row of the plot first
+      for (int r = rowOrder.length - 1; r >= 0; r--) {
+        final int row = rowOrder[r];
+        writer.write(escape(names[row]));
+        for (int c : colOrder) {
+          final double value = rows[row][c];
+          writer.write("," + (Double.isFinite(value) ? String.valueOf(value) : ""));
+        }
+        if (stars != null) {
+          for (int c : colOrder) {
+            writer.write("," + (stars[row][c] != null ? stars[row][c] : ""));
           }
         }
+        writer.newLine();
       }
-      finishedPercentage = 0.4f;
-
-      rSession.eval("dataset <- apply(dataset, 2, as.numeric)");
-
-      // Assign row names to the data set
-      rSession.assign("rowNames", rowNames);
-      rSession.eval("rownames(dataset)<-rowNames");
-
-      // Assign column names to the data set
-      rSession.assign("colNames", colNames);
-      rSession.eval("colnames(dataset)<-colNames");
-
-      finishedPercentage = 0.5f;
-
-      // Remove the rows with too many NA's. The distances between
-      // rows can't be calculated if the rows don't have
-      // at least one sample in common.
-      rSession.eval("d <- as.matrix(dist(dataset))");
-      rSession.eval("d[upper.tri(d)] <- 0");
-      rSession.eval("naindices <- na.action(na.omit(d))");
-      rSession.eval("if (! is.null(naindices)) dataset <- dataset[-naindices,]");
-
-      finishedPercentage = 0.8f;
-
-      String marginParameter = "margins = c(" + columnMargin + "," + rowMargin + ")";
-      rSession.eval("br<-c(seq(from=min(dataset,na.rm=T),to=0,length.out=256),"
-          + "seq(from=0.00001,to=max(dataset,na.rm=T),length.out=256))", false);
-
-      // Convert the path to R-compatible string
-      final String escapedOutputFileName = Rsession.toRpath(outputFile);
-
-      // Possible output file types
-      if (outputType.contains("pdf")) {
-
-        rSession.eval(
-            "pdf(\"" + escapedOutputFileName + "\", height=" + height + ", width=" + width + ")");
-      } else if (outputType.contains("fig")) {
-
-        rSession.eval("xfig(\"" + escapedOutputFileName + "\", height=" + height + ", width="
-            + width + ", horizontal = FALSE, pointsize = 12)");
-      } else if (outputType.contains("svg")) {
-
-        // Load RSvgDevice library
-        rSession.loadPackage("RSvgDevice");
+    }
+  }
 
-        rSession.eval("devSVG(\"" + escapedOutputFileName + "\", height=" + height + ", width="
-            + width + ")");
-      } else if (outputType.contains("png")) {
+  private static String escape(String value) {
+    if (value == null) {
+      return "";
+    }
+    if (value.contains(",") || value.contains("\"") || value.contains("\n")) {
+      return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+    return value;
+  }
 
-        rSession.eval(
-            "png(\"" + escapedOutputFileName + "\", height=" + height + ", width=" + width + ")");
+  private static double[][] transpose(double[][] matrix) {
+    final double[][] transposed = new double[matrix[0].length][matrix.length];
+    for (int i = 0; i < matrix.length; i++) {
+      for (int j = 0; j < matrix[i].length; j++) {
+        transposed[j][i] = matrix[i][j];
       }
+    }
+    return transposed;
+  }
 
-      if (plegend) {
-
-        rSession.eval(
-            "heatmap.2(dataset," + marginParameter + ", trace=\"none\", col=bluered(length(br)-1),"
-                + " breaks=br, cellnote=stars, notecol=\"black\"" + ", notecex=" + starSize
-                + ", na.color=\"grey\")",
-            false);
-      } else {
-
-        rSession.eval("heatmap.2(dataset," + marginParameter
-            + ", trace=\"none\", col=bluered(length(br)-1)," + " breaks=br, na.color=\"grey\")",
-            false);
+  private static String[][] transpose(String[][] matrix) {
+    final String[][] transposed = new String[matrix[0].length][matrix.length];
+    for (int i = 0; i < matrix.length; i++) {
+      for (int j = 0; j < matrix[i].length; j++) {
+        transposed[j][i] = matrix[i][j];
       }
+    }
+    return transposed;
+  }
 
-      rSession.eval("dev.off()", false);
-
-      // Stands for a (void) collect!
-      this.rSession.runOnlyOnline();
-      // Done: Refresh R code stack
-      this.rSession.clearCode();
-
-      finishedPercentage = 1.0;
-
-      // Turn off R instance, once task ended gracefully.
-      if (!isCanceled())
-        rSession.close(false);
-
-    } catch (RSessionWrapperException e) {
-      if (!isCanceled()) {
-        errorMsg = "'R computing error' during heatmap generation. \n" + e.getMessage();
-      }
-    } catch (Exception e) {
-      if (!isCanceled()) {
-        errorMsg = "'Unknown error' during heatmap generation. \n" + e.getMessage();
+  /**
+   * @return the mean of the finite values of each vector
+   */
+  private static double[] means(double[][] vectors) {
+    final double[] means = new double[vectors.length];
+    for (int i = 0; i < vectors.length; i++) {
+      double sum = 0d;
+      int n = 0;
+      for (double value : vectors[i]) {
+        if (Double.isFinite(value)) {
+          sum += value;
+          n++;
+        }
       }
+      means[i] = n > 0 ? sum / n : 0d;
     }
+    return means;
+  }
 
-    // Turn off R instance, once task ended UNgracefully.
-    try {
-      if (!isCanceled())
-        if (rSession != null)
-          rSession.close(isCanceled());
-    } catch (RSessionWrapperException e) {
-      if (!isCanceled()) {
-        // Do not override potential previous error message.
-        if (errorMsg == null) {
-          errorMsg = e.getMessage();
-        }
-      } else {
-        // User canceled: Silent.
+  /**
+   * @return the area or height of the feature or NaN if there is no feature
+   */
+  private double getAbundance(FeatureListRow row, RawDataFile file) {
+    final Feature feature = row.getFeature(file);
+    if (feature == null) {
+      return Double.NaN;
+    }
+    final Float value = area ? feature.getArea() : feature.getHeight();
+    return value != null ? value : Double.NaN;
+  }
+
+  private List<FeatureListRow> getShownRows() {
+    final List<FeatureListRow> rows = new ArrayList<>();
+    for (FeatureListRow row : featureList.getRows()) {
+      if (!onlyIdentified || row.getPeakIdentities().size() > 0) {
+        rows.add(row);
       }
     }
+    return rows;
+  }
 
-    // Report error.
-    if (errorMsg != null) {
-      setErrorMessage(errorMsg);
-      setStatus(TaskStatus.ERROR);
-    } else {
-      setStatus(TaskStatus.FINISHED);
+  private static String getRowName(FeatureListRow row) {
+    if (row.getPeakIdentities() != null && row.getPeakIdentities().size() > 0) {
+      return row.getPreferredFeatureIdentity().getName();
     }
+    return "Unknown";
   }
 
   private double[][] modifySimpleDataset(UserParameter<?, ?> selectedParameter,
       String referenceGroup) {
 
-    // Collect all data files
-    Vector<RawDataFile> allDataFiles = new Vector<RawDataFile>();
-    allDataFiles.addAll(featureList.getRawDataFiles());
-
     // Determine the reference group and non reference group (the rest of
     // the samples) for raw data files
-    List<RawDataFile> referenceDataFiles = new ArrayList<RawDataFile>();
-    List<RawDataFile> nonReferenceDataFiles = new ArrayList<RawDataFile>();
+    List<RawDataFile> allDataFiles = new ArrayList<>(featureList.getRawDataFiles());
+    List<RawDataFile> referenceDataFiles = new ArrayList<>();
+    List<RawDataFile> nonReferenceDataFiles = new ArrayList<>();
 
     for (RawDataFile rawDataFile : allDataFiles) {
-
       Object paramValue = project.getParameterValue(selectedParameter, rawDataFile);
-
       if (paramValue.equals(referenceGroup)) {
-
         referenceDataFiles.add(rawDataFile);
       } else {
-
         nonReferenceDataFiles.add(rawDataFile);
       }
     }
 
-    int numRows = 0;
-    for (int row = 0; row < featureList.getNumberOfRows(); row++) {
-
-      if (!onlyIdentified
-          || (onlyIdentified && featureList.getRow(row).getPeakIdentities().size() > 0)) {
-        numRows++;
-      }
-    }
-
-    // Create a new aligned feature list with all the samples if the
-    // reference
-    // group has to be shown or with only
-    // the non reference group if not.
-    double[][] dataMatrix;
-    if (rcontrol) {
-      dataMatrix = new double[allDataFiles.size()][numRows];
-    } else {
-      dataMatrix = new double[nonReferenceDataFiles.size()][numRows];
-    }
-
-    // Data files that should be in the heat map
-    List<RawDataFile> shownDataFiles = null;
-    if (rcontrol) {
-      shownDataFiles = allDataFiles;
-    } else {
-      shownDataFiles = nonReferenceDataFiles;
-    }
-
-    for (int row = 0, rowIndex = 0; row < featureList.getNumberOfRows(); row++) {
-      FeatureListRow rowFeature = featureList.getRow(row);
-      if (!onlyIdentified || (onlyIdentified && rowFeature.getPeakIdentities().size() > 0)) {
-
-        // Average area or height of the reference group
-        double referenceAverage = 0;
-        int referenceFeatureCount = 0;
-        for (int column = 0; column < referenceDataFiles.size(); column++) {
-
-          if (rowFeature.getFeature(referenceDataFiles.get(column)) != null) {
-
-            if (area) {
-
-              referenceAverage += rowFeature.getFeature(referenceDataFiles.get(column)).getArea();
-            } else {
-
-              referenceAverage += rowFeature.getFeature(referenceDataFiles.get(column)).getHeight();
-            }
-            referenceFeatureCount++;
-          }
+    // Data files that should be in the heat map: all samples if the reference group has to be
+    // shown or only the non reference group if not.
+    final List<RawDataFile> shownDataFiles = rcontrol ? allDataFiles : nonReferenceDataFiles;
+    final List<FeatureListRow> shownRows = getShownRows();
+    final double[][] dataMatrix = new double[shownDataFiles.size()][shownRows.size()];
+
+    // rows are independent, each row only writes its own index
+    IntStream.range(0, shownRows.size()).parallel().forEach(rowIndex -> {
+      FeatureListRow rowFeature = shownRows.get(rowIndex);
+
+      // Average area or height of the reference group
+      double referenceAverage = 0;
+      int referenceFeatureCount = 0;
+      for (RawDataFile referenceFile : referenceDataFiles) {
+        final double abundance = getAbundance(rowFeature, referenceFile);
+        if (!Double.isNaN(abundance)) {
+          referenceAverage += abundance;
+          referenceFeatureCount++;
         }
-        if (referenceFeatureCount > 0) {
-
-          referenceAverage /= referenceFeatureCount;
-        }
-
-        // Divide the area or height of each feature by the average of the
-        // area or height of the reference features in each row
-        for (int column = 0; column < shownDataFiles.size(); column++) {
-          double value = Double.NaN;
-          if (rowFeature.getFeature(shownDataFiles.get(column)) != null) {
-
-            Feature feature = rowFeature.getFeature(shownDataFiles.get(column));
-            if (area) {
-
-              value = feature.getArea() / referenceAverage;
-            } else {
-
-              value = feature.getHeight() / referenceAverage;
-            }
-            if (log) {
-
-              value = Math.log(value);
-            }
-          }
+      }
+      if (referenceFeatureCount > 0) {
+        referenceAverage /= referenceFeatureCount;
+      }
 
-          dataMatrix[column][rowIndex] = value;
+      // Divide the area or height of each feature by the average of the
+      // area or height of the reference features in each row
+      for (int column = 0; column < shownDataFiles.size(); column++) {
+        double value = getAbundance(rowFeature, shownDataFiles.get(column)) / referenceAverage;
+        if (log) {
+          value = Math.log(value);
         }
-        rowIndex++;
+        dataMatrix[column][rowIndex] = value;
       }
-    }
+    });
 
     // Scale the data dividing the feature area/height by the standard
     // deviation of each column
@@ -418,37 +488,18 @@ public class HeatMapTask extends AbstractTask {
     }
 
     // Create two arrays: row and column names
-    rowNames = new String[dataMatrix[0].length];
-    colNames = new String[shownDataFiles.size()];
-
-    for (int column = 0; column < shownDataFiles.size(); column++) {
-
-      colNames[column] = shownDataFiles.get(column).getName();
-    }
-    for (int row = 0, rowIndex = 0; row < featureList.getNumberOfRows(); row++) {
-      if (!onlyIdentified
-          || (onlyIdentified && featureList.getRow(row).getPeakIdentities().size() > 0)) {
-        if (featureList.getRow(row).getPeakIdentities() != null
-            && featureList.getRow(row).getPeakIdentities().size() > 0) {
-
-          rowNames[rowIndex++] = featureList.getRow(row).getPreferredFeatureIdentity().getName();
-        } else {
-
-          rowNames[rowIndex++] = "Unknown";
-        }
-      }
-    }
+    colNames = shownDataFiles.stream().map(RawDataFile::getName).toArray(String[]::new);
+    rowNames = shownRows.stream().map(HeatMapTask::getRowName).toArray(String[]::new);
 
     return dataMatrix;
   }
 
   private void scale(double[][] featureList) {
-    DescriptiveStatistics stdDevStats = new DescriptiveStatistics();
-
-    for (int columns = 0; columns < featureList.length; columns++) {
-      stdDevStats.clear();
+    IntStream.range(0, featureList.length).parallel().forEach(columns -> {
+      DescriptiveStatistics stdDevStats = new DescriptiveStatistics();
       for (int row = 0; row < featureList[columns].length; row++) {
-        if (!Double.isInfinite(featureList[columns][row]) && !Double.isNaN(featureList[columns][row])) {
+        if (!Double.isInfinite(featureList[columns][row]) && !Double.isNaN(
+            featureList[columns][row])) {
           stdDevStats.addValue(featureList[columns][row]);
         }
       }
@@ -460,127 +511,82 @@ public class HeatMapTask extends AbstractTask {
           featureList[columns][row] = featureList[columns][row] / stdDev;
         }
       }
-    }
+    });
   }
 
   private double[][] groupingDataset(UserParameter<?, ?> selectedParameter, String referenceGroup) {
-    // Collect all data files
-    Vector<RawDataFile> allDataFiles = new Vector<RawDataFile>();
-    DescriptiveStatistics meanControlStats = new DescriptiveStatistics();
-    DescriptiveStatistics meanGroupStats = new DescriptiveStatistics();
-    allDataFiles.addAll(featureList.getRawDataFiles());
 
     // Determine the reference group and non reference group (the rest of
     // the samples) for raw data files
-    List<RawDataFile> referenceDataFiles = new ArrayList<RawDataFile>();
-    List<RawDataFile> nonReferenceDataFiles = new ArrayList<RawDataFile>();
-
-    List<String> groups = new ArrayList<String>();
+    List<RawDataFile> referenceDataFiles = new ArrayList<>();
+    List<RawDataFile> nonReferenceDataFiles = new ArrayList<>();
+    // group of each non reference file
+    List<String> nonReferenceGroups = new ArrayList<>();
 
-    for (RawDataFile rawDataFile : allDataFiles) {
+    List<String> groups = new ArrayList<>();
 
-      Object paramValue = project.getParameterValue(selectedParameter, rawDataFile);
-      if (!groups.contains(String.valueOf(paramValue))) {
-        groups.add(String.valueOf(paramValue));
+    for (RawDataFile rawDataFile : featureList.getRawDataFiles()) {
+      String paramValue = String.valueOf(project.getParameterValue(selectedParameter, rawDataFile));
+      if (!groups.contains(paramValue)) {
+        groups.add(paramValue);
       }
-      if (String.valueOf(paramValue).equals(referenceGroup)) {
-
+      if (paramValue.equals(referenceGroup)) {
         referenceDataFiles.add(rawDataFile);
       } else {
-
         nonReferenceDataFiles.add(rawDataFile);
+        nonReferenceGroups.add(paramValue);
       }
     }
 
-    int numRows = 0;
-    for (int row = 0; row < featureList.getNumberOfRows(); row++) {
-
-      if (!onlyIdentified
-          || (onlyIdentified && featureList.getRow(row).getPeakIdentities().size() > 0)) {
-        numRows++;
+    // only the groups that are compared to the reference group are shown
+    final List<String> shownGroups = groups.stream().filter(g -> !g.equals(referenceGroup))
+        .toList();
+    final List<FeatureListRow> shownRows = getShownRows();
+    final double[][] dataMatrix = new double[shownGroups.size()][shownRows.size()];
+    pValueMatrix = new String[shownGroups.size()][shownRows.size()];
+
+    // rows are independent, each row only writes its own index
+    IntStream.range(0, shownRows.size()).parallel().forEach(rowIndex -> {
+      FeatureListRow rowFeature = shownRows.get(rowIndex);
+      DescriptiveStatistics meanControlStats = new DescriptiveStatistics();
+      DescriptiveStatistics meanGroupStats = new DescriptiveStatistics();
+
+      // Average area or height of the reference group
+      for (RawDataFile referenceFile : referenceDataFiles) {
+        final double abundance = getAbundance(rowFeature, referenceFile);
+        if (!Double.isNaN(abundance)) {
+          meanControlStats.addValue(abundance);
+        }
       }
-    }
-
-    // Create a new aligned feature list with all the samples if the
-    // reference
-    // group has to be shown or with only
-    // the non reference group if not.
-    double[][] dataMatrix = new double[groups.size() - 1][numRows];
-    pValueMatrix = new String[groups.size() - 1][numRows];
-
-    // data files that should be in the heat map
-    List<RawDataFile> shownDataFiles = nonReferenceDataFiles;
-
-    for (int row = 0, rowIndex = 0; row < featureList.getNumberOfRows(); row++) {
-      FeatureListRow rowFeature = featureList.getRow(row);
-      if (!onlyIdentified || (onlyIdentified && rowFeature.getPeakIdentities().size() > 0)) {
-        // Average area or height of the reference group
-        meanControlStats.clear();
-        for (int column = 0; column < referenceDataFiles.size(); column++) {
-
-          if (rowFeature.getFeature(referenceDataFiles.get(column)) != null) {
-
-            if (area) {
-
-              meanControlStats.addValue(rowFeature.getFeature(referenceDataFiles.get(column)).getArea());
-            } else {
-
-              meanControlStats
-                  .addValue(rowFeature.getFeature(referenceDataFiles.get(column)).getHeight());
-            }
 
+      // Divide the mean area or height of each group by the average of the
+      // area or height of the reference features in each row
+      for (int columnIndex = 0; columnIndex < shownGroups.size(); columnIndex++) {
+        String group = shownGroups.get(columnIndex);
+        meanGroupStats.clear();
+        for (int dataColumn = 0; dataColumn < nonReferenceDataFiles.size(); dataColumn++) {
+          if (!nonReferenceGroups.get(dataColumn).equals(group)) {
+            continue;
+          }
+          final double abundance = getAbundance(rowFeature, nonReferenceDataFiles.get(dataColumn));
+          if (Double.isFinite(abundance)) {
+            meanGroupStats.addValue(abundance);
           }
         }
 
-        // Divide the area or height of each feature by the average of the
-        // area or height of the reference features in each row
-        int columnIndex = 0;
-        for (int column = 0; column < groups.size(); column++) {
-          String group = groups.get(column);
-          meanGroupStats.clear();
-          if (!group.equals(referenceGroup)) {
-
-            for (int dataColumn = 0; dataColumn < shownDataFiles.size(); dataColumn++) {
-
-              Object paramValue =
-                  project.getParameterValue(selectedParameter, shownDataFiles.get(dataColumn));
-              if (rowFeature.getFeature(shownDataFiles.get(dataColumn)) != null
-                  && String.valueOf(paramValue).equals(group)) {
-
-                Feature feature = rowFeature.getFeature(shownDataFiles.get(dataColumn));
-
-                if (!Double.isInfinite(feature.getArea()) && !Double.isNaN(feature.getArea())) {
-
-                  if (area) {
-
-                    meanGroupStats.addValue(feature.getArea());
-                  } else {
-
-                    meanGroupStats.addValue(feature.getHeight());
-                  }
-                }
-
-              }
-            }
-
-            double value = meanGroupStats.getMean() / meanControlStats.getMean();
-            if (meanGroupStats.getN() > 1 && meanControlStats.getN() > 1) {
-              pValueMatrix[columnIndex][rowIndex] =
-                  this.getPvalue(meanGroupStats, meanControlStats);
-            } else {
-              pValueMatrix[columnIndex][rowIndex] = "";
-            }
-
-            if (log) {
+        double value = meanGroupStats.getMean() / meanControlStats.getMean();
+        if (meanGroupStats.getN() > 1 && meanControlStats.getN() > 1) {
+          pValueMatrix[columnIndex][rowIndex] = getPvalue(meanGroupStats, meanControlStats);
+        } else {
+          pValueMatrix[columnIndex][rowIndex] = "";
+        }
 
-              value = Math.log(value);
-            }
-            dataMatrix[columnIndex++][rowIndex] = value;
-          }
+        if (log) {
+          value = Math.log(value);
         }
-        rowIndex++;
+        dataMatrix[columnIndex][rowIndex] = value;
       }
-    }
+    });
 
     // Scale the data dividing the feature area/height by the standard
     // deviation of each column
@@ -589,35 +595,14 @@ public class HeatMapTask extends AbstractTask {
     }
 
     // Create two arrays: row and column names
-    rowNames = new String[dataMatrix[0].length];
-    colNames = new String[groups.size() - 1];
-
-    int columnIndex = 0;
-    for (String group : groups) {
-
-      if (!group.equals(referenceGroup)) {
-
-        colNames[columnIndex++] = group;
-      }
-    }
-    for (int row = 0, rowIndex = 0; row < featureList.getNumberOfRows(); row++) {
-      if (!onlyIdentified
-          || (onlyIdentified && featureList.getRow(row).getPeakIdentities().size() > 0)) {
-        if (featureList.getRow(row).getPeakIdentities() != null
-            && featureList.getRow(row).getPeakIdentities().size() > 0) {
-
-          rowNames[rowIndex++] = featureList.getRow(row).getPreferredFeatureIdentity().getName();
-        } else {
-
-          rowNames[rowIndex++] = "Unknown";
-        }
-      }
-    }
+    colNames = shownGroups.toArray(String[]::new);
+    rowNames = shownRows.stream().map(HeatMapTask::getRowName).toArray(String[]::new);
 
     return dataMatrix;
   }
 
-  private String getPvalue(DescriptiveStatistics group1, DescriptiveStatistics group2) {
+  private static String getPvalue(DescriptiveStatistics group1, DescriptiveStatistics group2) {
+    // TTestImpl is not thread safe, one instance per test
     TTestImpl ttest = new TTestImpl();
     String sig = "";
     try {
@@ -640,4 +625,51 @@ public class HeatMapTask extends AbstractTask {
     }
     return sig;
   }
+
+  /**
+   * Colors of heatmap.2 with bluered colors and breaks from the minimum to 0 and from 0 to the
+   * maximum: blue for the minimum, white for 0 and red for the maximum. Missing values are grey.
+   */
+  private static class BlueWhiteRedPaintScale implements PaintScale {
+
+    private final double min;
+    private final double max;
+
+    BlueWhiteRedPaintScale(double min, double max) {
+      this.min = min;
+      this.max = max;
+    }
+
+    @Override
+    public double getLowerBound() {
+      return min;
+    }
+
+    @Override
+    public double getUpperBound() {
+      return max;
+    }
+
+    @Override
+    public Paint getPaint(double value) {
+      if (!Double.isFinite(value)) {
+        return Color.GRAY;
+      }
+      if (value <= 0) {
+        // blue to white
+        final float fraction = min < 0 ? (float) Math.min(1d, value / min) : 0f;
+        return interpolate(Color.WHITE, Color.BLUE, fraction);
+      }
+      // white to red
+      final float fraction = max > 0 ? (float) Math.min(1d, value / max) : 0f;
+      return interpolate(Color.WHITE, Color.RED, fraction);
+    }
+
+    private static Color interpolate(Color from, Color to, float fraction) {
+      return new Color(
+          Math.round(from.getRed() + (to.getRed() - from.getRed()) * fraction),
+          Math.round(from.getGreen() + (to.getGreen() - from.getGreen()) * fraction),
+          Math.round(from.getBlue() + (to.getBlue() - from.getBlue()) * fraction));
+    }
+  }
 }
@@ -28,7 +28,6 @@ package io.github.mzmine.modules.dataanalysis.projectionplots;
 import io.github.mzmine.datamodel.AbundanceMeasure;
 import io.github.mzmine.datamodel.MZmineProject;
 import io.github.mzmine.datamodel.RawDataFile;
-import io.github.mzmine.datamodel.features.Feature;
 import io.github.mzmine.datamodel.features.FeatureList;
 import io.github.mzmine.datamodel.features.FeatureListRow;
 import io.github.mzmine.gui.chartbasics.simplechart.datasets.AbstractTaskXYDataset;
@@ -39,7 +38,6 @@ import io.github.mzmine.taskcontrol.TaskStatus;
 import java.util.Vector;
 import java.util.logging.Logger;
 import jmprojection.CDA;
-import jmprojection.Preprocess;
 import jmprojection.ProjectionStatus;
 
 public class CDADataset extends AbstractTaskXYDataset implements ProjectionPlotDataset {
@@ -237,25 +235,17 @@ public class CDADataset extends AbstractTaskXYDataset implements ProjectionPlotD
 
     logger.info("Computing projection plot");
 
-    // Generate matrix of raw data (input to CDA)
-    boolean useArea =
-        parameters.getParameter(ProjectionPlotParameters.featureMeasurementType).getValue()
-            == AbundanceMeasure.Area;
-
-    double[][] rawData = new double[selectedRawDataFiles.length][selectedRows.length];
-    for (int rowIndex = 0; rowIndex < selectedRows.length; rowIndex++) {
-      FeatureListRow featureListRow = selectedRows[rowIndex];
-      for (int fileIndex = 0; fileIndex < selectedRawDataFiles.length; fileIndex++) {
-        RawDataFile rawDataFile = selectedRawDataFiles[fileIndex];
-        Feature p = featureListRow.getFeature(rawDataFile);
-        if (p != null) {
-          if (useArea) {
-            rawData[fileIndex][rowIndex] = p.getArea();
-          } else {
-            rawData[fileIndex][rowIndex] = p.getHeight();
-          }
-        }
-      }
+    // Load the scaled matrix of raw data, shared with the other projection plots
+    final AbundanceMeasure measure = parameters.getParameter(
+        ProjectionPlotParameters.featureMeasurementType).getValue();
+    final double[][] rawData;
+    try {
+      rawData = ProjectionMatrix.forFeatureList(featureList, selectedRows, selectedRawDataFiles,
+          measure).toSampleArrays();
+    } catch (IllegalArgumentException e) {
+      setStatus(TaskStatus.ERROR);
+      errorMessage = e.getMessage();
+      return;
     }
 
     int numComponents = xAxisDimension;
@@ -263,8 +253,7 @@ public class CDADataset extends AbstractTaskXYDataset implements ProjectionPlotD
       numComponents = yAxisDimension;
     }
 
-    // Scale data and do CDA
-    Preprocess.scaleToUnityVariance(rawData);
+    // Do CDA
     CDA cdaProj = new CDA(rawData);
     cdaProj.iterate(100);
 
@@ -28,7 +28,6 @@ package io.github.mzmine.modules.dataanalysis.projectionplots;
 import io.github.mzmine.datamodel.AbundanceMeasure;
 import io.github.mzmine.datamodel.MZmineProject;
 import io.github.mzmine.datamodel.RawDataFile;
-import io.github.mzmine.datamodel.features.Feature;
 import io.github.mzmine.datamodel.features.FeatureList;
 import io.github.mzmine.datamodel.features.FeatureListRow;
 import io.github.mzmine.gui.chartbasics.simplechart.datasets.AbstractTaskXYDataset;
@@ -38,9 +37,6 @@ import io.github.mzmine.taskcontrol.TaskPriority;
 import io.github.mzmine.taskcontrol.TaskStatus;
 import java.util.Vector;
 import java.util.logging.Logger;
-import jmprojection.PCA;
-import jmprojection.Preprocess;
-import jmprojection.ProjectionStatus;
 
 public class PCADataset extends AbstractTaskXYDataset implements ProjectionPlotDataset {
 
@@ -67,7 +63,7 @@ public class PCADataset extends AbstractTaskXYDataset implements ProjectionPlotD
   private final int xAxisPC;
   private final int yAxisPC;
 
-  private ProjectionStatus projectionStatus;
+  private double finishedPercentage = 0d;
 
   public PCADataset(MZmineProject project, ParameterSet parameters) {
 
@@ -225,10 +221,8 @@ public class PCADataset extends AbstractTaskXYDataset implements ProjectionPlotD
 
     logger.info("Computing PCA projection plot");
 
-    // Generate matrix of raw data (input to PCA)
-    final boolean useArea = (
-        parameters.getParameter(ProjectionPlotParameters.featureMeasurementType).getValue()
-            == AbundanceMeasure.Area);
+    final AbundanceMeasure measure = parameters.getParameter(
+        ProjectionPlotParameters.featureMeasurementType).getValue();
 
     if (selectedRows.length == 0) {
       setStatus(TaskStatus.ERROR);
@@ -241,44 +235,27 @@ public class PCADataset extends AbstractTaskXYDataset implements ProjectionPlotD
       return;
     }
 
-    double[][] rawData = new double[selectedRawDataFiles.length][selectedRows.length];
-    for (int rowIndex = 0; rowIndex < selectedRows.length; rowIndex++) {
-      FeatureListRow featureListRow = selectedRows[rowIndex];
-      for (int fileIndex = 0; fileIndex < selectedRawDataFiles.length; fileIndex++) {
-        RawDataFile rawDataFile = selectedRawDataFiles[fileIndex];
-        Feature p = featureListRow.getFeature(rawDataFile);
-        if (p != null) {
-          if (useArea) {
-            rawData[fileIndex][rowIndex] = p.getArea();
-          } else {
-            rawData[fileIndex][rowIndex] = p.getHeight();
-          }
-        }
-      }
-    }
-
     int numComponents = xAxisPC;
     if (yAxisPC > numComponents) {
       numComponents = yAxisPC;
     }
 
-    // Scale data and do PCA
-    Preprocess.scaleToUnityVariance(rawData);
-
-    // Replace NaN values with 0.0
-    for (int i = 0; i < rawData.length; i++) {
-      for (int j = 0; j < rawData[i].length; j++) {
-        if (Double.isNaN(rawData[i][j])) {
-          rawData[i][j] = 0.0;
-        }
+    // Scale data and do PCA, the scaled matrix and the components are cached for the feature list
+    final double[][] result;
+    try {
+      final ProjectionMatrix matrix = ProjectionMatrix.forFeatureList(featureList, selectedRows,
+          selectedRawDataFiles, measure);
+      finishedPercentage = 0.5;
+      if (isCanceled()) {
+        return;
       }
+      result = matrix.getPrincipalComponents(numComponents);
+    } catch (IllegalArgumentException e) {
+      setStatus(TaskStatus.ERROR);
+      errorMessage = e.getMessage();
+      return;
     }
-
-    PCA pcaProj = new PCA(rawData, numComponents);
-
-    projectionStatus = pcaProj.getProjectionStatus();
-
-    double[][] result = pcaProj.getState();
+    finishedPercentage = 1d;
 
     if (isCanceled()) {
       return;
@@ -295,14 +272,6 @@ public class PCADataset extends AbstractTaskXYDataset implements ProjectionPlotD
 
   }
 
-  @Override
-  public void cancel() {
-    if (projectionStatus != null) {
-      projectionStatus.cancel();
-    }
-    super.cancel();
-  }
-
   @Override
   public String getTaskDescription() {
     return "PCA projection";
@@ -310,10 +279,7 @@ public class PCADataset extends AbstractTaskXYDataset implements ProjectionPlotD
 
   @Override
   public double getFinishedPercentage() {
-    if (projectionStatus == null) {
-      return 0;
-    }
-    return projectionStatus.getFinishedPercentage();
+    return finishedPercentage;
   }
 
 }
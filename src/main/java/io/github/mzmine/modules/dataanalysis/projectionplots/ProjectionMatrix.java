@@ -0,0 +1,417 @@
+/*
+ * Copyright (c) 2004-2022 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.dataanalysis.projectionplots;
+
+import io.github.mzmine.datamodel.AbundanceMeasure;
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.features.DataTypeValueChangeListener;
+import io.github.mzmine.datamodel.features.Feature;
+import io.github.mzmine.datamodel.features.FeatureList;
+import io.github.mzmine.datamodel.features.FeatureListRow;
+import io.github.mzmine.datamodel.features.types.DataTypes;
+import io.github.mzmine.datamodel.features.types.numbers.AreaType;
+import io.github.mzmine.datamodel.features.types.numbers.HeightType;
+import java.lang.ref.SoftReference;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Random;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+import org.apache.commons.math3.linear.Array2DRowRealMatrix;
+import org.apache.commons.math3.linear.EigenDecomposition;
+import org.apache.commons.math3.linear.RealMatrix;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Sample x feature abundance matrix of a feature list, scaled to unity variance for each feature.
+ * The values are stored column-major in one primitive array, so the values of a feature are
+ * contiguous. The matrix is shared by the projection plots (PCA, CDA, Sammon's) and cached for
+ * each feature list, so switching between the plots or the plotted components does not reload the
+ * abundances. The cached matrix is softly referenced and reloaded after heights or areas of the
+ * feature list were changed.
+ * <p>
+ * The principal components are calculated by a randomized truncated singular value decomposition
+ * (Halko, Martinsson, Tropp 2011), which only computes the first k components and never builds the
+ * feature x feature covariance matrix.
+ */
+public class ProjectionMatrix {
+
+  /**
+   * Additional random vectors of the randomized SVD. Improves the accuracy of the first components.
+   */
+  private static final int OVERSAMPLING = 10;
+  private static final int POWER_ITERATIONS = 3;
+  /**
+   * Fixed seed, so the same data always results in the same plot.
+   */
+  private static final long SEED = 42L;
+  private static final int BLOCK_SIZE = 512;
+
+  /**
+   * The last matrix of each feature list. The entries do not reference the feature list, so they
+   * are removed with the feature list.
+   */
+  private static final Map<FeatureList, CacheEntry> cache = new WeakHashMap<>();
+
+  private final int numSamples;
+  private final int numFeatures;
+  // column-major, values[feature * numSamples + sample]
+  private final double[] values;
+
+  // cache key
+  private final RawDataFile[] files;
+  private final int[] rowIDs;
+  private final AbundanceMeasure measure;
+
+  // first principal components, cached
+  private double[][] components;
+
+  /**
+   * @param values      column-major abundance matrix, values[feature * numSamples + sample]. Is
+   *                    scaled in place.
+   * @param numSamples  number of samples (rows)
+   * @param numFeatures number of features (columns)
+   */
+  public ProjectionMatrix(@NotNull double[] values, int numSamples, int numFeatures) {
+    this(values, numSamples, numFeatures, new RawDataFile[0], new int[0], null);
+  }
+
+  private ProjectionMatrix(double[] values, int numSamples, int numFeatures, RawDataFile[] files,
+      int[] rowIDs, AbundanceMeasure measure) {
+    if ((long) numSamples * numFeatures != values.length) {
+      throw new IllegalArgumentException(
+          "Matrix size " + numSamples + "x" + numFeatures + " does not match the number of values "
+              + values.length);
+    }
+    this.values = values;
+    this.numSamples = numSamples;
+    this.numFeatures = numFeatures;
+    this.files = files;
+    this.rowIDs = rowIDs;
+    this.measure = measure;
+    scaleToUnityVariance();
+  }
+
+  /**
+   * Loads the scaled abundance matrix or returns the cached matrix of the same rows, files and
+   * abundance measure.
+   *
+   * @param flist   the feature list, used as cache key
+   * @param rows    the rows (features, columns of the matrix)
+   * @param files   the raw data files (samples, rows of the matrix)
+   * @param measure height or area
+   * @return the scaled matrix
+   */
+  public static ProjectionMatrix forFeatureList(@NotNull FeatureList flist,
+      @NotNull FeatureListRow[] rows, @NotNull RawDataFile[] files,
+      @NotNull AbundanceMeasure measure) {
+    final int[] rowIDs = Arrays.stream(rows).mapToInt(FeatureListRow::getID).toArray();
+    final CacheEntry entry;
+    final long modCount;
+    synchronized (cache) {
+      entry = cache.computeIfAbsent(flist, CacheEntry::new);
+      modCount = entry.modCount.get();
+      final ProjectionMatrix cached = entry.matrix.get();
+      if (cached != null && entry.matrixModCount == modCount && cached.measure == measure
+          && Arrays.equals(cached.files, files) && Arrays.equals(cached.rowIDs, rowIDs)) {
+        return cached;
+      }
+    }
+
+    final long size = (long) rows.length * files.length;
+    if (size > Integer.MAX_VALUE - 8) {
+      throw new IllegalArgumentException(
+          "Too many values for a projection (" + rows.length + " rows x " + files.length
+              + " files)");
+    }
+    final int numSamples = files.length;
+    final double[] values = new double[(int) size];
+    IntStream.range(0, rows.length).parallel().forEach(rowIndex -> {
+      final FeatureListRow row = rows[rowIndex];
+      for (int fileIndex = 0; fileIndex < numSamples; fileIndex++) {
+        final Feature feature = row.getFeature(files[fileIndex]);
+        if (feature != null) {
+          final Float abundance =
+              measure == AbundanceMeasure.Area ? feature.getArea() : feature.getHeight();
+          values[rowIndex * numSamples + fileIndex] = abundance != null ? abundance : 0d;
+        }
+      }
+    });
+
+    final ProjectionMatrix matrix = new ProjectionMatrix(values, numSamples, rows.length,
+        files.clone(), rowIDs, measure);
+    synchronized (cache) {
+      // abundances that changed while loading are detected by the next call
+      entry.matrix = new SoftReference<>(matrix);
+      entry.matrixModCount = modCount;
+    }
+    return matrix;
+  }
+
+  /**
+   * Centers each feature and divides it by its standard deviation. Features without variance are
+   * set to 0.
+   */
+  private void scaleToUnityVariance() {
+    IntStream.range(0, numFeatures).parallel().forEach(feature -> {
+      final int offset = feature * numSamples;
+      double mean = 0d;
+      for (int i = 0; i < numSamples; i++) {
+        mean += values[offset + i];
+      }
+      mean /= numSamples;
+
+      double variance = 0d;
+      for (int i = 0; i < numSamples; i++) {
+        final double diff = values[offset + i] - mean;
+        variance += diff * diff;
+      }
+      final double sd = Math.sqrt(variance / (numSamples - 1));
+
+      for (int i = 0; i < numSamples; i++) {
+        final double scaled = (values[offset + i] - mean) / sd;
+        values[offset + i] = Double.isFinite(scaled) ? scaled : 0d;
+      }
+    });
+  }
+
+  public int getNumSamples() {
+    return numSamples;
+  }
+
+  public int getNumFeatures() {
+    return numFeatures;
+  }
+
+  /**
+   * @return a copy of the scaled matrix as [sample][feature] array, the input format of the
+   * jmprojection algorithms.
+   */
+  public double[][] toSampleArrays() {
+    final double[][] data = new double[numSamples][numFeatures];
+    IntStream.range(0, numSamples).parallel().forEach(sample -> {
+      for (int feature = 0; feature < numFeatures; feature++) {
+        data[sample][feature] = values[feature * numSamples + sample];
+      }
+    });
+    return data;
+  }
+
+  /**
+   * Calculates the scores of the first principal components. The result is cached and reused for
+   * the same or a lower number of components.
+   *
+   * @param numComponents number of components
+   * @return the scores as [component][sample] array
+   */
+  public synchronized double[][] getPrincipalComponents(int numComponents) {
+    if (components == null || components.length < numComponents) {
+      components = randomizedPCA(numComponents);
+    }
+    return Arrays.copyOf(components, numComponents);
+  }
+
+  /**
+   * Randomized truncated SVD of the scaled matrix X = U S V^T. Projects X onto an orthonormal basis
+   * Q of the range of X (refined by power iterations) and decomposes the small matrix B = Q^T X
+   * via the eigen decomposition of B B^T = W S^2 W^T. The scores are X V = U S = Q W S.
+   */
+  private double[][] randomizedPCA(int numComponents) {
+    final int rank = Math.min(numSamples, numFeatures);
+    final int l = Math.min(numComponents + OVERSAMPLING, rank);
+
+    // random projection of the features
+    final Random random = new Random(SEED);
+    final double[][] omega = new double[numFeatures][l];
+    for (double[] row : omega) {
+      for (int j = 0; j < l; j++) {
+        row[j] = random.nextGaussian();
+      }
+    }
+
+    double[][] q = orthonormalize(multiply(omega, l));
+    for (int i = 0; i < POWER_ITERATIONS; i++) {
+      q = orthonormalize(multiply(orthonormalize(multiplyTransposed(q, l)), l));
+    }
+
+    // B^T = X^T Q, gram = B B^T
+    final double[][] bt = multiplyTransposed(q, l);
+    final double[][] gram = new double[l][l];
+    for (double[] row : bt) {
+      for (int a = 0; a < l; a++) {
+        for (int b = a; b < l; b++) {
+          gram[a][b] += row[a] * row[b];
+        }
+      }
+    }
+    for (int a = 0; a < l; a++) {
+      for (int b = 0; b < a; b++) {
+        gram[a][b] = gram[b][a];
+      }
+    }
+
+    final EigenDecomposition eigen = new EigenDecomposition(new Array2DRowRealMatrix(gram, false));
+    final double[] eigenvalues = eigen.getRealEigenvalues();
+    final RealMatrix w = eigen.getV();
+    final Integer[] order = IntStream.range(0, l).boxed()
+        .sorted(Comparator.comparingDouble(i -> -eigenvalues[i])).toArray(Integer[]::new);
+
+    final double[][] scores = new double[numComponents][numSamples];
+    for (int c = 0; c < Math.min(numComponents, l); c++) {
+      final int eigenIndex = order[c];
+      final double singularValue = Math.sqrt(Math.max(0d, eigenvalues[eigenIndex]));
+      for (int sample = 0; sample < numSamples; sample++) {
+        double u = 0d;
+        for (int j = 0; j < l; j++) {
+          u += q[sample][j] * w.getEntry(j, eigenIndex);
+        }
+        scores[c][sample] = u * singularValue;
+      }
+    }
+    return scores;
+  }
+
+  /**
+   * @param m numFeatures x l matrix
+   * @return X m, a numSamples x l matrix
+   */
+  private double[][] multiply(double[][] m, int l) {
+    final int numBlocks = (numFeatures + BLOCK_SIZE - 1) / BLOCK_SIZE;
+    return IntStream.range(0, numBlocks).parallel().mapToObj(block -> {
+      final double[][] partial = new double[numSamples][l];
+      final int end = Math.min(numFeatures, (block + 1) * BLOCK_SIZE);
+      for (int feature = block * BLOCK_SIZE; feature < end; feature++) {
+        final int offset = feature * numSamples;
+        final double[] mRow = m[feature];
+        for (int sample = 0; sample < numSamples; sample++) {
+          final double value = values[offset + sample];
+          if (value == 0d) {
+            continue;
+          }
+          final double[] pRow = partial[sample];
+          for (int j = 0; j < l; j++) {
+            pRow[j] += value * mRow[j];
+          }
+        }
+      }
+      return partial;
+    }).reduce((a, b) -> {
+      for (int i = 0; i < a.length; i++) {
+        for (int j = 0; j < l; j++) {
+          a[i][j] += b[i][j];
+        }
+      }
+      return a;
+    }).orElseGet(() -> new double[numSamples][l]);
+  }
+
+  /**
+   * @param m numSamples x l matrix
+   * @return X^T m, a numFeatures x l matrix
+   */
+  private double[][] multiplyTransposed(double[][] m, int l) {
+    final double[][] result = new double[numFeatures][l];
+    IntStream.range(0, numFeatures).parallel().forEach(feature -> {
+      final int offset = feature * numSamples;
+      final double[] rRow = result[feature];
+      for (int sample = 0; sample < numSamples; sample++) {
+        final double value = values[offset + sample];
+        if (value == 0d) {
+          continue;
+        }
+        final double[] mRow = m[sample];
+        for (int j = 0; j < l; j++) {
+          rRow[j] += value * mRow[j];
+        }
+      }
+    });
+    return result;
+  }
+
+  /**
+   * Orthonormalizes the columns of the matrix in place by the modified Gram-Schmidt process with
+   * reorthogonalization. Linearly dependent columns are set to 0.
+   *
+   * @return the matrix
+   */
+  private static double[][] orthonormalize(double[][] m) {
+    if (m.length == 0) {
+      return m;
+    }
+    final int cols = m[0].length;
+    for (int j = 0; j < cols; j++) {
+      final double initialNorm = columnNorm(m, j);
+      for (int pass = 0; pass < 2; pass++) {
+        for (int k = 0; k < j; k++) {
+          double dot = 0d;
+          for (double[] row : m) {
+            dot += row[j] * row[k];
+          }
+          for (double[] row : m) {
+            row[j] -= dot * row[k];
+          }
+        }
+      }
+      final double norm = columnNorm(m, j);
+      // columns that vanish are (numerically) dependent on the previous columns
+      final double scale = norm > initialNorm * 1E-10 && norm > 0d ? 1d / norm : 0d;
+      for (double[] row : m) {
+        row[j] *= scale;
+      }
+    }
+    return m;
+  }
+
+  private static double columnNorm(double[][] m, int col) {
+    double sum = 0d;
+    for (double[] row : m) {
+      sum += row[col] * row[col];
+    }
+    return Math.sqrt(sum);
+  }
+
+  /**
+   * The cached matrix of a feature list and a modification stamp, which is incremented whenever a
+   * height or area of the feature list is changed in place (e.g., by a normalization). Must not
+   * reference the feature list.
+   */
+  private static final class CacheEntry {
+
+    private final AtomicLong modCount = new AtomicLong();
+    private SoftReference<ProjectionMatrix> matrix = new SoftReference<>(null);
+    // the stamp the matrix was loaded with
+    private long matrixModCount;
+
+    private CacheEntry(FeatureList flist) {
+      final DataTypeValueChangeListener<Float> listener = (dataModel, type, oldValue,
+          newValue) -> modCount.incrementAndGet();
+      flist.addFeatureTypeListener(DataTypes.get(AreaType.class), listener);
+      flist.addFeatureTypeListener(DataTypes.get(HeightType.class), listener);
+    }
+  }
+}
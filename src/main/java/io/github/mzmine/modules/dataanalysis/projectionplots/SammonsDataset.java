@@ -28,7 +28,6 @@ package io.github.mzmine.modules.dataanalysis.projectionplots;
 import io.github.mzmine.datamodel.AbundanceMeasure;
 import io.github.mzmine.datamodel.MZmineProject;
 import io.github.mzmine.datamodel.RawDataFile;
-import io.github.mzmine.datamodel.features.Feature;
 import io.github.mzmine.datamodel.features.FeatureList;
 import io.github.mzmine.datamodel.features.FeatureListRow;
 import io.github.mzmine.gui.chartbasics.simplechart.datasets.AbstractTaskXYDataset;
@@ -37,7 +36,6 @@ import io.github.mzmine.parameters.UserParameter;
 import io.github.mzmine.taskcontrol.TaskStatus;
 import java.util.Vector;
 import java.util.logging.Logger;
-import jmprojection.Preprocess;
 import jmprojection.ProjectionStatus;
 import jmprojection.Sammons;
 
@@ -230,25 +228,17 @@ public class SammonsDataset extends AbstractTaskXYDataset implements ProjectionP
 
     logger.info("Computing projection plot");
 
-    // Generate matrix of raw data (input to Sammon's projection)
-    boolean useArea =
-        parameters.getParameter(ProjectionPlotParameters.featureMeasurementType).getValue()
-            == AbundanceMeasure.Area;
-
-    double[][] rawData = new double[selectedRawDataFiles.length][selectedRows.length];
-    for (int rowIndex = 0; rowIndex < selectedRows.length; rowIndex++) {
-      FeatureListRow featureListRow = selectedRows[rowIndex];
-      for (int fileIndex = 0; fileIndex < selectedRawDataFiles.length; fileIndex++) {
-        RawDataFile rawDataFile = selectedRawDataFiles[fileIndex];
-        Feature p = featureListRow.getFeature(rawDataFile);
-        if (p != null) {
-          if (useArea) {
-            rawData[fileIndex][rowIndex] = p.getArea();
-          } else {
-            rawData[fileIndex][rowIndex] = p.getHeight();
-          }
-        }
-      }
+    // Load the scaled matrix of raw data, shared with the other projection plots
+    final AbundanceMeasure measure = parameters.getParameter(
+        ProjectionPlotParameters.featureMeasurementType).getValue();
+    final double[][] rawData;
+    try {
+      rawData = ProjectionMatrix.forFeatureList(featureList, selectedRows, selectedRawDataFiles,
+          measure).toSampleArrays();
+    } catch (IllegalArgumentException e) {
+      setStatus(TaskStatus.ERROR);
+      errorMessage = e.getMessage();
+      return;
     }
 
     int numComponents = xAxisDimension;
@@ -256,8 +246,7 @@ public class SammonsDataset extends AbstractTaskXYDataset implements ProjectionP
       numComponents = yAxisDimension;
     }
 
-    // Scale data and do Sammon's mapping
-    Preprocess.scaleToUnityVariance(rawData);
+    // Do Sammon's mapping
     Sammons sammonsProj = new Sammons(rawData);
 
     projectionStatus = sammonsProj.getProjectionStatus();
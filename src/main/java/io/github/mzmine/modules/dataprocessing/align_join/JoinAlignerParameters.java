@@ -46,6 +46,13 @@ public class JoinAlignerParameters extends SimpleParameterSet {
 
   public static final FeatureListsParameter peakLists = new FeatureListsParameter();
 
+  public static final OptionalParameter<FeatureListsParameter> extendAlignedList = new OptionalParameter<>(
+      new FeatureListsParameter("Extend aligned feature list",
+          "If checked, the feature lists are added to this existing aligned feature list instead of "
+              + "aligning all samples again.\nRows of the new samples are matched to the aligned "
+              + "rows first, new rows are only created for unmatched features. Row IDs of the "
+              + "aligned feature list are kept.", 1, 1), false);
+
   public static final StringParameter peakListName = new StringParameter("Feature list name",
       "Feature list name", "Aligned feature list");
 
@@ -93,7 +100,7 @@ public class JoinAlignerParameters extends SimpleParameterSet {
           + "processed list.\nREMOVE saves memory.", false);
 
   public JoinAlignerParameters() {
-    super(new Parameter[]{peakLists, peakListName, MZTolerance, MZWeight, RTTolerance, RTWeight,
+    super(new Parameter[]{peakLists, extendAlignedList, peakListName, MZTolerance, MZWeight, RTTolerance, RTWeight,
             mobilityTolerance, mobilityWeight, SameChargeRequired, SameIDRequired,
             compareIsotopePattern, compareSpectraSimilarity, handleOriginal},
         "https://mzmine.github.io/mzmine_documentation/module_docs/join_aligner/join_aligner.html");
@@ -25,7 +25,6 @@
 
 package io.github.mzmine.modules.dataprocessing.align_join;
 
-import static io.github.mzmine.util.FeatureListRowSorter.MZ_ASCENDING;
 import static java.util.Comparator.comparingInt;
 
 import com.google.common.collect.Range;
@@ -50,6 +49,7 @@ import io.github.mzmine.parameters.parametertypes.tolerances.RTTolerance;
 import io.github.mzmine.parameters.parametertypes.tolerances.mobilitytolerance.MobilityTolerance;
 import io.github.mzmine.taskcontrol.AbstractTask;
 import io.github.mzmine.taskcontrol.TaskStatus;
+import io.github.mzmine.util.FeatureListRowIndex;
 import io.github.mzmine.util.FeatureListUtils;
 import io.github.mzmine.util.FeatureUtils;
 import io.github.mzmine.util.MemoryMapStorage;
@@ -93,6 +93,13 @@ public class JoinAlignerTask extends AbstractTask {
    * All feature lists except the base list
    */
   private final List<FeatureList> featureLists;
+  private final boolean extendAlignedList;
+  /**
+   * Existing aligned feature list that is extended by the feature lists or null to align from
+   * scratch
+   */
+  @Nullable
+  private final FeatureList baseAlignedList;
   private ModularFeatureList alignedFeatureList;
   // Processed rows counter
   private int totalRows;
@@ -109,8 +116,16 @@ public class JoinAlignerTask extends AbstractTask {
     this.project = project;
     this.parameters = parameters;
 
+    extendAlignedList = parameters.getValue(JoinAlignerParameters.extendAlignedList);
+    baseAlignedList = !extendAlignedList ? null : Arrays.stream(
+            parameters.getParameter(JoinAlignerParameters.extendAlignedList).getEmbeddedParameter()
+                .getValue().getMatchingFeatureLists()).map(flist -> (FeatureList) flist).findFirst()
+        .orElse(null);
+
+    // the extended aligned list is not aligned onto itself
     featureLists = Arrays.stream(parameters.getParameter(JoinAlignerParameters.peakLists).getValue()
-        .getMatchingFeatureLists()).map(flist -> (FeatureList) flist).toList();
+            .getMatchingFeatureLists()).map(flist -> (FeatureList) flist)
+        .filter(flist -> flist != baseAlignedList).toList();
 
     featureListName = parameters.getParameter(JoinAlignerParameters.peakListName).getValue();
 
@@ -160,7 +175,8 @@ public class JoinAlignerTask extends AbstractTask {
 
   @Override
   public String getTaskDescription() {
-    return "Join aligner, " + featureListName + " (" + featureLists.size() + " feature lists)";
+    return "Join aligner, " + featureListName + " (" + featureLists.size() + " feature lists" + (
+        baseAlignedList != null ? " added to " + baseAlignedList.getName() : "") + ")";
   }
 
 
@@ -181,6 +197,16 @@ public class JoinAlignerTask extends AbstractTask {
       setErrorMessage("Cannot run alignment, all the weight parameters are zero");
       return;
     }
+    if (featureLists.isEmpty()) {
+      setStatus(TaskStatus.ERROR);
+      setErrorMessage("Cannot run alignment, no feature lists to align");
+      return;
+    }
+    if (extendAlignedList && baseAlignedList == null) {
+      setStatus(TaskStatus.ERROR);
+      setErrorMessage("Cannot extend the aligned feature list, no aligned feature list was found");
+      return;
+    }
 
     setStatus(TaskStatus.PROCESSING);
     logger.info(
@@ -192,8 +218,16 @@ public class JoinAlignerTask extends AbstractTask {
       totalRows += list.getNumberOfRows();
     }
 
+    // the samples of an extended aligned list come first
+    final List<FeatureList> sourceLists = new ArrayList<>(featureLists.size() + 1);
+    if (baseAlignedList != null) {
+      sourceLists.add(baseAlignedList);
+      totalRows += baseAlignedList.getNumberOfRows();
+    }
+    sourceLists.addAll(featureLists);
+
     // Collect all data files
-    final List<RawDataFile> allDataFiles = FeatureListUtils.getAllDataFiles(featureLists);
+    final List<RawDataFile> allDataFiles = FeatureListUtils.getAllDataFiles(sourceLists);
     if (allDataFiles == null) {
       return;
     }
@@ -201,8 +235,8 @@ public class JoinAlignerTask extends AbstractTask {
     // Create a new aligned feature list based on the baseList and renumber IDs
     alignedFeatureList = new ModularFeatureList(featureListName, getMemoryMapStorage(),
         allDataFiles);
-    FeatureListUtils.transferRowTypes(alignedFeatureList, featureLists);
-    FeatureListUtils.transferSelectedScans(alignedFeatureList, featureLists);
+    FeatureListUtils.transferRowTypes(alignedFeatureList, sourceLists);
+    FeatureListUtils.transferSelectedScans(alignedFeatureList, sourceLists);
     final AtomicInteger newRowID = new AtomicInteger(1);
 
     // list all rows for each feature list
@@ -212,6 +246,26 @@ public class JoinAlignerTask extends AbstractTask {
       allRows.add(new ArrayList<>(flist.getRows()));
     }
 
+    if (baseAlignedList != null) {
+      // copy the aligned rows with their IDs and use them as the first base rows. Only rows of the
+      // new samples that do not match are used as base rows in the following iterations
+      final List<FeatureListRow> alignedBaseRows = new ArrayList<>(
+          baseAlignedList.getNumberOfRows());
+      for (FeatureListRow row : baseAlignedList.getRows()) {
+        alignedBaseRows.add(
+            new ModularFeatureListRow(alignedFeatureList, (ModularFeatureListRow) row, true));
+        newRowID.set(Math.max(newRowID.get(), row.getID() + 1));
+      }
+
+      if (!allRows.isEmpty()) {
+        alignRowsOnBaseRows(allRows, new FeatureListRowIndex<>(alignedBaseRows));
+      }
+      for (var row : alignedBaseRows) {
+        alignedFeatureList.addRow(row);
+      }
+      iteration++;
+    }
+
     // still contains rows from unaligned feature lists
     while (!allRows.isEmpty()) {
       // sort remaining unaligned rows by size
@@ -234,11 +288,10 @@ public class JoinAlignerTask extends AbstractTask {
         nextBaseRows.add(new ModularFeatureListRow(alignedFeatureList, newRowID.getAndIncrement(),
             (ModularFeatureListRow) unalignedRow, true));
       }
-      nextBaseRows.sort(MZ_ASCENDING);
 
       // align all remaining feature lists onto the feature list with max(row number) = nextBaseRows
       if (!allRows.isEmpty()) {
-        alignRowsOnBaseRows(allRows, nextBaseRows);
+        alignRowsOnBaseRows(allRows, new FeatureListRowIndex<>(nextBaseRows));
       }
 
       // add all new base rows
@@ -248,8 +301,8 @@ public class JoinAlignerTask extends AbstractTask {
       iteration++;
     }
 
-    // sort by RT and reset IDs
-    FeatureListUtils.sortByDefaultRT(alignedFeatureList, true);
+    // sort by RT and reset IDs, IDs of an extended aligned list are kept
+    FeatureListUtils.sortByDefaultRT(alignedFeatureList, baseAlignedList == null);
 
     // update row bindings
     alignedFeatureList.parallelStream().filter(row -> row.getNumberOfFeatures() > 1)
@@ -257,13 +310,20 @@ public class JoinAlignerTask extends AbstractTask {
 
     // score alignment by the number of features that fall within the mz, RT, mobility range
     // do not apply all the advanced filters to keep it simple
+    // an extended list only scores the new samples and merges with the previous scores
     MobilityTolerance mobTol = compareMobility ? mobilityTolerance : null;
     RowAlignmentScoreCalculator calculator = new RowAlignmentScoreCalculator(featureLists,
         mzTolerance, rtTolerance, mobTol, mzWeight, rtWeight, mobilityWeight);
-    FeatureListUtils.addAlignmentScores(alignedFeatureList, calculator, false);
+    if (baseAlignedList != null) {
+      FeatureListUtils.addAlignmentScores(alignedFeatureList, calculator,
+          baseAlignedList.getNumberOfRawDataFiles());
+    } else {
+      FeatureListUtils.addAlignmentScores(alignedFeatureList, calculator, false);
+    }
 
     // applied methods
-    alignedFeatureList.getAppliedMethods().addAll(featureLists.get(0).getAppliedMethods());
+    alignedFeatureList.getAppliedMethods().addAll(
+        (baseAlignedList != null ? baseAlignedList : featureLists.get(0)).getAppliedMethods());
     // Add task description to peakList
     alignedFeatureList.addDescriptionOfAppliedTask(
         new SimpleFeatureListAppliedMethod("Join aligner", JoinAlignerModule.class, parameters,
@@ -273,7 +333,7 @@ public class JoinAlignerTask extends AbstractTask {
 
     if (parameters.getValue(JoinAlignerParameters.handleOriginal)
         == OriginalFeatureListOption.REMOVE) {
-      project.removeFeatureLists(featureLists);
+      project.removeFeatureLists(sourceLists);
     }
 
     logger.info("Finished join aligner");
@@ -286,10 +346,10 @@ public class JoinAlignerTask extends AbstractTask {
    * all unaligned rows are checked against the list of base rows
    *
    * @param unalignedRows FeatureList<Rows>
-   * @param baseRowsByMz  list of base rows sorted by acsending mz
+   * @param baseRowIndex  index of the base rows, queried in parallel
    */
   private void alignRowsOnBaseRows(List<List<FeatureListRow>> unalignedRows,
-      List<FeatureListRow> baseRowsByMz) {
+      FeatureListRowIndex<FeatureListRow> baseRowIndex) {
 
     // key = a row to be aligned, value = all possible matches in the aligned fl and it's scores
     final ConcurrentLinkedDeque<RowVsRowScore> scoresList = new ConcurrentLinkedDeque<>();
@@ -310,8 +370,8 @@ public class JoinAlignerTask extends AbstractTask {
               ? mobilityTolerance.getToleranceRange(rowToAdd.getAverageMobility()) : Range.all();
 
       // find all rows in the aligned rows that might match
-      final List<FeatureListRow> candidatesInAligned = FeatureListUtils.getCandidatesWithinRanges(
-          mzRange, rtRange, mobilityRange, baseRowsByMz, true);
+      final List<FeatureListRow> candidatesInAligned = baseRowIndex.getCandidatesWithinRanges(
+          mzRange, rtRange, mobilityRange);
 
       if (candidatesInAligned.isEmpty()) {
         return;
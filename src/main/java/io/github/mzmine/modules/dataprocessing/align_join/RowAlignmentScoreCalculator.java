@@ -25,8 +25,6 @@
 
 package io.github.mzmine.modules.dataprocessing.align_join;
 
-import static io.github.mzmine.util.FeatureListRowSorter.MZ_ASCENDING;
-
 import com.google.common.collect.Range;
 import io.github.mzmine.datamodel.RawDataFile;
 import io.github.mzmine.datamodel.features.FeatureList;
@@ -35,11 +33,11 @@ import io.github.mzmine.datamodel.features.types.alignment.AlignmentScores;
 import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
 import io.github.mzmine.parameters.parametertypes.tolerances.RTTolerance;
 import io.github.mzmine.parameters.parametertypes.tolerances.mobilitytolerance.MobilityTolerance;
+import io.github.mzmine.util.FeatureListRowIndex;
 import io.github.mzmine.util.FeatureListUtils;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import javafx.collections.transformation.SortedList;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -49,7 +47,7 @@ import org.jetbrains.annotations.Nullable;
 public class RowAlignmentScoreCalculator {
 
 
-  private final Map<RawDataFile, SortedList<FeatureListRow>> originalRowsMap;
+  private final Map<RawDataFile, FeatureListRowIndex<FeatureListRow>> originalRowsMap;
   private final MZTolerance mzTol;
   private final RTTolerance rtTol;
   private final MobilityTolerance mobTol;
@@ -76,7 +74,7 @@ public class RowAlignmentScoreCalculator {
     this.rtWeight = rtWeight;
     this.mobilityWeight = mobilityWeight;
     for (FeatureList flist : originalFeatureLists) {
-      originalRowsMap.put(flist.getRawDataFile(0), flist.getRows().sorted(MZ_ASCENDING));
+      originalRowsMap.put(flist.getRawDataFile(0), new FeatureListRowIndex<>(flist.getRows()));
     }
     totalSamples = originalRowsMap.size();
   }
@@ -106,14 +104,13 @@ public class RowAlignmentScoreCalculator {
     int sumExtra = 0;
     for (var entry : originalRowsMap.entrySet()) {
       RawDataFile raw = entry.getKey();
-      SortedList<FeatureListRow> originals = entry.getValue();
+      FeatureListRowIndex<FeatureListRow> originals = entry.getValue();
 
       // result is the number of possible features for this raw data file
-      List<FeatureListRow> matchedRows = FeatureListUtils.getCandidatesWithinRanges(mzRange,
-          rtRange, mobilityRange, originals, true);
+      int matchedRows = originals.countCandidatesWithinRanges(mzRange, rtRange, mobilityRange);
       var feature = alignedRow.getFeature(raw);
       // if the row has a feature, remove 1 and then add to the total
-      sumExtra += Math.max(0, matchedRows.size() - (feature != null ? 1 : 0));
+      sumExtra += Math.max(0, matchedRows - (feature != null ? 1 : 0));
 
       if (feature != null) {
         testedAlignedFeatures++;
@@ -131,15 +128,27 @@ public class RowAlignmentScoreCalculator {
       }
     }
 
+    float rate = testedAlignedFeatures / (float) totalSamples;
+    if (testedAlignedFeatures == 0) {
+      // no feature in the scored samples, e.g., a row of an extended aligned list
+      return new AlignmentScores(rate, 0, sumExtra, null, null, null, null, null);
+    }
+
     // rows
     mobilityDiff = mobilityDiff / testedAlignedFeatures;
     alignmentScore = alignmentScore / testedAlignedFeatures;
     rtDiff = rtDiff / testedAlignedFeatures;
     mzDiff = mzDiff / testedAlignedFeatures;
     float ppm = (float) (mzDiff / mz * 1_000_000f);
-    float rate = testedAlignedFeatures / (float) totalSamples;
 
     return new AlignmentScores(rate, testedAlignedFeatures, sumExtra, (float) alignmentScore, ppm,
         mzDiff, rt != null ? rtDiff : null, mobility != null ? mobilityDiff : null);
   }
+
+  /**
+   * @return the number of samples that are scored
+   */
+  public int getTotalSamples() {
+    return totalSamples;
+  }
 }
@@ -45,6 +45,7 @@ import io.github.mzmine.parameters.parametertypes.tolerances.mobilitytolerance.M
 import io.github.mzmine.taskcontrol.AbstractTask;
 import io.github.mzmine.taskcontrol.TaskStatus;
 import io.github.mzmine.util.FeatureListRowSorter;
+import io.github.mzmine.util.FeatureListRowIndex;
 import io.github.mzmine.util.FeatureListUtils;
 import io.github.mzmine.util.MemoryMapStorage;
 import io.github.mzmine.util.RangeUtils;
@@ -150,6 +151,7 @@ public class LcImageAlignerTask extends AbstractTask {
         row -> (FeatureListRow) new ModularFeatureListRow(alignedFlist, (ModularFeatureListRow) row,
             true)).sorted(FeatureListRowSorter.MZ_ASCENDING).toList();
 
+    final FeatureListRowIndex<FeatureListRow> lcRowIndex = new FeatureListRowIndex<>(lcRows);
     logger.finest(() -> "Copied " + lcRows.size() + " LC rows.");
 
     // score all rows (parallel)
@@ -166,8 +168,8 @@ public class LcImageAlignerTask extends AbstractTask {
       final double maxMobDiff = mobRange.equals(Range.all()) ? Double.POSITIVE_INFINITY
           : RangeUtils.rangeLength(mobRange) / 2;
 
-      final List<FeatureListRow> matchingLcRows = FeatureListUtils.getCandidatesWithinRanges(
-          mzRange, Range.all(), mobRange, lcRows, true);
+      final List<FeatureListRow> matchingLcRows = lcRowIndex.getCandidatesWithinRanges(mzRange,
+          Range.all(), mobRange);
       for (FeatureListRow lcRow : matchingLcRows) {
         RowVsRowScore score = new RowVsRowScore(imageRow, lcRow, mzRange, null, mobRange, null,
             mzWeight, 0, mobWeight, 0);
@@ -62,6 +62,7 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.function.BooleanSupplier;
 import java.util.logging.Logger;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -196,9 +197,6 @@ public class ModularADAPChromatogramBuilderTask extends AbstractTask {
     // update mz avg and other stuff
     //
 
-    // map the mz tolerance to chromatograms
-    RangeMap<Double, ADAPChromatogram> rangeToChromMap = TreeRangeMap.create();
-
     // make a list of all the data points
     List<ExpandedDataPoint> allMzValues = new ArrayList<>();
 
@@ -244,42 +242,19 @@ public class ModularADAPChromatogramBuilderTask extends AbstractTask {
 
     // count starts at 1 since we already have added one with a single point.
     progress = 0.0;
-    double progressStep =
-        (allMzValues.size() > 0) ? 0.5 / allMzValues.size() : 0.0;
-
-    for (ExpandedDataPoint mzFeature : allMzValues) {
-
-      progress += progressStep;
-
-      if (isCanceled()) {
-        return;
-      }
-
-      if (mzFeature == null || Double.isNaN(mzFeature.getMZ()) || Double.isNaN(
-          mzFeature.getIntensity())) {
-        continue;
-      }
+    final double progressStep = (allMzValues.size() > 0) ? 0.5 / allMzValues.size() : 0.0;
 
-      final Entry<Range<Double>, ADAPChromatogram> existing = rangeToChromMap.getEntry(
-          mzFeature.getMZ());
-      if (existing != null) {
-        // add data point to chromatogram
-        existing.getValue().addMzFeature(mzFeature.getScan(), mzFeature);
-      } else {
-        // skip it entierly if the intensity is not high enough
-        if (mzFeature.getIntensity() < minHighestPoint) {
-          continue;
-        }
-        // add a new chromatogram to the range map - limit ranges to avoid overlap
-        startNewChromatogramLimitMzRanges(rangeToChromMap, mzFeature);
-      }
+    final RangeMap<Double, ADAPChromatogram> rangeToChromMap = assignDataPoints(allMzValues,
+        mzTolerance, minHighestPoint, this::isCanceled, () -> progress += progressStep);
+    if (isCanceled()) {
+      return;
     }
 
     // finish chromatograms sorted by m/z
     final Map<Range<Double>, ADAPChromatogram> finalRangeMap = rangeToChromMap.asMapOfRanges();
 
     int numChromatograms = finalRangeMap.size();
-    progressStep = numChromatograms > 0 ? 0.5 / numChromatograms : 0.0;
+    final double finishStep = numChromatograms > 0 ? 0.5 / numChromatograms : 0.0;
 
     // Create new feature list
     newFeatureList = new ModularFeatureList(dataFile + " " + suffix,
@@ -294,7 +269,7 @@ public class ModularADAPChromatogramBuilderTask extends AbstractTask {
         return;
       }
 
-      progress += progressStep;
+      progress += finishStep;
 
       // And remove chromatograms who dont have a certian number of continous points above the
       // IntensityThresh2 level.
@@ -335,6 +310,51 @@ public class ModularADAPChromatogramBuilderTask extends AbstractTask {
     logger.info(() -> "Finished chromatogram builder on " + dataFile);
   }
 
+  /**
+   * Adds the data points to the chromatograms, starting with the most intense data point. A data
+   * point is added to the chromatogram whose m/z range contains it, otherwise a new chromatogram
+   * is started if the data point is at least as intense as minHighestPoint.
+   *
+   * @param sortedDataPoints data points sorted by descending intensity
+   * @param isCanceled       stops the assignment
+   * @param onDataPoint      called for every data point, e.g., to update the progress
+   * @return the chromatograms mapped by their non overlapping m/z ranges
+   */
+  static RangeMap<Double, ADAPChromatogram> assignDataPoints(
+      List<ExpandedDataPoint> sortedDataPoints, MZTolerance mzTolerance, double minHighestPoint,
+      BooleanSupplier isCanceled, Runnable onDataPoint) {
+    // map the mz tolerance to chromatograms
+    RangeMap<Double, ADAPChromatogram> rangeToChromMap = TreeRangeMap.create();
+
+    for (ExpandedDataPoint mzFeature : sortedDataPoints) {
+      onDataPoint.run();
+
+      if (isCanceled.getAsBoolean()) {
+        return rangeToChromMap;
+      }
+
+      if (mzFeature == null || Double.isNaN(mzFeature.getMZ()) || Double.isNaN(
+          mzFeature.getIntensity())) {
+        continue;
+      }
+
+      final Entry<Range<Double>, ADAPChromatogram> existing = rangeToChromMap.getEntry(
+          mzFeature.getMZ());
+      if (existing != null) {
+        // add data point to chromatogram
+        existing.getValue().addMzFeature(mzFeature.getScan(), mzFeature);
+      } else {
+        // skip it entierly if the intensity is not high enough
+        if (mzFeature.getIntensity() < minHighestPoint) {
+          continue;
+        }
+        // add a new chromatogram to the range map - limit ranges to avoid overlap
+        startNewChromatogramLimitMzRanges(rangeToChromMap, mzFeature, mzTolerance);
+      }
+    }
+    return rangeToChromMap;
+  }
+
   /**
    * Starts a new chromatogram and limits its range so that it does not overlap
    * with existing m/z ranges
@@ -342,11 +362,12 @@ public class ModularADAPChromatogramBuilderTask extends AbstractTask {
    * @param rangeToChromMap started chromatograms with their non overlapping m/z
    *                        range
    * @param mzFeature       current tested data point
+   * @param mzTolerance     the m/z tolerance of a chromatogram
    */
   @SuppressWarnings("UnstableApiUsage")
-  private void startNewChromatogramLimitMzRanges(
-      RangeMap<Double, ADAPChromatogram> rangeToChromMap,
-      ExpandedDataPoint mzFeature) {
+  private static void startNewChromatogramLimitMzRanges(
+      RangeMap<Double, ADAPChromatogram> rangeToChromMap, ExpandedDataPoint mzFeature,
+      MZTolerance mzTolerance) {
     // start new chromatogram and create new range (subract overlapping existing ranges)
     Range<Double> toleranceRange = mzTolerance.getToleranceRange(
         mzFeature.getMZ());
@@ -25,7 +25,6 @@
 
 package io.github.mzmine.modules.dataprocessing.featdet_gridmass;
 
-import io.github.mzmine.datamodel.DataPoint;
 import io.github.mzmine.datamodel.MZmineProject;
 import io.github.mzmine.datamodel.RawDataFile;
 import io.github.mzmine.datamodel.Scan;
@@ -42,13 +41,15 @@ import io.github.mzmine.taskcontrol.TaskStatus;
 import io.github.mzmine.util.ArrayUtils;
 import io.github.mzmine.util.FeatureConvertors;
 import io.github.mzmine.util.MemoryMapStorage;
-import io.github.mzmine.util.scans.ScanUtils;
 import java.text.Format;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Logger;
+import java.util.stream.IntStream;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -74,9 +75,8 @@ public class GridMassTask extends AbstractTask {
   private final double smoothTimeSpan;
   private final double smoothTimeMZ;
   private final double minimumHeight;
-  Datum[][] roi;
+  private GridRoi roi;
   double[] retentionTime;
-  private double additionTimeMaxPeaksPerScan; //TODO inspect
   private double smoothMZ; //TODO inspect
   private double rtPerScan;
   private int tolScans;
@@ -149,49 +149,16 @@ public class GridMassTask extends AbstractTask {
     procedure = (process + (float) i / (float) max) / procedureLen;
   }
 
-  static int findFirstMass(double mass, Datum[] mzValues) {
-    return findFirstMass(mass, mzValues, 0, mzValues.length - 1);
-  }
-
-  static int findFirstMass(double mass, Datum[] mzValues, int l, int r) {
-    int mid;
-    while (l < r) {
-      mid = (r + l) / 2;
-      if (mzValues[mid].mz > mass) {
-        r = mid - 1;
-      } else if (mzValues[mid].mz < mass) {
-        l = mid + 1;
-      } else {
-        return mid;
-      }
-    }
-    while (l > 0 && mzValues[l].mz > mass) {
-      l--;
-    }
-    return l;
-  }
-
   int addMaxDatumFromScans(SpotByProbes s, Chromatogram peak) {
 
-    int i, j;
+    int i;
     int adds = 0;
     for (i = s.minScan; i <= s.maxScan; i++) {
-      Datum[] di = roi[i];
-      if (di != null && di.length > 0) {
-        Datum max = new Datum(new SimpleDataPoint(0, -1), 0, new SimpleDataPoint(0, -1));
-        int idx = findFirstMass(s.minMZ, di);
-        for (j = idx; j < di.length && di[j].mz <= s.maxMZ; j++) {
-          Datum d = di[j];
-          if (d.spotId == s.spotId) {
-            if (d.intensity > max.intensity && d.mz >= s.minMZ && d.intensity > minimumHeight) {
-              max = d;
-            }
-          }
-        }
-        if (max.intensity > 0) {
-          adds++;
-          peak.addMzPeak(scans[i], new SimpleDataPoint(max.mzOriginal, max.intensityOriginal));
-        }
+      final int max = s.getMaxDatumIndex(i);
+      if (max != -1) {
+        adds++;
+        peak.addMzPeak(scans[i],
+            new SimpleDataPoint(roi.getMZ(i, max), roi.getOriginalIntensity(i, max)));
       }
     }
     return adds;
@@ -201,30 +168,26 @@ public class GridMassTask extends AbstractTask {
 
     int i, j;
     for (i = s.minScan; i <= s.maxScan; i++) {
-      Datum[] di = roi[i];
-      if (di != null && di.length > 0) {
-        int idx = findFirstMass(s.minMZ - mzRadius, di);
-        for (j = idx; j < di.length && di[j].mz <= s.maxMZ + mzRadius; j++) {
-          Datum d = di[j];
-          if (d.mz >= s.minMZ - mzRadius) {
-            if (d.spotId != 0) {
-              // Some spot already assigned this to it. Check
-              // exactly who is the winner
-              Probe p = new Probe(d.mz, d.scan);
-              moveProbeToCenter(p, sRadius, mzRadius);
-              if (p.mzCenter == s.center.mzCenter && p.scanCenter == s.center.scanCenter) {
-                // This datum is actually MINE (s) !!!, this
-                // will happen to datums close to spot borders
-                // and that compete with other spot
-                // System.out.println("Reassigning spot to
-                // Id="+s.spotId+" from
-                // Spot:"+d.toString());
-                s.setSpotIdToDatum(d);
-              }
-            } else {
-              s.setSpotIdToDatum(d);
-            }
+      final int n = roi.size(i);
+      for (j = roi.findFirstMass(i, s.minMZ - mzRadius);
+          j < n && roi.getMZ(i, j) <= s.maxMZ + mzRadius; j++) {
+        final int spotId = roi.getSpotId(i, j);
+        if (spotId == s.spotId) {
+          continue;
+        }
+        if (spotId != 0) {
+          // Some spot already assigned this to it. Check
+          // exactly who is the winner
+          Probe p = new Probe(roi.getMZ(i, j), i);
+          roi.moveProbeToCenter(p, sRadius, mzRadius);
+          if (p.mzCenter == s.center.mzCenter && p.scanCenter == s.center.scanCenter) {
+            // This datum is actually MINE (s) !!!, this
+            // will happen to datums close to spot borders
+            // and that compete with other spot
+            s.setSpotIdToDatum(roi, i, j);
           }
+        } else {
+          s.setSpotIdToDatum(roi, i, j);
         }
       }
     }
@@ -238,63 +201,94 @@ public class GridMassTask extends AbstractTask {
     double minMZ = Math.min(s.minMZ, s2.minMZ);
     double maxMZ = Math.max(s.maxMZ, s2.maxMZ);
     for (i = Math.min(s.minScan, s2.minScan); i <= mxScan; i++) {
-      Datum[] di = roi[i];
-      if (di != null && di.length > 0) {
-        int idx = findFirstMass(minMZ - mzRadius, di);
-        for (j = idx; j < di.length && di[j].mz <= maxMZ + mzRadius; j++) {
-          Datum d = di[j];
-          if (d.spotId == oldSpotId) {
-            s.setSpotIdToDatum(d);
-          }
+      final int n = roi.size(i);
+      for (j = roi.findFirstMass(i, minMZ - mzRadius);
+          j < n && roi.getMZ(i, j) <= maxMZ + mzRadius; j++) {
+        if (roi.getSpotId(i, j) == oldSpotId) {
+          s.setSpotIdToDatum(roi, i, j);
         }
       }
     }
   }
 
-  void moveProbeToCenter(Probe p, int sRadius, double mzRadius) {
-
-    int i, j, k;
-    double maxMZ, minMZ;
-    boolean move = true;
-    Datum max = new Datum(new SimpleDataPoint(0, -1), 0, new SimpleDataPoint(0, -1));
-    while (move) {
-      k = Math.min(totalScans - 1, p.scanCenter + sRadius);
-      for (i = Math.max(p.scanCenter - sRadius, 0); i <= k; i++) {
-        Datum[] di = roi[i];
-        if (di != null && di.length > 0) {
-          minMZ = p.mzCenter - mzRadius;
-          int idx = findFirstMass(minMZ, di);
-          maxMZ = p.mzCenter + mzRadius;
-          for (j = idx; j < di.length && di[j].mz <= maxMZ; j++) {
-            Datum d = di[j];
-            if (d.intensity > max.intensity && d.mz >= minMZ) {
-              max = d;
-            }
-          }
+  /**
+   * Generates the probes of all grid columns in [firstColumn, lastColumn), moves them to their
+   * closest maximum and groups the probes that share a maximum. Probes of neighbouring stripes may
+   * climb to the same maximum, these spots are merged afterwards.
+   *
+   * @return the spots of this stripe sorted by their center
+   */
+  private List<SpotByProbes> probeStripe(int firstColumn, int lastColumn, double byMZ, int byScan,
+      int scanR, double mzR) {
+    final List<Probe> probes = new ArrayList<>();
+    for (int i = 0; i < totalScans; i += byScan) {
+      if (isCanceled()) {
+        return List.of();
+      }
+      final double start = minMass - (i % 2) * byMZ / 2;
+      for (int k = firstColumn; k < lastColumn; k++) {
+        final double m = start + k * byMZ;
+        if (m > maxMass) {
+          break;
+        }
+        final Probe p = new Probe(m, i);
+        roi.moveProbeToCenter(p, scanR, mzR);
+        if (p.intensityCenter >= minimumHeight) {
+          probes.add(p);
         }
       }
-      if (max.intensity >= 0 && (max.mz != p.mzCenter || max.scan != p.scanCenter)) {
-        p.mzCenter = max.mz;
-        p.scanCenter = max.scan;
-        p.intensityCenter = max.intensity;
-        // p.moves++;
+    }
+
+    // stable sort, probes with the same center stay in grid order
+    probes.sort(null);
+    final List<SpotByProbes> spots = new ArrayList<>();
+    SpotByProbes sbp = null;
+    for (Probe p : probes) {
+      if (sbp == null || p.mzCenter != sbp.center.mzCenter
+          || p.scanCenter != sbp.center.scanCenter) {
+        sbp = new SpotByProbes();
+        spots.add(sbp);
+      }
+      sbp.addProbe(p);
+    }
+    return spots;
+  }
+
+  /**
+   * Merges the spots of all stripes. Spots of different stripes with the same center are joined.
+   *
+   * @param stripes the spots of each stripe, sorted by center
+   * @return all spots sorted by center with assigned spot ids
+   */
+  private List<SpotByProbes> mergeStripes(List<List<SpotByProbes>> stripes) {
+    final List<SpotByProbes> fragments = new ArrayList<>();
+    stripes.forEach(fragments::addAll);
+    fragments.sort(null);
+
+    final List<SpotByProbes> spots = new ArrayList<>();
+    SpotByProbes last = null;
+    for (SpotByProbes fragment : fragments) {
+      if (last != null && last.center.mzCenter == fragment.center.mzCenter
+          && last.center.scanCenter == fragment.center.scanCenter) {
+        last.addProbesFromSpot(fragment, false);
       } else {
-        move = false;
+        spots.add(fragment);
+        last = fragment;
       }
     }
+    for (int i = 0; i < spots.size(); i++) {
+      spots.get(i).assignSpotId(i + 1);
+    }
+    return spots;
   }
 
-//  double intensityForMZorScan(ArrayList<DatumExpand> deA, double mz, int scan) {
-//    double h = -1;
-//    int j;
-//    for (j = 0; j < deA.size(); j++) {
-//      DatumExpand de = deA.get(j);
-//      if ((de.dato.scan == scan || de.dato.mz == mz) && de.dato.intensity > h) {
-//        h = de.dato.intensity;
-//      }
-//    }
-//    return h;
-//  }
+  /**
+   * Checks the minimum continuous time span of a spot, requires the max datums to be built.
+   */
+  private boolean isContinuous(SpotByProbes sx) {
+    return sx.getMaxDatumScans() >= tolScans && (sx.getContigousMaxDatumScans() >= tolScans
+        || sx.getContigousToMaxDatumScansRatio() > 0.5);
+  }
 
   /**
    * @see Runnable#run()
@@ -371,127 +365,9 @@ public class GridMassTask extends AbstractTask {
     // (3.1.3) if extension < mintime ==> mark all pixels with spot ID = -1
     // (4) Group spots within a time-tolerance and mass-tolerance
 
-    logger.info("Getting data points on " + dataFile);
-
-    roi = new Datum[totalScans][];
-    ArrayList<Datum> roiAL = new ArrayList<>();
-    long passed;
-    long nopassed;
-    minMass = Double.MAX_VALUE; //TODO Change this value to 0?
-    maxMass = 0;
-    int maxJ = 0;
-    boolean[] scanOk = new boolean[totalScans];
-    Arrays.fill(scanOk, true);
-
-    logger.info(
-        "Smoothing data points on " + dataFile + " (Time min=" + smoothTimeSpan + "; Time m/z="
-            + smoothTimeMZ + ")");
-    IndexedDataPoint[][] data = smoothDataPoints( 0);
-
-    logger.info("Determining intensities (mass sum) per scan on " + dataFile);
-    for (i = 0; i < totalScans; i++) {
-      if (isCanceled()) {
-        return;
-      }
-
-      IndexedDataPoint[] mzv = data[i];
-      double prev = (mzv.length > 0 ? mzv[0].datapoint.getMZ() : 0);
-      double massSum = 0;
-
-      for (int j = 0; j < mzv.length; j++) {
-        if (mzv[j].datapoint.getIntensity() >= minimumHeight) {
-          massSum += mzv[j].datapoint.getMZ() - prev;
-        }
-        prev = mzv[j].datapoint.getMZ();
-        if (mzv[j].datapoint.getMZ() < minMass) {
-          minMass = mzv[j].datapoint.getMZ();
-        }
-        if (mzv[j].datapoint.getMZ() > maxMass) {
-          maxMass = mzv[j].datapoint.getMZ();
-        }
-      }
-      double dm = 100.0 / (maxMass - minMass);
-      if (i % 30 == 0 && debug > 0) {
-        System.out.println();
-        System.out.print("t=" + Math.round(retentionTime[i] * 100) / 100.0 + ": (in %) ");
-      }
-      if (scanOk[i]) {
-        if (!scanOk[i]) {
-          // Disable neighbouring scans, how many ?
-          int j;
-
-          for (j = i; j > 0 && retentionTime[j] + additionTimeMaxPeaksPerScan > retentionTime[i];
-              j--) {
-            scanOk[j] = false;
-          }
-          for (j = i;
-              j < totalScans && retentionTime[j] - additionTimeMaxPeaksPerScan < retentionTime[i];
-              j++) {
-            scanOk[j] = false;
-          }
-        }
-        if (debug > 0) {
-          System.out.print(((int) (massSum * dm)) + (scanOk[i] ? " " : "*** "));
-        }
-      } else {
-        if (debug > 0) {
-          System.out.print(((int) (massSum * dm)) + (scanOk[i] ? " " : "* "));
-        }
-      }
-      setProcedure(i, totalScans, 1);
-    }
-
-    if (debug > 0) { //TODO change debugging procedure?
-      System.out.println();
-    }
-
-    String[] it = ignoreTimes.trim().split(", ?");
-    for (int j = 0; j < it.length; j++) {
-      String[] itj = it[j].split("-");
-      if (itj.length == 2) {
-        Double a = Double.parseDouble(itj[0].trim());
-        Double b = Double.parseDouble(itj[1].trim());
-        for (i = Math.abs(Arrays.binarySearch(retentionTime, a));
-            i < totalScans && retentionTime[i] <= b; i++) {
-          if (retentionTime[i] >= a) {
-            scanOk[i] = false;
-          }
-        }
-      }
-    }
-
-    passed = 0;
-    nopassed = 0;
-    for (i = 0; i < totalScans; i++) {
-      if (i % 100 == 0 && isCanceled()) {
-        return;
-      }
-      if (scanOk[i]) {
-        scan = scans[i];
-        IndexedDataPoint[] mzv = data[i];
-
-        ArrayList<Datum> dal = new ArrayList<>();
-        int j;
-        for (j = 0; j < mzv.length; j++) {
-          if (mzv[j].datapoint.getIntensity() >= minimumHeight) {
-            SimpleDataPoint origDP = new SimpleDataPoint(scan.getMzValue(mzv[j].index),
-                scan.getIntensityValue(mzv[j].index));
-            dal.add(new Datum(mzv[j].datapoint, i, origDP));
-            passed++;
-          } else {
-            nopassed++;
-          }
-        }
-        if (j > maxJ) {
-          maxJ = j;
-        }
-        roi[i] = dal.toArray(new Datum[0]);
-        roiAL.addAll(dal);
-      }
-      setProcedure(i, totalScans, 2);
+    if (!buildRoi()) {
+      return;
     }
-    logger.info(passed + " intensities >= " + minimumHeight + " of " + (passed + nopassed) + " ("
-        + Math.round(passed * 10000.0 / (passed + nopassed)) / 100.0 + "%) on " + dataFile);
 
     // New "probing" algorithm
     // (1) Generate probes all over chromatograms
@@ -499,26 +375,16 @@ public class GridMassTask extends AbstractTask {
     // new maximum
     // (3) assign spot id to each "center" using all points within region
 
-    // (1) Generate probes all over
+    // (1) Generate probes all over, the grid is split into m/z stripes that are probed in parallel
     double byMZ = Math.max(mzTol * 2, 1e-6);
     int byScan = Math.max(1, tolScans / 4);
+    final int numColumns = (int) ((maxMass - minMass + byMZ / 2) / byMZ) + 1;
+    final int numStripes = Math.max(1,
+        Math.min(numColumns, MZmineCore.getConfiguration().getNumOfThreads() * 8));
+    final int stripeWidth = (numColumns + numStripes - 1) / numStripes;
     logger.info(
         "Creating Grid of probes on " + dataFile + " every " + mzFormat.format(byMZ) + " m/z and "
-            + byScan + " scans");
-    double m;
-    int ndata = (int) Math.round(
-        (((double) totalScans / (double) byScan) + 1) * ((maxMass - minMass + byMZ) / byMZ));
-    Probe[] probes = new Probe[ndata];
-    int idata = 0;
-    for (i = 0; i < totalScans; i += byScan) {
-      if (i % 100 == 0 && isCanceled()) {
-        return;
-      }
-      for (m = minMass - (i % 2) * byMZ / 2; m <= maxMass; m += byMZ) {
-        probes[idata++] = new Probe(m, i);
-      }
-      setProcedure(i, totalScans, 3);
-    }
+            + byScan + " scans in " + numStripes + " m/z stripes");
 
     // (2) Move each probe to their closest center
     double mzR = byMZ / 2;
@@ -526,62 +392,28 @@ public class GridMassTask extends AbstractTask {
     logger.info(
         "Finding local maxima for each probe on " + dataFile + " radius: scans=" + scanR + ", m/z="
             + mzR);
-    int okProbes = 0;
-    for (i = 0; i < idata; i++) {
-      if (i % 100 == 0 && isCanceled()) {
-        return;
-      }
-      moveProbeToCenter(probes[i], scanR, mzR);
-      if (probes[i].intensityCenter < minimumHeight) {
-        probes[i] = null;
-      } else {
-        okProbes++;
-      }
-      setProcedure(i, idata, 4);
-    }
-    if (okProbes > 0) {
-      Probe[] pArr = new Probe[okProbes];
-      for (okProbes = i = 0; i < idata; i++) {
-        if (probes[i] != null) {
-          pArr[okProbes++] = probes[i];
-        }
-      }
-      probes = pArr;
-    }
-    // (3) Assign spot id to each "center"
-    logger.info("Sorting probes " + dataFile);
-    Arrays.sort(probes);
-    logger.info("Assigning spot id to local maxima on " + dataFile);
-    SpotByProbes sbp = new SpotByProbes();
-    ArrayList<SpotByProbes> spots = new ArrayList<>();
-    double mzA = -1;
-    int scanA = -1;
-    for (i = 0; i < probes.length; i++) {
-      if (probes[i] != null && probes[i].intensityCenter >= minimumHeight) {
-        if (probes[i].mzCenter != mzA || probes[i].scanCenter != scanA) {
-          if (i % 10 == 0 && isCanceled()) {
-            return;
-          }
-          if (sbp.size() > 0) {
-            spots.add(sbp);
-            sbp.assignSpotId();
-          }
-          sbp = new SpotByProbes();
-          mzA = probes[i].mzCenter;
-          scanA = probes[i].scanCenter;
-        }
-        sbp.addProbe(probes[i]);
-      }
-      setProcedure(i, probes.length, 5);
-    }
-    if (sbp.size() > 0) {
-      spots.add(sbp);
-      sbp.assignSpotId();
+    final AtomicInteger processedStripes = new AtomicInteger(0);
+    final List<List<SpotByProbes>> stripes = IntStream.range(0, numStripes).parallel()
+        .mapToObj(stripe -> {
+          final List<SpotByProbes> stripeSpots = probeStripe(stripe * stripeWidth,
+              Math.min(numColumns, (stripe + 1) * stripeWidth), byMZ, byScan, scanR, mzR);
+          setProcedure(processedStripes.incrementAndGet(), numStripes, 3);
+          return stripeSpots;
+        }).toList();
+    if (isCanceled()) {
+      return;
     }
+
+    // (3) Assign spot id to each "center", spots of neighbouring stripes with the same center are
+    // merged
+    logger.info("Merging spots of m/z stripes on " + dataFile);
+    final List<SpotByProbes> spots = mergeStripes(stripes);
+    setProcedure(1, 1, 5);
     logger.info("Spots:" + spots.size());
 
     // Assign specific datums to spots to avoid using datums to several
-    // spots
+    // spots. The first spot to reach a datum keeps it, unless the datum climbs to the center of a
+    // later spot, therefore, this stays sequential.
     logger.info("Assigning intensities to local maxima on " + dataFile);
     i = 0;
     for (SpotByProbes sx : spots) {
@@ -698,20 +530,38 @@ public class GridMassTask extends AbstractTask {
       setProcedure(i, spots.size(), 8);
     }
 
-    // Build peaks from assigned datums
+    // Build peaks from assigned datums. All spot ids are final, so the peaks are built in
+    // parallel and added in the order of the spots.
     logger.info("Building peak rows on " + dataFile + " (tolereance scans=" + tolScans + ")");
-    i = 0;
-    for (SpotByProbes sx : spots) {
-      if (sx.size() > 0 && sx.maxScan - sx.minScan + 1 >= tolScans) {
-        if (i % 100 == 0 && isCanceled()) {
-          return;
+    // caches the RT range in the raw data file before the chromatograms are created concurrently
+    dataFile.getDataRTRange(1);
+    final Chromatogram[] peaks = new Chromatogram[spots.size()];
+    final AtomicInteger builtSpots = new AtomicInteger(0);
+    IntStream.range(0, spots.size()).parallel().forEach(k -> {
+      final SpotByProbes sx = spots.get(k);
+      if (isCanceled() || sx.size() == 0 || sx.maxScan - sx.minScan + 1 < tolScans) {
+        return;
+      }
+      sx.buildMaxDatumFromScans(roi, minimumHeight);
+      if (isContinuous(sx)) {
+        Chromatogram peak = new Chromatogram(dataFile, scans);
+        if (addMaxDatumFromScans(sx, peak) > 0) {
+          peak.finishChromatogram();
+          peaks[k] = peak;
         }
-        sx.buildMaxDatumFromScans(roi, minimumHeight);
-        if (sx.getMaxDatumScans() >= tolScans && (sx.getContigousMaxDatumScans() >= tolScans
-            || sx.getContigousToMaxDatumScansRatio() > 0.5)) {
-          Chromatogram peak = new Chromatogram(dataFile, scans);
-          if (addMaxDatumFromScans(sx, peak) > 0) {
-            peak.finishChromatogram();
+      }
+      setProcedure(builtSpots.incrementAndGet(), spots.size(), 9);
+    });
+    if (isCanceled()) {
+      return;
+    }
+
+    for (i = 0; i < spots.size(); i++) {
+      SpotByProbes sx = spots.get(i);
+      if (sx.size() > 0 && sx.maxScan - sx.minScan + 1 >= tolScans) {
+        if (isContinuous(sx)) {
+          Chromatogram peak = peaks[i];
+          if (peak != null) {
             if (peak.getArea() > 1e-6) {
               newPeakID++;
               ModularFeatureListRow newRow = new ModularFeatureListRow(newFeatureList, newPeakID);
@@ -769,7 +619,6 @@ public class GridMassTask extends AbstractTask {
           }
         }
       }
-      setProcedure(i++, spots.size(), 9);
     }
     logger.info("Peaks on " + dataFile + " = " + newFeatureList.getNumberOfRows());
 
@@ -788,153 +637,234 @@ public class GridMassTask extends AbstractTask {
 
   }
 
-private IndexedDataPoint[][] smoothDataPoints(int scanSpan) {
-    List<Scan> scanNumbers = dataFile.getScanNumbers(1); //TODO Can the method potentially work with other MS levels?
+  /**
+   * Reads and smoothes the data points of all scans and builds the {@link #roi} of all smoothed
+   * data points above the minimum height. The raw data points are only referenced within this
+   * method, so they can be garbage collected once the roi is built.
+   *
+   * @return false if the task was canceled
+   */
+  private boolean buildRoi() {
+    logger.info("Getting data points on " + dataFile);
+
+    final double[][] mzValues = new double[totalScans][];
+    final double[][] intensityValues = new double[totalScans][];
+    IntStream.range(0, totalScans).parallel().forEach(s -> {
+      mzValues[s] = scans[s].getMzValues(new double[scans[s].getNumberOfDataPoints()]);
+      intensityValues[s] = scans[s].getIntensityValues(
+          new double[scans[s].getNumberOfDataPoints()]);
+    });
+
+    minMass = Double.MAX_VALUE; //TODO Change this value to 0?
+    maxMass = 0;
+    boolean[] scanOk = new boolean[totalScans];
+    Arrays.fill(scanOk, true);
 
-    DataPoint[][] mzValues = null; // [relative scan][j value]
-    DataPoint[] mzValuesJ;
-    Scan[] mzValuesScan = null;
-    int[] mzValuesMZidx = null;
-    IndexedDataPoint[][] newMZValues;
-    IndexedDataPoint[] tmpDP = new IndexedDataPoint[0];
-    newMZValues = new IndexedDataPoint[this.totalScans][];
-    int i, j, si, sj, ii, k, ssi, ssj, m;
-    double timeSmoothingMZtol = Math.max(this.smoothTimeMZ, 1e-6);
+    logger.info(
+        "Smoothing data points on " + dataFile + " (Time min=" + smoothTimeSpan + "; Time m/z="
+            + smoothTimeMZ + ")");
+    SmoothedScan[] data = smoothDataPoints(mzValues, intensityValues);
+    if (data == null) {
+      return false;
+    }
 
-    int modts = Math.max(1, this.totalScans / 10);
+    logger.info("Determining intensities (mass sum) per scan on " + dataFile);
+    int i;
+    for (i = 0; i < totalScans; i++) {
+      if (isCanceled()) {
+        return false;
+      }
 
-    for (i = 0; i < this.totalScans; i++) {
+      SmoothedScan mzv = data[i];
+      final double[] mzs = mzValues[i];
+      double prev = (mzv.size() > 0 ? mzs[mzv.indices[0]] : 0);
+      double massSum = 0;
 
-      if (i % 100 == 0 && isCanceled()) {
-        return null;
+      for (int j = 0; j < mzv.size(); j++) {
+        final double mz = mzs[mzv.indices[j]];
+        if (mzv.intensities[j] >= minimumHeight) {
+          massSum += mz - prev;
+        }
+        prev = mz;
+        if (mz < minMass) {
+          minMass = mz;
+        }
+        if (mz > maxMass) {
+          maxMass = mz;
+        }
       }
+      if (debug > 0) {
+        double dm = 100.0 / (maxMass - minMass);
+        if (i % 30 == 0) {
+          System.out.println();
+          System.out.print("t=" + Math.round(retentionTime[i] * 100) / 100.0 + ": (in %) ");
+        }
+        System.out.print(((int) (massSum * dm)) + " ");
+      }
+      setProcedure(i, totalScans, 1);
+    }
 
-      // Smoothing in TIME space
-      Scan scan = scanNumbers.get(i);
-      double rt = this.retentionTime[i];
-      DataPoint[] xDP;
-      IndexedDataPoint[] iDP;
-      sj = si = i;
-      int t = 0;
-
-      if (this.smoothTimeSpan > 0 || scanSpan > 0) {
-        if (scan != null) {
-          for (si = i; si > 1; si--) {
-            if (this.retentionTime[si - 1] < rt - this.smoothTimeSpan / 2) {
-              break;
-            }
-          }
-          for (sj = i; sj < this.totalScans - 1; sj++) {
-            if (this.retentionTime[sj + 1] >= rt + this.smoothTimeSpan / 2) {
-              break;
-            }
-          }
-          ssi = i - (scanSpan - 1) / 2;
-          ssj = i + (scanSpan - 1) / 2;
-          if (ssi < 0) {
-            ssj -= ssi;
-            ssi = 0;
-          }
-          if (ssj >= this.totalScans) {
-            ssi -= (ssj - this.totalScans + 1);
-            ssj = this.totalScans - 1;
-          }
-          if (sj - si + 1 < scanSpan) {
-            si = ssi;
-            sj = ssj;
+    if (debug > 0) { //TODO change debugging procedure?
+      System.out.println();
+    }
+
+    String[] it = ignoreTimes.trim().split(", ?");
+    for (int j = 0; j < it.length; j++) {
+      String[] itj = it[j].split("-");
+      if (itj.length == 2) {
+        Double a = Double.parseDouble(itj[0].trim());
+        Double b = Double.parseDouble(itj[1].trim());
+        for (i = Math.abs(Arrays.binarySearch(retentionTime, a));
+            i < totalScans && retentionTime[i] <= b; i++) {
+          if (retentionTime[i] >= a) {
+            scanOk[i] = false;
           }
         }
-        if (scan != null && sj > si) {
-          // Allocate
-          if (mzValues == null || mzValues.length < sj - si + 1) {
-            mzValues = new DataPoint[sj - si + 1][];
-            mzValuesScan = new Scan[sj - si + 1];
-            mzValuesMZidx = new int[sj - si + 1];
+      }
+    }
+
+    final AtomicLong passed = new AtomicLong(0);
+    final AtomicLong nopassed = new AtomicLong(0);
+    final AtomicInteger processedScans = new AtomicInteger(0);
+    roi = new GridRoi(totalScans);
+    IntStream.range(0, totalScans).parallel().forEach(s -> {
+      if (isCanceled() || !scanOk[s]) {
+        return;
+      }
+      final SmoothedScan mzv = data[s];
+      final double[] mzs = new double[mzv.size()];
+      final double[] intensities = new double[mzv.size()];
+      final double[] originalIntensities = new double[mzv.size()];
+      int n = 0;
+      for (int j = 0; j < mzv.size(); j++) {
+        if (mzv.intensities[j] >= minimumHeight) {
+          mzs[n] = mzValues[s][mzv.indices[j]];
+          intensities[n] = mzv.intensities[j];
+          originalIntensities[n] = intensityValues[s][mzv.indices[j]];
+          n++;
+        }
+      }
+      passed.addAndGet(n);
+      nopassed.addAndGet(mzv.size() - n);
+      roi.setScan(s, Arrays.copyOf(mzs, n), Arrays.copyOf(intensities, n),
+          Arrays.copyOf(originalIntensities, n));
+      setProcedure(processedScans.incrementAndGet(), totalScans, 2);
+    });
+    if (isCanceled()) {
+      return false;
+    }
+    logger.info(passed.get() + " intensities >= " + minimumHeight + " of " + (passed.get() + nopassed.get())
+        + " (" + Math.round(passed.get() * 10000.0 / (passed.get() + nopassed.get())) / 100.0
+        + "%) on " + dataFile);
+    return true;
+  }
+
+  /**
+   * Smoothes the intensities of each scan in time. Scans are smoothed in parallel.
+   *
+   * @return the smoothed data points >= minimum height of each scan or null if canceled
+   */
+  private SmoothedScan[] smoothDataPoints(double[][] mzValues, double[][] intensityValues) {
+    final SmoothedScan[] newMZValues = new SmoothedScan[totalScans];
+    final int modts = Math.max(1, totalScans / 10);
+    final AtomicInteger smoothedScans = new AtomicInteger(0);
+
+    IntStream.range(0, totalScans).parallel().forEach(i -> {
+      if (isCanceled()) {
+        return;
+      }
+      newMZValues[i] = smoothScan(i, mzValues, intensityValues);
+
+      final int done = smoothedScans.incrementAndGet();
+      setProcedure(done, totalScans, 0);
+      if (done % modts == 0) {
+        logger.info("Smoothing/Caching " + dataFile + "..." + (done / modts) * 10 + "%");
+      }
+    });
+    return isCanceled() ? null : newMZValues;
+  }
+
+  private SmoothedScan smoothScan(int i, double[][] mzValues, double[][] intensityValues) {
+    final double[] mzs = mzValues[i];
+    final double[] intensities = intensityValues[i];
+    final int[] indices = new int[mzs.length];
+    final double[] smoothed = new double[mzs.length];
+    int t = 0;
+
+    if (smoothTimeSpan > 0) {
+      // Smoothing in TIME space
+      final double rt = retentionTime[i];
+      final double timeSmoothingMZtol = Math.max(smoothTimeMZ, 1e-6);
+      int si, sj;
+      for (si = i; si > 1; si--) {
+        if (retentionTime[si - 1] < rt - smoothTimeSpan / 2) {
+          break;
+        }
+      }
+      for (sj = i; sj < totalScans - 1; sj++) {
+        if (retentionTime[sj + 1] >= rt + smoothTimeSpan / 2) {
+          break;
+        }
+      }
+      if (sj > si) {
+        // m/z cursor in each scan of the window, the data points of scan i are visited by m/z
+        final int[] mzIdx = new int[sj - si + 1];
+        for (int k = 0; k < mzs.length; k++) {
+          if (intensities[k] <= 0) { // only process those > 0
+            continue;
           }
-          // Load Data Points
-          for (j = si; j <= sj; j++) {
-            int jsi = j - si;
-            if (mzValues[jsi] == null || jsi >= mzValuesScan.length - 1 || !mzValuesScan[jsi
-                + 1].equals(scanNumbers.get(j))) {
-              Scan xscan = scanNumbers.get(j);
-              mzValues[jsi] = ScanUtils.extractDataPoints(xscan); // TODO Change deprecated
-              mzValuesScan[jsi] = scanNumbers.get(j);
-            } else {
-              mzValues[jsi] = mzValues[jsi + 1];
-              mzValuesScan[jsi] = mzValuesScan[jsi + 1];
+          final double mz = mzs[k];
+          double a = 0;
+          int c = 0;
+          for (int j = 0; j <= sj - si; j++) {
+            final double[] mzValuesJ = mzValues[si + j];
+            while (mzIdx[j] < mzValuesJ.length - 1
+                && mzValuesJ[mzIdx[j] + 1] < mz - timeSmoothingMZtol) {
+              mzIdx[j]++;
             }
-            mzValuesMZidx[jsi] = 0;
-          }
-          // Estimate Averages
-          ii = i - si;
-          if (tmpDP.length < mzValues[ii].length) {
-            tmpDP = new IndexedDataPoint[mzValues[ii].length * 3 / 2]; //TODO 3/2?
-          }
-          for (k = 0; k < mzValues[ii].length; k++) {
-            DataPoint dp = mzValues[ii][k];
-            double mz = dp.getMZ();
-            double intensity;
-            if (dp.getIntensity() > 0) { // only process those > 0
-              double a = 0;
-              int c = 0;
-              int f;
-              for (j = 0; j <= sj - si; j++) {
-                for (mzValuesJ = mzValues[j]; mzValuesMZidx[j] < mzValuesJ.length - 1 //TODO inspect
-                    && mzValuesJ[mzValuesMZidx[j] + 1].getMZ() < mz - timeSmoothingMZtol;
-                    mzValuesMZidx[j]++)
-                  ;
-
-                f = mzValuesMZidx[j];
-
-                for (m = mzValuesMZidx[j] + 1;
-                    m < mzValuesJ.length && mzValuesJ[m].getMZ() < mz + timeSmoothingMZtol; m++) {
-                  if (Math.abs(mzValuesJ[m].getMZ() - mz) < Math.abs(mzValuesJ[f].getMZ() - mz)) {
-                    f = m;
-                  } else {
-                    // must always be closest because they are ordered by mass, so stop the search
-                    break;
-                  }
-                }
-                if (f > 0 && f < mzValuesJ.length
-                    && Math.abs(mzValuesJ[f].getMZ() - mz) <= timeSmoothingMZtol
-                    && mzValuesJ[f].getIntensity() > 0) {
-                  a += mzValuesJ[f].getIntensity();
-                  c++;
-                }
-              }
-              intensity = c > 0 ? a / c : 0;
-              if (intensity >= this.minimumHeight) {
-                tmpDP[t++] = new IndexedDataPoint(k, new SimpleDataPoint(mz, intensity));
+
+            int f = mzIdx[j];
+            for (int m = mzIdx[j] + 1;
+                m < mzValuesJ.length && mzValuesJ[m] < mz + timeSmoothingMZtol; m++) {
+              if (Math.abs(mzValuesJ[m] - mz) < Math.abs(mzValuesJ[f] - mz)) {
+                f = m;
+              } else {
+                // must always be closest because they are ordered by mass, so stop the search
+                break;
               }
             }
+            if (f > 0 && f < mzValuesJ.length
+                && Math.abs(mzValuesJ[f] - mz) <= timeSmoothingMZtol
+                && intensityValues[si + j][f] > 0) {
+              a += intensityValues[si + j][f];
+              c++;
+            }
           }
-
-        }
-      } else if (scan != null) {
-        xDP = ScanUtils.extractDataPoints(scan);
-        if (tmpDP.length < xDP.length) {
-          tmpDP = new IndexedDataPoint[xDP.length];
-        }
-        for (k = 0; k < xDP.length; k++) {
-          if (xDP[k].getIntensity() >= this.minimumHeight) {
-            tmpDP[t++] = new IndexedDataPoint(k, xDP[k]);
+          final double intensity = c > 0 ? a / c : 0;
+          if (intensity >= minimumHeight) {
+            indices[t] = k;
+            smoothed[t++] = intensity;
           }
         }
       }
-      iDP = new IndexedDataPoint[t];
-      for (k = 0; k < t; k++) {
-        iDP[k] = tmpDP[k];
+    } else {
+      for (int k = 0; k < mzs.length; k++) {
+        if (intensities[k] >= minimumHeight) {
+          indices[t] = k;
+          smoothed[t++] = intensities[k];
+        }
       }
-      newMZValues[i] = iDP;
-
-      setProcedure(i, this.totalScans, 0);
+    }
+    return new SmoothedScan(Arrays.copyOf(indices, t), Arrays.copyOf(smoothed, t));
+  }
 
-      if (i % modts == 0) {
-        logger.info("Smoothing/Caching " + this.dataFile + "..." + (i / modts) * 10 + "%");
-      }
+  /**
+   * The smoothed intensities of one scan and the indices of their data points in the scan.
+   */
+  private record SmoothedScan(int[] indices, double[] intensities) {
 
+    int size() {
+      return indices.length;
     }
-
-    return newMZValues;
   }
 }
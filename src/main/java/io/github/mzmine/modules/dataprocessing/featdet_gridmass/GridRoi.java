@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2004-2022 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.dataprocessing.featdet_gridmass;
+
+/**
+ * The smoothed data points of all scans that passed the minimum height, kept as primitive arrays
+ * per scan and sorted by m/z within each scan. The spot id of every data point is stored in a
+ * parallel int array (0 = no spot assigned).
+ */
+class GridRoi {
+
+  private static final double[] EMPTY = new double[0];
+
+  private final double[][] mzs;
+  private final double[][] intensities;
+  private final double[][] originalIntensities;
+  private final int[][] spotIds;
+
+  GridRoi(int numScans) {
+    mzs = new double[numScans][];
+    intensities = new double[numScans][];
+    originalIntensities = new double[numScans][];
+    spotIds = new int[numScans][];
+    for (int i = 0; i < numScans; i++) {
+      setScan(i, EMPTY, EMPTY, EMPTY);
+    }
+  }
+
+  /**
+   * Sets the data points of a scan. Different scans may be set concurrently.
+   *
+   * @param mzs                 the m/z values in ascending order
+   * @param intensities         the smoothed intensities
+   * @param originalIntensities the raw intensities
+   */
+  void setScan(int scan, double[] mzs, double[] intensities, double[] originalIntensities) {
+    this.mzs[scan] = mzs;
+    this.intensities[scan] = intensities;
+    this.originalIntensities[scan] = originalIntensities;
+    this.spotIds[scan] = new int[mzs.length];
+  }
+
+  int getNumberOfScans() {
+    return mzs.length;
+  }
+
+  int size(int scan) {
+    return mzs[scan].length;
+  }
+
+  double getMZ(int scan, int index) {
+    return mzs[scan][index];
+  }
+
+  double getIntensity(int scan, int index) {
+    return intensities[scan][index];
+  }
+
+  double getOriginalIntensity(int scan, int index) {
+    return originalIntensities[scan][index];
+  }
+
+  int getSpotId(int scan, int index) {
+    return spotIds[scan][index];
+  }
+
+  void setSpotId(int scan, int index, int spotId) {
+    spotIds[scan][index] = spotId;
+  }
+
+  /**
+   * @return the index of the first data point with an m/z >= mass, or the number of data points
+   * of the scan
+   */
+  int findFirstMass(int scan, double mass) {
+    final double[] values = mzs[scan];
+    int l = 0;
+    int r = values.length;
+    while (l < r) {
+      final int mid = (l + r) >>> 1;
+      if (values[mid] < mass) {
+        l = mid + 1;
+      } else {
+        r = mid;
+      }
+    }
+    return l;
+  }
+
+  /**
+   * Moves the probe to the most intense data point within the given radius until it cannot find a
+   * more intense data point. Only reads the data points, so probes can be moved concurrently.
+   */
+  void moveProbeToCenter(Probe p, int sRadius, double mzRadius) {
+    final int lastScan = mzs.length - 1;
+    double maxIntensity = -1;
+    double maxMZ = 0;
+    int maxScan = 0;
+    while (true) {
+      final double minMZ = p.mzCenter - mzRadius;
+      final double maxMZLimit = p.mzCenter + mzRadius;
+      final int k = Math.min(lastScan, p.scanCenter + sRadius);
+      for (int i = Math.max(p.scanCenter - sRadius, 0); i <= k; i++) {
+        final double[] scanMzs = mzs[i];
+        final double[] scanIntensities = intensities[i];
+        for (int j = findFirstMass(i, minMZ); j < scanMzs.length && scanMzs[j] <= maxMZLimit;
+            j++) {
+          if (scanIntensities[j] > maxIntensity) {
+            maxIntensity = scanIntensities[j];
+            maxMZ = scanMzs[j];
+            maxScan = i;
+          }
+        }
+      }
+      if (maxIntensity >= 0 && (maxMZ != p.mzCenter || maxScan != p.scanCenter)) {
+        p.mzCenter = maxMZ;
+        p.scanCenter = maxScan;
+        p.intensityCenter = maxIntensity;
+      } else {
+        return;
+      }
+    }
+  }
+}
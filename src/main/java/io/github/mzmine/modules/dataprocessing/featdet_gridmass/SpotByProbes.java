@@ -35,18 +35,22 @@ class SpotByProbes implements Comparable<SpotByProbes> {
   double minMZ = Double.POSITIVE_INFINITY;
   double minIntensity = Double.POSITIVE_INFINITY;
   double maxIntensity = Double.NEGATIVE_INFINITY;
-  static int sid = 0;
   int spotId = -1;
   Probe center = null;
   int consecutiveScans = 0;
-  ArrayList<Datum> maxDatums = null;
+  // index of the most intense data point of this spot per scan, starting at minScan (-1 = none)
+  int[] maxDatums = null;
+  int firstMaxDatumScan = -1;
+  int lastMaxDatumScan = -1;
 
   SpotByProbes() {}
 
-  void assignSpotId() {
+  /**
+   * @param id the spot id, must be unique within one task and > 0
+   */
+  void assignSpotId(int id) {
     if (spotId < 0) {
-      sid++;
-      spotId = sid;
+      spotId = id;
     }
   }
 
@@ -86,20 +90,22 @@ class SpotByProbes implements Comparable<SpotByProbes> {
       minIntensity = p.intensityCenter;
   }
 
-  void setSpotIdToDatum(Datum d) {
-    d.spotId = spotId;
-    if (d.mz > maxMZ)
-      maxMZ = d.mz;
-    if (d.mz < minMZ)
-      minMZ = d.mz;
-    if (d.scan > maxScan)
-      maxScan = d.scan;
-    if (d.scan < minScan)
-      minScan = d.scan;
-    if (d.intensity > maxIntensity)
-      maxIntensity = d.intensity;
-    if (d.intensity < minIntensity)
-      minIntensity = d.intensity;
+  void setSpotIdToDatum(GridRoi roi, int scan, int index) {
+    roi.setSpotId(scan, index, spotId);
+    final double mz = roi.getMZ(scan, index);
+    final double intensity = roi.getIntensity(scan, index);
+    if (mz > maxMZ)
+      maxMZ = mz;
+    if (mz < minMZ)
+      minMZ = mz;
+    if (scan > maxScan)
+      maxScan = scan;
+    if (scan < minScan)
+      minScan = scan;
+    if (intensity > maxIntensity)
+      maxIntensity = intensity;
+    if (intensity < minIntensity)
+      minIntensity = intensity;
   }
 
   void addProbesFromSpot(SpotByProbes sbp, boolean clear) {
@@ -155,39 +161,38 @@ class SpotByProbes implements Comparable<SpotByProbes> {
     }
   }
 
-  void buildMaxDatumFromScans(Datum[][] roi, double minimumHeight) {
+  /**
+   * Finds the most intense data point of this spot in every scan. Only reads the roi, so multiple
+   * spots can be built concurrently once all spot ids are assigned.
+   */
+  void buildMaxDatumFromScans(GridRoi roi, double minimumHeight) {
 
     int i, j;
-    ArrayList<Datum> mxD = new ArrayList<Datum>();
+    final int[] mxD = new int[maxScan - minScan + 1];
     int cont = 0;
     consecutiveScans = 0;
-    double theMinMZ = minMZ;// - mzTol;
-    double theMaxMZ = maxMZ;// + mzTol;
+    firstMaxDatumScan = -1;
+    lastMaxDatumScan = -1;
     for (i = minScan; i <= maxScan; i++) {
-      Datum[] di = roi[i];
-      if (di != null && di.length > 0) {
-        Datum max = null;
-        int idx = GridMassTask.findFirstMass(theMinMZ, di);
-        for (j = idx; j < di.length && di[j].mz <= theMaxMZ; j++) {
-          Datum d = di[j];
-          if (d.spotId == spotId) {
-            if ((max == null || d.intensity > max.intensity) && d.intensity > minimumHeight) { // d.mz
-                                                                                               // >=
-              // theMinMZ &&
-              // (it is
-              // already
-              // assigned to
-              // spotid)
-              max = d;
-            }
-          }
+      int max = -1;
+      double maxInt = 0;
+      final int n = roi.size(i);
+      for (j = roi.findFirstMass(i, minMZ); j < n && roi.getMZ(i, j) <= maxMZ; j++) {
+        final double intensity = roi.getIntensity(i, j);
+        // datums of this spot always lie within its m/z range
+        if (roi.getSpotId(i, j) == spotId && (max == -1 || intensity > maxInt)
+            && intensity > minimumHeight) {
+          max = j;
+          maxInt = intensity;
         }
-        if (max != null && max.intensity > 0) {
-          mxD.add(max);
-          cont++;
-        } else {
-          cont = 0;
+      }
+      mxD[i - minScan] = max != -1 && maxInt > 0 ? max : -1;
+      if (mxD[i - minScan] != -1) {
+        if (firstMaxDatumScan == -1) {
+          firstMaxDatumScan = i;
         }
+        lastMaxDatumScan = i;
+        cont++;
       } else {
         cont = 0;
       }
@@ -198,17 +203,25 @@ class SpotByProbes implements Comparable<SpotByProbes> {
 
   }
 
+  /**
+   * @return the index of the most intense data point of this spot in the scan or -1. Requires
+   * {@link #buildMaxDatumFromScans(GridRoi, double)}.
+   */
+  int getMaxDatumIndex(int scan) {
+    return maxDatums == null || scan < minScan || scan > maxScan ? -1
+        : maxDatums[scan - minScan];
+  }
+
   int getMaxDatumScans() {
-    return (maxDatums == null || maxDatums.size() == 0 ? 0
-        : maxDatums.get(maxDatums.size() - 1).scan - maxDatums.get(0).scan + 1); // maxDatums.size()
+    return (firstMaxDatumScan == -1 ? 0 : lastMaxDatumScan - firstMaxDatumScan + 1);
   }
 
   int getContigousMaxDatumScans() {
-    return (maxDatums == null || maxDatums.size() == 0 ? 0 : consecutiveScans);
+    return (firstMaxDatumScan == -1 ? 0 : consecutiveScans);
   }
 
   float getContigousToMaxDatumScansRatio() {
-    if (maxDatums == null || maxDatums.size() == 0)
+    if (firstMaxDatumScan == -1)
       return 0;
     return ((float) getContigousMaxDatumScans() / (float) getMaxDatumScans());
   }
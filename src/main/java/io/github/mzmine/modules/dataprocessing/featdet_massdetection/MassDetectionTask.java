@@ -25,13 +25,14 @@
 
 package io.github.mzmine.modules.dataprocessing.featdet_massdetection;
 
+import com.google.common.collect.Lists;
 import io.github.mzmine.datamodel.RawDataFile;
 import io.github.mzmine.datamodel.Scan;
 import io.github.mzmine.datamodel.data_access.EfficientDataAccess;
 import io.github.mzmine.datamodel.data_access.ScanDataAccess;
 import io.github.mzmine.datamodel.features.SimpleFeatureListAppliedMethod;
 import io.github.mzmine.datamodel.impl.SimpleFrame;
-import io.github.mzmine.datamodel.impl.masslist.SimpleMassList;
+import io.github.mzmine.datamodel.impl.masslist.MassListStorage;
 import io.github.mzmine.modules.MZmineProcessingStep;
 import io.github.mzmine.parameters.ParameterSet;
 import io.github.mzmine.parameters.parametertypes.selectors.ScanSelection;
@@ -44,8 +45,10 @@ import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Logger;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import ucar.ma2.ArrayDouble;
 import ucar.ma2.DataType;
 import ucar.nc2.Attribute;
@@ -57,13 +60,20 @@ import ucar.nc2.Variable;
 
 public class MassDetectionTask extends AbstractTask {
 
+  /**
+   * Number of consecutive scans that are processed by one thread and stored in one
+   * {@link MassListStorage}.
+   */
+  private static final int SCANS_PER_BATCH = 256;
+
   private final Logger logger = Logger.getLogger(this.getClass().getName());
   private final RawDataFile dataFile;
   private final ScanSelection scanSelection;
   private final SelectedScanTypes scanTypes;
   private final Boolean denormalizeMSnScans;
   // scan counter
-  private int processedScans = 0, totalScans = 0;
+  private final AtomicInteger processedScans = new AtomicInteger(0);
+  private int totalScans = 0;
   // Mass detector
   private final MZmineProcessingStep<MassDetector> massDetector;
   // for outputting file
@@ -108,7 +118,7 @@ public class MassDetectionTask extends AbstractTask {
     if (totalScans == 0) {
       return 0;
     } else {
-      return (double) processedScans / totalScans;
+      return (double) processedScans.get() / totalScans;
     }
   }
 
@@ -140,65 +150,51 @@ public class MassDetectionTask extends AbstractTask {
 
       logger.info("Started mass detector on " + dataFile);
 
-      // uses only a single array for each (mz and intensity) to loop over all scans
-      ScanDataAccess data = EfficientDataAccess.of(dataFile, EfficientDataAccess.ScanDataType.RAW,
-          scanSelection);
-      totalScans = data.getNumberOfScans();
+      final List<Scan> scans = scanSelection.getMatchingScans(dataFile.getScans());
+      totalScans = scans.size();
 
       MassDetector detector = massDetector.getModule();
       ParameterSet parameterSet = massDetector.getParameterSet();
 
-      // all scans
-      while (data.hasNextScan()) {
-        if (isCanceled()) {
-          return;
-        }
-
-        Scan scan = data.nextScan();
+      // batches of consecutive scans are detected in parallel. The mass lists of each batch are
+      // stored in one contiguous storage instead of two buffers per scan
+      final List<List<Scan>> batches = Lists.partition(scans, SCANS_PER_BATCH);
+      final List<List<double[][]>> detectedBatches = batches.parallelStream()
+          .map(batch -> detectBatch(batch, detector, parameterSet)).toList();
 
-        double[][] mzPeaks = null;
-        if (scanTypes.applyTo(scan)) {
-          // run mass detection on data object
-          // [mzs, intensities]
-          mzPeaks = detector.getMassValues(data, parameterSet);
-
-          if (denormalizeMSnScans && Objects.requireNonNullElse(scan.getMSLevel(), 1) > 1) {
-            ScanUtils.denormalizeIntensitiesMultiplyByInjectTime(mzPeaks[1],
-                scan.getInjectionTime());
-          }
-
-          // add mass list to scans and frames
-          scan.addMassList(new SimpleMassList(getMemoryMapStorage(), mzPeaks[0], mzPeaks[1]));
-        }
-
-        if (scan instanceof SimpleFrame frame && (scanTypes == SelectedScanTypes.MOBLITY_SCANS
-            || scanTypes == SelectedScanTypes.SCANS)) {
-          // for ion mobility, detect subscans, too
-          frame.getMobilityScanStorage()
-              .generateAndAddMobilityScanMassLists(getMemoryMapStorage(), detector, parameterSet,
-                  denormalizeMSnScans);
-        }
+      if (isCanceled()) {
+        return;
+      }
 
-        if (this.saveToCDF && mzPeaks != null) {
-          curTotalIntensity = 0;
-          double[] mzs = mzPeaks[0];
-          double[] intensities = mzPeaks[1];
-          int size = mzs.length;
-          for (int a = 0; a < size; a++) {
-            allMZ.add(mzs[a]);
-            allIntensities.add(intensities[a]);
-            curTotalIntensity += intensities[a];
+      if (this.saveToCDF) {
+        for (int b = 0; b < batches.size(); b++) {
+          final List<Scan> batch = batches.get(b);
+          final List<double[][]> detected = detectedBatches.get(b);
+          for (int i = 0, j = 0; i < batch.size(); i++) {
+            final Scan scan = batch.get(i);
+            if (!scanTypes.applyTo(scan)) {
+              continue;
+            }
+            final double[][] mzPeaks = detected.get(j++);
+
+            curTotalIntensity = 0;
+            double[] mzs = mzPeaks[0];
+            double[] intensities = mzPeaks[1];
+            int size = mzs.length;
+            for (int a = 0; a < size; a++) {
+              allMZ.add(mzs[a]);
+              allIntensities.add(intensities[a]);
+              curTotalIntensity += intensities[a];
+            }
+
+            scanAcquisitionTime.add(scan.getRetentionTime());
+            pointsInScans.add(0);
+            startIndex.add(mzPeaks.length + lastPointCount);
+            totalIntensity.add(curTotalIntensity);
+
+            lastPointCount = mzPeaks.length + lastPointCount;
           }
-
-          scanAcquisitionTime.add(scan.getRetentionTime());
-          pointsInScans.add(0);
-          startIndex.add(mzPeaks.length + lastPointCount);
-          totalIntensity.add(curTotalIntensity);
-
-          lastPointCount = mzPeaks.length + lastPointCount;
         }
-
-        processedScans++;
       }
 
       if (this.saveToCDF) {
@@ -327,4 +323,62 @@ public class MassDetectionTask extends AbstractTask {
     logger.info("Finished mass detector on " + dataFile);
 
   }
+
+  /**
+   * Detects the masses of a batch of consecutive scans with its own {@link ScanDataAccess} and
+   * adds the mass lists, backed by a single {@link MassListStorage}, to the scans.
+   *
+   * @return the detected [mzs, intensities] of all scans that match the selected scan types, in
+   * order, if the results are saved to netCDF. Otherwise an empty list. Null if the task was
+   * canceled.
+   */
+  @Nullable
+  private List<double[][]> detectBatch(List<Scan> batch, MassDetector detector,
+      ParameterSet parameterSet) {
+    final ScanDataAccess data = EfficientDataAccess.of(dataFile,
+        EfficientDataAccess.ScanDataType.RAW, batch);
+    final List<double[][]> detected = new ArrayList<>(batch.size());
+    final List<Scan> detectedScans = new ArrayList<>(batch.size());
+
+    while (data.hasNextScan()) {
+      if (isCanceled()) {
+        return null;
+      }
+
+      Scan scan = data.nextScan();
+
+      if (scanTypes.applyTo(scan)) {
+        // run mass detection on data object
+        // [mzs, intensities]
+        final double[][] mzPeaks = detector.getMassValues(data, parameterSet);
+
+        if (denormalizeMSnScans && Objects.requireNonNullElse(scan.getMSLevel(), 1) > 1) {
+          ScanUtils.denormalizeIntensitiesMultiplyByInjectTime(mzPeaks[1],
+              scan.getInjectionTime());
+        }
+        detected.add(mzPeaks);
+        detectedScans.add(scan);
+      }
+
+      if (scan instanceof SimpleFrame frame && (scanTypes == SelectedScanTypes.MOBLITY_SCANS
+          || scanTypes == SelectedScanTypes.SCANS)) {
+        // for ion mobility, detect subscans, too
+        frame.getMobilityScanStorage()
+            .generateAndAddMobilityScanMassLists(getMemoryMapStorage(), detector, parameterSet,
+                denormalizeMSnScans);
+      }
+
+      processedScans.incrementAndGet();
+    }
+
+    if (!detected.isEmpty()) {
+      // add mass list to scans and frames
+      final MassListStorage storage = new MassListStorage(getMemoryMapStorage(), detected);
+      for (int i = 0; i < detectedScans.size(); i++) {
+        detectedScans.get(i).addMassList(storage.getMassList(i));
+      }
+    }
+    // only keep the arrays if they are written to the netCDF file
+    return saveToCDF ? detected : List.of();
+  }
 }
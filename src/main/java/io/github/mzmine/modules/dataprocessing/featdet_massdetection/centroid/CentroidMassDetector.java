@@ -63,6 +63,8 @@ public class CentroidMassDetector implements MassDetector {
 
     // If isotopes are going to be detected get all the required parameters
     MZTolerance isotopesMzTolerance = null;
+    List<Double> isotopesMzDiffs = null;
+    double maxIsotopeMzDiff = 0d;
     if (detectIsotopes) {
       ParameterSet isotopesParameters = parameters.getParameter(
           CentroidMassDetectorParameters.detectIsotopes).getEmbeddedParameters();
@@ -73,17 +75,23 @@ public class CentroidMassDetector implements MassDetector {
       isotopesMzTolerance = isotopesParameters.getParameter(
           DetectIsotopesParameter.isotopeMzTolerance).getValue();
 
-      // Update isotopesMzDiffs only if isotopeElements and isotopeMaxCharge differ from the last call
-      if (!Objects.equals(this.isotopeElements, isotopeElements) || !Objects.equals(
-          this.isotopeMaxCharge, isotopeMaxCharge)) {
-
-        // Update isotopesMzDiffs
-        this.isotopesMzDiffs = IsotopesUtils.getIsotopesMzDiffs(isotopeElements, isotopeMaxCharge);
-        this.maxIsotopeMzDiff = Collections.max(isotopesMzDiffs);
-
-        // Store last called parameters
-        this.isotopeElements = isotopeElements;
-        this.isotopeMaxCharge = isotopeMaxCharge;
+      // the detector instance is shared by parallel mass detection threads
+      synchronized (this) {
+        // Update isotopesMzDiffs only if isotopeElements and isotopeMaxCharge differ from the last call
+        if (!Objects.equals(this.isotopeElements, isotopeElements) || !Objects.equals(
+            this.isotopeMaxCharge, isotopeMaxCharge)) {
+
+          // Update isotopesMzDiffs
+          this.isotopesMzDiffs = IsotopesUtils.getIsotopesMzDiffs(isotopeElements,
+              isotopeMaxCharge);
+          this.maxIsotopeMzDiff = Collections.max(this.isotopesMzDiffs);
+
+          // Store last called parameters
+          this.isotopeElements = isotopeElements;
+          this.isotopeMaxCharge = isotopeMaxCharge;
+        }
+        isotopesMzDiffs = this.isotopesMzDiffs;
+        maxIsotopeMzDiff = this.maxIsotopeMzDiff;
       }
     }
     // use number of centroid signals as base array list capacity
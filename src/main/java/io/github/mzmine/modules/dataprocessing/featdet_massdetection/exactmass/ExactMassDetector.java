@@ -240,6 +240,8 @@ public class ExactMassDetector implements MassDetector {
 
     // If isotopes are going to be detected get all the required parameters
     MZTolerance isotopesMzTolerance = null;
+    List<Double> isotopesMzDiffs = null;
+    double maxIsotopeMzDiff = 0d;
     if (detectIsotopes) {
       ParameterSet isotopesParameters = parameters.getParameter(
           ExactMassDetectorParameters.detectIsotopes).getEmbeddedParameters();
@@ -250,17 +252,23 @@ public class ExactMassDetector implements MassDetector {
       isotopesMzTolerance = isotopesParameters.getParameter(
           DetectIsotopesParameter.isotopeMzTolerance).getValue();
 
-      // Update isotopesMzDiffs only if isotopeElements and isotopeMaxCharge differ from the last call
-      if (!Objects.equals(this.isotopeElements, isotopeElements) || !Objects.equals(
-          this.isotopeMaxCharge, isotopeMaxCharge)) {
+      // the detector instance is shared by parallel mass detection threads
+      synchronized (this) {
+        // Update isotopesMzDiffs only if isotopeElements and isotopeMaxCharge differ from the last call
+        if (!Objects.equals(this.isotopeElements, isotopeElements) || !Objects.equals(
+            this.isotopeMaxCharge, isotopeMaxCharge)) {
 
-        // Update isotopesMzDiffs
-        this.isotopesMzDiffs = IsotopesUtils.getIsotopesMzDiffs(isotopeElements, isotopeMaxCharge);
-        this.maxIsotopeMzDiff = Collections.max(isotopesMzDiffs);
+          // Update isotopesMzDiffs
+          this.isotopesMzDiffs = IsotopesUtils.getIsotopesMzDiffs(isotopeElements,
+              isotopeMaxCharge);
+          this.maxIsotopeMzDiff = Collections.max(this.isotopesMzDiffs);
 
-        // Store last called parameters
-        this.isotopeElements = isotopeElements;
-        this.isotopeMaxCharge = isotopeMaxCharge;
+          // Store last called parameters
+          this.isotopeElements = isotopeElements;
+          this.isotopeMaxCharge = isotopeMaxCharge;
+        }
+        isotopesMzDiffs = this.isotopesMzDiffs;
+        maxIsotopeMzDiff = this.maxIsotopeMzDiff;
       }
     }
 
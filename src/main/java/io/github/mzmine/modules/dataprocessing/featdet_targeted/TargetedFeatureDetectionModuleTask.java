@@ -44,6 +44,7 @@ import io.github.mzmine.datamodel.features.SimpleFeatureListAppliedMethod;
 import io.github.mzmine.datamodel.features.compoundannotations.CompoundDBAnnotation;
 import io.github.mzmine.datamodel.features.types.numbers.MzPpmDifferenceType;
 import io.github.mzmine.datamodel.features.types.numbers.RtRelativeErrorType;
+import io.github.mzmine.datamodel.impl.ScanMzIndex;
 import io.github.mzmine.modules.dataprocessing.gapfill_peakfinder.Gap;
 import io.github.mzmine.modules.dataprocessing.gapfill_peakfinder.multithreaded.ImsGap;
 import io.github.mzmine.modules.dataprocessing.id_ion_identity_networking.ionidnetworking.IonNetworkLibrary;
@@ -272,6 +273,31 @@ class TargetedFeatureDetectionModuleTask extends AbstractTask {
   }
 
   private boolean processLcmsFile(List<Gap> gaps) {
+    final ScanMzIndex xicIndex = dataFile.getXicIndex(ScanDataType.CENTROID);
+    if (xicIndex != null && matchingScans.stream().allMatch(s -> xicIndex.indexOf(s) != -1)) {
+      // each gap only reads the data points within its own m/z and rt range
+      // gaps that were not offered fall back to the scans
+      final List<Gap> scanGaps = gaps.parallelStream()
+          .filter(gap -> !isCanceled() && !gap.offerScans(matchingScans, xicIndex)).toList();
+      if (isCanceled() || (!scanGaps.isEmpty() && !offerAllScans(scanGaps))) {
+        return false;
+      }
+      processedScans = totalScans;
+    } else if (!offerAllScans(gaps)) {
+      return false;
+    }
+
+    for (Gap gap : gaps) {
+      // Finalize gaps
+      final FeatureListRow row = gap.getFeatureListRow();
+      if (gap.noMoreOffers()) {
+        processedFeatureList.addRow(row);
+      }
+    }
+    return true;
+  }
+
+  private boolean offerAllScans(List<Gap> gaps) {
     final ScanDataAccess access = EfficientDataAccess.of(dataFile, ScanDataType.CENTROID,
         matchingScans);
 
@@ -289,14 +315,6 @@ class TargetedFeatureDetectionModuleTask extends AbstractTask {
 
       processedScans++;
     }
-
-    for (Gap gap : gaps) {
-      // Finalize gaps
-      final FeatureListRow row = gap.getFeatureListRow();
-      if (gap.noMoreOffers()) {
-        processedFeatureList.addRow(row);
-      }
-    }
     return true;
   }
 
@@ -42,7 +42,6 @@ import io.github.mzmine.parameters.parametertypes.ModuleComboParameter;
 import io.github.mzmine.parameters.parametertypes.StringParameter;
 import io.github.mzmine.parameters.parametertypes.selectors.RawDataFilesParameter;
 import io.github.mzmine.util.ExitCode;
-import io.github.mzmine.util.R.REngineType;
 
 /**
  * Holds baseline correction module COMMON parameters. See
@@ -125,19 +124,12 @@ public class BaselineCorrectionParameters extends SimpleParameterSet {
       new BooleanParameter("Remove source file after baseline correction",
           "If checked, original file will be replaced by the corrected version", true);
 
-  /**
-   * R engine type.
-   */
-  public static final ComboParameter<REngineType> RENGINE_TYPE = new ComboParameter<REngineType>(
-      "R engine", "The R engine to be used for communicating with R.", REngineType.values(),
-      REngineType.RCALLER);
-
   /**
    * Create the parameter set.
    */
   public BaselineCorrectionParameters() {
     super(new Parameter[] {dataFiles, SUFFIX, CHROMOTAGRAM_TYPE, MS_LEVEL, USE_MZ_BINS,
-        MZ_BIN_WIDTH, BASELINE_CORRECTORS, RENGINE_TYPE, REMOVE_ORIGINAL},
+        MZ_BIN_WIDTH, BASELINE_CORRECTORS, REMOVE_ORIGINAL},
         "https://mzmine.github.io/mzmine_documentation/module_docs/filter_raw_data/baseline-corrections.html");
     thisParameters = null;
   }
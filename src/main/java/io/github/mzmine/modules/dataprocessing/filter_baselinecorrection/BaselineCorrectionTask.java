@@ -34,9 +34,6 @@ import io.github.mzmine.parameters.ParameterSet;
 import io.github.mzmine.taskcontrol.AbstractTask;
 import io.github.mzmine.taskcontrol.TaskStatus;
 import io.github.mzmine.util.MemoryMapStorage;
-import io.github.mzmine.util.R.REngineType;
-import io.github.mzmine.util.R.RSessionWrapper;
-import io.github.mzmine.util.R.RSessionWrapperException;
 import java.io.IOException;
 import java.time.Instant;
 import java.util.logging.Logger;
@@ -71,11 +68,8 @@ public class BaselineCorrectionTask extends AbstractTask {
   // Common parameters.
   private final ParameterSet commonParameters;
 
-  private RSessionWrapper rSession;
   private String errorMsg;
 
-  private REngineType rEngineType;
-
   /**
    * Creates the task.
    *  @param dataFile raw data file on which to perform correction.
@@ -95,9 +89,6 @@ public class BaselineCorrectionTask extends AbstractTask {
     this.baselineCorrectorProcStep =
         parameters.getParameter(BaselineCorrectionParameters.BASELINE_CORRECTORS).getValue();
 
-    this.rEngineType =
-        parameters.getParameter(BaselineCorrectionParameters.RENGINE_TYPE).getValue();
-
     this.commonParameters = parameters;
   }
 
@@ -121,17 +112,10 @@ public class BaselineCorrectionTask extends AbstractTask {
 
     try {
 
-      // Check R availability, by trying to open the connection.
-      String[] reqPackages = this.baselineCorrectorProcStep.getModule().getRequiredRPackages();
-      String callerFeatureName = this.baselineCorrectorProcStep.getModule().getName();
-      this.rSession = new RSessionWrapper(rEngineType, callerFeatureName, reqPackages, null);
-
-      this.rSession.open();
-
       this.baselineCorrectorProcStep.getModule().initProgress(origDataFile);
 
       final RawDataFile correctedDataFile =
-          this.baselineCorrectorProcStep.getModule().correctDatafile(this.rSession, origDataFile,
+          this.baselineCorrectorProcStep.getModule().correctDatafile(origDataFile,
               baselineCorrectorProcStep.getParameterSet(), this.commonParameters, getMemoryMapStorage());
 
       // If this task was canceled, stop processing.
@@ -157,13 +141,10 @@ public class BaselineCorrectionTask extends AbstractTask {
 
         logger.info("Baseline corrected " + origDataFile.getName());
       }
-      // Turn off R instance, once task ended gracefully.
-      if (!isCanceled())
-        this.rSession.close(false);
 
-    } catch (IOException | RSessionWrapperException e) {
+    } catch (IOException e) {
       if (!isCanceled()) {
-        errorMsg = "'R computing error' during baseline correction. \n" + e.getMessage();
+        errorMsg = "'I/O error' during baseline correction. \n" + e.getMessage();
       }
     } catch (Exception e) {
       if (!isCanceled()) {
@@ -173,21 +154,6 @@ public class BaselineCorrectionTask extends AbstractTask {
 
     this.baselineCorrectorProcStep.getModule().setAbortProcessing(origDataFile, true);
 
-    // Turn off R instance, once task ended UNgracefully.
-    try {
-      if (!isCanceled())
-        this.rSession.close(isCanceled());
-    } catch (RSessionWrapperException e) {
-      if (!isCanceled()) {
-        // Do not override potential previous error message.
-        if (errorMsg == null) {
-          errorMsg = e.getMessage();
-        }
-      } else {
-        // User canceled: Silent.
-      }
-    }
-
     // Report error.
     if (errorMsg != null) {
       setErrorMessage(errorMsg);
@@ -205,13 +171,6 @@ public class BaselineCorrectionTask extends AbstractTask {
     baselineCorrectorProcStep.getModule().setAbortProcessing(origDataFile, true);
 
     super.cancel();
-    // Turn off R instance, if already existing.
-    try {
-      if (this.rSession != null)
-        this.rSession.close(true);
-    } catch (RSessionWrapperException e) {
-      // Silent, always...
-    }
   }
 
 }
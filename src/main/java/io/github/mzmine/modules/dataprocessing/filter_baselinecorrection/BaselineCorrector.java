@@ -29,26 +29,21 @@ import io.github.mzmine.util.MemoryMapStorage;
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.logging.Logger;
+import java.util.stream.IntStream;
 import com.google.common.collect.Range;
-import io.github.mzmine.datamodel.DataPoint;
 import io.github.mzmine.datamodel.RawDataFile;
 import io.github.mzmine.datamodel.Scan;
-import io.github.mzmine.datamodel.impl.SimpleDataPoint;
 import io.github.mzmine.datamodel.impl.SimpleScan;
 import io.github.mzmine.main.MZmineCore;
 import io.github.mzmine.modules.MZmineModule;
 import io.github.mzmine.parameters.ParameterSet;
-import io.github.mzmine.util.DataPointUtils;
-import io.github.mzmine.util.R.REngineType;
-import io.github.mzmine.util.R.RSessionWrapper;
-import io.github.mzmine.util.R.RSessionWrapperException;
 import io.github.mzmine.util.RangeUtils;
-import io.github.mzmine.util.scans.ScanUtils;
 import org.jetbrains.annotations.Nullable;
 
 /**
  * @description Abstract corrector class for baseline correction. Has to be specialized via the
- *              implementation of a "BaselineProvider".
+ *              implementation of a "BaselineProvider". The baselines of the m/z bins are computed
+ *              in parallel.
  *
  */
 public abstract class BaselineCorrector implements BaselineProvider, MZmineModule {
@@ -66,7 +61,6 @@ public abstract class BaselineCorrector implements BaselineProvider, MZmineModul
   private String suffix;
 
   // General parameters (common to all baseline correction methods).
-  private REngineType rEgineType;
   private ChromatogramType chromatogramType;
   private double binWidth;
   private boolean useBins;
@@ -99,8 +93,6 @@ public abstract class BaselineCorrector implements BaselineProvider, MZmineModul
       generalParameters = BaselineCorrectionParameters.getBaselineCorrectionParameters();
     }
     // Get common parameters.
-    rEgineType =
-        generalParameters.getParameter(BaselineCorrectionParameters.RENGINE_TYPE).getValue();
     suffix = generalParameters.getParameter(BaselineCorrectionParameters.SUFFIX).getValue();
     chromatogramType =
         generalParameters.getParameter(BaselineCorrectionParameters.CHROMOTAGRAM_TYPE).getValue();
@@ -109,11 +101,11 @@ public abstract class BaselineCorrector implements BaselineProvider, MZmineModul
     msLevel = generalParameters.getParameter(BaselineCorrectionParameters.MS_LEVEL).getValue();
   }
 
-  public final RawDataFile correctDatafile(final RSessionWrapper rSession,
-      final RawDataFile dataFile, final ParameterSet parameters,
-      final ParameterSet commonParameters, @Nullable MemoryMapStorage storage) throws IOException, RSessionWrapperException {
+  public final RawDataFile correctDatafile(final RawDataFile dataFile,
+      final ParameterSet parameters, final ParameterSet commonParameters,
+      @Nullable MemoryMapStorage storage) throws IOException {
 
-    if (isAborted(dataFile) || !rSession.isSessionRunning())
+    if (isAborted(dataFile))
       return null;
     // Get very last information from root module setup
     // this.setGeneralParameters(MZmineCore.getConfiguration().getModuleParameters(BaselineCorrectionModule.class));
@@ -168,9 +160,9 @@ public abstract class BaselineCorrector implements BaselineProvider, MZmineModul
 
           // Correct baseline for this MS-level.
           if (useTIC) {
-            correctTICBaselines(rSession, origDataFile, newFile, level, numBins, parameters);
+            correctTICBaselines(origDataFile, newFile, level, numBins, parameters);
           } else {
-            correctBasePeakBaselines(rSession, origDataFile, newFile, level, numBins, parameters);
+            correctBasePeakBaselines(origDataFile, newFile, level, numBins, parameters);
           }
         } else {
 
@@ -206,19 +198,9 @@ public abstract class BaselineCorrector implements BaselineProvider, MZmineModul
       // Get original scan.
       final Scan origScan = scanNumbers[scanIndex];
 
-      // Get data points (m/z and intensity pairs) of the original scan
-      final DataPoint[] origDataPoints = ScanUtils.extractDataPoints(origScan);
-      final DataPoint[] newDataPoints = new DataPoint[origDataPoints.length];
-
-      // Copy original data points.
-      int i = 0;
-      for (final DataPoint dp : origDataPoints) {
-        newDataPoints[i++] = new SimpleDataPoint(dp);
-      }
-
       // Create new copied scan.
-      double[][] dp = DataPointUtils.getDataPointsAsDoubleArray(newDataPoints);
-      final SimpleScan newScan = new SimpleScan(writer, origScan, dp[0], dp[1]);
+      final SimpleScan newScan = new SimpleScan(writer, origScan,
+          origScan.getMzValues(new double[0]), origScan.getIntensityValues(new double[0]));
       writer.addScan(newScan);
       progressMap.get(origDataFile)[0]++;
     }
@@ -233,12 +215,9 @@ public abstract class BaselineCorrector implements BaselineProvider, MZmineModul
    * @param numBins number of m/z bins.
    * @param parameters parameters specific to the actual method for baseline computing.
    * @throws IOException if there are i/o problems.
-   * @throws RSessionWrapperException
-   * @throws InterruptedException
    */
-  private void correctBasePeakBaselines(final RSessionWrapper rSession,
-      final RawDataFile origDataFile, final RawDataFile writer, final int level, final int numBins,
-      final ParameterSet parameters) throws IOException, RSessionWrapperException {
+  private void correctBasePeakBaselines(final RawDataFile origDataFile, final RawDataFile writer,
+      final int level, final int numBins, final ParameterSet parameters) throws IOException {
 
     // Get scan numbers from original file.
     final Scan[] scanNumbers = origDataFile.getScanNumbers(level).toArray(Scan[]::new);
@@ -251,11 +230,12 @@ public abstract class BaselineCorrector implements BaselineProvider, MZmineModul
     // Calculate baselines: done in-place, i.e. overwrite chromatograms to
     // save memory.
     logger.finest("Calculating baselines.");
-    for (int binIndex = 0; !isAborted(origDataFile) && binIndex < numBins; binIndex++) {
-      baseChrom[binIndex] =
-          computeBaseline(rSession, origDataFile, baseChrom[binIndex], parameters);
-      progressMap.get(origDataFile)[0]++;
-    }
+    IntStream.range(0, numBins).parallel().forEach(binIndex -> {
+      if (!isAborted(origDataFile)) {
+        baseChrom[binIndex] = computeBaseline(baseChrom[binIndex], parameters);
+      }
+    });
+    progressMap.get(origDataFile)[0] += numBins;
 
     // Subtract baselines.
     logger.finest("Subtracting baselines.");
@@ -264,13 +244,11 @@ public abstract class BaselineCorrector implements BaselineProvider, MZmineModul
       // Get original scan.
       final Scan origScan = scanNumbers[scanIndex];
 
-      // Get data points (m/z and intensity pairs) of the original scan
-      final DataPoint[] origDataPoints = ScanUtils.extractDataPoints(origScan);
-
       // Create and write new corrected scan.
-      double[][] dp = DataPointUtils.getDataPointsAsDoubleArray(
-          subtractBasePeakBaselines(origDataFile, origDataPoints, baseChrom, numBins, scanIndex));
-      final SimpleScan newScan = new SimpleScan(writer, origScan, dp[0], dp[1]);
+      final double[] mzs = origScan.getMzValues(new double[0]);
+      final double[] intensities = subtractBasePeakBaselines(origDataFile, mzs,
+          origScan.getIntensityValues(new double[0]), baseChrom, numBins, scanIndex);
+      final SimpleScan newScan = new SimpleScan(writer, origScan, mzs, intensities);
       writer.addScan(newScan);
       progressMap.get(origDataFile)[0]++;
     }
@@ -285,11 +263,9 @@ public abstract class BaselineCorrector implements BaselineProvider, MZmineModul
    * @param numBins number of m/z bins.
    * @param parameters parameters specific to the actual method for baseline computing.
    * @throws IOException if there are i/o problems.
-   * @throws RSessionWrapperException
    */
-  private void correctTICBaselines(final RSessionWrapper rSession, final RawDataFile origDataFile,
-      final RawDataFile writer, final int level, final int numBins, final ParameterSet parameters)
-      throws IOException, RSessionWrapperException {
+  private void correctTICBaselines(final RawDataFile origDataFile, final RawDataFile writer,
+      final int level, final int numBins, final ParameterSet parameters) throws IOException {
 
     // Get scan numbers from original file.
     final Scan[] scanNumbers = origDataFile.getScanNumbers(level).toArray(Scan[]::new);
@@ -302,22 +278,23 @@ public abstract class BaselineCorrector implements BaselineProvider, MZmineModul
     // Calculate baselines: done in-place, i.e. overwrite chromatograms to
     // save memory.
     logger.finest("Calculating baselines.");
-    for (int binIndex = 0; !isAborted(origDataFile) && binIndex < numBins; binIndex++) {
+    IntStream.range(0, numBins).parallel().forEach(binIndex -> {
+      if (isAborted(origDataFile)) {
+        return;
+      }
 
       // Calculate baseline.
-      // final double[] baseline = asymBaseline(baseChrom[binIndex]);
-      final double[] baseline =
-          computeBaseline(rSession, origDataFile, baseChrom[binIndex], parameters);
+      final double[] baseline = computeBaseline(baseChrom[binIndex], parameters);
 
       // Normalize the baseline w.r.t. chromatogram (TIC).
-      for (int scanIndex = 0; !isAborted(origDataFile) && scanIndex < numScans; scanIndex++) {
+      for (int scanIndex = 0; scanIndex < numScans; scanIndex++) {
         final double bc = baseChrom[binIndex][scanIndex];
         if (bc != 0.0) {
           baseChrom[binIndex][scanIndex] = baseline[scanIndex] / bc;
         }
       }
-      progressMap.get(origDataFile)[0]++;
-    }
+    });
+    progressMap.get(origDataFile)[0] += numBins;
 
     // Subtract baselines.
     logger.finest("Subtracting baselines.");
@@ -326,13 +303,11 @@ public abstract class BaselineCorrector implements BaselineProvider, MZmineModul
       // Get original scan.
       final Scan origScan = scanNumbers[scanIndex];
 
-      // Get data points (m/z and intensity pairs) of the original scan
-      final DataPoint[] origDataPoints = ScanUtils.extractDataPoints(origScan);
-
       // Create and write new corrected scan.
-      double[][] dp = DataPointUtils.getDataPointsAsDoubleArray(
-          subtractTICBaselines(origDataFile, origDataPoints, baseChrom, numBins, scanIndex));
-      final SimpleScan newScan = new SimpleScan(writer, origScan, dp[0], dp[1]);
+      final double[] mzs = origScan.getMzValues(new double[0]);
+      final double[] intensities = subtractTICBaselines(origDataFile, mzs,
+          origScan.getIntensityValues(new double[0]), baseChrom, numBins, scanIndex);
+      final SimpleScan newScan = new SimpleScan(writer, origScan, mzs, intensities);
       writer.addScan(newScan);
       progressMap.get(origDataFile)[0]++;
     }
@@ -366,10 +341,10 @@ public abstract class BaselineCorrector implements BaselineProvider, MZmineModul
       final Scan scan = scanNumbers[scanIndex];
 
       // Process data points.
-      for (final DataPoint dataPoint : scan) {
-        final int bin = RangeUtils.binNumber(mzRange, numBins, dataPoint.getMZ());
+      for (int i = 0, numDp = scan.getNumberOfDataPoints(); i < numDp; i++) {
+        final int bin = RangeUtils.binNumber(mzRange, numBins, scan.getMzValue(i));
         final double value = chromatograms[bin][scanIndex];
-        chromatograms[bin][scanIndex] = Math.max(value, dataPoint.getIntensity());
+        chromatograms[bin][scanIndex] = Math.max(value, scan.getIntensityValue(i));
       }
       progressMap.get(origDataFile)[0]++;
     }
@@ -404,10 +379,9 @@ public abstract class BaselineCorrector implements BaselineProvider, MZmineModul
       final Scan scan = scanNumbers[scanIndex];
 
       // Process data points.
-      for (final DataPoint dataPoint : scan) {
-
-        final int bin = RangeUtils.binNumber(mzRange, numBins, dataPoint.getMZ());
-        chromatograms[bin][scanIndex] += dataPoint.getIntensity();
+      for (int i = 0, numDp = scan.getNumberOfDataPoints(); i < numDp; i++) {
+        final int bin = RangeUtils.binNumber(mzRange, numBins, scan.getMzValue(i));
+        chromatograms[bin][scanIndex] += scan.getIntensityValue(i);
       }
       progressMap.get(origDataFile)[0]++;
     }
@@ -419,72 +393,70 @@ public abstract class BaselineCorrector implements BaselineProvider, MZmineModul
    * Perform baseline correction in bins (base peak).
    *
    * @param origDataFile dataFile of concern.
-   * @param dataPoints input data points to correct.
+   * @param mzs m/z values of the data points to correct.
+   * @param intensities intensities of the data points to correct.
    * @param baselines the baselines - one per m/z bin.
    * @param numBins the number of m/z bins.
    * @param scanIndex the current scan index that these data points come from.
-   * @return the corrected data points.
+   * @return the corrected intensities.
    */
-  private DataPoint[] subtractBasePeakBaselines(final RawDataFile origDataFile,
-      final DataPoint[] dataPoints, final double[][] baselines, final int numBins,
+  private double[] subtractBasePeakBaselines(final RawDataFile origDataFile, final double[] mzs,
+      final double[] intensities, final double[][] baselines, final int numBins,
       final int scanIndex) {
 
-    // Create an ArrayList for new data points.
-    final DataPoint[] newDataPoints = new DataPoint[dataPoints.length];
+    // Create an array for the new intensities.
+    final double[] newIntensities = new double[intensities.length];
 
     // Determine MZ range.
     final Range<Double> mzRange = origDataFile.getDataMZRange();
 
     // Loop through all original data points.
-    int i = 0;
-    for (final DataPoint dp : dataPoints) {
+    for (int i = 0; i < intensities.length; i++) {
 
       // Subtract baseline.
-      final double mz = dp.getMZ();
-      final int bin = RangeUtils.binNumber(mzRange, numBins, mz);
+      final int bin = RangeUtils.binNumber(mzRange, numBins, mzs[i]);
       final double baselineIntenstity = baselines[bin][scanIndex];
-      newDataPoints[i++] = baselineIntenstity <= 0.0 ? new SimpleDataPoint(dp)
-          : new SimpleDataPoint(mz, Math.max(0.0, dp.getIntensity() - baselineIntenstity));
+      newIntensities[i] = baselineIntenstity <= 0.0 ? intensities[i]
+          : Math.max(0.0, intensities[i] - baselineIntenstity);
     }
 
-    // Return the new data points.
-    return newDataPoints;
+    // Return the new intensities.
+    return newIntensities;
   }
 
   /**
    * Perform baseline correction in bins (TIC).
    *
    * @param origDataFile dataFile of concern.
-   * @param dataPoints input data points to correct.
+   * @param mzs m/z values of the data points to correct.
+   * @param intensities intensities of the data points to correct.
    * @param baselines the baselines - one per m/z bin.
    * @param numBins the number of m/z bins.
    * @param scanIndex the current scan index that these data points come from.
-   * @return the corrected data points.
+   * @return the corrected intensities.
    */
-  private DataPoint[] subtractTICBaselines(final RawDataFile origDataFile,
-      final DataPoint[] dataPoints, final double[][] baselines, final int numBins,
+  private double[] subtractTICBaselines(final RawDataFile origDataFile, final double[] mzs,
+      final double[] intensities, final double[][] baselines, final int numBins,
       final int scanIndex) {
 
-    // Create an ArrayList for new data points.
-    final DataPoint[] newDataPoints = new DataPoint[dataPoints.length];
+    // Create an array for the new intensities.
+    final double[] newIntensities = new double[intensities.length];
 
     // Determine MZ range.
     final Range<Double> mzRange = origDataFile.getDataMZRange();
 
     // Loop through all original data points.
-    int i = 0;
-    for (final DataPoint dp : dataPoints) {
+    for (int i = 0; i < intensities.length; i++) {
 
       // Subtract baseline.
-      final double mz = dp.getMZ();
-      final int bin = RangeUtils.binNumber(mzRange, numBins, mz);
+      final int bin = RangeUtils.binNumber(mzRange, numBins, mzs[i]);
       final double baselineIntenstity = baselines[bin][scanIndex];
-      newDataPoints[i++] = baselineIntenstity <= 0.0 ? new SimpleDataPoint(dp)
-          : new SimpleDataPoint(mz, Math.max(0.0, dp.getIntensity() * (1.0 - baselineIntenstity)));
+      newIntensities[i] = baselineIntenstity <= 0.0 ? intensities[i]
+          : Math.max(0.0, intensities[i] * (1.0 - baselineIntenstity));
     }
 
-    // Return the new data points.
-    return newDataPoints;
+    // Return the new intensities.
+    return newIntensities;
   }
 
   // Correction progress stuffs (to be called from mother Task)
@@ -544,10 +516,6 @@ public abstract class BaselineCorrector implements BaselineProvider, MZmineModul
     progressMap.remove(origDataFile);
   }
 
-  public REngineType getRengineType() {
-    return this.rEgineType;
-  }
-
   // Chromatogram type
   public ChromatogramType getChromatogramType() {
     // return
@@ -25,10 +25,8 @@
 
 package io.github.mzmine.modules.dataprocessing.filter_baselinecorrection;
 
-import io.github.mzmine.datamodel.RawDataFile;
 import io.github.mzmine.parameters.ParameterSet;
-import io.github.mzmine.util.R.RSessionWrapper;
-import io.github.mzmine.util.R.RSessionWrapperException;
+import org.jetbrains.annotations.NotNull;
 
 /**
  * @description Base interface for providing a new way for computing baselines.
@@ -37,16 +35,14 @@ import io.github.mzmine.util.R.RSessionWrapperException;
 public interface BaselineProvider {
 
   /**
-   * Gets R required packages for the corrector's method, if applicable
+   * Returns a baseline for correcting the given chromatogram. Must be thread safe, as the
+   * chromatograms of multiple m/z bins are corrected in parallel.
+   *
+   * @param chromatogram the chromatogram, must not be altered
+   * @param parameters   the corrector specific parameters
+   * @return the baseline with the same length as the chromatogram
    */
-  public String[] getRequiredRPackages();
-
-  /**
-   * Returns a baseline for correcting the given chromatogram using R
-   * 
-   * @throws RSessionWrapperException
-   */
-  public double[] computeBaseline(final RSessionWrapper rSession, final RawDataFile origDataFile,
-      final double[] chromatogram, ParameterSet parameters) throws RSessionWrapperException;
+  public double[] computeBaseline(@NotNull final double[] chromatogram,
+      @NotNull ParameterSet parameters);
 
 }
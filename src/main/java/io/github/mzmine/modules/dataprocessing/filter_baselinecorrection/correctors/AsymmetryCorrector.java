@@ -1,54 +1,26 @@
-/*
- * Copyright (c) 2004-2022 The MZmine Development Team
- *
- * Permission is hereby granted, free of charge, to any person
- * obtaining a copy of this software and associated documentation
- * files (the "Software"), to deal in the Software without
- * restriction, including without limitation the rights to use,
- * copy, modify, merge, publish, distribute, sublicense, and/or sell
- * copies of the Software, and to permit persons to whom the
- * Software is furnished to do so, subject to the following
- * conditions:
- *
- * The above copyright notice and this permission notice shall be
- * included in all copies or substantial portions of the Software.
- *
- * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
- * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
- * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
- * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
- * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
- * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
- * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
- * OTHER DEALINGS IN THE SOFTWARE.
- */
 
 package io.github.mzmine.modules.dataprocessing.filter_baselinecorrection.correctors;
 
+import java.util.Arrays;
 import org.jetbrains.annotations.NotNull;
 
-import io.github.mzmine.datamodel.RawDataFile;
 import io.github.mzmine.modules.dataprocessing.filter_baselinecorrection.BaselineCorrector;
 import io.github.mzmine.parameters.ParameterSet;
-import io.github.mzmine.util.R.RSessionWrapper;
-import io.github.mzmine.util.R.RSessionWrapperException;
 
 /**
  * @description Asymmetric baseline corrector. Estimates a trend based on asymmetric least squares.
- *              Uses "asysm" feature from "ptw" R-package
+ *              Java implementation of the "asysm" feature from "ptw" R-package
  *              (http://cran.r-project.org/web/packages/ptw/ptw.pdf).
  * 
  */
 public class AsymmetryCorrector extends BaselineCorrector {
 
-  @Override
-  public String[] getRequiredRPackages() {
-    return new String[] { /* "rJava", "Rserve", */"ptw"};
-  }
+  // same as ptw
+  private static final int MAX_ITERATIONS = 25;
 
   @Override
-  public double[] computeBaseline(final RSessionWrapper rSession, final RawDataFile origDataFile,
-      double[] chromatogram, ParameterSet parameters) throws RSessionWrapperException {
+  public double[] computeBaseline(@NotNull final double[] chromatogram,
+      @NotNull ParameterSet parameters) {
 
     // Smoothing and asymmetry parameters.
     final double smoothing =
@@ -56,29 +28,125 @@ public class AsymmetryCorrector extends BaselineCorrector {
     final double asymmetry =
         parameters.getParameter(AsymmetryCorrectorParameters.ASYMMETRY).getValue();
 
-    // Compute baseline.
-    final double[] baseline;
-
-    // try {
-    // Set chromatogram.
-    // rSession.assignDoubleArray("chromatogram", chromatogram);
-    rSession.assign("chromatogram", chromatogram);
-    // Calculate baseline.
-    rSession.eval("baseline <- asysm(chromatogram," + smoothing + ',' + asymmetry + ')');
-    // baseline = rSession.collectDoubleArray("baseline");
-    baseline = (double[]) rSession.collect("baseline");
-    // Done: Refresh R code stack
-    rSession.clearCode();
-
-    // }
-    // catch (Throwable t) {
-    // //t.printStackTrace();
-    // throw new
-    // IllegalStateException("R error during baseline correction (" +
-    // this.getName() + ").", t);
-    // }
-
-    return baseline;
+    return asymmetricLeastSquares(chromatogram, smoothing, asymmetry);
+  }
+
+  /**
+   * Eilers' asymmetric least squares smoothing. Iteratively solves (W + lambda * D'D) z = W y with
+   * second order differences D, the weights are p for values above the trend and 1-p below.
+   *
+   * @param y      the chromatogram
+   * @param lambda the smoothing factor
+   * @param p      the asymmetry
+   * @return the baseline
+   */
+  public static double[] asymmetricLeastSquares(@NotNull double[] y, double lambda, double p) {
+    final int n = y.length;
+    if (n < 3) {
+      return y.clone();
+    }
+
+    // penalty lambda * D'D as symmetric pentadiagonal matrix (diagonal and two upper bands)
+    final double[] d0 = new double[n];
+    final double[] d1 = new double[n - 1];
+    final double[] d2 = new double[n - 2];
+    final double[] coefficients = {1, -2, 1};
+    for (int k = 0; k < n - 2; k++) {
+      for (int a = 0; a < 3; a++) {
+        d0[k + a] += lambda * coefficients[a] * coefficients[a];
+        if (a < 2) {
+          d1[k + a] += lambda * coefficients[a] * coefficients[a + 1];
+        }
+      }
+      d2[k] += lambda * coefficients[0] * coefficients[2];
+    }
+
+    final double[] w = new double[n];
+    Arrays.fill(w, 1d);
+    final double[] diagonal = new double[n];
+    final double[] wy = new double[n];
+    double[] z = new double[n];
+    for (int it = 0; it < MAX_ITERATIONS; it++) {
+      for (int i = 0; i < n; i++) {
+        diagonal[i] = d0[i] + w[i];
+        wy[i] = w[i] * y[i];
+      }
+      z = solvePentadiagonal(diagonal, d1, d2, wy);
+
+      boolean changed = false;
+      for (int i = 0; i < n; i++) {
+        final double newWeight = y[i] > z[i] ? p : 1 - p;
+        changed |= newWeight != w[i];
+        w[i] = newWeight;
+      }
+      if (!changed) {
+        break;
+      }
+    }
+    return z;
+  }
+
+  /**
+   * Solves A x = b for a symmetric positive definite pentadiagonal matrix by LDL' decomposition.
+   *
+   * @param a0 the diagonal
+   * @param a1 the first upper band
+   * @param a2 the second upper band
+   */
+  static double[] solvePentadiagonal(double[] a0, double[] a1, double[] a2, double[] b) {
+    final int n = a0.length;
+    final double[] d = new double[n];
+    // first and second lower band of the unit triangular matrix L
+    final double[] e = new double[n];
+    final double[] f = new double[n];
+    for (int i = 0; i < n; i++) {
+      double di = a0[i];
+      if (i >= 1) {
+        di -= e[i - 1] * e[i - 1] * d[i - 1];
+      }
+      if (i >= 2) {
+        di -= f[i - 2] * f[i - 2] * d[i - 2];
+      }
+      // only zero weights and no smoothing, keep the value
+      d[i] = di != 0 ? di : Double.MIN_NORMAL;
+
+      if (i < n - 1) {
+        double ei = a1[i];
+        if (i >= 1) {
+          ei -= f[i - 1] * e[i - 1] * d[i - 1];
+        }
+        e[i] = ei / d[i];
+      }
+      if (i < n - 2) {
+        f[i] = a2[i] / d[i];
+      }
+    }
+
+    // forward substitution L u = b and scaling by D
+    final double[] x = new double[n];
+    for (int i = 0; i < n; i++) {
+      double u = b[i];
+      if (i >= 1) {
+        u -= e[i - 1] * x[i - 1];
+      }
+      if (i >= 2) {
+        u -= f[i - 2] * x[i - 2];
+      }
+      x[i] = u;
+    }
+    for (int i = 0; i < n; i++) {
+      x[i] /= d[i];
+    }
+    // backward substitution L' x = u / d
+    for (int i = n - 1; i >= 0; i--) {
+      if (i < n - 1) {
+        x[i] -= e[i] * x[i + 1];
+      }
+      if (i < n - 2) {
+        x[i] -= f[i] * x[i + 2];
+      }
+    }
+    return x;
   }
 
   @Override
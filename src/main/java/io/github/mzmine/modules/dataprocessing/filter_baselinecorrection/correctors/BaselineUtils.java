@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2004-2022 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.modules.dataprocessing.filter_baselinecorrection.correctors;
+
+import java.util.Arrays;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Window and interpolation functions on primitive arrays shared by the baseline correctors. All
+ * windows are centered and shrink at the edges of the chromatogram.
+ */
+public class BaselineUtils {
+
+  private BaselineUtils() {
+  }
+
+  /**
+   * Minimum of each window of [i - halfWidth, i + halfWidth] in O(n).
+   */
+  public static double[] runningMin(@NotNull double[] values, int halfWidth) {
+    return runningExtreme(values, halfWidth, true);
+  }
+
+  /**
+   * Maximum of each window of [i - halfWidth, i + halfWidth] in O(n).
+   */
+  public static double[] runningMax(@NotNull double[] values, int halfWidth) {
+    return runningExtreme(values, halfWidth, false);
+  }
+
+  private static double[] runningExtreme(double[] values, int halfWidth, boolean min) {
+    final int n = values.length;
+    final double[] result = new double[n];
+    // monotonic deque of indices, the first element is the extreme of the current window
+    final int[] deque = new int[n];
+    int head = 0;
+    int tail = 0;
+    int next = 0;
+    for (int i = 0; i < n; i++) {
+      final int windowEnd = Math.min(n - 1, i + halfWidth);
+      for (; next <= windowEnd; next++) {
+        while (tail > head && (min ? values[deque[tail - 1]] >= values[next]
+            : values[deque[tail - 1]] <= values[next])) {
+          tail--;
+        }
+        deque[tail++] = next;
+      }
+      while (deque[head] < i - halfWidth) {
+        head++;
+      }
+      result[i] = values[deque[head]];
+    }
+    return result;
+  }
+
+  /**
+   * Mean of each window of [i - halfWidth, i + halfWidth].
+   */
+  public static double[] runningMean(@NotNull double[] values, int halfWidth) {
+    final int n = values.length;
+    final double[] cumulative = new double[n + 1];
+    for (int i = 0; i < n; i++) {
+      cumulative[i + 1] = cumulative[i] + values[i];
+    }
+    final double[] result = new double[n];
+    for (int i = 0; i < n; i++) {
+      final int start = Math.max(0, i - halfWidth);
+      final int end = Math.min(n, i + halfWidth + 1);
+      result[i] = (cumulative[end] - cumulative[start]) / (end - start);
+    }
+    return result;
+  }
+
+  /**
+   * Median of each window of [i - halfWidth, i + halfWidth]. Meant for small windows.
+   */
+  public static double[] runningMedian(@NotNull double[] values, int halfWidth) {
+    final int n = values.length;
+    final double[] result = new double[n];
+    final double[] window = new double[Math.min(n, 2 * halfWidth + 1)];
+    for (int i = 0; i < n; i++) {
+      final int start = Math.max(0, i - halfWidth);
+      final int end = Math.min(n, i + halfWidth + 1);
+      final int length = end - start;
+      System.arraycopy(values, start, window, 0, length);
+      Arrays.sort(window, 0, length);
+      result[i] = length % 2 == 1 ? window[length / 2]
+          : (window[length / 2 - 1] + window[length / 2]) / 2d;
+    }
+    return result;
+  }
+
+  /**
+   * Linear interpolation of the support points at all indices 0..n-1. Values outside the support
+   * points are set to the value of the closest support point.
+   *
+   * @param x ascending support point indices
+   * @param y support point values
+   * @param n number of values
+   */
+  public static double[] interpolateLinear(@NotNull int[] x, @NotNull double[] y, int n) {
+    final double[] result = new double[n];
+    if (x.length == 0) {
+      return result;
+    }
+    int k = 0;
+    for (int i = 0; i < n; i++) {
+      if (i <= x[0]) {
+        result[i] = y[0];
+      } else if (i >= x[x.length - 1]) {
+        result[i] = y[x.length - 1];
+      } else {
+        while (x[k + 1] < i) {
+          k++;
+        }
+        final double t = (double) (i - x[k]) / (x[k + 1] - x[k]);
+        result[i] = y[k] + t * (y[k + 1] - y[k]);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return the minimum value or 0 for an empty array
+   */
+  public static double min(@NotNull double[] values) {
+    if (values.length == 0) {
+      return 0d;
+    }
+    double min = values[0];
+    for (double v : values) {
+      min = Math.min(min, v);
+    }
+    return min;
+  }
+}
@@ -25,17 +25,17 @@
 
 package io.github.mzmine.modules.dataprocessing.filter_baselinecorrection.correctors;
 
+import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import java.util.Arrays;
 import org.jetbrains.annotations.NotNull;
 
-import io.github.mzmine.datamodel.RawDataFile;
 import io.github.mzmine.modules.dataprocessing.filter_baselinecorrection.BaselineCorrector;
 import io.github.mzmine.parameters.ParameterSet;
-import io.github.mzmine.util.R.RSessionWrapper;
-import io.github.mzmine.util.R.RSessionWrapperException;
 
 /**
- * @description Local Minima + LOESS (smoothed low-percentile intensity) baseline corrector. Uses
- *              "bslnoff" feature from "PROcess" R/Bioconductor package
+ * @description Local Minima + LOESS (smoothed low-percentile intensity) baseline corrector. Java
+ *              implementation of the "bslnoff" feature from "PROcess" R/Bioconductor package
  *              (http://bioconductor.org/packages/release/ bioc/manuals/PROcess/man/PROcess.pdf).
  * 
  */
@@ -44,13 +44,8 @@ public class LocMinLoessCorrector extends BaselineCorrector {
   private static final double BW_MIN_VAL = 0.001d;
 
   @Override
-  public String[] getRequiredRPackages() {
-    return new String[] { /* "rJava", "Rserve", */"PROcess"};
-  }
-
-  @Override
-  public double[] computeBaseline(final RSessionWrapper rSession, final RawDataFile origDataFile,
-      double[] chromatogram, ParameterSet parameters) throws RSessionWrapperException {
+  public double[] computeBaseline(@NotNull final double[] chromatogram,
+      @NotNull ParameterSet parameters) {
 
     // Local Minima parameters.
     String method = parameters.getParameter(LocMinLoessCorrectorParameters.METHOD).getValue();
@@ -60,30 +55,159 @@ public class LocMinLoessCorrector extends BaselineCorrector {
         parameters.getParameter(LocMinLoessCorrectorParameters.BREAK_WIDTH).getValue();
     double qntl = parameters.getParameter(LocMinLoessCorrectorParameters.QNTL).getValue();
 
-    final double[] baseline;
-
-    // Set chromatogram.
-    rSession.assign("chromatogram", chromatogram);
-    // Transform chromatogram.
-    int mini = 1;
-    int maxi = chromatogram.length;
-    rSession.eval("mat <- cbind(matrix(seq(" + ((double) mini) + ", " + ((double) maxi)
-        + ", by = 1.0), ncol=1), " + "matrix(chromatogram[" + mini + ":" + maxi + "], ncol=1))");
     // Breaks
-    rSession.eval("breaks <- "
-        + ((breaks_width > 0) ? (int) Math.round((double) (maxi - mini) / (double) breaks_width)
-            : breaks));
-    // Calculate baseline.
-    // + Seems like "loess" method doesn't support "bw=0.0"
-    rSession.eval("bseoff <- bslnoff(mat, method=\"" + method + "\", bw="
-        + ((method.equals("approx") || bw >= BW_MIN_VAL) ? bw : BW_MIN_VAL)
-        + ", breaks=breaks, qntl=" + qntl + ")");
-    rSession.eval("baseline <- mat[,2] - bseoff[,2]");
-    baseline = (double[]) rSession.collect("baseline");
-    // Done: Refresh R code stack
-    rSession.clearCode();
-
-    return baseline;
+    final int numBreaks = (breaks_width > 0) ? (int) Math.round(
+        (double) (chromatogram.length - 1) / (double) breaks_width) : breaks;
+    final boolean loess = method.equals("loess");
+    // Seems like "loess" method doesn't support "bw=0.0"
+    return locMinLoess(chromatogram, loess, loess && bw < BW_MIN_VAL ? BW_MIN_VAL : bw,
+        numBreaks, qntl);
+  }
+
+  /**
+   * Finds the local minima (or the values below a local quantile) in intervals of equal width on
+   * the log scale of the scan numbers 1..n and smoothes them by a local linear regression or
+   * interpolates them linearly.
+   *
+   * @param y      the chromatogram
+   * @param loess  loess smoothing, otherwise linear interpolation
+   * @param span   the fraction of support points used for each local regression
+   * @param breaks the number of intervals
+   * @param qntl   0 for local minima, otherwise the local quantile
+   * @return the baseline
+   */
+  public static double[] locMinLoess(@NotNull double[] y, boolean loess, double span, int breaks,
+      double qntl) {
+    final int n = y.length;
+    if (n == 0) {
+      return new double[0];
+    }
+    breaks = Math.max(1, breaks);
+
+    // intervals on the log scale of the scan numbers (starting with 1)
+    final double logMax = Math.log(n);
+    final int[] interval = new int[n];
+    for (int i = 0; i < n; i++) {
+      interval[i] =
+          logMax == 0 ? 0 : Math.min(breaks - 1, (int) (Math.log(i + 1) / logMax * breaks));
+    }
+
+    final IntArrayList supportX = new IntArrayList();
+    final DoubleArrayList supportY = new DoubleArrayList();
+    int start = 0;
+    while (start < n) {
+      int end = start;
+      while (end < n && interval[end] == interval[start]) {
+        end++;
+      }
+      addSupportPoints(y, start, end, qntl, supportX, supportY);
+      start = end;
+    }
+
+    final int[] x = supportX.toIntArray();
+    final double[] values = supportY.toDoubleArray();
+    return loess ? loess(x, values, span, n) : BaselineUtils.interpolateLinear(x, values, n);
+  }
+
+  /**
+   * Adds the minimum of the interval [start, end) or all values below the interval quantile.
+   */
+  private static void addSupportPoints(double[] y, int start, int end, double qntl,
+      IntArrayList supportX, DoubleArrayList supportY) {
+    int minIndex = start;
+    for (int i = start + 1; i < end; i++) {
+      if (y[i] < y[minIndex]) {
+        minIndex = i;
+      }
+    }
+    if (qntl <= 0) {
+      supportX.add(minIndex);
+      supportY.add(y[minIndex]);
+      return;
+    }
+
+    final double quantile = quantile(Arrays.copyOfRange(y, start, end), qntl);
+    boolean added = false;
+    for (int i = start; i < end; i++) {
+      if (y[i] < quantile) {
+        supportX.add(i);
+        supportY.add(y[i]);
+        added = true;
+      }
+    }
+    if (!added) {
+      // constant interval
+      supportX.add(minIndex);
+      supportY.add(y[minIndex]);
+    }
+  }
+
+  /**
+   * Quantile with linear interpolation between the order statistics (R's default type 7).
+   */
+  private static double quantile(double[] values, double p) {
+    Arrays.sort(values);
+    final double h = (values.length - 1) * p;
+    final int lower = (int) Math.floor(h);
+    final int upper = Math.min(values.length - 1, lower + 1);
+    return values[lower] + (h - lower) * (values[upper] - values[lower]);
+  }
+
+  /**
+   * Local linear regression with tricube weights of the nearest span * m support points, evaluated
+   * at all indices 0..n-1.
+   *
+   * @param x      ascending support point indices
+   * @param values support point values
+   * @param span   fraction of the support points in each local regression
+   * @param n      number of values
+   */
+  static double[] loess(int[] x, double[] values, double span, int n) {
+    final int m = x.length;
+    final int q = Math.min(m, Math.max(2, (int) Math.ceil(span * m)));
+    if (m < 2) {
+      return BaselineUtils.interpolateLinear(x, values, n);
+    }
+
+    final double[] result = new double[n];
+    int left = 0;
+    for (int i = 0; i < n; i++) {
+      // slide the window of q nearest support points
+      while (left + q < m && i - x[left] > x[left + q] - i) {
+        left++;
+      }
+      final int right = left + q - 1;
+      double maxDistance = Math.max(Math.abs(i - x[left]), Math.abs(x[right] - i));
+      if (span > 1) {
+        maxDistance *= span;
+      }
+
+      double sw = 0, swx = 0, swy = 0, swxx = 0, swxy = 0;
+      for (int k = left; k <= right; k++) {
+        final double distance = maxDistance > 0 ? Math.abs(x[k] - i) / maxDistance : 0d;
+        if (distance >= 1) {
+          continue;
+        }
+        final double t = 1 - distance * distance * distance;
+        final double w = t * t * t;
+        sw += w;
+        swx += w * x[k];
+        swy += w * values[k];
+        swxx += w * x[k] * x[k];
+        swxy += w * x[k] * values[k];
+      }
+
+      if (sw == 0) {
+        result[i] = values[Math.abs(i - x[left]) <= Math.abs(x[right] - i) ? left : right];
+        continue;
+      }
+      final double meanX = swx / sw;
+      final double meanY = swy / sw;
+      final double varX = swxx / sw - meanX * meanX;
+      final double slope = varX > 1E-12 ? (swxy / sw - meanX * meanY) / varX : 0d;
+      result[i] = meanY + slope * (i - meanX);
+    }
+    return result;
   }
 
   @Override
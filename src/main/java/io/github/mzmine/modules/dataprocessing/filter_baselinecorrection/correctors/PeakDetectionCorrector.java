@@ -25,33 +25,31 @@
 
 package io.github.mzmine.modules.dataprocessing.filter_baselinecorrection.correctors;
 
+import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import java.util.Arrays;
 import org.jetbrains.annotations.NotNull;
 
-import io.github.mzmine.datamodel.RawDataFile;
 import io.github.mzmine.modules.dataprocessing.filter_baselinecorrection.BaselineCorrector;
 import io.github.mzmine.parameters.ParameterSet;
-import io.github.mzmine.util.R.RSessionWrapper;
-import io.github.mzmine.util.R.RSessionWrapperException;
 
 /**
  * @description Feature Detection baseline corrector. Feature detection is done in several steps
  *              sorting out real peaks through different criteria. Peaks are removed from spectra
- *              and minimums and medians are used to smooth the remaining parts of the spectra. Uses
- *              "peakDetection" feature from "baseline" R-package
+ *              and minimums and medians are used to smooth the remaining parts of the spectra.
+ *              Java implementation of the "peakDetection" feature from "baseline" R-package
  *              (http://cran.r-project.org/web/packages/baseline/baseline.pdf). (A translation from
  *              Kevin R. Coombes et al.'s MATLAB code for detecting peaks and removing baselines).
  * 
  */
 public class PeakDetectionCorrector extends BaselineCorrector {
 
-  @Override
-  public String[] getRequiredRPackages() {
-    return new String[] { /* "rJava", "Rserve", */"baseline"};
-  }
+  // scales the median absolute deviation to the standard deviation of normal distributed noise
+  private static final double MAD_TO_SD = 1.4826;
 
   @Override
-  public double[] computeBaseline(final RSessionWrapper rSession, final RawDataFile origDataFile,
-      double[] chromatogram, ParameterSet parameters) throws RSessionWrapperException {
+  public double[] computeBaseline(@NotNull final double[] chromatogram,
+      @NotNull ParameterSet parameters) {
 
     // Feature Detection parameters.
     int left = parameters.getParameter(PeakDetectionCorrectorParameters.LEFT).getValue();
@@ -64,39 +62,107 @@ public class PeakDetectionCorrector extends BaselineCorrector {
     double multiplier =
         parameters.getParameter(PeakDetectionCorrectorParameters.MULTIPLIER).getValue();
 
-    final double[] baseline;
-
-    // Set chromatogram.
-    rSession.assign("chromatogram", chromatogram);
-    // Transform chromatogram.
-    rSession.eval("mat <- matrix(chromatogram, nrow=1)");
-
-    // Calculate baseline.
-    rSession.eval("bl <- NULL");
-    // This method can fail for some bins when "useBins" is enabled, or more
-    // generally speaking for
-    // abusive parameter set
-    String cmd = "tryCatch({" + "bl <- baseline(mat, left=" + left + ", right=" + right + ", lwin="
-        + lwin + ", rwin=" + rwin + ", snminimum=" + snminimum + ", mono=" + mono + ", multiplier="
-        + multiplier + ", method='peakDetection')" + "}, warning = function(war) {"
-        + "message(\"<R warning>: \", war);" + "}, error = function(err) {"
-        + "message(\"<R error>: \", err);" + "}, finally = {" +
-        // "" +
-        "})";
-    rSession.eval(cmd);
-    // Return a flat baseline (passing by the lowest intensity scan -
-    // "min(chromatogram)") in case of failure
-    // Anyway, this usually happens when "chromatogram" is fully flat and
-    // zeroed.
-    rSession.eval(
-        "if (!is.null(bl)) { baseline <- getBaseline(bl); } else { baseline <- matrix(rep(min(chromatogram), length(chromatogram)), nrow=1); }");
-    baseline = ((double[][]) rSession.collect("baseline"))[0];
-    // Done: Refresh R code stack
-    rSession.clearCode();
+    return peakDetection(chromatogram, left, right, lwin, rwin, snminimum, mono, multiplier);
+  }
+
+  /**
+   * Removes the peaks from the chromatogram and estimates the baseline of the remaining values by
+   * running minimums and medians.
+   * <ol>
+   *   <li>The noise is estimated from the median of the absolute first differences.</li>
+   *   <li>Each local maximum within +-left scans is a peak candidate. Its region extends to both
+   *   sides as long as the values decrease, at most multiplier * right scans. Candidates with a
+   *   signal to noise ratio >= snminimum are removed and linearly interpolated.</li>
+   *   <li>The baseline is the running minimum (window +-rwin) smoothed by a running median (window
+   *   +-lwin) of the peak-free chromatogram.</li>
+   *   <li>If mono > 0, the baseline is forced to decrease monotonically.</li>
+   * </ol>
+   *
+   * @return the baseline
+   */
+  public static double[] peakDetection(@NotNull double[] y, int left, int right, int lwin,
+      int rwin, double snminimum, double mono, double multiplier) {
+    final int n = y.length;
+    if (n < 3) {
+      return y.clone();
+    }
+
+    final double noise = estimateNoise(y);
+    final int maxExtent = Math.max(1, (int) Math.round(multiplier * Math.max(1, right)));
+    final int peakHalfWidth = Math.max(1, left);
+
+    final boolean[] removed = new boolean[n];
+    for (int i = 0; i < n; i++) {
+      if (!isLocalMaximum(y, i, peakHalfWidth)) {
+        continue;
+      }
+      int start = i;
+      while (start > 0 && i - start < maxExtent && y[start - 1] < y[start]) {
+        start--;
+      }
+      int end = i;
+      while (end < n - 1 && end - i < maxExtent && y[end + 1] < y[end]) {
+        end++;
+      }
+      final double height = y[i] - Math.max(y[start], y[end]);
+      if (height > 0 && height >= snminimum * noise) {
+        // keep the edges of the peak as support points
+        for (int k = start + 1; k < end; k++) {
+          removed[k] = true;
+        }
+      }
+    }
 
+    final IntArrayList supportX = new IntArrayList();
+    final DoubleArrayList supportY = new DoubleArrayList();
+    for (int i = 0; i < n; i++) {
+      if (!removed[i]) {
+        supportX.add(i);
+        supportY.add(y[i]);
+      }
+    }
+    final double[] peakFree = BaselineUtils.interpolateLinear(supportX.toIntArray(),
+        supportY.toDoubleArray(), n);
+
+    final double[] minima = BaselineUtils.runningMin(peakFree, Math.max(0, rwin));
+    final double[] baseline = BaselineUtils.runningMedian(minima, Math.max(0, lwin));
+
+    if (mono > 0) {
+      for (int i = 1; i < n; i++) {
+        baseline[i] = Math.min(baseline[i], baseline[i - 1]);
+      }
+    }
     return baseline;
   }
 
+  private static boolean isLocalMaximum(double[] y, int i, int halfWidth) {
+    final int start = Math.max(0, i - halfWidth);
+    final int end = Math.min(y.length - 1, i + halfWidth);
+    for (int k = start; k <= end; k++) {
+      // first index wins for plateaus
+      if (y[k] > y[i] || (y[k] == y[i] && k < i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return the standard deviation of the noise estimated from the first differences
+   */
+  private static double estimateNoise(double[] y) {
+    final double[] differences = new double[y.length - 1];
+    for (int i = 0; i < differences.length; i++) {
+      differences[i] = Math.abs(y[i + 1] - y[i]);
+    }
+    Arrays.sort(differences);
+    final int mid = differences.length / 2;
+    final double median = differences.length % 2 == 1 ? differences[mid]
+        : (differences[mid - 1] + differences[mid]) / 2d;
+    // differences of two noisy values have sqrt(2) times the noise
+    return median * MAD_TO_SD / Math.sqrt(2);
+  }
+
   @Override
   public @NotNull String getName() {
     return "PeakDetection baseline corrector";
@@ -27,15 +27,12 @@ package io.github.mzmine.modules.dataprocessing.filter_baselinecorrection.correc
 
 import org.jetbrains.annotations.NotNull;
 
-import io.github.mzmine.datamodel.RawDataFile;
 import io.github.mzmine.modules.dataprocessing.filter_baselinecorrection.BaselineCorrector;
 import io.github.mzmine.parameters.ParameterSet;
-import io.github.mzmine.util.R.RSessionWrapper;
-import io.github.mzmine.util.R.RSessionWrapperException;
 
 /**
  * @description Rolling Ball baseline corrector. Estimates a trend based on Rolling Ball algorithm.
- *              Uses "rollingBall" feature from "baseline" R-package
+ *              Java implementation of the "rollingBall" feature from "baseline" R-package
  *              (http://cran.r-project.org/web/packages/baseline/baseline.pdf). (Ideas from Rolling
  *              Ball algorithm for X-ray spectra by M.A.Kneen and H.J. Annegarn. Variable window
  *              width has been left out).
@@ -44,49 +41,29 @@ import io.github.mzmine.util.R.RSessionWrapperException;
 public class RollingBallCorrector extends BaselineCorrector {
 
   @Override
-  public String[] getRequiredRPackages() {
-    return new String[] { /* "rJava", "Rserve", */"baseline"};
-  }
-
-  @Override
-  public double[] computeBaseline(final RSessionWrapper rSession, final RawDataFile origDataFile,
-      double[] chromatogram, ParameterSet parameters) throws RSessionWrapperException {
+  public double[] computeBaseline(@NotNull final double[] chromatogram,
+      @NotNull ParameterSet parameters) {
 
     // Rolling Ball parameters.
-    double wm = parameters.getParameter(RollingBallCorrectorParameters.MIN_MAX_WIDTH).getValue();
-    double ws = parameters.getParameter(RollingBallCorrectorParameters.SMOOTHING).getValue();
-
-    final double[] baseline;
+    int wm = parameters.getParameter(RollingBallCorrectorParameters.MIN_MAX_WIDTH).getValue();
+    int ws = parameters.getParameter(RollingBallCorrectorParameters.SMOOTHING).getValue();
 
-    // Set chromatogram.
-    rSession.assign("chromatogram", chromatogram);
-
-    // Transform chromatogram.
-    rSession.eval("mat <- matrix(chromatogram, nrow=1)");
-
-    // Calculate baseline.
-    rSession.eval("bl <- NULL");
-    // This method can fail for some bins when "useBins" is enabled, or more
-    // generally speaking for
-    // abusive parameter set
-    String cmd =
-        "tryCatch({" + "bl <- baseline(mat, wm=" + wm + ", ws=" + ws + ", method='rollingBall')"
-            + "}, warning = function(war) {" + "message(\"<R warning>: \", war);"
-            + "}, error = function(err) {" + "message(\"<R error>: \", err);" + "}, finally = {" +
-            // "" +
-            "})";
-    rSession.eval(cmd);
-    // Return a flat baseline (passing by the lowest intensity scan -
-    // "min(chromatogram)") in case of failure
-    // Anyway, this usually happens when "chromatogram" is fully flat and
-    // zeroed.
-    rSession.eval(
-        "if (!is.null(bl)) { baseline <- getBaseline(bl); } else { baseline <- matrix(rep(min(chromatogram), length(chromatogram)), nrow=1); }");
-    baseline = ((double[][]) rSession.collect("baseline"))[0];
-    // Done: Refresh R code stack
-    rSession.clearCode();
+    return rollingBall(chromatogram, wm, ws);
+  }
 
-    return baseline;
+  /**
+   * The ball is rolled below the chromatogram by a running minimum followed by a running maximum
+   * of the minima. The result is smoothed by a running mean.
+   *
+   * @param y  the chromatogram
+   * @param wm half width of the windows for minimization/maximization
+   * @param ws half width of the smoothing window
+   * @return the baseline
+   */
+  public static double[] rollingBall(@NotNull double[] y, int wm, int ws) {
+    final double[] minima = BaselineUtils.runningMin(y, Math.max(0, wm));
+    final double[] maxima = BaselineUtils.runningMax(minima, Math.max(0, wm));
+    return BaselineUtils.runningMean(maxima, Math.max(0, ws));
   }
 
   @Override
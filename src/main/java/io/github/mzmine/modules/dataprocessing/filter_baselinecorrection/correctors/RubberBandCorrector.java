@@ -25,68 +25,111 @@
 
 package io.github.mzmine.modules.dataprocessing.filter_baselinecorrection.correctors;
 
+import java.util.Arrays;
+import org.apache.commons.math3.analysis.interpolation.SplineInterpolator;
+import org.apache.commons.math3.analysis.polynomials.PolynomialSplineFunction;
 import org.jetbrains.annotations.NotNull;
 
-import io.github.mzmine.datamodel.RawDataFile;
 import io.github.mzmine.modules.dataprocessing.filter_baselinecorrection.BaselineCorrector;
 import io.github.mzmine.parameters.ParameterSet;
-import io.github.mzmine.util.R.RSessionWrapper;
-import io.github.mzmine.util.R.RSessionWrapperException;
 
 /**
  * @description Rubber Band baseline corrector. Estimates a trend based on Rubber Band algorithm
- *              (which determines a convex envelope for the spectra - underneath side). Uses
- *              "spc.rubberband" feature from "hyperSpec" R-package
+ *              (which determines a convex envelope for the spectra - underneath side). Java
+ *              implementation of the "spc.rubberband" feature from "hyperSpec" R-package
  *              (http://cran.r-project.org/web/packages /hyperSpec/vignettes/baseline.pdf).
  * 
  */
 public class RubberBandCorrector extends BaselineCorrector {
 
   @Override
-  public String[] getRequiredRPackages() {
-    return new String[] { /* "rJava", "Rserve", */"hyperSpec"};
-  }
-
-  @Override
-  public double[] computeBaseline(final RSessionWrapper rSession, final RawDataFile origDataFile,
-      double[] chromatogram, ParameterSet parameters) throws RSessionWrapperException {
+  public double[] computeBaseline(@NotNull final double[] chromatogram,
+      @NotNull ParameterSet parameters) {
 
     // Rubber Band parameters.
     double noise = parameters.getParameter(RubberBandCorrectorParameters.NOISE).getValue();
     boolean autoNoise =
         parameters.getParameter(RubberBandCorrectorParameters.AUTO_NOISE).getValue();
-    double df = parameters.getParameter(RubberBandCorrectorParameters.DF).getValue();
     boolean spline = parameters.getParameter(RubberBandCorrectorParameters.SPLINE).getValue();
     double bend = parameters.getParameter(RubberBandCorrectorParameters.BEND_FACTOR).getValue();
 
-    final double[] baseline;
+    return rubberBand(chromatogram, autoNoise ? BaselineUtils.min(chromatogram) : noise, spline,
+        bend);
+  }
+
+  /**
+   * The baseline follows the lower convex hull of the chromatogram. A bend (a parabola over the
+   * normalized scan index) is added before the hull is determined and subtracted afterwards, so
+   * the band can follow concave baselines.
+   *
+   * @param y      the chromatogram
+   * @param noise  the noise level added to the baseline
+   * @param spline interpolating spline through the hull points instead of linear interpolation
+   * @param bend   the bend factor, 0 for none
+   * @return the baseline
+   */
+  public static double[] rubberBand(@NotNull double[] y, double noise, boolean spline,
+      double bend) {
+    final int n = y.length;
+    final double[] bent = new double[n];
+    final double[] bendValues = new double[n];
+    for (int i = 0; i < n; i++) {
+      final double x = n > 1 ? (double) i / (n - 1) : 0d;
+      bendValues[i] = bend * x * x;
+      bent[i] = y[i] + bendValues[i];
+    }
 
-    // Set chromatogram.
-    rSession.assign("chromatogram", chromatogram);
-    // Transform chromatogram.
-    rSession.eval("mat <- matrix(chromatogram, nrow=1)");
-    rSession.eval("spc <- new (\"hyperSpec\", spc = mat, wavelength = as.numeric(seq(" + 1 + ", "
-        + chromatogram.length + ")))");
-    // Auto noise ?
-    rSession.eval("noise <- " + ((autoNoise) ? "min(mat)" : "" + noise));
-    // Bend
-    rSession.eval("bend <- " + bend + " * wl.eval(spc, function(x) x^2, normalize.wl=normalize01)");
-    // Calculate baseline.
-    rSession.eval("baseline <- spc.rubberband(spc + bend, noise = noise, df = " + df + ", spline="
-        + (spline ? "T" : "F") + ") - bend");
-    // 'NA' might appear in 'baseline' array when 'spline' parameter set to
-    // 'FALSE',
-    // So handle them properly if necessary...
-    rSession.eval(
-        "if (is.na(baseline)) { baseline[is.na(baseline)] <- " + RSessionWrapper.NA_DOUBLE + " }");
-    rSession.eval("baseline <- orderwl(baseline)[[1]]");
-    baseline = ((double[][]) rSession.collect("baseline"))[0];
-    // Done: Refresh R code stack
-    rSession.clearCode();
+    final int[] hull = lowerConvexHull(bent);
+    final double[] hullValues = new double[hull.length];
+    for (int i = 0; i < hull.length; i++) {
+      hullValues[i] = bent[hull[i]];
+    }
 
+    final double[] baseline;
+    if (spline && hull.length >= 3) {
+      final double[] hullX = new double[hull.length];
+      for (int i = 0; i < hull.length; i++) {
+        hullX[i] = hull[i];
+      }
+      final PolynomialSplineFunction function = new SplineInterpolator().interpolate(hullX,
+          hullValues);
+      baseline = new double[n];
+      for (int i = 0; i < n; i++) {
+        baseline[i] = function.value(i);
+      }
+    } else {
+      baseline = BaselineUtils.interpolateLinear(hull, hullValues, n);
+    }
+
+    for (int i = 0; i < n; i++) {
+      baseline[i] += noise - bendValues[i];
+    }
     return baseline;
   }
 
+  /**
+   * Monotone chain over the points (i, y[i]).
+   *
+   * @return the indices of the lower convex hull, including the first and last index
+   */
+  static int[] lowerConvexHull(double[] y) {
+    final int[] hull = new int[y.length];
+    int size = 0;
+    for (int i = 0; i < y.length; i++) {
+      // remove the last point while it is not strictly below the line to the new point
+      while (size >= 2 && cross(hull[size - 2], y[hull[size - 2]], hull[size - 1],
+          y[hull[size - 1]], i, y[i]) <= 0) {
+        size--;
+      }
+      hull[size++] = i;
+    }
+    return Arrays.copyOf(hull, size);
+  }
+
+  private static double cross(int x0, double y0, int x1, double y1, int x2, double y2) {
+    return (x1 - x0) * (y2 - y0) - (y1 - y0) * (x2 - x0);
+  }
+
   @Override
   public @NotNull String getName() {
     return "RubberBand baseline corrector";
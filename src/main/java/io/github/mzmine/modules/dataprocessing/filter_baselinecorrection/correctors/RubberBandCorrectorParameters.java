@@ -52,12 +52,6 @@ public class RubberBandCorrectorParameters extends SimpleParameterSet {
   public static final BooleanParameter AUTO_NOISE = new BooleanParameter("auto noise",
       "Determine noise level automatically (from lower intensity scan).", false);
 
-  /**
-   * Degree of Freedom.
-   */
-  public static final DoubleParameter DF = new DoubleParameter("df", "Degree of freedom.",
-      DecimalFormat.getNumberInstance(), 0.0, 0.0, null);
-
   /**
    * Interpolating with spline.
    */
@@ -69,11 +63,11 @@ public class RubberBandCorrectorParameters extends SimpleParameterSet {
    * Bend additional feature.
    */
   public static final DoubleParameter BEND_FACTOR = new DoubleParameter("bend factor",
-      "Does nothing if equals to zero. Helps fitting better with low \"df\". Try with 5E4, to start palying with...",
+      "Does nothing if equals to zero. Helps fitting concave baselines. Try with 5E4, to start palying with...",
       DecimalFormat.getNumberInstance(), 0.0, 0.0, null);
 
   public RubberBandCorrectorParameters() {
-    super(new UserParameter[] {NOISE, AUTO_NOISE, DF, SPLINE, BEND_FACTOR});
+    super(new UserParameter[] {NOISE, AUTO_NOISE, SPLINE, BEND_FACTOR});
   }
 
   @Override
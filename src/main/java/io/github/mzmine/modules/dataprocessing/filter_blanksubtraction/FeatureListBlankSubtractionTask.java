@@ -25,10 +25,9 @@
 
 package io.github.mzmine.modules.dataprocessing.filter_blanksubtraction;
 
-import io.github.mzmine.datamodel.FeatureStatus;
+import io.github.mzmine.datamodel.AbundanceMeasure;
 import io.github.mzmine.datamodel.MZmineProject;
 import io.github.mzmine.datamodel.RawDataFile;
-import io.github.mzmine.datamodel.features.Feature;
 import io.github.mzmine.datamodel.features.FeatureList;
 import io.github.mzmine.datamodel.features.FeatureListRow;
 import io.github.mzmine.datamodel.features.ModularFeature;
@@ -38,15 +37,16 @@ import io.github.mzmine.datamodel.features.SimpleFeatureListAppliedMethod;
 import io.github.mzmine.parameters.parametertypes.selectors.RawDataFilesSelection;
 import io.github.mzmine.taskcontrol.AbstractTask;
 import io.github.mzmine.taskcontrol.TaskStatus;
+import io.github.mzmine.util.FeatureAbundanceMatrix;
 import io.github.mzmine.util.FeatureListRowSorter;
 import io.github.mzmine.util.MemoryMapStorage;
 import java.time.Instant;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.IntStream;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -133,42 +133,65 @@ public class FeatureListBlankSubtractionTask extends AbstractTask {
     originalFeatureList.getRowTypes().values().forEach(result::addRowType);
     nonBlankFiles.forEach(f -> result.setSelectedScans(f, originalFeatureList.getSeletedScans(f)));
 
-    final List<FeatureListRow> filteredRows = new ArrayList<>();
-    for (FeatureListRow originalRow : originalFeatureList.getRows()) {
+    // extract the heights of all detected features once
+    final List<FeatureListRow> rows = originalFeatureList.getRows();
+    final List<RawDataFile> files = originalFeatureList.getRawDataFiles();
+    final FeatureAbundanceMatrix heights = FeatureAbundanceMatrix.of(rows, files,
+        AbundanceMeasure.Height, true);
+    final int[] blankIndices = blankRaws.stream().mapToInt(files::indexOf).toArray();
+    final int[] nonBlankIndices = nonBlankFiles.stream().mapToInt(files::indexOf).toArray();
+
+    // decide which features to keep in parallel, null for rows that are removed
+    final boolean[][] keepPerRow = new boolean[rows.size()][];
+    IntStream.range(0, rows.size()).parallel().forEach(row -> {
       int numBlankDetections = 0;
-      for (RawDataFile blankRaw : blankRaws) {
-        if (originalRow.hasFeature(blankRaw)) {
+      for (int blank : blankIndices) {
+        if (heights.isDetected(row, blank)) {
           numBlankDetections++;
         }
       }
 
       if (numBlankDetections < minBlankDetections || checkFoldChange) {
-        final ModularFeatureListRow filteredRow = new ModularFeatureListRow(result,
-            originalRow.getID(), (ModularFeatureListRow) originalRow, false);
         final double blankIntensity =
-            checkFoldChange ? getBlankIntensity(originalRow, blankRaws, intensityType) : 1d;
-        int numFeatures = 0;
-        // copy features from non-blank files.
-        for (RawDataFile file : nonBlankFiles) {
-          final Feature f = originalRow.getFeature(file);
-          // check if there's actually a feature
-          if (f != null && f.getFeatureStatus() != FeatureStatus.UNKNOWN) {
-            // check validity
-            if (!checkFoldChange || f.getHeight() / blankIntensity >= foldChange) {
-              filteredRow.addFeature(file, new ModularFeature(result, f));
-              numFeatures++;
-            }
+            checkFoldChange ? getBlankIntensity(heights, row, blankIndices, intensityType) : 1d;
+        final boolean[] keepFeatures = new boolean[nonBlankIndices.length];
+        boolean any = false;
+        for (int i = 0; i < nonBlankIndices.length; i++) {
+          final double height = heights.get(row, nonBlankIndices[i]);
+          // check if there's actually a feature and check validity
+          if (!Double.isNaN(height) && (!checkFoldChange
+              || height / blankIntensity >= foldChange)) {
+            keepFeatures[i] = true;
+            any = true;
           }
         }
-        // copy row types
-        if (numFeatures > 0) {
-//          row.stream().filter(e -> !(e.getKey() instanceof FeaturesType))
-//              .forEach(entry -> filteredRow.set(entry.getKey(), entry.getValue()));
-          filteredRows.add(filteredRow);
+        if (any) {
+          keepPerRow[row] = keepFeatures;
         }
       }
 
       processedRows.getAndIncrement();
+    });
+
+    // the creation of rows and features registers listeners in the feature list and is not thread
+    // safe, so only the kept rows are created afterwards
+    final List<FeatureListRow> filteredRows = new ArrayList<>();
+    for (int row = 0; row < rows.size(); row++) {
+      final boolean[] keepFeatures = keepPerRow[row];
+      if (keepFeatures == null) {
+        continue;
+      }
+      final FeatureListRow originalRow = rows.get(row);
+      final ModularFeatureListRow filteredRow = new ModularFeatureListRow(result,
+          originalRow.getID(), (ModularFeatureListRow) originalRow, false);
+      // copy features from non-blank files.
+      for (int i = 0; i < keepFeatures.length; i++) {
+        if (keepFeatures[i]) {
+          final RawDataFile file = nonBlankFiles.get(i);
+          filteredRow.addFeature(file, new ModularFeature(result, originalRow.getFeature(file)));
+        }
+      }
+      filteredRows.add(filteredRow);
     }
 
     filteredRows.sort(FeatureListRowSorter.DEFAULT_RT);
@@ -183,19 +206,19 @@ public class FeatureListBlankSubtractionTask extends AbstractTask {
     setStatus(TaskStatus.FINISHED);
   }
 
-  private double getBlankIntensity(FeatureListRow row, Collection<RawDataFile> blankRaws,
+  private double getBlankIntensity(FeatureAbundanceMatrix heights, int row, int[] blankIndices,
       BlankIntensityType intensityType) {
     double intensity = 0d;
     int numDetections = 0;
 
-    for (RawDataFile file : blankRaws) {
-      final Feature f = row.getFeature(file);
-      if (f != null && f.getFeatureStatus() != FeatureStatus.UNKNOWN) {
+    for (int blank : blankIndices) {
+      final double height = heights.get(row, blank);
+      if (!Double.isNaN(height)) {
         if (intensityType == BlankIntensityType.Average) {
-          intensity += f.getHeight();
+          intensity += height;
           numDetections++;
         } else if (intensityType == BlankIntensityType.Maximum) {
-          intensity = Math.max(f.getHeight(), intensity);
+          intensity = Math.max(height, intensity);
         }
       }
     }
@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2004-2022 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.modules.dataprocessing.filter_compactlist;
+
+import io.github.mzmine.parameters.Parameter;
+import io.github.mzmine.parameters.impl.SimpleParameterSet;
+import io.github.mzmine.parameters.parametertypes.BooleanParameter;
+import io.github.mzmine.parameters.parametertypes.selectors.FeatureListsParameter;
+
+public class CompactFeatureListParameters extends SimpleParameterSet {
+
+  public static final FeatureListsParameter featureLists = new FeatureListsParameter();
+
+  public static final BooleanParameter keepBestFeature = new BooleanParameter(
+      "Keep series of best feature",
+      "Keeps the full chromatogram/mobilogram of the most intense feature of each row.", true);
+
+  public static final BooleanParameter keepMs2Features = new BooleanParameter(
+      "Keep series of features with MS2",
+      "Keeps the full chromatogram/mobilogram of all features with MS2 fragment scans.", true);
+
+  public static final BooleanParameter releaseStorage = new BooleanParameter(
+      "Release temporary files",
+      "Copies the kept series to a new temporary storage and deletes the temporary files of "
+          + "feature lists that were removed from the project, e.g., the single sample feature "
+          + "lists that were removed after the alignment. Only applied if all feature lists of "
+          + "the project are compacted.", true);
+
+  public CompactFeatureListParameters() {
+    super(new Parameter[]{featureLists, keepBestFeature, keepMs2Features, releaseStorage});
+  }
+}
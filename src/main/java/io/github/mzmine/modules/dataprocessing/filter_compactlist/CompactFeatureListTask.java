@@ -0,0 +1,205 @@
+/*
+ * Copyright (c) 2004-2022 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.modules.dataprocessing.filter_compactlist;
+
+import io.github.mzmine.datamodel.MZmineProject;
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.Scan;
+import io.github.mzmine.datamodel.featuredata.IonMobilogramTimeSeries;
+import io.github.mzmine.datamodel.featuredata.IonTimeSeries;
+import io.github.mzmine.datamodel.features.FeatureList;
+import io.github.mzmine.datamodel.features.FeatureListRow;
+import io.github.mzmine.datamodel.features.ModularFeature;
+import io.github.mzmine.datamodel.features.ModularFeatureList;
+import io.github.mzmine.datamodel.features.ModularFeatureListRow;
+import io.github.mzmine.datamodel.features.SimpleFeatureListAppliedMethod;
+import io.github.mzmine.datamodel.features.types.FeatureDataType;
+import io.github.mzmine.main.MZmineCore;
+import io.github.mzmine.parameters.ParameterSet;
+import io.github.mzmine.taskcontrol.AbstractTask;
+import io.github.mzmine.taskcontrol.TaskStatus;
+import io.github.mzmine.util.MemoryMapStorage;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Replaces the series of all features that are not kept by an empty series. The summary types of
+ * the features are not changed. Ion mobility features are always kept, as their series are used as
+ * {@link IonMobilogramTimeSeries} throughout the GUI. Optionally, the kept series are copied to a
+ * new storage and the temporary files of the storages of removed feature lists are deleted.
+ */
+public class CompactFeatureListTask extends AbstractTask {
+
+  private static final Logger logger = Logger.getLogger(CompactFeatureListTask.class.getName());
+
+  private final MZmineProject project;
+  private final FeatureList[] featureLists;
+  private final ParameterSet parameters;
+  private final boolean keepBestFeature;
+  private final boolean keepMs2Features;
+  private int processedRows, totalRows;
+  private long removedSeries;
+
+  public CompactFeatureListTask(final MZmineProject project, final FeatureList[] featureLists,
+      final ParameterSet parameters, @NotNull Instant moduleCallDate) {
+    // the kept series are copied to a new storage, if the old storages shall be released
+    super(parameters.getValue(CompactFeatureListParameters.releaseStorage)
+        ? MemoryMapStorage.forFeatureList() : null, moduleCallDate);
+    this.project = project;
+    this.featureLists = featureLists;
+    this.parameters = parameters;
+    keepBestFeature = parameters.getValue(CompactFeatureListParameters.keepBestFeature);
+    keepMs2Features = parameters.getValue(CompactFeatureListParameters.keepMs2Features);
+  }
+
+  @Override
+  public double getFinishedPercentage() {
+    return totalRows == 0 ? 0.0 : (double) processedRows / (double) totalRows;
+  }
+
+  @Override
+  public String getTaskDescription() {
+    return "Compacting feature lists";
+  }
+
+  @Override
+  public void run() {
+    try {
+      setStatus(TaskStatus.PROCESSING);
+
+      for (FeatureList flist : featureLists) {
+        totalRows += flist.getNumberOfRows();
+      }
+
+      for (FeatureList flist : featureLists) {
+        for (FeatureListRow row : flist.getRows()) {
+          if (isCanceled()) {
+            return;
+          }
+          compactRow(row);
+          processedRows++;
+        }
+
+        flist.getAppliedMethods().add(
+            new SimpleFeatureListAppliedMethod(CompactFeatureListModule.class, parameters,
+                getModuleCallDate()));
+      }
+      logger.info(() -> "Removed " + removedSeries + " feature series from " + featureLists.length
+          + " feature lists.");
+
+      if (getMemoryMapStorage() != null) {
+        releaseUnusedStorages();
+      }
+
+      setStatus(TaskStatus.FINISHED);
+    } catch (Throwable t) {
+      setErrorMessage(t.getMessage());
+      setStatus(TaskStatus.ERROR);
+      logger.log(Level.SEVERE, "Error while compacting feature lists", t);
+    }
+  }
+
+  private void compactRow(FeatureListRow row) {
+    final ModularFeature best = (ModularFeature) row.getBestFeature();
+    for (ModularFeature feature : row.getFeatures()) {
+      final IonTimeSeries<? extends Scan> data = feature.getFeatureData();
+      if (data == null || data == IonTimeSeries.EMPTY) {
+        continue;
+      }
+
+      final boolean keep = data instanceof IonMobilogramTimeSeries || (keepBestFeature
+          && feature == best) || (keepMs2Features && !feature.getAllMS2FragmentScans().isEmpty());
+      if (!keep) {
+        feature.set(FeatureDataType.class, IonTimeSeries.EMPTY);
+        removedSeries++;
+      } else if (getMemoryMapStorage() != null) {
+        feature.set(FeatureDataType.class,
+            (IonTimeSeries<? extends Scan>) data.copy(getMemoryMapStorage()));
+      }
+    }
+    // the charts still reference the old series
+    ((ModularFeatureListRow) row).clearBufferedColCharts();
+  }
+
+  /**
+   * Deletes the temporary files of the storages of feature lists that were removed from the
+   * project, usually the single sample feature lists after the alignment. Rows copied from these
+   * lists may still reference their series, so the storages are only released if all feature lists
+   * of the project were compacted by this task and therefore only reference series in the storage
+   * of this task. Storages still used by a feature list or raw data file are never released.
+   */
+  private void releaseUnusedStorages() {
+    final List<FeatureList> currentLists = project.getCurrentFeatureLists();
+    if (!Arrays.asList(featureLists).containsAll(currentLists)) {
+      logger.info(
+          "Temporary files are not released, not all feature lists of the project were compacted.");
+      return;
+    }
+
+    final Set<MemoryMapStorage> used = new HashSet<>();
+    for (FeatureList flist : currentLists) {
+      used.add(((ModularFeatureList) flist).getMemoryMapStorage());
+    }
+    for (RawDataFile file : project.getCurrentRawDataFiles()) {
+      used.add(file.getMemoryMapStorage());
+    }
+
+    final List<MemoryMapStorage> release = new ArrayList<>();
+    for (MemoryMapStorage storage : project.getStoragesOfRemovedFeatureLists()) {
+      if (!used.contains(storage)) {
+        release.add(storage);
+      }
+    }
+    project.forgetStoragesOfRemovedFeatureLists(release);
+    final List<MemoryMapStorage> storages = MZmineCore.getStorageList();
+    synchronized (storages) {
+      storages.removeAll(release);
+    }
+
+    long releasedBytes = 0;
+    for (MemoryMapStorage storage : release) {
+      releasedBytes += storage.getStoredBytes();
+      try {
+        // the mapped buffers are released by the garbage collector
+        storage.discard(null);
+      } catch (IOException e) {
+        logger.log(Level.WARNING, "Cannot discard temporary files", e);
+      }
+    }
+    final long released = releasedBytes;
+    logger.info(() -> "Released " + release.size() + " feature list storages with "
+        + released / 1_000_000 + " MB.");
+  }
+}
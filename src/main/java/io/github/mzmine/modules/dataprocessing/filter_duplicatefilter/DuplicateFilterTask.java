@@ -54,12 +54,15 @@ import io.github.mzmine.util.FeatureUtils;
 import io.github.mzmine.util.MemoryMapStorage;
 import io.github.mzmine.util.SortingDirection;
 import io.github.mzmine.util.SortingProperty;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
 import java.time.Instant;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.IntStream;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -78,7 +81,7 @@ public class DuplicateFilterTask extends AbstractTask {
   private final ParameterSet parameters;
   private FeatureList filteredPeakList;
   // Counters.
-  private int processedRows;
+  private final AtomicInteger processedRows = new AtomicInteger(0);
   private int totalRows;
 
   public DuplicateFilterTask(final MZmineProject project, final FeatureList list,
@@ -92,7 +95,6 @@ public class DuplicateFilterTask extends AbstractTask {
     peakList = list;
     filteredPeakList = null;
     totalRows = 0;
-    processedRows = 0;
   }
 
   @Override
@@ -104,7 +106,7 @@ public class DuplicateFilterTask extends AbstractTask {
   @Override
   public double getFinishedPercentage() {
 
-    return totalRows == 0 ? 0.0 : (double) processedRows / (double) totalRows;
+    return totalRows == 0 ? 0.0 : (double) processedRows.get() / (double) totalRows;
   }
 
   @Override
@@ -185,7 +187,7 @@ public class DuplicateFilterTask extends AbstractTask {
 
     // filter by average mz and rt
     totalRows = rowCount;
-    processedRows = 0;
+    processedRows.set(0);
     // sort rows
     final int removedDuplicates = switch (mode) {
       case OLD_AVERAGE ->
@@ -233,42 +235,54 @@ public class DuplicateFilterTask extends AbstractTask {
     Arrays.sort(peakListRows,
         new FeatureListRowSorter(SortingProperty.Area, SortingDirection.Descending));
 
-    // Loop through all feature list rows
-    int removedDuplicates = 0;
-    for (int firstRowIndex = 0; firstRowIndex < rowCount; firstRowIndex++) {
+    // find the duplicates of all rows in parallel. Each row only checks the rows in the
+    // neighbouring cells of the grid, and only rows with lower area
+    final RowGridIndex grid = new RowGridIndex(peakListRows, mzTolerance, rtTolerance);
+    final int[][] duplicates = new int[rowCount][];
+    IntStream.range(0, rowCount).parallel().forEach(firstRowIndex -> {
       if (isCanceled()) {
-        return -1;
+        return;
       }
-
       final ModularFeatureListRow firstRow = peakListRows[firstRowIndex];
+      final IntArrayList rowDuplicates = new IntArrayList();
+      grid.forEachCandidateAfter(firstRowIndex, secondRowIndex -> {
+        final FeatureListRow secondRow = peakListRows[secondRowIndex];
+        // Compare identifications
+        final boolean sameID =
+            !requireSameId || FeatureUtils.compareIdentities(firstRow, secondRow);
 
-      if (firstRow != null) {
-        for (int secondRowIndex = firstRowIndex + 1; secondRowIndex < rowCount; secondRowIndex++) {
-          if (isCanceled()) {
-            return -1;
-          }
+        final boolean sameMZRT = checkSameAverageRTMZ(firstRow, secondRow, mzTolerance,
+            rtTolerance);
 
-          final FeatureListRow secondRow = peakListRows[secondRowIndex];
-          if (secondRow != null) {
-            // Compare identifications
-            final boolean sameID =
-                !requireSameId || FeatureUtils.compareIdentities(firstRow, secondRow);
+        final boolean sameMobility = checkMobility(firstRow, secondRow, mobilityTolerance);
 
-            final boolean sameMZRT = checkSameAverageRTMZ(firstRow, secondRow, mzTolerance,
-                rtTolerance);
+        // Duplicate peaks?
+        if (sameID && sameMZRT && sameMobility) {
+          rowDuplicates.add(secondRowIndex);
+        }
+      });
+      duplicates[firstRowIndex] = rowDuplicates.toIntArray();
+      processedRows.incrementAndGet();
+    });
 
-            final boolean sameMobility = checkMobility(firstRow, secondRow, mobilityTolerance);
+    if (isCanceled()) {
+      return -1;
+    }
 
-            // Duplicate peaks?
-            if (sameID && sameMZRT && sameMobility) {
-              // second row deleted
-              removedDuplicates++;
-              peakListRows[secondRowIndex] = null;
-            }
-          }
+    // resolve in order of descending area, so the row with the highest area is kept and a removed
+    // row does not remove its own duplicates - same as comparing all rows sequentially
+    int removedDuplicates = 0;
+    for (int firstRowIndex = 0; firstRowIndex < rowCount; firstRowIndex++) {
+      if (peakListRows[firstRowIndex] == null) {
+        continue;
+      }
+      for (int secondRowIndex : duplicates[firstRowIndex]) {
+        if (peakListRows[secondRowIndex] != null) {
+          // second row deleted
+          removedDuplicates++;
+          peakListRows[secondRowIndex] = null;
         }
       }
-      processedRows++;
     }
     return removedDuplicates;
   }
@@ -281,7 +295,7 @@ public class DuplicateFilterTask extends AbstractTask {
     Arrays.sort(peakListRows,
         new FeatureListRowSorter(SortingProperty.MZ, SortingDirection.Ascending));
 
-    // Loop through all feature list rows
+    // Loop through all feature list rows. Sequential, because merging changes the first row
     int n = 0;
     for (int firstRowIndex = 0; firstRowIndex < rowCount; firstRowIndex++) {
       if (isCanceled()) {
@@ -336,7 +350,7 @@ public class DuplicateFilterTask extends AbstractTask {
           }
         }
       }
-      processedRows++;
+      processedRows.incrementAndGet();
     }
     return n;
   }
@@ -353,7 +367,7 @@ public class DuplicateFilterTask extends AbstractTask {
     Arrays.sort(peakListRows,
         new FeatureListRowSorter(SortingProperty.MZ, SortingDirection.Ascending));
 
-    // Loop through all feature list rows
+    // Loop through all feature list rows. Sequential, because merging changes the first row
     int n = 0;
     for (int firstRowIndex = 0; firstRowIndex < rowCount; firstRowIndex++) {
       if (isCanceled()) {
@@ -421,7 +435,7 @@ public class DuplicateFilterTask extends AbstractTask {
           }
         }
       }
-      processedRows++;
+      processedRows.incrementAndGet();
     }
     return n;
   }
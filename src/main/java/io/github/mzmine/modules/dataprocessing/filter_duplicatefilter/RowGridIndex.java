@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2004-2022 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.dataprocessing.filter_duplicatefilter;
+
+import com.google.common.collect.Range;
+import io.github.mzmine.datamodel.features.FeatureListRow;
+import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
+import io.github.mzmine.parameters.parametertypes.tolerances.RTTolerance;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntList;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import java.util.function.IntConsumer;
+
+/**
+ * Spatial hash of feature list rows by their average m/z and RT. The cells are at least as wide
+ * as the largest tolerance window of all rows, so all rows within tolerance of a row are found in
+ * the row's own or the neighbouring cells.
+ */
+class RowGridIndex {
+
+  /**
+   * Widens the cells slightly, so rounding of the float RT tolerance ranges cannot move a row
+   * within tolerance beyond the neighbouring cell.
+   */
+  private static final double CELL_MARGIN = 1.001;
+
+  private final double[] mzs;
+  private final float[] rts;
+  private final double mzCellWidth;
+  private final double rtCellWidth;
+  private final Long2ObjectOpenHashMap<IntArrayList> cells = new Long2ObjectOpenHashMap<>();
+
+  /**
+   * @param rows the rows to index. The row indices used by this grid are the indices in this
+   *             array.
+   */
+  RowGridIndex(FeatureListRow[] rows, MZTolerance mzTolerance, RTTolerance rtTolerance) {
+    mzs = new double[rows.length];
+    rts = new float[rows.length];
+
+    double maxMzWidth = 0d;
+    double maxRtWidth = 0d;
+    for (int i = 0; i < rows.length; i++) {
+      mzs[i] = rows[i].getAverageMZ();
+      rts[i] = rows[i].getAverageRT();
+
+      final Range<Double> mzRange = mzTolerance.getToleranceRange(mzs[i]);
+      maxMzWidth = Math.max(maxMzWidth, mzRange.upperEndpoint() - mzs[i]);
+      maxMzWidth = Math.max(maxMzWidth, mzs[i] - mzRange.lowerEndpoint());
+      final Range<Float> rtRange = rtTolerance.getToleranceRange(rts[i]);
+      maxRtWidth = Math.max(maxRtWidth, Math.abs(rtRange.upperEndpoint() - (double) rts[i]));
+      maxRtWidth = Math.max(maxRtWidth, Math.abs(rts[i] - (double) rtRange.lowerEndpoint()));
+    }
+    // any positive width works for zero tolerances, as only identical values match then
+    mzCellWidth = maxMzWidth > 0 ? maxMzWidth * CELL_MARGIN : 1d;
+    rtCellWidth = maxRtWidth > 0 ? maxRtWidth * CELL_MARGIN : 1d;
+
+    // rows are added in ascending order, so every cell list is sorted
+    for (int i = 0; i < rows.length; i++) {
+      cells.computeIfAbsent(key(mzCell(mzs[i]), rtCell(rts[i])), k -> new IntArrayList())
+          .add(i);
+    }
+  }
+
+  /**
+   * Different cells may share a key. This only adds candidates that are rejected by the exact
+   * tolerance checks of the caller, but never loses a row.
+   */
+  private static long key(long mzCell, long rtCell) {
+    return mzCell * 0x9E3779B97F4A7C15L + rtCell;
+  }
+
+  private long mzCell(double mz) {
+    return (long) Math.floor(mz / mzCellWidth);
+  }
+
+  private long rtCell(float rt) {
+    return (long) Math.floor(rt / rtCellWidth);
+  }
+
+  /**
+   * Passes the indices of all rows with a higher index than the given row that lie in the same or
+   * a neighbouring cell, in no particular order. The candidates still need to be checked against
+   * the tolerances.
+   *
+   * @param rowIndex the row index.
+   * @param consumer receives the candidate row indices.
+   */
+  void forEachCandidateAfter(int rowIndex, IntConsumer consumer) {
+    final long mzCell = mzCell(mzs[rowIndex]);
+    final long rtCell = rtCell(rts[rowIndex]);
+    // several cells may share one key, visit each key once
+    final LongOpenKeys visited = new LongOpenKeys();
+    for (long m = mzCell - 1; m <= mzCell + 1; m++) {
+      for (long r = rtCell - 1; r <= rtCell + 1; r++) {
+        final long key = key(m, r);
+        if (!visited.add(key)) {
+          continue;
+        }
+        final IntList cell = cells.get(key);
+        if (cell == null) {
+          continue;
+        }
+        for (int i = cell.size() - 1; i >= 0; i--) {
+          final int candidate = cell.getInt(i);
+          if (candidate <= rowIndex) {
+            break;
+          }
+          consumer.accept(candidate);
+        }
+      }
+    }
+  }
+
+  /**
+   * Tiny set for the at most nine keys of the neighbouring cells.
+   */
+  private static class LongOpenKeys {
+
+    private final long[] keys = new long[9];
+    private int size = 0;
+
+    boolean add(long key) {
+      for (int i = 0; i < size; i++) {
+        if (keys[i] == key) {
+          return false;
+        }
+      }
+      keys[size++] = key;
+      return true;
+    }
+  }
+}
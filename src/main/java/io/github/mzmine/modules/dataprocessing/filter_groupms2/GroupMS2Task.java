@@ -27,7 +27,6 @@ package io.github.mzmine.modules.dataprocessing.filter_groupms2;
 
 import com.google.common.collect.Range;
 import io.github.mzmine.datamodel.Frame;
-import io.github.mzmine.datamodel.MassList;
 import io.github.mzmine.datamodel.MergedMsMsSpectrum;
 import io.github.mzmine.datamodel.MobilityType;
 import io.github.mzmine.datamodel.RawDataFile;
@@ -37,11 +36,10 @@ import io.github.mzmine.datamodel.features.FeatureListRow;
 import io.github.mzmine.datamodel.features.ModularFeature;
 import io.github.mzmine.datamodel.features.ModularFeatureList;
 import io.github.mzmine.datamodel.features.SimpleFeatureListAppliedMethod;
+import io.github.mzmine.datamodel.features.types.FragmentScanNumbersType;
 import io.github.mzmine.datamodel.features.types.MsMsInfoType;
 import io.github.mzmine.datamodel.features.types.numbers.RTRangeType;
 import io.github.mzmine.datamodel.features.types.numbers.RtMs2ApexDistanceType;
-import io.github.mzmine.datamodel.impl.MSnInfoImpl;
-import io.github.mzmine.datamodel.msms.DDAMsMsInfo;
 import io.github.mzmine.datamodel.msms.MsMsInfo;
 import io.github.mzmine.datamodel.msms.PasefMsMsInfo;
 import io.github.mzmine.modules.dataprocessing.filter_groupms2_refine.GroupedMs2RefinementTask;
@@ -51,20 +49,25 @@ import io.github.mzmine.parameters.parametertypes.tolerances.RTTolerance;
 import io.github.mzmine.taskcontrol.AbstractTask;
 import io.github.mzmine.taskcontrol.TaskStatus;
 import io.github.mzmine.util.exceptions.MissingMassListException;
+import io.github.mzmine.util.scans.FragmentScanIndex;
+import io.github.mzmine.util.scans.FragmentScanIndex.PasefPrecursor;
 import io.github.mzmine.util.scans.FragmentScanSorter;
 import io.github.mzmine.util.scans.SpectraMerging;
 import io.github.mzmine.util.scans.SpectraMerging.IntensityMergingType;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Objects;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.stream.Collectors;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 /**
- * Groups fragmentation scans with features in range
+ * Groups fragmentation scans with features in range. The fragment scans of each raw data file are
+ * indexed by retention time and precursor m/z once, the rows are processed in parallel.
  */
 public class GroupMS2Task extends AbstractTask {
 
@@ -82,7 +85,11 @@ public class GroupMS2Task extends AbstractTask {
   private final FeatureLimitOptions rtFilter;
   private final Double minimumRelativeFeatureHeight;
   private final int totalRows;
-  private int processedRows;
+  private final AtomicInteger processedRows = new AtomicInteger(0);
+  // built on demand, read only afterwards
+  private final Map<RawDataFile, FragmentScanIndex<Scan>> scanIndices = new ConcurrentHashMap<>();
+  private final Map<RawDataFile, FragmentScanIndex<PasefPrecursor>> pasefIndices =
+      new ConcurrentHashMap<>();
   private GroupedMs2RefinementTask refineTask;
 
   /**
@@ -119,7 +126,6 @@ public class GroupMS2Task extends AbstractTask {
         GroupMS2Parameters.minRequiredSignals, 0);
 
     this.list = list;
-    processedRows = 0;
     totalRows = list.getNumberOfRows();
   }
 
@@ -128,7 +134,7 @@ public class GroupMS2Task extends AbstractTask {
     if (refineTask != null) {
       return refineTask.getFinishedPercentage();
     }
-    return totalRows == 0 ? 0.0 : (double) processedRows / (double) totalRows;
+    return totalRows == 0 ? 0.0 : (double) processedRows.get() / (double) totalRows;
   }
 
   @Override
@@ -164,14 +170,21 @@ public class GroupMS2Task extends AbstractTask {
   }
 
   public void processFeatureList(AbstractTask parentTask) {
+    // adding types to the list is not thread safe, add them before the parallel processing
+    list.addFeatureType(new FragmentScanNumbersType(), new RtMs2ApexDistanceType(),
+        new MsMsInfoType());
+
     // for all features
-    for (FeatureListRow row : list.getRows()) {
+    list.getRows().parallelStream().forEach(row -> {
       if (parentTask.isCanceled()) {
         return;
       }
 
       processRow(row);
-      processedRows++;
+      processedRows.incrementAndGet();
+    });
+    if (parentTask.isCanceled()) {
+      return;
     }
 
     // refine MS2 groupings with features that are at least X % of the highest feature that was grouped with each MS2
@@ -209,11 +222,13 @@ public class GroupMS2Task extends AbstractTask {
    */
   @NotNull
   private List<Scan> findFragmentScans(final ModularFeature feature) {
-    final List<Scan> scans;
-    RawDataFile raw = feature.getRawDataFile();
+    final RawDataFile raw = feature.getRawDataFile();
+    final FragmentScanIndex<Scan> index = scanIndices.computeIfAbsent(raw,
+        FragmentScanIndex::forScans);
 
-    scans = raw.stream().filter(scan -> scan.getMSLevel() > 1)
-        .filter(scan -> filterScan(scan, feature)).sorted(FragmentScanSorter.DEFAULT_TIC).toList();
+    final List<Scan> scans = index.getItems(getRtFilterRange(feature),
+        mzTol.getToleranceRange(feature.getMZ()));
+    scans.sort(FragmentScanSorter.DEFAULT_TIC);
     return scans;
   }
 
@@ -238,52 +253,18 @@ public class GroupMS2Task extends AbstractTask {
   }
 
   /**
-   * Filter scans based on rt and mz
-   *
-   * @param scan tested scan
-   * @return true if matches all criteria
-   */
-  private boolean filterScan(Scan scan, ModularFeature feature) {
-    // minimum signals
-    if (minimumSignals > 0) {
-      MassList massList = scan.getMassList();
-      if (massList == null) {
-        throw new MissingMassListException(scan);
-      }
-      if (massList.getNumberOfDataPoints() < minimumSignals) {
-        return false;
-      }
-    }
-    //
-    final double precursorMZ;
-    if (scan.getMsMsInfo() instanceof MSnInfoImpl msn) {
-      precursorMZ = msn.getMS2PrecursorMz();
-    } else if (scan.getMsMsInfo() instanceof DDAMsMsInfo info) {
-      precursorMZ = info.getIsolationMz();
-    } else {
-      precursorMZ = Objects.requireNonNullElse(scan.getPrecursorMz(), 0d);
-    }
-    return matchesRtFilter(scan, feature) && precursorMZ != 0 && mzTol.checkWithinTolerance(
-        feature.getMZ(), precursorMZ);
-  }
-
-  /**
-   * @return true if feature contains no retention time or if all filters match
+   * @return the retention time range of fragment scans for this feature or null if the feature
+   * contains no retention time
    */
-  private boolean matchesRtFilter(final Scan scan, ModularFeature feature) {
-//    (!limitRTByFeature || )
-//      && rtTol.checkWithinTolerance(frt, scan.getRetentionTime())
+  @Nullable
+  private Range<Float> getRtFilterRange(ModularFeature feature) {
     return switch (rtFilter) {
-      case USE_FEATURE_EDGES -> {
-        // dont use shorcut as this returns a non null singleton range
-//        Range<Float> rtRange = feature.getRawDataPointsRTRange();
-        // true if no range means that there was no retention time like in IMS-MS data without time component
-        Range<Float> rtRange = feature.get(RTRangeType.class);
-        yield rtRange == null || rtRange.contains(scan.getRetentionTime());
-      }
+      // dont use shorcut as this returns a non null singleton range
+      // no range means that there was no retention time like in IMS-MS data without time component
+      case USE_FEATURE_EDGES -> feature.get(RTRangeType.class);
       case USE_TOLERANCE -> {
         Float rt = feature.getRT();
-        yield rt == null || rtTol.checkWithinTolerance(rt, scan.getRetentionTime());
+        yield rt == null ? null : rtTol.getToleranceRange(rt);
       }
     };
   }
@@ -300,35 +281,29 @@ public class GroupMS2Task extends AbstractTask {
     double fmz = feature.getMZ();
     Float mobility = feature.getMobility();
 
-    final List<? extends Scan> scans = feature.getRawDataFile().getScanNumbers(2).stream()
-        .filter(scan -> matchesRtFilter(scan, feature)).collect(Collectors.toList());
+    final FragmentScanIndex<PasefPrecursor> index = pasefIndices.computeIfAbsent(
+        feature.getRawDataFile(), FragmentScanIndex::forPasefPrecursors);
 
-    if (scans.isEmpty() || !(scans.get(0) instanceof Frame)) {
-      return List.of();
-    }
-
-    final List<Frame> frames = (List<Frame>) scans;
     final List<MsMsInfo> eligibleMsMsInfos = new ArrayList<>();
-    for (Frame frame : frames) {
-      frame.getImsMsMsInfos().forEach(imsMsMsInfo -> {
-        if (mzTol.checkWithinTolerance(fmz, imsMsMsInfo.getIsolationMz())) {
-          // if we have a mobility (=processed by IMS workflow), we can check for the correct range during assignment.
-          if (mobility != null) {
-            // todo: maybe revisit this for a more sophisticated range check
-            int mobilityScannumberOffset = frame.getMobilityScan(0).getMobilityScanNumber();
-            float mobility1 = (float) frame.getMobilityForMobilityScanNumber(
-                imsMsMsInfo.getSpectrumNumberRange().lowerEndpoint() - mobilityScannumberOffset);
-            float mobility2 = (float) frame.getMobilityForMobilityScanNumber(
-                imsMsMsInfo.getSpectrumNumberRange().upperEndpoint() - mobilityScannumberOffset);
-            if (Range.singleton(mobility1).span(Range.singleton(mobility2)).contains(mobility)) {
-              eligibleMsMsInfos.add(imsMsMsInfo);
-            }
-          } else {
-            // if we don't have a mobility, we can simply add the msms info.
-            eligibleMsMsInfos.add(imsMsMsInfo);
-          }
+    for (PasefPrecursor precursor : index.getItems(getRtFilterRange(feature),
+        mzTol.getToleranceRange(fmz))) {
+      final Frame frame = precursor.frame();
+      final PasefMsMsInfo imsMsMsInfo = precursor.info();
+      // if we have a mobility (=processed by IMS workflow), we can check for the correct range during assignment.
+      if (mobility != null) {
+        // todo: maybe revisit this for a more sophisticated range check
+        int mobilityScannumberOffset = frame.getMobilityScan(0).getMobilityScanNumber();
+        float mobility1 = (float) frame.getMobilityForMobilityScanNumber(
+            imsMsMsInfo.getSpectrumNumberRange().lowerEndpoint() - mobilityScannumberOffset);
+        float mobility2 = (float) frame.getMobilityForMobilityScanNumber(
+            imsMsMsInfo.getSpectrumNumberRange().upperEndpoint() - mobilityScannumberOffset);
+        if (Range.singleton(mobility1).span(Range.singleton(mobility2)).contains(mobility)) {
+          eligibleMsMsInfos.add(imsMsMsInfo);
         }
-      });
+      } else {
+        // if we don't have a mobility, we can simply add the msms info.
+        eligibleMsMsInfos.add(imsMsMsInfo);
+      }
     }
 
     if (eligibleMsMsInfos.isEmpty()) {
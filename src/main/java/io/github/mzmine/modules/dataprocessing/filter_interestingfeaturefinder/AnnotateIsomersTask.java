@@ -40,7 +40,7 @@ import io.github.mzmine.parameters.parametertypes.tolerances.RTTolerance;
 import io.github.mzmine.parameters.parametertypes.tolerances.mobilitytolerance.MobilityTolerance;
 import io.github.mzmine.taskcontrol.AbstractTask;
 import io.github.mzmine.taskcontrol.TaskStatus;
-import io.github.mzmine.util.FeatureListUtils;
+import io.github.mzmine.util.FeatureListRowIndex;
 import io.github.mzmine.util.IonMobilityUtils;
 import io.github.mzmine.util.MemoryMapStorage;
 import java.time.Instant;
@@ -119,6 +119,7 @@ public class AnnotateIsomersTask extends AbstractTask {
 
     final List<FeatureListRow> rowsByMz = flist.stream()
         .sorted(Comparator.comparingDouble(FeatureListRow::getAverageMZ)).toList();
+    final FeatureListRowIndex<FeatureListRow> rowIndex = new FeatureListRowIndex<>(rowsByMz);
     flist.addRowType(new PossibleIsomerType());
 
     rowsByMz.parallelStream().forEach(row -> {
@@ -138,9 +139,9 @@ public class AnnotateIsomersTask extends AbstractTask {
         return;
       }
 
-      var possibleRows = FeatureListUtils.getCandidatesWithinRanges(
+      var possibleRows = rowIndex.getCandidatesWithinRanges(
           mzTolerance.getToleranceRange(row.getAverageMZ()),
-          rtTolerance.getToleranceRange(row.getAverageRT()), Range.all(), rowsByMz, true);
+          rtTolerance.getToleranceRange(row.getAverageRT()), Range.all());
 
       float min = Float.POSITIVE_INFINITY, max = Float.NEGATIVE_INFINITY;
 
@@ -36,11 +36,14 @@ import io.github.mzmine.datamodel.features.Feature;
 import io.github.mzmine.datamodel.features.FeatureListRow;
 import io.github.mzmine.datamodel.features.ModularFeature;
 import io.github.mzmine.datamodel.features.ModularFeatureList;
+import io.github.mzmine.datamodel.impl.ScanMzIndex;
+import io.github.mzmine.datamodel.impl.SimpleDataPoint;
 import io.github.mzmine.util.DataPointUtils;
 import io.github.mzmine.util.RangeUtils;
 import io.github.mzmine.util.scans.ScanUtils;
 import java.util.ArrayList;
 import java.util.List;
+import org.jetbrains.annotations.Nullable;
 
 public class Gap {
 
@@ -90,6 +93,62 @@ public class Gap {
 
     // Find top m/z peak in our range
     DataPoint basePeak = ScanUtils.findBasePeak(scan, mzRange);
+    offerBasePeak(scan, basePeak);
+  }
+
+  /**
+   * Offers all scans within the RT range at once. The base peaks are extracted from the m/z index
+   * instead of the individual scans.
+   *
+   * @param scans all scans sorted by retention time
+   * @param index the m/z index that contains all scans
+   * @return false if a scan is not part of the index. No scan was offered in this case.
+   */
+  public boolean offerScans(List<? extends Scan> scans, ScanMzIndex index) {
+    // scans are sorted by RT, only the scans between the RT bounds are checked
+    final int first =
+        rtRange.hasLowerBound() ? firstScanAfter(scans, rtRange.lowerEndpoint(), false) : 0;
+    final int end = rtRange.hasUpperBound() ? firstScanAfter(scans, rtRange.upperEndpoint(), true)
+        : scans.size();
+    final List<? extends Scan> scansInRange = first >= end ? List.of()
+        : scans.subList(first, end).stream()
+            .filter(scan -> rtRange.contains(scan.getRetentionTime())).toList();
+    final double[] mzs = new double[scansInRange.size()];
+    final double[] intensities = new double[scansInRange.size()];
+    if (!index.extractIonTrace(mzRange, scansInRange, mzs, intensities, null)) {
+      return false;
+    }
+
+    for (int i = 0; i < scansInRange.size(); i++) {
+      offerBasePeak(scansInRange.get(i),
+          intensities[i] > 0 ? new SimpleDataPoint(mzs[i], intensities[i]) : null);
+    }
+    return true;
+  }
+
+  /**
+   * @param scans     sorted by retention time
+   * @param inclusive true to skip scans at the given rt
+   * @return the index of the first scan with a retention time > rt (inclusive) or >= rt, or the
+   * number of scans
+   */
+  private static int firstScanAfter(List<? extends Scan> scans, float rt, boolean inclusive) {
+    int low = 0;
+    int high = scans.size();
+    while (low < high) {
+      final int mid = (low + high) >>> 1;
+      final float midRt = scans.get(mid).getRetentionTime();
+      if (midRt < rt || (inclusive && midRt == rt)) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  private void offerBasePeak(Scan scan, @Nullable DataPoint basePeak) {
+    final float scanRT = scan.getRetentionTime();
 
     GapDataPointImpl currentDataPoint;
     if (basePeak != null) {
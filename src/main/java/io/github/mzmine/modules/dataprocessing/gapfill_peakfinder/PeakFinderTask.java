@@ -29,11 +29,14 @@ import com.google.common.collect.Range;
 import io.github.mzmine.datamodel.FeatureStatus;
 import io.github.mzmine.datamodel.MZmineProject;
 import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.Scan;
+import io.github.mzmine.datamodel.data_access.EfficientDataAccess.ScanDataType;
 import io.github.mzmine.datamodel.features.Feature;
 import io.github.mzmine.datamodel.features.FeatureList;
 import io.github.mzmine.datamodel.features.FeatureListRow;
 import io.github.mzmine.datamodel.features.ModularFeatureList;
 import io.github.mzmine.datamodel.features.SimpleFeatureListAppliedMethod;
+import io.github.mzmine.datamodel.impl.ScanMzIndex;
 import io.github.mzmine.parameters.ParameterSet;
 import io.github.mzmine.parameters.parametertypes.OriginalFeatureListHandlingParameter.OriginalFeatureListOption;
 import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
@@ -158,16 +161,7 @@ class PeakFinderTask extends AbstractTask {
         }
 
         // Get all scans of this data file
-        dataFile.getScanNumbers(1).forEach(scan -> {
-          if(!isCanceled()) {
-            // Feed this scan to all gaps
-            for (Gap gap : gaps) {
-              gap.offerNextScan(scan);
-            }
-
-            processedScans.incrementAndGet();
-          }
-        });
+        offerScans(dataFile, gaps);
 
         // Finalize gaps
         for (Gap gap : gaps) {
@@ -270,15 +264,7 @@ class PeakFinderTask extends AbstractTask {
         }
 
         // Get all scans of this data file
-        datafile1.getScanNumbers(1).forEach(scan -> {
-          if(!isCanceled()) {
-            // Feed this scan to all gaps
-            for (Gap gap : gaps) {
-              gap.offerNextScan(scan);
-            }
-            processedScans.incrementAndGet();
-          }
-        });
+        offerScans(datafile1, gaps);
 
         // Canceled?
         if (isCanceled()) {
@@ -304,4 +290,41 @@ class PeakFinderTask extends AbstractTask {
     return "Gap filling " + peakList;
   }
 
+  /**
+   * Feeds all MS1 scans of the data file to the gaps. Uses the ion chromatogram index of the file
+   * if available, so each gap only reads the data points within its m/z and rt range.
+   */
+  private void offerScans(RawDataFile dataFile, List<Gap> gaps) {
+    final List<Scan> scans = dataFile.getScanNumbers(1);
+    final ScanMzIndex xicIndex = dataFile.getXicIndex(ScanDataType.RAW);
+    // gaps that are filled from the scans
+    final List<Gap> scanGaps = new ArrayList<>();
+    if (xicIndex != null && scans.stream().allMatch(s -> xicIndex.indexOf(s) != -1)) {
+      for (Gap gap : gaps) {
+        if (isCanceled()) {
+          return;
+        }
+        if (!gap.offerScans(scans, xicIndex)) {
+          // not offered, fall back to the scans
+          scanGaps.add(gap);
+        }
+      }
+      if (scanGaps.isEmpty()) {
+        processedScans.addAndGet(scans.size());
+        return;
+      }
+    } else {
+      scanGaps.addAll(gaps);
+    }
+
+    scans.forEach(scan -> {
+      if (!isCanceled()) {
+        // Feed this scan to all gaps
+        for (Gap gap : scanGaps) {
+          gap.offerNextScan(scan);
+        }
+        processedScans.incrementAndGet();
+      }
+    });
+  }
 }
@@ -30,6 +30,7 @@ import io.github.mzmine.datamodel.FeatureStatus;
 import io.github.mzmine.datamodel.Frame;
 import io.github.mzmine.datamodel.IMSRawDataFile;
 import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.Scan;
 import io.github.mzmine.datamodel.data_access.BinningMobilogramDataAccess;
 import io.github.mzmine.datamodel.data_access.EfficientDataAccess;
 import io.github.mzmine.datamodel.data_access.EfficientDataAccess.MobilityScanDataType;
@@ -40,6 +41,7 @@ import io.github.mzmine.datamodel.features.Feature;
 import io.github.mzmine.datamodel.features.FeatureListRow;
 import io.github.mzmine.datamodel.features.ModularFeatureList;
 import io.github.mzmine.datamodel.features.types.numbers.MobilityType;
+import io.github.mzmine.datamodel.impl.ScanMzIndex;
 import io.github.mzmine.modules.dataprocessing.gapfill_peakfinder.Gap;
 import io.github.mzmine.parameters.ParameterSet;
 import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
@@ -228,6 +230,28 @@ class MultiThreadPeakFinderTask extends AbstractTask {
 
     } else {
       // no IMS dimension
+      final List<? extends Scan> scans = peakList.getSeletedScans(file);
+      final ScanMzIndex xicIndex = file.getXicIndex(ScanDataType.CENTROID);
+      // gaps that are filled from the scans
+      List<Gap> scanGaps = gaps;
+      if (xicIndex != null && scans != null && scans.stream()
+          .allMatch(s -> xicIndex.indexOf(s) != -1)) {
+        // each gap only reads the data points within its own m/z and rt range
+        scanGaps = new ArrayList<>();
+        for (Gap gap : gaps) {
+          if (isCanceled()) {
+            return;
+          }
+          if (!gap.offerScans(scans, xicIndex)) {
+            // not offered, fall back to the scans
+            scanGaps.add(gap);
+          }
+        }
+        if (scanGaps.isEmpty()) {
+          processedScans.addAndGet(scans.size());
+          return;
+        }
+      }
 
       final ScanDataAccess scanAccess = EfficientDataAccess.of(file, ScanDataType.CENTROID,
           peakList.getSeletedScans(file));
@@ -237,7 +261,7 @@ class MultiThreadPeakFinderTask extends AbstractTask {
         }
         scanAccess.nextScan();
         // Feed this scan to all gaps
-        for (Gap gap : gaps) {
+        for (Gap gap : scanGaps) {
           gap.offerNextScan(scanAccess);
         }
 
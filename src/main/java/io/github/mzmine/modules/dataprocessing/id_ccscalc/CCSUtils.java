@@ -42,12 +42,12 @@ import io.github.mzmine.parameters.parametertypes.ImportType;
 import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
 import io.github.mzmine.parameters.parametertypes.tolerances.mobilitytolerance.MobilityTolerance;
 import io.github.mzmine.util.CSVParsingUtils;
+import io.github.mzmine.util.FeatureListRowIndex;
 import io.github.mzmine.util.FeatureListUtils;
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.List;
 import java.util.Objects;
 import java.util.logging.Logger;
@@ -173,9 +173,8 @@ public class CCSUtils {
   public static List<CCSCalibrant> findCalibrants(FeatureList flist, List<CCSCalibrant> calibrants,
       MZTolerance mzTol, Range<Float> rtRange, MobilityTolerance mobTol, double minHeight) {
 
-    final List<FeatureListRow> rowsByMz = flist.stream()
-        .filter(r -> rtRange.contains(r.getAverageRT()))
-        .sorted(Comparator.comparingDouble(FeatureListRow::getAverageMZ)).toList();
+    final FeatureListRowIndex<FeatureListRow> rowIndex = new FeatureListRowIndex<>(
+        flist.stream().filter(r -> rtRange.contains(r.getAverageRT())).toList());
 
     List<CCSCalibrant> detectedCalibrants = new ArrayList<>();
     for (int i = 0; i < calibrants.size(); i++) {
@@ -183,8 +182,8 @@ public class CCSUtils {
       final Range<Float> mobRange = mobTol.getToleranceRange(potentialCalibrant.libraryMobility());
       final Range<Double> mzRange = mzTol.getToleranceRange(potentialCalibrant.libraryMz());
 
-      final List<FeatureListRow> candidates = FeatureListUtils.getCandidatesWithinRanges(mzRange,
-          rtRange, mobRange, rowsByMz, true).stream().filter(
+      final List<FeatureListRow> candidates = rowIndex.getCandidatesWithinRanges(mzRange, rtRange,
+          mobRange).stream().filter(
           r -> r.getAverageHeight() > minHeight && Objects.equals(
               r.getBestFeature().getRepresentativeScan().getPolarity(),
               PolarityType.fromInt(potentialCalibrant.libraryCharge()))).toList();
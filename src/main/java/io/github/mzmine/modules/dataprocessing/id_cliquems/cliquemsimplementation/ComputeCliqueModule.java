@@ -27,15 +27,17 @@ package io.github.mzmine.modules.dataprocessing.id_cliquems.cliquemsimplementati
 
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import org.apache.commons.lang3.mutable.MutableDouble;
 import com.google.common.collect.Range;
-import io.github.mzmine.datamodel.DataPoint;
 import io.github.mzmine.datamodel.RawDataFile;
 import io.github.mzmine.datamodel.Scan;
 import io.github.mzmine.datamodel.features.FeatureList;
@@ -43,7 +45,6 @@ import io.github.mzmine.datamodel.features.FeatureListRow;
 import io.github.mzmine.modules.dataprocessing.id_cliquems.CliqueMSTask;
 import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
 import io.github.mzmine.parameters.parametertypes.tolerances.RTTolerance;
-import io.github.mzmine.util.scans.ScanUtils;
 import javafx.util.Pair;
 
 /**
@@ -65,8 +66,8 @@ public class ComputeCliqueModule {
   // variables to update progress
   private final MutableDouble progress;
 
-  // cosine correlation matrix calculated over columns of EIC matrix
-  private double[][] cosineCorrelation;
+  // cosine similarity edges between features with overlapping EICs
+  private List<CosineEdge> cosineEdges;
 
   public ComputeCliqueModule(FeatureList peakList, RawDataFile rdf, MutableDouble progress,
       CliqueMSTask task) {
@@ -115,139 +116,179 @@ public class ComputeCliqueModule {
   }
 
   /**
-   * EIC matrix is a axb (a = #rts or #scans, b = #features) dimension matrix. The ith column
-   * corresponds for the ith feature. For each column, the jth row value is calculated as follows -
-   * 1) If j does not lies in the index of rt range of the ith feature, value is 0 (EIC[j][i] = 0)
-   * 2) Else, the value is the mean intensities for the jth scan's datapoints' intensities (only
-   * those intensities whose corresponding mass in datapoint is in the mzRange of ith feature)
+   * Sparse EIC of a feature. The EIC only covers the scans within the RT range of the feature,
+   * all other scans have an intensity of 0.
+   *
+   * @param startScan   index of the first scan of the slice
+   * @param intensities mean intensity of the feature in each scan of the slice
+   * @param norm        euclidean norm of the intensities
+   */
+  private record EicSlice(int startScan, double[] intensities, double norm) {
+
+    int endScan() {
+      return startScan + intensities.length;
+    }
+  }
+
+  /**
+   * Calculates the EIC slice of each feature. For each scan j in the rt range of a feature, the
+   * value is the mean intensity of the scan's data points within the mz range of the feature (0 if
+   * there is no such data point). Scans outside of the rt range have an intensity of 0 and are not
+   * stored.
    * <p>
-   * EIC matrix is further used to calculate cosine similarity matrix
+   * The EIC slices are further used to calculate the cosine similarity edges.
    *
-   * @param file raw data file
+   * @param file         raw data file
    * @param peakDataList contains peak data
-   * @return double [][] EIC matrix
+   * @return one EIC slice for each feature in the peak data list
    */
-  private double[][] getEIC(RawDataFile file, List<PeakData> peakDataList) {
-    List<List<DataPoint>> dataPoints = new ArrayList<>(); // contains m/z and intensity data
-    List<Double> rts = new ArrayList<>(); // holds Retention Time values in seconds
-    for (Scan scan : file.getScans()) {
-      rts.add(scan.getRetentionTime() * 60.0); // conversion for minutes to seconds
-      List<DataPoint> dps =
-          new ArrayList<DataPoint>(Arrays.asList(ScanUtils.extractDataPoints(scan)));
-
-      dataPoints.add(dps);
-    }
-    // nrows = #rts , ncols = # peaks, already transposed as in R code
-    double EIC[][] = new double[file.getScans().size()][peakDataList.size()];
-    for (int i = 0; i < file.getScans().size(); i++) {
-      for (int j = 0; j < peakDataList.size(); j++) {
-        EIC[i][j] = 0.0;
-      }
+  private List<EicSlice> getEIC(RawDataFile file, List<PeakData> peakDataList) {
+    final List<Scan> scans = file.getScans();
+    final float[] rts = new float[scans.size()];
+    for (int i = 0; i < rts.length; i++) {
+      rts[i] = scans.get(i).getRetentionTime();
     }
 
-    for (int i = 0; i < peakDataList.size(); i++) {
+    final AtomicInteger done = new AtomicInteger(0);
+    return peakDataList.parallelStream().map(pd -> {
       if (drivertask.isCanceled()) {
-        return EIC;
+        return new EicSlice(0, new double[0], 0d);
+      }
+      // scans are sorted by rt, the slice ends before the scan at rtmax
+      final int posrtmin = lowerBound(rts, (float) pd.getRtmin());
+      final int posrtmax = Math.max(posrtmin, lowerBound(rts, (float) pd.getRtmax()));
+
+      final double[] intensities = new double[posrtmax - posrtmin];
+      double norm = 0d;
+      for (int j = posrtmin; j < posrtmax; j++) {
+        intensities[j - posrtmin] = meanIntensity(scans.get(j), pd.getMzmin(), pd.getMzmax());
+        norm += intensities[j - posrtmin] * intensities[j - posrtmin];
       }
-      PeakData pd = peakDataList.get(i);
-      int posrtmin = rts.indexOf(pd.getRtmin() * 60.0); // position where peak matches rtmin
-      int posrtmax = rts.indexOf(pd.getRtmax() * 60.0); // position where peak matches rtmax
-
-      for (int j = posrtmin; j < posrtmax; j += 1) {
-        List<Double> intensities = new ArrayList<>();
-        for (DataPoint dp : dataPoints.get(j)) {
-          Double mzMin = pd.getMzmin();
-          Double mzMax = pd.getMzmax();
-          Double dp_mz = dp.getMZ();
-          if (dp_mz <= mzMax && dp_mz >= mzMin) {
-            intensities.add(dp.getIntensity());
-          }
-        }
-        if (intensities.size() == 0) {
-          EIC[j][i] = 0.0; // no effect
-        } else {
-          Double meanInt = 0.0;
-          for (Double d : intensities) {
-            meanInt += d;
-          }
-          meanInt /= intensities.size();
-          EIC[j][i] = meanInt;
-        }
 
+      // progress update
+      this.progress.setValue(drivertask.EIC_PROGRESS * ((double) done.incrementAndGet()
+          / (double) peakDataList.size()));
+      return new EicSlice(posrtmin, intensities, Math.sqrt(norm));
+    }).toList();
+  }
 
+  /**
+   * @return index of the first value >= rt or the array length if all values are smaller.
+   */
+  private static int lowerBound(float[] rts, float rt) {
+    int low = 0;
+    int high = rts.length;
+    while (low < high) {
+      final int mid = (low + high) >>> 1;
+      if (rts[mid] < rt) {
+        low = mid + 1;
+      } else {
+        high = mid;
       }
-      // progress update
-      this.progress.setValue(drivertask.EIC_PROGRESS * ((double) i / (double) peakDataList.size()));
     }
+    return low;
+  }
 
-    return EIC;
+  /**
+   * @return the mean intensity of all data points within the mz range, 0 if there are none.
+   */
+  private static double meanIntensity(Scan scan, double mzmin, double mzmax) {
+    int index = scan.binarySearch(mzmin, false);
+    if (index < 0) {
+      index = -index - 1;
+    }
+    // binary search may hit any of several equal values
+    while (index > 0 && scan.getMzValue(index - 1) >= mzmin) {
+      index--;
+    }
 
+    double sum = 0d;
+    int count = 0;
+    final int numDp = scan.getNumberOfDataPoints();
+    for (; index < numDp && scan.getMzValue(index) <= mzmax; index++) {
+      sum += scan.getIntensityValue(index);
+      count++;
+    }
+    return count == 0 ? 0d : sum / count;
   }
 
-  // TODO make use of sparse matrix, make algo time efficient
-
   /**
-   * Computes cosine correlation of data (EIC) matrix over the columns, so for ixj dimension EIC
-   * matrix, the [x,y]th element of cosine correlation matrix contains the cosine similarity between
-   * the xth and the yth column of EIC matrix, so cosine correlation matrix has dimension jxj
+   * Computes the cosine similarity between the EICs of all features with overlapping rt ranges.
+   * Features without overlap have a cosine similarity of 0 and do not share an edge. Only edges
+   * with a positive similarity are returned.
    *
-   * @param data EIC matrix
-   * @return cosine correlation matrix
+   * @param slices EIC slices of all features
+   * @return the cosine edges sorted by their first and second index
    */
-  private double[][] cosCorrbyColumn(double[][] data) {
-    int row = data.length, col = data[0].length;
-    double[][] corr = new double[col][col];
-
-    for (int i = 0; i < col; i++) {
-      for (int j = 0; j < col; j++) {
-        corr[i][j] = 0.0;
+  private List<CosineEdge> cosCorrbyOverlap(List<EicSlice> slices) {
+    // sort by the first scan, so all overlapping features follow within the rt range of a feature
+    final int[] order = IntStream.range(0, slices.size()).boxed()
+        .sorted(Comparator.comparingInt(i -> slices.get(i).startScan())).mapToInt(i -> i)
+        .toArray();
+
+    final AtomicInteger done = new AtomicInteger(0);
+    final List<CosineEdge> edges = IntStream.range(0, order.length).parallel().mapToObj(p -> {
+      final List<CosineEdge> featureEdges = new ArrayList<>();
+      if (drivertask.isCanceled()) {
+        return featureEdges;
       }
-    }
-
-    for (int i = 0; i < col; i++) {
-      for (int j = 0; j < col; j++) {
-        if (drivertask.isCanceled()) {
-          return corr;
+      final int a = order[p];
+      final EicSlice sa = slices.get(a);
+      for (int q = p + 1; q < order.length; q++) {
+        final int b = order[q];
+        final EicSlice sb = slices.get(b);
+        if (sb.startScan() >= sa.endScan()) {
+          break;
         }
-        double modi = 0.0, modj = 0.0;
-        for (int k = 0; k < row; k++) {
-          corr[i][j] += data[k][i] * data[k][j];
-          modi += data[k][i] * data[k][i];
-          modj += data[k][j] * data[k][j];
+        final double cosine = cosine(sa, sb);
+        if (cosine > 0d) {
+          featureEdges.add(a < b ? new CosineEdge(a, b, cosine) : new CosineEdge(b, a, cosine));
         }
-        modi = Math.sqrt(modi);
-        modj = Math.sqrt(modj);
-        corr[i][j] = corr[i][j] / (modi * modj);
       }
       // update progress
-      this.progress.setValue(
-          drivertask.EIC_PROGRESS + drivertask.MATRIX_PROGRESS * ((double) (i + 1) / (double) col));
+      this.progress.setValue(drivertask.EIC_PROGRESS + drivertask.MATRIX_PROGRESS * (
+          (double) done.incrementAndGet() / (double) order.length));
+      return featureEdges;
+    }).flatMap(List::stream).collect(Collectors.toCollection(ArrayList::new));
+
+    edges.sort(Comparator.comparingInt(CosineEdge::i).thenComparingInt(CosineEdge::j));
+    return edges;
+  }
+
+  /**
+   * @return the cosine similarity of two EIC slices. Only the overlapping scans contribute to the
+   * dot product, the norms are calculated over the whole slices.
+   */
+  private static double cosine(EicSlice a, EicSlice b) {
+    final int start = Math.max(a.startScan(), b.startScan());
+    final int end = Math.min(a.endScan(), b.endScan());
+    double dot = 0d;
+    for (int k = start; k < end; k++) {
+      dot += a.intensities()[k - a.startScan()] * b.intensities()[k - b.startScan()];
     }
-    return corr;
+    return dot / (a.norm() * b.norm());
   }
 
 
   /**
    * identify peaks with very similar cosine correlation, m/z, rt and intensity
    *
-   * @param cosineCorr cosine correlation matrix
+   * @param cosineEdges cosine similarity edges
    * @param peakDataList contains features' information
    * @param mzdiff tolerance value for mz
    * @param intdiff tolerance value for intensity
    * @param rtdiff tolerance value for rt
    * @return node ID of similar features
    */
-  private List<Integer> similarFeatures(double[][] cosineCorr, List<PeakData> peakDataList,
+  private List<Integer> similarFeatures(List<CosineEdge> cosineEdges, List<PeakData> peakDataList,
       MZTolerance mzdiff, RTTolerance rtdiff, double intdiff) {
-    // find all elements in cosineCorr with i<j and value > 0.99
+    // find all edges with value > 0.99, edges are sorted and always i<j
     List<Integer> edgeX = new ArrayList<>();
     List<Integer> edgeY = new ArrayList<>();
-    for (int i = 0; i < cosineCorr.length; i++) {
-      for (int j = i + 1; j < cosineCorr[0].length; j++) {
-        if (cosineCorr[i][j] > 0.99) {
-          edgeX.add(i);
-          edgeY.add(j);
-        }
+    for (CosineEdge edge : cosineEdges) {
+      if (edge.cosine() > 0.99) {
+        edgeX.add(edge.i());
+        edgeY.add(edge.j());
       }
     }
     List<Integer> nodesToDelete = new ArrayList<>();
@@ -295,14 +336,14 @@ public class ComputeCliqueModule {
   /**
    * Removes nodes that are too similar in rt, mz and intensity values
    *
-   * @param cosinus cosine correlation matrix
+   * @param cosinus cosine similarity edges
    * @param peakDL peak Data list
    * @param mzdiff tolerance values for similarity
    * @param rtdiff tolerance values for similarity
    * @param intdiff tolerance values for similarity
    */
-  private void filterFeatures(double[][] cosinus, List<PeakData> peakDL, MZTolerance mzdiff,
-      RTTolerance rtdiff, double intdiff) {
+  private void filterFeatures(List<CosineEdge> cosinus, List<PeakData> peakDL,
+      MZTolerance mzdiff, RTTolerance rtdiff, double intdiff) {
     List<PeakData> modifiedPeakDataList = new ArrayList<>();
     List<Integer> deleteIndices = similarFeatures(cosinus, peakDL, mzdiff, rtdiff, intdiff);
     if (deleteIndices.size() == 0) {
@@ -310,44 +351,37 @@ public class ComputeCliqueModule {
       return;
     }
 
-    // remove the peakdata containing
+    // remove the peakdata containing, new index of the remaining features or -1 if deleted
+    final boolean[] deleted = new boolean[peakDataList.size()];
+    for (Integer i : deleteIndices) {
+      deleted[i] = true;
+    }
+    final int[] newIndices = new int[peakDataList.size()];
     for (int i = 0; i < peakDataList.size(); i++) {
-      PeakData pd = peakDataList.get(i);
-      if (deleteIndices.contains(i)) {
+      if (deleted[i]) {
+        newIndices[i] = -1;
         continue;
       }
-      PeakData pdmod = new PeakData(pd);
+      newIndices[i] = modifiedPeakDataList.size();
+      PeakData pdmod = new PeakData(peakDataList.get(i));
       modifiedPeakDataList.add(pdmod);
     }
 
-    double[][] modifiedCosineCorr =
-        new double[cosinus.length - deleteIndices.size()][cosinus[0].length - deleteIndices.size()];
-    // deleting row and columns of indices in deleteIndices
-    int colShift = 0;
-
-    for (int i = 0; i < cosinus.length; i++) {
-      int rowShift = 0;
-      if (colShift < deleteIndices.size() && i == deleteIndices.get(colShift)) {
-        colShift++;
-        continue;
+    // deleting edges of deleted features, the order of the remaining edges does not change
+    List<CosineEdge> modifiedEdges = new ArrayList<>();
+    for (CosineEdge edge : cosinus) {
+      final int i = newIndices[edge.i()];
+      final int j = newIndices[edge.j()];
+      if (i != -1 && j != -1) {
+        modifiedEdges.add(new CosineEdge(i, j, edge.cosine()));
       }
-      for (int j = 0; j < cosinus[0].length; j++) {
-        if (rowShift < deleteIndices.size() && j == deleteIndices.get(rowShift)) {
-          rowShift++;
-          continue;
-        }
-        modifiedCosineCorr[i - colShift][j - rowShift] = cosinus[i][j];
-      }
-
-
     }
 
-    this.cosineCorrelation = modifiedCosineCorr;
+    this.cosineEdges = modifiedEdges;
     anClique.changePeakDataList(modifiedPeakDataList);
     this.peakDataList = modifiedPeakDataList;
-    logger.log(Level.FINEST, deleteIndices.size() + " features deleted.");
-
-
+    logger.log(Level.FINEST,
+        (peakDL.size() - modifiedPeakDataList.size()) + " features deleted.");
   }
 
   /**
@@ -400,25 +434,25 @@ public class ComputeCliqueModule {
     if (anClique.cliquesFound) {
       logger.log(Level.WARNING, "cliques have already been computed!");
     }
-    double EIC[][] = getEIC(rawDataFile, peakDataList);
+    List<EicSlice> EIC = getEIC(rawDataFile, peakDataList);
 
     if (drivertask.isCanceled()) {
       return anClique;
     }
 
-    this.cosineCorrelation = cosCorrbyColumn(EIC);
+    this.cosineEdges = cosCorrbyOverlap(EIC);
     if (drivertask.isCanceled()) {
       return anClique;
     }
     if (filter) {
-      filterFeatures(cosineCorrelation, peakDataList, mzdiff, rtdiff, intdiff);
+      filterFeatures(cosineEdges, peakDataList, mzdiff, rtdiff, intdiff);
     }
 
     List<Integer> nodeIDList = new ArrayList<>();
     for (PeakData pd : peakDataList) {
       nodeIDList.add(pd.getNodeID());
     }
-    anClique.getNetwork().returnCliques(cosineCorrelation, nodeIDList, tol, false, this.progress,
+    anClique.getNetwork().returnCliques(cosineEdges, nodeIDList, tol, false, this.progress,
         this.drivertask);
     updateCliques();
     this.anClique.cliquesFound = true;
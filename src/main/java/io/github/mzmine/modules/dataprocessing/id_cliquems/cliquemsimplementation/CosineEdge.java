@@ -23,16 +23,16 @@
  * OTHER DEALINGS IN THE SOFTWARE.
  */
 
-package io.github.mzmine.modules.dataprocessing.featdet_gridmass;
+package io.github.mzmine.modules.dataprocessing.id_cliquems.cliquemsimplementation;
 
-import io.github.mzmine.datamodel.DataPoint;
-
-class IndexedDataPoint {
-  DataPoint datapoint;
-  int index;
+/**
+ * Positive cosine similarity between the EICs of two features. Only features with overlapping RT
+ * ranges have an edge, all other pairs have a cosine similarity of 0.
+ *
+ * @param i      index of the first feature in the peak data list
+ * @param j      index of the second feature in the peak data list, i < j
+ * @param cosine cosine similarity of both EICs
+ */
+public record CosineEdge(int i, int j, double cosine) {
 
-  public IndexedDataPoint(int index, DataPoint dp) {
-    this.datapoint = dp;
-    this.index = index;
-  }
 }
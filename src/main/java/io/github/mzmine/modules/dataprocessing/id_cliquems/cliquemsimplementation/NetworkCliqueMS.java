@@ -71,17 +71,16 @@ public class NetworkCliqueMS {
     return edges;
   }
 
-  private void createEdges(double[][] adjacencyMatrix, List<Integer> nodeIDList) {
-    for (int i = 0; i < adjacencyMatrix.length; i++) {
-      for (int j = i + 1; j < adjacencyMatrix[0].length; j++) {
-        if (adjacencyMatrix[i][j] > 0.0) {
-          Pair<Integer, Integer> p = new Pair(nodeIDList.get(i), nodeIDList.get(j));
-          if (adjacencyMatrix[i][j] == 1) {
-            // change similarity of 1 to 0.99999999999 to non avoid NaN
-            this.edges.put(p, 0.99999999999);
-          } else {
-            this.edges.put(p, adjacencyMatrix[i][j]);
-          }
+  // sparse edge list with i < j, only contains edges with a positive weight
+  private void createEdges(List<CosineEdge> edgeList, List<Integer> nodeIDList) {
+    for (CosineEdge edge : edgeList) {
+      if (edge.cosine() > 0.0) {
+        Pair<Integer, Integer> p = new Pair(nodeIDList.get(edge.i()), nodeIDList.get(edge.j()));
+        if (edge.cosine() >= 1) {
+          // change similarity of 1 to 0.99999999999 to non avoid NaN
+          this.edges.put(p, 0.99999999999);
+        } else {
+          this.edges.put(p, edge.cosine());
         }
       }
     }
@@ -147,10 +146,10 @@ public class NetworkCliqueMS {
   }
 
   //initializeNetwork
-  private void createNetwork(double[][] adjacencyMatrix, List<Integer> nodeIDList) {
+  private void createNetwork(List<CosineEdge> edgeList, List<Integer> nodeIDList) {
     //import edges
     double exp = 2.0;
-    createEdges(adjacencyMatrix, nodeIDList);
+    createEdges(edgeList, nodeIDList);
     createNodesFromEdges();
     createNeighboursFromEdges();
     createCliques();
@@ -496,12 +495,12 @@ public class NetworkCliqueMS {
     return loglResult;
   }
 
-  public void returnCliques(double[][] adjacencyMatrix, List<Integer> nodeIDList, double tolerance,
+  public void returnCliques(List<CosineEdge> edgeList, List<Integer> nodeIDList, double tolerance,
       boolean silent, MutableDouble progress, CliqueMSTask task) {
     try {
       this.progress = progress;
       this.driverTask = task;
-      createNetwork(adjacencyMatrix, nodeIDList);
+      createNetwork(edgeList, nodeIDList);
       Double logl = loglTotal();
       logger.log(Level.FINEST, "Beginning value of logl is " + logl);
       int step = 10;
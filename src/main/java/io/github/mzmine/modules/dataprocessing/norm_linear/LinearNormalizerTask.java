@@ -28,24 +28,23 @@ package io.github.mzmine.modules.dataprocessing.norm_linear;
 import io.github.mzmine.datamodel.AbundanceMeasure;
 import io.github.mzmine.datamodel.MZmineProject;
 import io.github.mzmine.datamodel.RawDataFile;
-import io.github.mzmine.datamodel.Scan;
 import io.github.mzmine.datamodel.features.Feature;
 import io.github.mzmine.datamodel.features.FeatureList;
-import io.github.mzmine.datamodel.features.FeatureList.FeatureListAppliedMethod;
 import io.github.mzmine.datamodel.features.FeatureListRow;
-import io.github.mzmine.datamodel.features.ModularFeature;
 import io.github.mzmine.datamodel.features.ModularFeatureList;
-import io.github.mzmine.datamodel.features.ModularFeatureListRow;
 import io.github.mzmine.datamodel.features.SimpleFeatureListAppliedMethod;
 import io.github.mzmine.parameters.ParameterSet;
 import io.github.mzmine.parameters.parametertypes.OriginalFeatureListHandlingParameter.OriginalFeatureListOption;
 import io.github.mzmine.taskcontrol.AbstractTask;
 import io.github.mzmine.taskcontrol.TaskStatus;
+import io.github.mzmine.util.FeatureAbundanceMatrix;
 import io.github.mzmine.util.MemoryMapStorage;
 import java.time.Instant;
-import java.util.Hashtable;
+import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Logger;
+import java.util.stream.IntStream;
 import javafx.collections.ObservableList;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -61,8 +60,8 @@ class LinearNormalizerTask extends AbstractTask {
   private final ModularFeatureList originalFeatureList;
   private ModularFeatureList normalizedFeatureList;
 
-  private int processedDataFiles;
-  private final int totalDataFiles;
+  private final AtomicInteger processedRows = new AtomicInteger(0);
+  private final int totalRows;
 
   private final String suffix;
   private final NormalizationType normalizationType;
@@ -78,7 +77,7 @@ class LinearNormalizerTask extends AbstractTask {
     this.originalFeatureList = (ModularFeatureList) featureList;
     this.parameters = parameters;
 
-    totalDataFiles = originalFeatureList.getNumberOfRawDataFiles();
+    totalRows = originalFeatureList.getNumberOfRows();
 
     suffix = parameters.getParameter(LinearNormalizerParameters.suffix).getValue();
     normalizationType = parameters.getParameter(LinearNormalizerParameters.normalizationType)
@@ -90,7 +89,7 @@ class LinearNormalizerTask extends AbstractTask {
   }
 
   public double getFinishedPercentage() {
-    return (double) processedDataFiles / (double) totalDataFiles;
+    return totalRows == 0 ? 0 : (double) processedRows.get() / (double) totalRows;
   }
 
   public String getTaskDescription() {
@@ -102,174 +101,75 @@ class LinearNormalizerTask extends AbstractTask {
     setStatus(TaskStatus.PROCESSING);
     logger.info("Running linear normalizer");
 
-    // This hashtable maps rows from original alignment result to rows of
-    // the normalized alignment
-    Hashtable<FeatureListRow, ModularFeatureListRow> rowMap = new Hashtable<>();
+    final List<RawDataFile> files = originalFeatureList.getRawDataFiles();
+    final ObservableList<FeatureListRow> rows = originalFeatureList.getRows();
 
-    // Create new feature list
-    normalizedFeatureList = new ModularFeatureList(originalFeatureList + " " + suffix,
-        getMemoryMapStorage(), originalFeatureList.getRawDataFiles());
-
-    originalFeatureList.getRawDataFiles().forEach(
-        file -> normalizedFeatureList.setSelectedScans(file,
-            originalFeatureList.getSeletedScans(file)));
-    // Loop through all raw data files, and find the feature with biggest
-    // height
-    float maxOriginalHeight = 0f;
-    for (RawDataFile file : originalFeatureList.getRawDataFiles()) {
-      for (FeatureListRow originalFeatureListRow : originalFeatureList.getRows()) {
-        Feature p = originalFeatureListRow.getFeature(file);
-        if (p != null) {
-          if (maxOriginalHeight <= p.getHeight()) {
-            maxOriginalHeight = p.getHeight();
-          }
-        }
-      }
-    }
-
-    // Loop through all raw data files, and normalize feature values
-    for (RawDataFile file : originalFeatureList.getRawDataFiles()) {
-
-      // Cancel?
-      if (isCanceled()) {
-        return;
-      }
-
-      // Determine normalization type and calculate normalization factor
-      float normalizationFactor = 1.0f;
+    // Extract the abundances once and find the feature with biggest height
+    final FeatureAbundanceMatrix heights = FeatureAbundanceMatrix.of(rows, files,
+        AbundanceMeasure.Height, false);
+    final FeatureAbundanceMatrix abundances =
+        abundanceMeasure == AbundanceMeasure.Height ? heights
+            : FeatureAbundanceMatrix.of(rows, files, abundanceMeasure, false);
+    final double maxOriginalHeight = heights.max();
 
+    // Determine normalization type and calculate normalization factors of all files
+    final double[] normalizationFactors = switch (normalizationType) {
       // - normalization by average feature intensity
-      if (normalizationType == NormalizationType.AverageIntensity) {
-        float intensitySum = 0f;
-        int intensityCount = 0;
-        for (FeatureListRow featureListRow : originalFeatureList.getRows()) {
-          Feature p = featureListRow.getFeature(file);
-          if (p != null) {
-            if (abundanceMeasure == AbundanceMeasure.Height) {
-              intensitySum += p.getHeight();
-            } else {
-              intensitySum += p.getArea();
-            }
-            intensityCount++;
-          }
-        }
-        normalizationFactor = intensitySum / (float) intensityCount;
-      }
-
+      case AverageIntensity -> abundances.meanPerFile(false);
       // - normalization by average squared feature intensity
-      if (normalizationType == NormalizationType.AverageSquaredIntensity) {
-        float intensitySum = 0f;
-        int intensityCount = 0;
-        for (FeatureListRow featureListRow : originalFeatureList.getRows()) {
-          Feature p = featureListRow.getFeature(file);
-          if (p != null) {
-            if (abundanceMeasure == AbundanceMeasure.Height) {
-              intensitySum += (p.getHeight() * p.getHeight());
-            } else {
-              intensitySum += (p.getArea() * p.getArea());
-            }
-            intensityCount++;
-          }
-        }
-        normalizationFactor = intensitySum / (float) intensityCount;
-      }
-
+      case AverageSquaredIntensity -> abundances.meanPerFile(true);
       // - normalization by maximum feature intensity
-      if (normalizationType == NormalizationType.MaximumFeatureHeight) {
-        float maximumIntensity = 0;
-        for (FeatureListRow featureListRow : originalFeatureList.getRows()) {
-          Feature p = featureListRow.getFeature(file);
-          if (p != null) {
-            if (abundanceMeasure == AbundanceMeasure.Height) {
-              if (maximumIntensity < p.getHeight()) {
-                maximumIntensity = p.getHeight();
-              }
-            } else {
-              if (maximumIntensity < p.getArea()) {
-                maximumIntensity = p.getArea();
-              }
-            }
-
-          }
-        }
-        normalizationFactor = maximumIntensity;
-      }
-
+      case MaximumFeatureHeight -> abundances.maxPerFile();
       // - normalization by total raw signal
-      if (normalizationType == NormalizationType.TotalRawSignal) {
-        normalizationFactor = 0;
-        for (Scan scan : file.getScanNumbers(1)) {
-          normalizationFactor += Objects.requireNonNullElse(scan.getTIC(), 0f).floatValue();
-        }
-      }
+      case TotalRawSignal -> files.stream().parallel().mapToDouble(
+          file -> file.getScanNumbers(1).stream()
+              .mapToDouble(scan -> Objects.requireNonNullElse(scan.getTIC(), 0f).doubleValue())
+              .sum()).toArray();
+    };
 
+    for (int i = 0; i < normalizationFactors.length; i++) {
       // Readjust normalization factor so that maximum height will be
       // equal to maximumOverallFeatureHeightAfterNormalization after
       // normalization
-      float maxNormalizedHeight = maxOriginalHeight / normalizationFactor;
-      normalizationFactor =
-          normalizationFactor * maxNormalizedHeight / maximumOverallFeatureHeightAfterNormalization;
-
-      // Normalize all peak intenisities using the normalization factor
-      ObservableList<FeatureListRow> rows = originalFeatureList.getRows();
-      for (int i = 0, rowsSize = rows.size(); i < rowsSize; i++) {
-        ModularFeatureListRow originalFeatureListRow = (ModularFeatureListRow) rows.get(i);
-
-        // Cancel?
-        if (isCanceled()) {
-          return;
-        }
-
-        Feature originalFeature = originalFeatureListRow.getFeature(file);
-        if (originalFeature != null) {
-
-          ModularFeature normalizedFeature = new ModularFeature(normalizedFeatureList,
-              originalFeature);
-
-          float normalizedHeight = originalFeature.getHeight() / normalizationFactor;
-          float normalizedArea = originalFeature.getArea() / normalizationFactor;
-          normalizedFeature.setHeight(normalizedHeight);
-          normalizedFeature.setArea(normalizedArea);
-
-          ModularFeatureListRow normalizedRow = rowMap.get(originalFeatureListRow);
-
-          if (normalizedRow == null) {
-
-            normalizedRow = new ModularFeatureListRow(normalizedFeatureList, originalFeatureListRow,
-                false);
+      final double maxNormalizedHeight = maxOriginalHeight / normalizationFactors[i];
+      normalizationFactors[i] = normalizationFactors[i] * maxNormalizedHeight
+          / maximumOverallFeatureHeightAfterNormalization;
+    }
 
-            rowMap.put(originalFeatureListRow, normalizedRow);
-          }
+    if (isCanceled()) {
+      return;
+    }
 
-          normalizedRow.addFeature(file, normalizedFeature);
+    // Create new feature list. All rows and features are copied first, because the creation of rows
+    // and features registers listeners in the feature list and is not thread safe.
+    normalizedFeatureList = originalFeatureList.createCopy(originalFeatureList + " " + suffix,
+        getMemoryMapStorage(), false);
 
+    // Normalize all peak intensities using the normalization factors, blocks of rows in parallel
+    final ObservableList<FeatureListRow> normalizedRows = normalizedFeatureList.getRows();
+    IntStream.range(0, normalizedRows.size()).parallel().forEach(i -> {
+      if (isCanceled()) {
+        return;
+      }
+      final FeatureListRow row = normalizedRows.get(i);
+      for (int f = 0; f < files.size(); f++) {
+        final Feature feature = row.getFeature(files.get(f));
+        if (feature != null) {
+          feature.setHeight((float) (feature.getHeight() / normalizationFactors[f]));
+          feature.setArea((float) (feature.getArea() / normalizationFactors[f]));
         }
-
       }
+      processedRows.incrementAndGet();
+    });
 
-      // Progress
-      processedDataFiles++;
-
-    }
-
-    // Finally add all normalized rows to normalized alignment result
-    for (FeatureListRow originalFeatureListRow : originalFeatureList.getRows()) {
-      ModularFeatureListRow normalizedRow = rowMap.get(originalFeatureListRow);
-      if (normalizedRow == null) {
-        continue;
-      }
-      normalizedFeatureList.addRow(normalizedRow);
+    if (isCanceled()) {
+      return;
     }
 
     // Add new feature list to the project
     handleOriginal.reflectNewFeatureListToProject(suffix, project, normalizedFeatureList,
         originalFeatureList);
 
-    // Load previous applied methods
-    for (FeatureListAppliedMethod proc : originalFeatureList.getAppliedMethods()) {
-      normalizedFeatureList.addDescriptionOfAppliedTask(proc);
-    }
-
     // Add task description to feature List
     normalizedFeatureList.addDescriptionOfAppliedTask(
         new SimpleFeatureListAppliedMethod("Linear normalization of by " + normalizationType,
@@ -38,9 +38,14 @@ import io.github.mzmine.parameters.ParameterSet;
 import io.github.mzmine.parameters.parametertypes.OriginalFeatureListHandlingParameter.OriginalFeatureListOption;
 import io.github.mzmine.taskcontrol.AbstractTask;
 import io.github.mzmine.taskcontrol.TaskStatus;
+import io.github.mzmine.util.FeatureAbundanceMatrix;
 import io.github.mzmine.util.MemoryMapStorage;
 import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Logger;
+import java.util.stream.IntStream;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -52,7 +57,8 @@ public class StandardCompoundNormalizerTask extends AbstractTask {
   private final ModularFeatureList originalFeatureList;
   private ModularFeatureList normalizedFeatureList;
 
-  private int processedRows, totalRows;
+  private final AtomicInteger processedRows = new AtomicInteger(0);
+  private int totalRows;
 
   private final String suffix;
   private final StandardUsageType normalizationType;
@@ -86,7 +92,7 @@ public class StandardCompoundNormalizerTask extends AbstractTask {
     if (totalRows == 0) {
       return 0;
     }
-    return (double) processedRows / (double) totalRows;
+    return (double) processedRows.get() / (double) totalRows;
   }
 
   public String getTaskDescription() {
@@ -115,157 +121,128 @@ public class StandardCompoundNormalizerTask extends AbstractTask {
     // result
     totalRows = normalizedFeatureList.getNumberOfRows();
 
-    // Loop through all rows
-    rowIteration:
-    for (FeatureListRow row : normalizedFeatureList.getRows()) {
+    // Extract the abundances and positions of the standards once
+    final List<RawDataFile> files = normalizedFeatureList.getRawDataFiles();
+    final FeatureAbundanceMatrix standardAbundances = FeatureAbundanceMatrix.of(
+        Arrays.asList(standardRows), files, abundanceMeasure, false);
+    final double[] standardMZs = new double[standardRows.length];
+    final double[] standardRTs = new double[standardRows.length];
+    for (int i = 0; i < standardRows.length; i++) {
+      standardMZs[i] = standardRows[i].getAverageMZ();
+      standardRTs[i] = standardRows[i].getAverageRT();
+    }
 
+    // Normalize blocks of rows in parallel, each row is only changed by one thread
+    final List<FeatureListRow> rows = normalizedFeatureList.getRows();
+    IntStream.range(0, rows.size()).parallel().forEach(r -> {
       // Cancel ?
       if (isCanceled()) {
         return;
       }
+      final FeatureListRow row = rows.get(r);
 
       // Do not add the standard rows to the new peaklist
-      for (int i = 0; i < standardRows.length; i++) {
-        if (row == standardRows[i]) {
-          processedRows++;
-          continue rowIteration;
+      for (FeatureListRow standardRow : standardRows) {
+        if (row == standardRow) {
+          processedRows.incrementAndGet();
+          return;
         }
       }
 
-      // Get m/z and RT of the current row
-      double mz = row.getAverageMZ();
-      double rt = row.getAverageRT();
-
-      // Loop through all raw data files
-      for (RawDataFile file : normalizedFeatureList.getRawDataFiles()) {
+      normalizeRow(row, files, standardAbundances, standardMZs, standardRTs);
+      processedRows.incrementAndGet();
+    });
 
-        double[] normalizationFactors = null;
-        double[] normalizationFactorWeights = null;
+    if (isCanceled()) {
+      return;
+    }
 
-        if (normalizationType == StandardUsageType.Nearest) {
+    // add or remove lists
+    handleOriginal.reflectNewFeatureListToProject(suffix, project, normalizedFeatureList,
+        originalFeatureList);
 
-          // Search for nearest standard
-          FeatureListRow nearestStandardRow = null;
-          double nearestStandardRowDistance = Double.MAX_VALUE;
+    // Add task description to feature list
+    normalizedFeatureList.addDescriptionOfAppliedTask(
+        new SimpleFeatureListAppliedMethod("Standard compound normalization",
+            StandardCompoundNormalizerModule.class, parameters, getModuleCallDate()));
 
-          for (int standardRowIndex = 0; standardRowIndex < standardRows.length;
-              standardRowIndex++) {
-            FeatureListRow standardRow = standardRows[standardRowIndex];
+    logger.info("Finished standard compound normalizer");
+    setStatus(TaskStatus.FINISHED);
 
-            double stdMZ = standardRow.getAverageMZ();
-            double stdRT = standardRow.getAverageRT();
-            double distance = MZvsRTBalance * Math.abs(mz - stdMZ) + Math.abs(rt - stdRT);
-            if (distance <= nearestStandardRowDistance) {
-              nearestStandardRow = standardRow;
-              nearestStandardRowDistance = distance;
-            }
+  }
 
-          }
+  private void normalizeRow(FeatureListRow row, List<RawDataFile> files,
+      FeatureAbundanceMatrix standardAbundances, double[] standardMZs, double[] standardRTs) {
+    // Get m/z and RT of the current row
+    final double mz = row.getAverageMZ();
+    final double rt = row.getAverageRT();
+
+    // The distances to the standards are the same for all raw data files
+    final double[] distances = new double[standardRows.length];
+    int nearestStandard = -1;
+    double nearestStandardRowDistance = Double.MAX_VALUE;
+    for (int i = 0; i < standardRows.length; i++) {
+      distances[i] = MZvsRTBalance * Math.abs(mz - standardMZs[i]) + Math.abs(rt - standardRTs[i]);
+      if (distances[i] <= nearestStandardRowDistance) {
+        nearestStandard = i;
+        nearestStandardRowDistance = distances[i];
+      }
+    }
 
-          assert nearestStandardRow != null;
-
-          // Calc and store a single normalization factor
-          normalizationFactors = new double[1];
-          normalizationFactorWeights = new double[1];
-          Feature standardFeature = nearestStandardRow.getFeature(file);
-          if (standardFeature == null) {
-            // What to do if standard feature is not available?
-            normalizationFactors[0] = 1.0;
-          } else {
-            if (abundanceMeasure == AbundanceMeasure.Height) {
-              normalizationFactors[0] = standardFeature.getHeight();
-            } else {
-              normalizationFactors[0] = standardFeature.getArea();
-            }
+    // Loop through all raw data files
+    for (int f = 0; f < files.size(); f++) {
+      final RawDataFile file = files.get(f);
+      double weightedSum = 0.0;
+      double sumOfWeights = 0.0;
+
+      if (normalizationType == StandardUsageType.Nearest) {
+        // Use a single normalization factor of the nearest standard
+        final double standardAbundance = standardAbundances.get(nearestStandard, f);
+        // What to do if standard feature is not available?
+        weightedSum = Double.isNaN(standardAbundance) ? 1.0 : standardAbundance;
+        sumOfWeights = 1.0;
+        final FeatureListRow nearestStandardRow = standardRows[nearestStandard];
+        final double factor = weightedSum;
+        logger.finest(() -> "Normalizing row #" + row.getID() + " using standard feature "
+            + nearestStandardRow.getFeature(file) + ", factor " + factor);
+      } else if (normalizationType == StandardUsageType.Weighted) {
+        // Add all standards as factors, and use distance as weight. Missing standards have no
+        // weight.
+        for (int i = 0; i < standardRows.length; i++) {
+          final double standardAbundance = standardAbundances.get(i, f);
+          if (!Double.isNaN(standardAbundance)) {
+            final double weight = 1 / distances[i];
+            weightedSum += standardAbundance * weight;
+            sumOfWeights += weight;
           }
-          logger.finest(
-              "Normalizing row #" + row.getID() + " using standard feature " + standardFeature
-                  + ", factor " + normalizationFactors[0]);
-          normalizationFactorWeights[0] = 1.0f;
-
         }
+      }
 
-        if (normalizationType == StandardUsageType.Weighted) {
-
-          // Add all standards as factors, and use distance as weight
-          normalizationFactors = new double[standardRows.length];
-          normalizationFactorWeights = new double[standardRows.length];
-
-          for (int standardRowIndex = 0; standardRowIndex < standardRows.length;
-              standardRowIndex++) {
-            FeatureListRow standardRow = standardRows[standardRowIndex];
-
-            double stdMZ = standardRow.getAverageMZ();
-            double stdRT = standardRow.getAverageRT();
-            double distance = MZvsRTBalance * Math.abs(mz - stdMZ) + Math.abs(rt - stdRT);
-
-            Feature standardFeature = standardRow.getFeature(file);
-            if (standardFeature == null) {
-              // What to do if standard feature is not available?
-              normalizationFactors[standardRowIndex] = 1.0;
-              normalizationFactorWeights[standardRowIndex] = 0.0;
-            } else {
-              if (abundanceMeasure == AbundanceMeasure.Height) {
-                normalizationFactors[standardRowIndex] = standardFeature.getHeight();
-              } else {
-                normalizationFactors[standardRowIndex] = standardFeature.getArea();
-              }
-              normalizationFactorWeights[standardRowIndex] = 1 / distance;
-            }
-          }
-
-        }
-
-        assert normalizationFactors != null;
-        assert normalizationFactorWeights != null;
-
-        // Calculate a single normalization factor as weighted average
-        // of all factors
-        double weightedSum = 0.0f;
-        double sumOfWeights = 0.0f;
-        for (int factorIndex = 0; factorIndex < normalizationFactors.length; factorIndex++) {
-          weightedSum +=
-              normalizationFactors[factorIndex] * normalizationFactorWeights[factorIndex];
-          sumOfWeights += normalizationFactorWeights[factorIndex];
-        }
-        double normalizationFactor = weightedSum / sumOfWeights;
-
-        // For simple scaling of the normalized values
-        normalizationFactor = normalizationFactor / 100.0f;
-
-        logger.finest("Normalizing row #" + row.getID() + "[" + file + "] using factor "
-            + normalizationFactor);
+      // Calculate a single normalization factor as weighted average
+      // of all factors
+      double normalizationFactor = weightedSum / sumOfWeights;
 
-        // How to handle zero normalization factor?
-        if (normalizationFactor == 0.0) {
-          normalizationFactor = Double.MIN_VALUE;
-        }
+      // For simple scaling of the normalized values
+      normalizationFactor = normalizationFactor / 100.0f;
 
-        // Normalize feature
-        Feature originalFeature = row.getFeature(file);
-        if (originalFeature != null) {
-          float normalizedHeight = (float) (originalFeature.getHeight() / normalizationFactor);
-          float normalizedArea = (float) (originalFeature.getArea() / normalizationFactor);
-          originalFeature.setHeight(normalizedHeight);
-          originalFeature.setArea(normalizedArea);
-        }
+      final double factor = normalizationFactor;
+      logger.finest(
+          () -> "Normalizing row #" + row.getID() + "[" + file + "] using factor " + factor);
 
+      // How to handle zero normalization factor?
+      if (normalizationFactor == 0.0) {
+        normalizationFactor = Double.MIN_VALUE;
       }
 
-      processedRows++;
+      // Normalize feature
+      Feature originalFeature = row.getFeature(file);
+      if (originalFeature != null) {
+        float normalizedHeight = (float) (originalFeature.getHeight() / normalizationFactor);
+        float normalizedArea = (float) (originalFeature.getArea() / normalizationFactor);
+        originalFeature.setHeight(normalizedHeight);
+        originalFeature.setArea(normalizedArea);
+      }
     }
-    // add or remove lists
-    handleOriginal.reflectNewFeatureListToProject(suffix, project, normalizedFeatureList,
-        originalFeatureList);
-
-    // Add task description to feature list
-    normalizedFeatureList.addDescriptionOfAppliedTask(
-        new SimpleFeatureListAppliedMethod("Standard compound normalization",
-            StandardCompoundNormalizerModule.class, parameters, getModuleCallDate()));
-
-    logger.info("Finished standard compound normalizer");
-    setStatus(TaskStatus.FINISHED);
-
   }
 
 }
@@ -50,11 +50,10 @@ import io.github.mzmine.taskcontrol.AbstractTask;
 import io.github.mzmine.taskcontrol.ProcessedItemsCounter;
 import io.github.mzmine.taskcontrol.TaskStatus;
 import io.github.mzmine.util.files.FileAndPathUtil;
+import io.github.mzmine.util.io.ParallelBlockWriter;
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
 import java.text.DecimalFormat;
 import java.text.MessageFormat;
 import java.text.NumberFormat;
@@ -91,13 +90,16 @@ public class GnpsFbmnMgfExportTask extends AbstractTask implements ProcessedItem
   // track number of exported items
   private final AtomicInteger exportedRows = new AtomicInteger(0);
   private int currentIndex = 0;
-  // by robin
-  private NumberFormat mzForm = MZmineCore.getConfiguration().getMZFormat();
-  private NumberFormat intensityForm = MZmineCore.getConfiguration().getIntensityFormat();
+  // rows are formatted in parallel, number formats are not thread safe
+  private final ThreadLocal<NumberFormat> mzForm = ThreadLocal.withInitial(
+      () -> (NumberFormat) MZmineCore.getConfiguration().getMZFormat().clone());
+  private final ThreadLocal<NumberFormat> intensityForm = ThreadLocal.withInitial(
+      () -> (NumberFormat) MZmineCore.getConfiguration().getIntensityFormat().clone());
   // seconds
-  private NumberFormat rtsForm = new DecimalFormat("0.###");
-  // correlation
-  private NumberFormat corrForm = new DecimalFormat("0.0000");
+  private final ThreadLocal<NumberFormat> rtsForm = ThreadLocal.withInitial(
+      () -> new DecimalFormat("0.###"));
+  // count rows without MS2 of the current feature list
+  private final AtomicInteger noMS2Counter = new AtomicInteger(0);
 
   GnpsFbmnMgfExportTask(ParameterSet parameters, @NotNull Instant moduleCallDate) {
     super(null, moduleCallDate); // no new data stored -> null
@@ -153,7 +155,7 @@ public class GnpsFbmnMgfExportTask extends AbstractTask implements ProcessedItem
             .replaceAll(Pattern.quote(plNamePattern), cleanPlName);
         curFile = new File(newFilename);
       }
-      curFile = FileAndPathUtil.getRealFilePath(curFile, "mgf");
+      curFile = ParallelBlockWriter.getRealFilePath(curFile, "mgf");
 
       if (!FileAndPathUtil.createDirectory(curFile.getParentFile())) {
         setErrorMessage("Could not create directories for file " + curFile + " for writing.");
@@ -162,8 +164,7 @@ public class GnpsFbmnMgfExportTask extends AbstractTask implements ProcessedItem
       }
 
       // Open file
-      try (BufferedWriter writer = Files.newBufferedWriter(curFile.toPath(),
-          StandardCharsets.UTF_8)) {
+      try (BufferedWriter writer = ParallelBlockWriter.newBufferedWriter(curFile)) {
 
         export(featureList, rows, writer);
       } catch (IOException e) {
@@ -219,98 +220,109 @@ public class GnpsFbmnMgfExportTask extends AbstractTask implements ProcessedItem
 
   private long export(FeatureList featureList, List<FeatureListRow> rows, BufferedWriter writer)
       throws IOException {
-    final String newLine = System.lineSeparator();
+    noMS2Counter.set(0);
+    final int exported = ParallelBlockWriter.writeInOrder(rows, writer, this::exportRow,
+        this::isCanceled);
 
-    int noMS2Counter = 0;
-    // count exported
-    for (FeatureListRow row : rows) {
-      // do not export if no MSMS
-      if (!filter.accept(row)) {
-        continue;
-      }
+    if (exported == 0) {
+      logger.log(Level.WARNING, "No MS/MS scans exported.");
+    } else {
+      logger.info(
+          MessageFormat.format("Total of {0} feature rows (MS/MS mass lists) were exported ({1})",
+              exported, featureList.getName()));
+    }
+    if (noMS2Counter.get() > 0 && filter.requiresMS2()) {
+      logger.warning(
+          noMS2Counter.get() + " features had no MS/MS scan after already filtering for MS2");
+    }
 
-      // Get the MS/MS scan number
-      Scan msmsScan = row.getMostIntenseFragmentScan();
-      if (msmsScan == null) {
-        noMS2Counter++;
-        // with IIMN, filter also accepts feature without MS2
-        continue;
-      }
+    return exported;
+  }
+
+  /**
+   * Writes the entry of one row. Called in parallel for multiple rows.
+   *
+   * @return true if the row was exported
+   */
+  private boolean exportRow(FeatureListRow row, BufferedWriter writer) throws IOException {
+    final String newLine = System.lineSeparator();
+    // do not export if no MSMS
+    if (!filter.accept(row)) {
+      return false;
+    }
 
-      MassList massList = msmsScan.getMassList();
+    // Get the MS/MS scan number
+    Scan msmsScan = row.getMostIntenseFragmentScan();
+    if (msmsScan == null) {
+      noMS2Counter.incrementAndGet();
+      // with IIMN, filter also accepts feature without MS2
+      return false;
+    }
 
-      if (massList == null) {
-        setErrorMessage("MS2 scan has no mass list. Run Mass detection on all scans");
-        setStatus(TaskStatus.ERROR);
-        throw new IllegalArgumentException(
-            "MS2 scan has no mass list. Run Mass detection on all scans");
-      }
+    MassList massList = msmsScan.getMassList();
 
-      String rowID = Integer.toString(row.getID());
-      final Float averageRT = row.getAverageRT();
-      double retTimeInSeconds = averageRT == null ? 0d : ((averageRT * 60 * 100.0) / 100.);
+    if (massList == null) {
+      setErrorMessage("MS2 scan has no mass list. Run Mass detection on all scans");
+      setStatus(TaskStatus.ERROR);
+      throw new IllegalArgumentException(
+          "MS2 scan has no mass list. Run Mass detection on all scans");
+    }
 
-      writer.append("BEGIN IONS").append(newLine);
-      writer.append("FEATURE_ID=").append(rowID).write(newLine);
+    final NumberFormat mzForm = this.mzForm.get();
+    final NumberFormat intensityForm = this.intensityForm.get();
 
-      final Double mz = row.getAverageMZ();
-      if (mz != null) {
-        writer.append("PEPMASS=").append(mzForm.format(mz)).write(newLine);
-      }
+    String rowID = Integer.toString(row.getID());
+    final Float averageRT = row.getAverageRT();
+    double retTimeInSeconds = averageRT == null ? 0d : ((averageRT * 60 * 100.0) / 100.);
 
-      writer.append("SCANS=").append(rowID).write(newLine);
-      writer.append("RTINSECONDS=").append(rtsForm.format(retTimeInSeconds)).write(newLine);
+    writer.append("BEGIN IONS").append(newLine);
+    writer.append("FEATURE_ID=").append(rowID).write(newLine);
 
-      int msmsCharge = Objects.requireNonNullElse(msmsScan.getPrecursorCharge(), 1);
-      String msmsPolarity = msmsScan.getPolarity().asSingleChar();
-      if (!(msmsPolarity.equals("+") || msmsPolarity.equals("-"))) {
-        msmsPolarity = "";
-      }
+    final Double mz = row.getAverageMZ();
+    if (mz != null) {
+      writer.append("PEPMASS=").append(mzForm.format(mz)).write(newLine);
+    }
 
-      writer.write("CHARGE=" + msmsCharge + msmsPolarity + newLine);
-      writer.append("MSLEVEL=2").write(newLine);
-
-      DataPoint[] dataPoints = null;
-      // merge MS/MS spectra
-      if (mergeMS2) {
-        try {
-          MergedSpectrum spectrum = merger.getBestMergedSpectrum(mergeParameters, row);
-          if (spectrum != null) {
-            dataPoints = spectrum.data;
-            writer.write("MERGED_STATS=");
-            writer.write(spectrum.getMergeStatsDescription());
-            writer.write(newLine);
-          }
-        } catch (Exception ex) {
-          logger.log(Level.WARNING, "Error during MS2 merge in mgf export: " + ex.getMessage(), ex);
-        }
-      }
-      // nothing after merging or no merging active
-      if (dataPoints == null) {
-        dataPoints = massList.getDataPoints();
-      }
+    writer.append("SCANS=").append(rowID).write(newLine);
+    writer.append("RTINSECONDS=").append(rtsForm.get().format(retTimeInSeconds)).write(newLine);
 
-      for (DataPoint feature : dataPoints) {
-        writer.append(mzForm.format(feature.getMZ())).append(" ")
-            .append(intensityForm.format(feature.getIntensity())).write(newLine);
-      }
-      //
-      writer.append("END IONS").append(newLine).write(newLine);
-      exportedRows.incrementAndGet();
+    int msmsCharge = Objects.requireNonNullElse(msmsScan.getPrecursorCharge(), 1);
+    String msmsPolarity = msmsScan.getPolarity().asSingleChar();
+    if (!(msmsPolarity.equals("+") || msmsPolarity.equals("-"))) {
+      msmsPolarity = "";
     }
 
-    if (exportedRows.get() == 0) {
-      logger.log(Level.WARNING, "No MS/MS scans exported.");
-    } else {
-      logger.info(
-          MessageFormat.format("Total of {0} feature rows (MS/MS mass lists) were exported ({1})",
-              exportedRows.get(), featureList.getName()));
+    writer.write("CHARGE=" + msmsCharge + msmsPolarity + newLine);
+    writer.append("MSLEVEL=2").write(newLine);
+
+    DataPoint[] dataPoints = null;
+    // merge MS/MS spectra
+    if (mergeMS2) {
+      try {
+        MergedSpectrum spectrum = merger.getBestMergedSpectrum(mergeParameters, row);
+        if (spectrum != null) {
+          dataPoints = spectrum.data;
+          writer.write("MERGED_STATS=");
+          writer.write(spectrum.getMergeStatsDescription());
+          writer.write(newLine);
+        }
+      } catch (Exception ex) {
+        logger.log(Level.WARNING, "Error during MS2 merge in mgf export: " + ex.getMessage(), ex);
+      }
     }
-    if (noMS2Counter > 0 && filter.requiresMS2()) {
-      logger.warning(noMS2Counter + " features had no MS/MS scan after already filtering for MS2");
+    // nothing after merging or no merging active
+    if (dataPoints == null) {
+      dataPoints = massList.getDataPoints();
     }
 
-    return exportedRows.get();
+    for (DataPoint feature : dataPoints) {
+      writer.append(mzForm.format(feature.getMZ())).append(" ")
+          .append(intensityForm.format(feature.getIntensity())).write(newLine);
+    }
+    //
+    writer.append("END IONS").append(newLine).write(newLine);
+    exportedRows.incrementAndGet();
+    return true;
   }
 
   @Override
@@ -34,11 +34,13 @@ import io.github.mzmine.datamodel.features.FeatureListRow;
 import io.github.mzmine.parameters.ParameterSet;
 import io.github.mzmine.taskcontrol.AbstractTask;
 import io.github.mzmine.taskcontrol.TaskStatus;
+import io.github.mzmine.util.io.ParallelBlockWriter;
 import io.github.mzmine.util.scans.ScanUtils;
 import io.github.mzmine.util.scans.ScanUtils.IntegerMode;
+import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.Writer;
 import java.time.Instant;
 import java.util.Arrays;
 import java.util.regex.Matcher;
@@ -123,9 +125,9 @@ public class AdapMspExportTask extends AbstractTask {
       }
 
       // Open file
-      FileWriter writer;
+      BufferedWriter writer;
       try {
-        writer = new FileWriter(curFile);
+        writer = ParallelBlockWriter.newBufferedWriter(curFile);
       } catch (Exception e) {
         setStatus(TaskStatus.ERROR);
         setErrorMessage("Could not open file " + curFile + " for writing.");
@@ -133,7 +135,7 @@ public class AdapMspExportTask extends AbstractTask {
       }
 
       try {
-        exportFeatureList(featureList, writer, curFile);
+        exportFeatureList(featureList, writer);
       } catch (IOException | IllegalArgumentException e) {
         setStatus(TaskStatus.ERROR);
         setErrorMessage("Error while writing into file " + curFile + ": " + e.getMessage());
@@ -164,67 +166,74 @@ public class AdapMspExportTask extends AbstractTask {
       setStatus(TaskStatus.FINISHED);
   }
 
-  private void exportFeatureList(FeatureList featureList, FileWriter writer, File curFile)
-      throws IOException {
-    final String newLine = System.lineSeparator();
+  private void exportFeatureList(FeatureList featureList, Writer writer) throws IOException {
+    // entries are formatted in parallel and written in order
+    ParallelBlockWriter.writeInOrder(featureList.getRows(), writer, this::exportRow,
+        this::isCanceled);
+  }
 
-    for (FeatureListRow row : featureList.getRows()) {
-      IsotopePattern ip = row.getBestIsotopePattern();
-      if (ip == null)
-        continue;
+  /**
+   * @return true if the row has an isotope pattern and was exported
+   */
+  private boolean exportRow(FeatureListRow row, BufferedWriter writer) throws IOException {
+    final String newLine = System.lineSeparator();
 
-      String name = row.toString();
-      if (name != null)
-        writer.write("Name: " + name + newLine);
+    IsotopePattern ip = row.getBestIsotopePattern();
+    if (ip == null)
+      return false;
 
-      FeatureIdentity identity = row.getPreferredFeatureIdentity();
-      if (identity != null) {
-        // String name = identity.getName();
-        // if (name != null) writer.write("Name: " + name + newLine);
+    String name = row.toString();
+    if (name != null)
+      writer.write("Name: " + name + newLine);
 
-        String formula = identity.getPropertyValue(FeatureIdentity.PROPERTY_FORMULA);
-        if (formula != null)
-          writer.write("Formula: " + formula + newLine);
+    FeatureIdentity identity = row.getPreferredFeatureIdentity();
+    if (identity != null) {
+      // String name = identity.getName();
+      // if (name != null) writer.write("Name: " + name + newLine);
 
-        String id = identity.getPropertyValue(FeatureIdentity.PROPERTY_ID);
-        if (id != null)
-          writer.write("Comments: " + id + newLine);
-      }
+      String formula = identity.getPropertyValue(FeatureIdentity.PROPERTY_FORMULA);
+      if (formula != null)
+        writer.write("Formula: " + formula + newLine);
 
-      String rowID = Integer.toString(row.getID());
-      if (rowID != null)
-        writer.write("DB#: " + rowID + newLine);
+      String id = identity.getPropertyValue(FeatureIdentity.PROPERTY_ID);
+      if (id != null)
+        writer.write("Comments: " + id + newLine);
+    }
 
-      if (addRetTime) {
-        String attributeName = checkAttributeName(retTimeAttributeName);
-        writer.write(attributeName + ": " + row.getAverageRT() + newLine);
-      }
+    String rowID = Integer.toString(row.getID());
+    if (rowID != null)
+      writer.write("DB#: " + rowID + newLine);
 
-      FeatureInformation featureInformation = row.getFeatureInformation();
-      if (addAnovaPValue && featureInformation != null
-          && featureInformation.getAllProperties().containsKey("ANOVA_P_VALUE")) {
-        String attributeName = checkAttributeName(anovaAttributeName);
-        String value = featureInformation.getPropertyValue("ANOVA_P_VALUE");
-        if (value.trim().length() > 0)
-          writer.write(attributeName + ": " + value + newLine);
-      }
+    if (addRetTime) {
+      String attributeName = checkAttributeName(retTimeAttributeName);
+      writer.write(attributeName + ": " + row.getAverageRT() + newLine);
+    }
 
-      DataPoint[] dataPoints = ScanUtils.extractDataPoints(ip);
+    FeatureInformation featureInformation = row.getFeatureInformation();
+    if (addAnovaPValue && featureInformation != null
+        && featureInformation.getAllProperties().containsKey("ANOVA_P_VALUE")) {
+      String attributeName = checkAttributeName(anovaAttributeName);
+      String value = featureInformation.getPropertyValue("ANOVA_P_VALUE");
+      if (value.trim().length() > 0)
+        writer.write(attributeName + ": " + value + newLine);
+    }
 
-      if (integerMZ)
-        dataPoints = ScanUtils.integerDataPoints(dataPoints, roundMode);
+    DataPoint[] dataPoints = ScanUtils.extractDataPoints(ip);
 
-      String numFeatures = Integer.toString(dataPoints.length);
-      if (numFeatures != null)
-        writer.write("Num Features: " + numFeatures + newLine);
+    if (integerMZ)
+      dataPoints = ScanUtils.integerDataPoints(dataPoints, roundMode);
 
-      for (DataPoint point : dataPoints) {
-        String line = point.getMZ() + " " + point.getIntensity();
-        writer.write(line + newLine);
-      }
+    String numFeatures = Integer.toString(dataPoints.length);
+    if (numFeatures != null)
+      writer.write("Num Features: " + numFeatures + newLine);
 
-      writer.write(newLine);
+    for (DataPoint point : dataPoints) {
+      String line = point.getMZ() + " " + point.getIntensity();
+      writer.write(line + newLine);
     }
+
+    writer.write(newLine);
+    return true;
   }
 
   private String checkAttributeName(String name) {
@@ -60,14 +60,13 @@ import io.github.mzmine.util.SortingDirection;
 import io.github.mzmine.util.SortingProperty;
 import io.github.mzmine.util.exceptions.MissingMassListException;
 import io.github.mzmine.util.files.FileAndPathUtil;
+import io.github.mzmine.util.io.ParallelBlockWriter;
 import io.github.mzmine.util.scans.ScanUtils;
 import io.github.mzmine.util.spectraldb.entry.DBEntryField;
 import io.github.mzmine.util.spectraldb.entry.SpectralLibraryEntry;
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -183,8 +182,7 @@ public class SiriusExportTask extends AbstractTask {
       }
 
       // Open file
-      try (BufferedWriter writer = Files.newBufferedWriter(curFile.toPath(),
-          StandardCharsets.UTF_8)) {
+      try (BufferedWriter writer = ParallelBlockWriter.newBufferedWriter(curFile)) {
         logger.fine(() -> String.format("Exporting SIRIUS mgf for feature list: %s to file %s",
             featureList.getName(), curFile.getAbsolutePath()));
         exportFeatureList(featureList, writer);
@@ -217,18 +215,14 @@ public class SiriusExportTask extends AbstractTask {
 
   private void exportFeatureList(FeatureList featureList, BufferedWriter writer)
       throws IOException {
-
-    for (FeatureListRow row : featureList.getRows()) {
-      if (isCanceled()) {
-        return;
-      }
-
-      if (exportRow(writer, row)) {
-        exportedRows.getAndIncrement();
-      }
-
-      processedRows.getAndIncrement();
-    }
+    // rows are prepared and formatted in parallel and written in order
+    final int exported = ParallelBlockWriter.writeInOrder(featureList.getRows(), writer,
+        (row, blockWriter) -> {
+          final boolean written = exportRow(blockWriter, row);
+          processedRows.getAndIncrement();
+          return written;
+        }, this::isCanceled);
+    exportedRows.getAndAdd(exported);
   }
 
   /**
@@ -413,7 +407,7 @@ public class SiriusExportTask extends AbstractTask {
           .replaceAll(Pattern.quote(MULTI_NAME_PATTERN), cleanPlName);
       tmpFile = new File(newFilename);
     }
-    final File curFile = FileAndPathUtil.getRealFilePath(tmpFile, "mgf");
+    final File curFile = ParallelBlockWriter.getRealFilePath(tmpFile, "mgf");
 
     if (!FileAndPathUtil.createDirectory(curFile.getParentFile())) {
       return null;
@@ -55,10 +55,16 @@ import java.io.DataInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.time.Instant;
+import java.util.ArrayDeque;
 import java.util.Arrays;
 import java.util.Base64;
 import java.util.Date;
+import java.util.Deque;
 import java.util.LinkedList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import java.util.logging.Logger;
 import java.util.zip.DataFormatException;
 import javax.xml.datatype.DatatypeFactory;
@@ -112,7 +118,16 @@ public class MzXMLImportTask extends AbstractTask {
    * This stack stores the current scan and all his fragments until all the information is recover.
    * The logic is FIFO at the moment of write into the RawDataFile
    */
-  private final LinkedList<SimpleScan> parentStack;
+  private final LinkedList<Future<SimpleScan>> parentStack;
+
+  /*
+   * Peaks are decoded (and mass detected) on the common fork join pool, which is shared by all
+   * import tasks. The scans are committed to the RawDataFile in the order of this queue, which is
+   * the order of the file.
+   */
+  private final Deque<Future<SimpleScan>> pendingScans = new ArrayDeque<>();
+  private final ForkJoinPool decoder = ForkJoinPool.commonPool();
+  private final int decodingThreads = Math.max(1, ForkJoinPool.getCommonPoolParallelism());
 
 
   // advanced processing will apply mass detection directly to the scans
@@ -124,7 +139,7 @@ public class MzXMLImportTask extends AbstractTask {
    * This variable hold the present scan or fragment, it is send to the stack when another
    * scan/fragment appears as a parser.startElement
    */
-  private SimpleScan buildingScan;
+  private Future<SimpleScan> buildingScan;
 
 
   public MzXMLImportTask(MZmineProject project, File fileToOpen, RawDataFile newMZmineFile,
@@ -142,7 +157,7 @@ public class MzXMLImportTask extends AbstractTask {
     this.module = module;
     // 256 kilo-chars buffer
     charBuffer = new StringBuilder(1 << 18);
-    parentStack = new LinkedList<SimpleScan>();
+    parentStack = new LinkedList<>();
     this.project = project;
     this.file = fileToOpen;
     this.newMZmineFile = newMZmineFile;
@@ -190,6 +205,8 @@ public class MzXMLImportTask extends AbstractTask {
 
       SAXParser saxParser = factory.newSAXParser();
       saxParser.parse(file, handler);
+      // commit the remaining scans
+      commitPendingScans(0);
 
       newMZmineFile.getAppliedMethods()
           .add(new SimpleFeatureListAppliedMethod(module, parameters, getModuleCallDate()));
@@ -203,6 +220,13 @@ public class MzXMLImportTask extends AbstractTask {
         setErrorMessage(ExceptionUtils.exceptionToString(e));
       }
       return;
+    } finally {
+      // the pool is shared, only drop the scans of this file after an error or cancel
+      if (buildingScan != null) {
+        buildingScan.cancel(false);
+      }
+      parentStack.forEach(scan -> scan.cancel(false));
+      pendingScans.forEach(scan -> scan.cancel(false));
     }
 
     if (isCanceled()) {
@@ -225,6 +249,160 @@ public class MzXMLImportTask extends AbstractTask {
     return "Opening file " + file;
   }
 
+  /**
+   * Adds the decoded scans to the RawDataFile in file order. Scans that are already decoded are
+   * always committed. Waits for the decoding of the oldest scans while more than maxPending scans
+   * are pending, which bounds the memory of the encoded and decoded scans in flight.
+   *
+   * @param maxPending the maximum number of scans that may remain pending.
+   */
+  private void commitPendingScans(int maxPending) throws SAXException {
+    while (!pendingScans.isEmpty() && (pendingScans.size() > maxPending || pendingScans.peekFirst()
+        .isDone())) {
+      final SimpleScan scan = getDecodedScan(pendingScans.removeFirst());
+      try {
+        newMZmineFile.addScan(scan);
+      } catch (IOException e) {
+        e.printStackTrace();
+        setStatus(TaskStatus.ERROR);
+        setErrorMessage("IO error: " + e);
+        throw new SAXException("Parsing error: " + e);
+      }
+      parsedScans++;
+    }
+  }
+
+  private SimpleScan getDecodedScan(Future<SimpleScan> future) throws SAXException {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SAXException("Parsing Cancelled");
+    } catch (ExecutionException e) {
+      setStatus(TaskStatus.ERROR);
+      if (e.getCause() instanceof DataFormatException) {
+        setErrorMessage("Corrupt compressed peak: " + e.getCause());
+      } else if (e.getCause() instanceof IOException) {
+        setErrorMessage("Corrupt mzXML file");
+      } else {
+        setErrorMessage(ExceptionUtils.exceptionToString(e.getCause()));
+      }
+      throw new SAXException("Parsing Cancelled");
+    }
+  }
+
+  /**
+   * Decodes the peaks of a scan, optionally applies mass detection and creates the scan. Runs on
+   * the decoder threads.
+   */
+  private SimpleScan decodeScan(EncodedScan encoded) throws IOException, DataFormatException {
+    byte[] peakBytes = Base64.getDecoder().decode(encoded.peaks());
+
+    if (encoded.compressed()) {
+      peakBytes = CompressionUtils.decompress(peakBytes);
+    }
+
+    // make a data input stream
+    DataInputStream peakStream = new DataInputStream(new ByteArrayInputStream(peakBytes));
+
+    final int peaksCount = encoded.peaksCount();
+    DataPoint[] dps = new DataPoint[peaksCount];
+    double[] mzValues = new double[peaksCount];
+    double[] intensityValues = new double[peaksCount];
+
+    for (int i = 0; i < peaksCount; i++) {
+
+      // Always respect this order pairOrder="m/z-int"
+      double mz;
+      double intensity;
+      if ("64".equals(encoded.precision())) {
+        mz = peakStream.readDouble();
+        intensity = peakStream.readDouble();
+      } else {
+        mz = peakStream.readFloat();
+        intensity = peakStream.readFloat();
+      }
+
+      // Copy m/z and intensity data
+      dps[i] = new SimpleDataPoint(mz, intensity);
+    }
+    // sort because old converters might create unsorted spectral data
+    Arrays.sort(dps, DataPointSorter.DEFAULT_MZ_ASCENDING);
+
+    for (int i = 0; i < dps.length; i++) {
+      mzValues[i] = dps[i].getMZ();
+      intensityValues[i] = dps[i].getIntensity();
+    }
+
+    final int msLevel = encoded.msLevel();
+    if (applyMassDetection) {
+      // wrap scan
+      double[][] mzIntensities = null;
+
+      // apply mass detection
+      if (ms1Detector != null && msLevel == 1) {
+        mzIntensities = applyMassDetection(ms1Detector, mzValues, intensityValues);
+      } else if (ms2Detector != null && msLevel >= 2) {
+        mzIntensities = applyMassDetection(ms2Detector, mzValues, intensityValues);
+      }
+
+      if (mzIntensities != null) {
+        final DDAMsMsInfo info =
+            msLevel != 1 && Double.compare(encoded.precursorMz(), 0d) != 0 ? new DDAMsMsInfoImpl(
+                encoded.precursorMz(), encoded.precursorCharge(), null, null, null, msLevel,
+                ActivationMethod.UNKNOWN, null) : null;
+        // Set the centroided / thresholded data points to the scan
+        final SimpleScan scan = new SimpleScan(newMZmineFile, encoded.scanNumber(), msLevel,
+            encoded.retentionTime(), info, mzIntensities[0], mzIntensities[1],
+            MassSpectrumType.CENTROIDED, encoded.polarity(), encoded.scanId(), null);
+
+        // create mass list and scan. Override data points and spectrum type
+        ScanPointerMassList newMassList = new ScanPointerMassList(scan);
+        scan.addMassList(newMassList);
+        return scan;
+      }
+    }
+
+    // if no mass dection was applied - just create the scan
+    // Auto-detect whether this scan is centroided
+    MassSpectrumType spectrumType = ScanUtils.detectSpectrumType(mzValues, intensityValues);
+
+    final DDAMsMsInfo info =
+        msLevel != 1 && encoded.precursorMz() != 0d ? new DDAMsMsInfoImpl(encoded.precursorMz(),
+            encoded.precursorCharge(), null, null, null, msLevel, ActivationMethod.UNKNOWN, null)
+            : null;
+
+    // Set the final data points to the scan
+    return new SimpleScan(newMZmineFile, encoded.scanNumber(), msLevel, encoded.retentionTime(),
+        info, mzValues, intensityValues, spectrumType, encoded.polarity(), encoded.scanId(), null);
+  }
+
+  /**
+   * Apply mass detection
+   *
+   * @param msDetector  mass detection module
+   * @param mzs         input values for mass detection
+   * @param intensities input values
+   * @return new mzs: double[0]; new intensities: double[1] arrays
+   */
+  private double[][] applyMassDetection(MZmineProcessingStep<MassDetector> msDetector,
+      double[] mzs, double[] intensities) {
+    // wrap data points in a simple mass spectrum
+    return msDetector.getModule()
+        .getMassValues(new SimpleMassSpectrum(mzs, intensities), msDetector.getParameterSet());
+  }
+
+  /**
+   * The scan metadata and the still encoded peaks of a scan, handed from the parser to the decoder
+   * threads.
+   */
+  private record EncodedScan(int scanNumber, int msLevel, float retentionTime,
+                             PolarityType polarity, String scanId, double precursorMz,
+                             int precursorCharge, int peaksCount, String precision,
+                             boolean compressed, String peaks) {
+
+  }
+
   private class MzXMLHandler extends DefaultHandler {
 
 
@@ -360,17 +538,10 @@ public class MzXMLImportTask extends AbstractTask {
           reset();
           buildingScan = null;
           while (!parentStack.isEmpty()) {
-            SimpleScan currentScan = parentStack.removeLast();
-            try {
-              newMZmineFile.addScan(currentScan);
-            } catch (IOException e) {
-              e.printStackTrace();
-              setStatus(TaskStatus.ERROR);
-              setErrorMessage("IO error: " + e);
-              throw new SAXException("Parsing error: " + e);
-            }
-            parsedScans++;
+            pendingScans.addLast(parentStack.removeLast());
           }
+          // keep a few scans per thread in flight
+          commitPendingScans(decodingThreads * 4);
 
           /*
            * The scan with all his fragments is in the RawDataFile, now we clean the stack for the
@@ -396,116 +567,16 @@ public class MzXMLImportTask extends AbstractTask {
 
       // <peaks>
       if (qName.equalsIgnoreCase("peaks")) {
-
-        byte[] peakBytes = Base64.getDecoder().decode(charBuffer.toString());
-
-        if (compressFlag) {
-          try {
-            peakBytes = CompressionUtils.decompress(peakBytes);
-          } catch (DataFormatException e) {
-            setStatus(TaskStatus.ERROR);
-            setErrorMessage("Corrupt compressed peak: " + e);
-            throw new SAXException("Parsing Cancelled");
-          }
-        }
-
-        // make a data input stream
-        DataInputStream peakStream = new DataInputStream(new ByteArrayInputStream(peakBytes));
-
-        DataPoint[] dps = new DataPoint[peaksCount];
-        double[] mzValues = new double[peaksCount];
-        double[] intensityValues = new double[peaksCount];
-
-        try {
-          for (int i = 0; i < peaksCount; i++) {
-
-            // Always respect this order pairOrder="m/z-int"
-            double mz;
-            double intensity;
-            if ("64".equals(precision)) {
-              mz = peakStream.readDouble();
-              intensity = peakStream.readDouble();
-            } else {
-              mz = peakStream.readFloat();
-              intensity = peakStream.readFloat();
-            }
-
-            // Copy m/z and intensity data
-            dps[i] = new SimpleDataPoint(mz, intensity);
-          }
-          // sort because old converters might create unsorted spectral data
-          Arrays.sort(dps, DataPointSorter.DEFAULT_MZ_ASCENDING);
-
-          for (int i = 0; i < dps.length; i++) {
-            mzValues[i] = dps[i].getMZ();
-            intensityValues[i] = dps[i].getIntensity();
-          }
-
-        } catch (IOException eof) {
-          setStatus(TaskStatus.ERROR);
-          setErrorMessage("Corrupt mzXML file");
-          throw new SAXException("Parsing Cancelled");
-        }
-
-        if (applyMassDetection) {
-          // wrap scan
-          double[][] mzIntensities = null;
-
-          // apply mass detection
-          if (ms1Detector != null && msLevel == 1) {
-            mzIntensities = applyMassDetection(ms1Detector, mzValues, intensityValues);
-          } else if (ms2Detector != null && msLevel >= 2) {
-            mzIntensities = applyMassDetection(ms2Detector, mzValues, intensityValues);
-          }
-
-          if (mzIntensities != null) {
-            final DDAMsMsInfo info =
-                msLevel != 1 && Double.compare(precursorMz, 0d) != 0 ? new DDAMsMsInfoImpl(
-                    precursorMz, precursorCharge, null, null, null, msLevel,
-                    ActivationMethod.UNKNOWN, null) : null;
-            // Set the centroided / thresholded data points to the scan
-            buildingScan = new SimpleScan(newMZmineFile, scanNumber, msLevel, retentionTime, info,
-                mzIntensities[0], mzIntensities[1], MassSpectrumType.CENTROIDED, polarity, scanId,
-                null);
-
-            // create mass list and scan. Override data points and spectrum type
-            ScanPointerMassList newMassList = new ScanPointerMassList(buildingScan);
-            buildingScan.addMassList(newMassList);
-          }
-        }
-
-        // if no mass dection was applied - just create the scan
-        if (buildingScan == null) {
-          // Auto-detect whether this scan is centroided
-          MassSpectrumType spectrumType = ScanUtils.detectSpectrumType(mzValues, intensityValues);
-
-          final DDAMsMsInfo info =
-              msLevel != 1 && precursorMz != 0d ? new DDAMsMsInfoImpl(precursorMz, precursorCharge,
-                  null, null, null, msLevel, ActivationMethod.UNKNOWN, null) : null;
-
-          // Set the final data points to the scan
-          buildingScan = new SimpleScan(newMZmineFile, scanNumber, msLevel, retentionTime, info,
-              mzValues, intensityValues, spectrumType, polarity, scanId, null);
-        }
-
+        final EncodedScan encoded = new EncodedScan(scanNumber, msLevel, retentionTime, polarity,
+            scanId, precursorMz, precursorCharge, peaksCount, precision, compressFlag,
+            charBuffer.toString());
+        // a FutureTask keeps the checked exceptions of the decoding as cause
+        final FutureTask<SimpleScan> decoding = new FutureTask<>(() -> decodeScan(encoded));
+        decoder.execute(decoding);
+        buildingScan = decoding;
       }
     }
 
-    /**
-     * Apply mass detection
-     *
-     * @param msDetector  mass detection module
-     * @param mzs         input values for mass detection
-     * @param intensities input values
-     * @return new mzs: double[0]; new intensities: double[1] arrays
-     */
-    private double[][] applyMassDetection(MZmineProcessingStep<MassDetector> msDetector,
-        double[] mzs, double[] intensities) {
-      // wrap data points in a simple mass spectrum
-      return msDetector.getModule()
-          .getMassValues(new SimpleMassSpectrum(mzs, intensities), msDetector.getParameterSet());
-    }
-
     private void reset() {
       buildingScan = null;
       retentionTime = 0;
@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2004-2022 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.io.import_spectral_library;
+
+import io.github.mzmine.util.MemoryMapStorage;
+import io.github.mzmine.util.spectraldb.entry.SpectralLibrary;
+import java.io.File;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Keeps imported spectral libraries across projects, so that the headless batch worker does not
+ * parse the same library again for every job. Disabled by default, a library is only reused if
+ * the file was not changed since it was imported.
+ */
+public final class SpectralLibraryCache {
+
+  private static final Map<File, CachedLibrary> libraries = new ConcurrentHashMap<>();
+  private static volatile boolean enabled = false;
+
+  private SpectralLibraryCache() {
+  }
+
+  public static boolean isEnabled() {
+    return enabled;
+  }
+
+  public static void setEnabled(boolean enabled) {
+    SpectralLibraryCache.enabled = enabled;
+    if (!enabled) {
+      libraries.clear();
+    }
+  }
+
+  /**
+   * @return the cached library or null if the cache is disabled, the library was not imported
+   * before, or the file has changed since
+   */
+  @Nullable
+  static SpectralLibrary get(@NotNull File file) {
+    if (!enabled) {
+      return null;
+    }
+    final CachedLibrary cached = libraries.get(file.getAbsoluteFile());
+    if (cached == null || cached.lastModified() != file.lastModified()
+        || cached.length() != file.length()) {
+      return null;
+    }
+    return cached.library();
+  }
+
+  static void put(@NotNull File file, @NotNull SpectralLibrary library) {
+    if (enabled) {
+      libraries.put(file.getAbsoluteFile(),
+          new CachedLibrary(library, file.lastModified(), file.length()));
+    }
+  }
+
+  /**
+   * @return the storages used by the cached libraries, these must not be discarded
+   */
+  @NotNull
+  public static Set<MemoryMapStorage> getStorages() {
+    return libraries.values().stream().map(cached -> cached.library().getStorage())
+        .filter(storage -> storage != null).collect(Collectors.toSet());
+  }
+
+  private record CachedLibrary(SpectralLibrary library, long lastModified, long length) {
+
+  }
+}
@@ -71,11 +71,19 @@ public class SpectralLibraryImportTask extends AbstractTask {
     setStatus(TaskStatus.PROCESSING);
 
     try {
-      // will block until all library spectra are added to entries list
-      SpectralLibrary library = parseFile(dataBaseFile);
+      SpectralLibrary library = SpectralLibraryCache.get(dataBaseFile);
+      if (library != null) {
+        logger.info(() -> "Reusing already imported library " + dataBaseFile);
+      } else {
+        // will block until all library spectra are added to entries list
+        library = parseFile(dataBaseFile);
+      }
       final List<SpectralLibraryEntry> entries = library.getEntries();
       if (entries.size() > 0) {
         project.addSpectralLibrary(library);
+        if (!isCanceled()) {
+          SpectralLibraryCache.put(dataBaseFile, library);
+        }
         logger.log(Level.INFO,
             () -> String.format("Library %s successfully added with %d entries", dataBaseFile,
                 entries.size()));
@@ -58,6 +58,11 @@ public class CONST {
   public static final String XML_POLARITY_ATTR = "polarity";
 
   public static final String XML_MERGE_TYPE_ATTR = "merge_spec_type";
+  public static final String XML_SCAN_NUMBER_ATTR = "scannumber";
+  public static final String XML_SPECTRUM_TYPE_ATTR = "spectrumtype";
+  public static final String XML_INJECTION_TIME_ATTR = "injectiontime";
+  public static final String XML_SCAN_MZ_RANGE_ATTR = "mzrange";
+  public static final String XML_RAW_FILE_COLOR_ELEMENT = "color";
   /**
    * General
    */
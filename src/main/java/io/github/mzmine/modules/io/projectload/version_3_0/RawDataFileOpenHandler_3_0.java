@@ -64,6 +64,7 @@ import java.util.zip.ZipFile;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamException;
 import javax.xml.xpath.XPath;
 import javax.xml.xpath.XPathConstants;
 import javax.xml.xpath.XPathExpression;
@@ -200,7 +201,7 @@ public class RawDataFileOpenHandler_3_0 extends AbstractTask implements RawDataF
 
   @Override
   public double getFinishedPercentage() {
-    return currentTask != null ? (double) (processedSteps) / numSteps : 0d;
+    return numSteps > 0 ? (double) (processedSteps) / numSteps : 0d;
   }
 
   public boolean loadRawDataFiles() throws InterruptedException {
@@ -210,7 +211,17 @@ public class RawDataFileOpenHandler_3_0 extends AbstractTask implements RawDataF
 
     try {
       List<BatchQueue> batchQueues = loadBatchQueues();
-      numSteps = batchQueues.size();
+      final List<Integer> snapshots = RawDataSnapshotReader.findSnapshots(zipFile);
+      numSteps = snapshots.size() + batchQueues.size();
+
+      // processed raw data files saved as snapshot are mapped directly, no need to reprocess
+      for (Integer snapshot : snapshots) {
+        if (isCanceled()) {
+          return false;
+        }
+        project.addFile(new RawDataSnapshotReader(zipFile, snapshot).read(project));
+        processedSteps++;
+      }
 
       Path tempDir = Files.createTempDirectory(TEMP_RAW_DATA_FOLDER);
 
@@ -250,6 +261,11 @@ public class RawDataFileOpenHandler_3_0 extends AbstractTask implements RawDataF
         processedSteps++;
       }
 
+    } catch (XMLStreamException | ParserConfigurationException | SAXException e) {
+      logger.log(Level.WARNING, "Cannot load raw data snapshot.", e);
+      setErrorMessage("Cannot load raw data snapshot: " + e.getMessage());
+      setStatus(TaskStatus.ERROR);
+      return false;
     } catch (IOException e) {
       logger.log(Level.WARNING, "Cannot load batch queues for raw data import.", e);
       setErrorMessage("Cannot load batch queues for raw data import.");
@@ -0,0 +1,384 @@
+/*
+ * Copyright (c) 2004-2022 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.io.projectload.version_3_0;
+
+import io.github.mzmine.datamodel.MZmineProject;
+import io.github.mzmine.datamodel.MassList;
+import io.github.mzmine.datamodel.MassSpectrumType;
+import io.github.mzmine.datamodel.PolarityType;
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.Scan;
+import io.github.mzmine.datamodel.features.SimpleFeatureListAppliedMethod;
+import io.github.mzmine.datamodel.impl.SimpleScan;
+import io.github.mzmine.datamodel.impl.masslist.MassListStorage;
+import io.github.mzmine.datamodel.msms.MsMsInfo;
+import io.github.mzmine.modules.io.projectsave.RawDataSnapshotWriter;
+import io.github.mzmine.project.impl.RawDataFileImpl;
+import io.github.mzmine.util.MemoryMapStorage;
+import io.github.mzmine.util.ParsingUtils;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import javafx.scene.paint.Color;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.events.XMLEvent;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+/**
+ * Reads the raw data file snapshots written by {@link RawDataSnapshotWriter}. The binary data is
+ * extracted to a temporary file once and memory mapped, the scans and mass lists use the mapped
+ * buffers directly. The temporary file is registered with the storage of the raw data file and
+ * deleted together with it. If raw data is kept in ram, the data is copied to the heap and the
+ * temporary file is deleted right away.
+ */
+class RawDataSnapshotReader {
+
+  /**
+   * Mapped regions are limited to 2 GB, use the same size as the memory map storage.
+   */
+  private static final long MAX_MAPPED_BYTES = 1L << 30;
+  private static final Pattern SNAPSHOT_PATTERN = Pattern.compile(
+      Pattern.quote(RawDataSnapshotWriter.SNAPSHOT_FOLDER) + "(\\d+)" + Pattern.quote(
+          RawDataSnapshotWriter.METADATA_SUFFIX));
+
+  private static final Logger logger = Logger.getLogger(RawDataSnapshotReader.class.getName());
+
+  private final ZipFile zipFile;
+  private final String prefix;
+
+  RawDataSnapshotReader(@NotNull ZipFile zipFile, int index) {
+    this.zipFile = zipFile;
+    this.prefix = RawDataSnapshotWriter.SNAPSHOT_FOLDER + index;
+  }
+
+  /**
+   * @return the indices of all raw data file snapshots in the project
+   */
+  static List<Integer> findSnapshots(@NotNull ZipFile zipFile) {
+    final TreeSet<Integer> indices = new TreeSet<>();
+    zipFile.stream().forEach(entry -> {
+      final Matcher matcher = SNAPSHOT_PATTERN.matcher(entry.getName());
+      if (matcher.matches()) {
+        indices.add(Integer.parseInt(matcher.group(1)));
+      }
+    });
+    return new ArrayList<>(indices);
+  }
+
+  /**
+   * Creates the raw data file with all scans and mass lists. The file is not added to the
+   * project.
+   */
+  RawDataFile read(@NotNull MZmineProject project)
+      throws IOException, XMLStreamException, ParserConfigurationException, SAXException {
+    final RawDataFileImpl file = readMetadata();
+    final SnapshotData data = mapData(file.getMemoryMapStorage());
+    readScans(file, data, project);
+    return file;
+  }
+
+  private RawDataFileImpl readMetadata()
+      throws IOException, ParserConfigurationException, SAXException {
+    final Document document;
+    try (InputStream is = zipFile.getInputStream(
+        getEntry(prefix + RawDataSnapshotWriter.METADATA_SUFFIX))) {
+      document = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(is);
+    }
+
+    final Element fileElement = (Element) document.getElementsByTagName(
+        CONST.XML_RAW_FILE_ELEMENT).item(0);
+    final String name = getChildText(fileElement, CONST.XML_RAW_FILE_NAME_ELEMENT);
+    final String path = getChildText(fileElement, CONST.XML_RAW_FILE_PATH_ELEMENT);
+    final String color = getChildText(fileElement, CONST.XML_RAW_FILE_COLOR_ELEMENT);
+
+    final RawDataFileImpl file = new RawDataFileImpl(name,
+        CONST.XML_NULL_VALUE.equals(path) ? null : path, MemoryMapStorage.forRawDataFile(),
+        Color.web(color));
+
+    final NodeList methodElements = fileElement.getElementsByTagName(
+        CONST.XML_FLIST_APPLIED_METHOD_ELEMENT);
+    for (int i = 0; i < methodElements.getLength(); i++) {
+      final SimpleFeatureListAppliedMethod method = SimpleFeatureListAppliedMethod.loadValueFromXML(
+          (Element) methodElements.item(i));
+      if (method != null) {
+        file.getAppliedMethods().add(method);
+      }
+    }
+    return file;
+  }
+
+  private static String getChildText(Element element, String tag) {
+    return element.getElementsByTagName(tag).item(0).getTextContent();
+  }
+
+  /**
+   * Extracts the binary data and maps the data points of each scan and mass list.
+   *
+   * @param storage the storage of the raw data file or null if the data is kept in ram.
+   */
+  private SnapshotData mapData(@Nullable MemoryMapStorage storage) throws IOException {
+    final File tempFile = File.createTempFile("mzmine", ".tmp");
+    tempFile.deleteOnExit();
+    try (InputStream is = zipFile.getInputStream(
+        getEntry(prefix + RawDataSnapshotWriter.DATA_SUFFIX))) {
+      Files.copy(is, tempFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    final SnapshotData data;
+    try {
+      data = mapData(tempFile, storage != null);
+    } finally {
+      if (storage != null) {
+        storage.registerTemporaryFile(tempFile);
+      } else if (!tempFile.delete()) {
+        // still mapped on some platforms, deleted on exit instead
+        logger.fine(() -> "Cannot delete temporary file " + tempFile.getAbsolutePath());
+      }
+    }
+    return data;
+  }
+
+  /**
+   * @param mapped true to use the mapped buffers directly, false to copy the data to the heap.
+   */
+  private SnapshotData mapData(File tempFile, boolean mapped) throws IOException {
+    try (FileChannel channel = FileChannel.open(tempFile.toPath(), StandardOpenOption.READ)) {
+      final ByteBuffer start = channel.map(MapMode.READ_ONLY, 0, 4 * Integer.BYTES);
+      if (start.getInt() != RawDataSnapshotWriter.MAGIC) {
+        throw new IOException("Invalid raw data snapshot " + prefix);
+      }
+      final int version = start.getInt();
+      if (version > RawDataSnapshotWriter.VERSION) {
+        throw new IOException(
+            "Raw data snapshot version " + version + " is not supported by this MZmine version.");
+      }
+      final int numScans = start.getInt();
+
+      final int headerSize = RawDataSnapshotWriter.getHeaderSize(numScans);
+      final ByteBuffer header = channel.map(MapMode.READ_ONLY, 0, headerSize);
+      header.position(4 * Integer.BYTES);
+      final long numScanPoints = header.getLong();
+      final long numMassListPoints = header.getLong();
+      final int[] scanPoints = new int[numScans];
+      final int[] massListPoints = new int[numScans];
+      final int[] basePeaks = new int[numScans];
+      header.asIntBuffer().get(scanPoints).get(massListPoints).get(basePeaks);
+
+      final int[] massListCounts = Arrays.stream(massListPoints).map(v -> Math.max(0, v))
+          .toArray();
+      long position = headerSize;
+      final DoubleBuffer[] mzs = mapSection(channel, position, scanPoints, mapped);
+      position += numScanPoints * Double.BYTES;
+      final DoubleBuffer[] intensities = mapSection(channel, position, scanPoints, mapped);
+      position += numScanPoints * Double.BYTES;
+      final List<MappedRegion> massListMzs = mapRegions(channel, position, massListCounts,
+          mapped);
+      position += numMassListPoints * Double.BYTES;
+      final List<MappedRegion> massListIntensities = mapRegions(channel, position,
+          massListCounts, mapped);
+
+      // the mass lists are written consecutively, one storage for each mapped region
+      final MassList[] massLists = new MassList[numScans];
+      for (int r = 0; r < massListMzs.size(); r++) {
+        final MappedRegion region = massListMzs.get(r);
+        final int[] offsets = new int[region.last() - region.first()];
+        int offset = 0;
+        for (int i = 0; i < offsets.length; i++) {
+          offsets[i] = offset;
+          offset += massListCounts[region.first() + i];
+        }
+        final MassListStorage storage = new MassListStorage(region.buffer(),
+            massListIntensities.get(r).buffer(), offsets,
+            Arrays.copyOfRange(basePeaks, region.first(), region.last()));
+        for (int i = 0; i < offsets.length; i++) {
+          if (massListPoints[region.first() + i] >= 0) {
+            massLists[region.first() + i] = storage.getMassList(i);
+          }
+        }
+      }
+
+      // the mapping remains valid after the channel is closed
+      return new SnapshotData(mzs, intensities, massLists);
+    }
+  }
+
+  /**
+   * Maps a section of consecutive double arrays in regions of at most {@link #MAX_MAPPED_BYTES}.
+   *
+   * @return one buffer for each array
+   */
+  private static DoubleBuffer[] mapSection(FileChannel channel, long sectionStart, int[] counts,
+      boolean mapped) throws IOException {
+    final DoubleBuffer[] buffers = new DoubleBuffer[counts.length];
+    for (MappedRegion region : mapRegions(channel, sectionStart, counts, mapped)) {
+      int offset = 0;
+      for (int i = region.first(); i < region.last(); i++) {
+        buffers[i] = region.buffer().slice(offset, counts[i]);
+        offset += counts[i];
+      }
+    }
+    return buffers;
+  }
+
+  /**
+   * Splits a section of consecutive double arrays into regions of at most
+   * {@link #MAX_MAPPED_BYTES} and maps them.
+   *
+   * @param mapped true to use the mapped buffers, false to copy the regions to the heap.
+   * @return the regions in order
+   */
+  private static List<MappedRegion> mapRegions(FileChannel channel, long sectionStart,
+      int[] counts, boolean mapped) throws IOException {
+    final List<MappedRegion> regions = new ArrayList<>();
+    int first = 0;
+    long regionStart = sectionStart;
+    while (first < counts.length) {
+      // collect arrays for this region
+      long regionPoints = 0;
+      int last = first;
+      while (last < counts.length && (last == first
+          || (regionPoints + counts[last]) * Double.BYTES <= MAX_MAPPED_BYTES)) {
+        regionPoints += counts[last];
+        last++;
+      }
+
+      final DoubleBuffer region = channel.map(MapMode.READ_ONLY, regionStart,
+          regionPoints * Double.BYTES).asDoubleBuffer();
+      regions.add(new MappedRegion(
+          mapped ? region : DoubleBuffer.allocate(region.capacity()).put(region).clear(), first,
+          last));
+
+      regionStart += regionPoints * Double.BYTES;
+      first = last;
+    }
+    return regions;
+  }
+
+  /**
+   * Creates the scans in the first pass and adds the MS/MS information in a second pass, as it may
+   * reference other scans of the file.
+   */
+  private void readScans(RawDataFileImpl file, SnapshotData data, MZmineProject project)
+      throws IOException, XMLStreamException {
+    final XMLInputFactory xif = XMLInputFactory.newInstance();
+    final String scansEntry = prefix + RawDataSnapshotWriter.SCANS_SUFFIX;
+
+    try (InputStream is = zipFile.getInputStream(getEntry(scansEntry))) {
+      final XMLStreamReader reader = xif.createXMLStreamReader(is);
+      while (reader.hasNext()) {
+        if (reader.next() == XMLEvent.START_ELEMENT && reader.getLocalName()
+            .equals(CONST.XML_RAW_FILE_SCAN_ELEMENT)) {
+          final int index = Integer.parseInt(
+              reader.getAttributeValue(null, CONST.XML_RAW_FILE_SCAN_INDEX_ATTR));
+          final String mzRange = reader.getAttributeValue(null, CONST.XML_SCAN_MZ_RANGE_ATTR);
+
+          final SimpleScan scan = new SimpleScan(file,
+              Integer.parseInt(reader.getAttributeValue(null, CONST.XML_SCAN_NUMBER_ATTR)),
+              Integer.parseInt(reader.getAttributeValue(null, CONST.XML_MSLEVEL_ATTR)),
+              Float.parseFloat(reader.getAttributeValue(null, CONST.XML_RT_ATTR)),
+              data.mzs()[index], data.intensities()[index], MassSpectrumType.valueOf(
+              reader.getAttributeValue(null, CONST.XML_SPECTRUM_TYPE_ATTR)),
+              PolarityType.valueOf(reader.getAttributeValue(null, CONST.XML_POLARITY_ATTR)),
+              reader.getAttributeValue(null, CONST.XML_SCAN_DEF_ATTR),
+              mzRange != null ? ParsingUtils.stringToDoubleRange(mzRange) : null,
+              ParsingUtils.stringToFloat(
+                  reader.getAttributeValue(null, CONST.XML_INJECTION_TIME_ATTR)));
+          file.addScan(scan);
+
+          if (data.massLists()[index] != null) {
+            scan.addMassList(data.massLists()[index]);
+          }
+        }
+      }
+      reader.close();
+    }
+
+    final List<RawDataFile> allFiles = new ArrayList<>(List.of(project.getDataFiles()));
+    allFiles.add(file);
+    try (InputStream is = zipFile.getInputStream(getEntry(scansEntry))) {
+      final XMLStreamReader reader = xif.createXMLStreamReader(is);
+      Scan scan = null;
+      while (reader.hasNext()) {
+        if (reader.next() != XMLEvent.START_ELEMENT) {
+          continue;
+        }
+        if (reader.getLocalName().equals(CONST.XML_RAW_FILE_SCAN_ELEMENT)) {
+          scan = file.getScan(Integer.parseInt(
+              reader.getAttributeValue(null, CONST.XML_RAW_FILE_SCAN_INDEX_ATTR)));
+        } else if (reader.getLocalName().equals(MsMsInfo.XML_ELEMENT)
+            && scan instanceof SimpleScan simpleScan) {
+          simpleScan.setMsMsInfo(MsMsInfo.loadFromXML(reader, file, allFiles));
+        }
+      }
+      reader.close();
+    }
+  }
+
+  private ZipEntry getEntry(String name) throws IOException {
+    final ZipEntry entry = zipFile.getEntry(name);
+    if (entry == null) {
+      throw new IOException("Project does not contain " + name);
+    }
+    return entry;
+  }
+
+  private record SnapshotData(DoubleBuffer[] mzs, DoubleBuffer[] intensities,
+                              MassList[] massLists) {
+
+  }
+
+  /**
+   * A region of consecutive arrays, from the first (inclusive) to the last (exclusive) index.
+   */
+  private record MappedRegion(DoubleBuffer buffer, int first, int last) {
+
+  }
+}
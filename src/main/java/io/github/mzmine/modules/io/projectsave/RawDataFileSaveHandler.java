@@ -61,6 +61,7 @@ import java.util.zip.ZipOutputStream;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamException;
 import javax.xml.transform.TransformerException;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -84,6 +85,10 @@ public class RawDataFileSaveHandler extends AbstractTask {
   private final ZipOutputStream zipStream;
   private double progress = 0;
   private final List<RawDataFile> files;
+  // files that are imported from the raw data on load
+  private final List<RawDataFile> batchFiles;
+  // files that are saved as processed snapshots
+  private final List<RawDataFile> snapshotFiles;
   private final boolean saveFilesInProject;
   private final String prefix = "Saving raw data files: ";
   private String description;
@@ -97,13 +102,26 @@ public class RawDataFileSaveHandler extends AbstractTask {
 
   public RawDataFileSaveHandler(MZmineProject project, ZipOutputStream zipOutputStream,
       boolean saveFilesInProject, @NotNull Instant moduleCallDate) {
+    this(project, zipOutputStream, saveFilesInProject, false, moduleCallDate);
+  }
+
+  /**
+   * @param saveSnapshots save the processed scans and mass lists of LC-MS files to the project
+   *                      instead of importing and processing the files again on load. See
+   *                      {@link RawDataSnapshotWriter}.
+   */
+  public RawDataFileSaveHandler(MZmineProject project, ZipOutputStream zipOutputStream,
+      boolean saveFilesInProject, boolean saveSnapshots, @NotNull Instant moduleCallDate) {
     super(null, moduleCallDate);
     this.project = project;
     this.zipStream = zipOutputStream;
     this.saveFilesInProject = saveFilesInProject;
     files = List.of(project.getDataFiles());
-    numSteps = 1 /*dissect + merge */ + (saveFilesInProject ? files.size() : 0) /*save files*/
-        + 1 /*save batch file*/;
+    snapshotFiles = saveSnapshots ? files.stream().filter(RawDataSnapshotWriter::canSnapshot)
+        .toList() : List.of();
+    batchFiles = files.stream().filter(f -> !snapshotFiles.contains(f)).toList();
+    numSteps = 1 /*dissect + merge */ + (saveFilesInProject ? batchFiles.size() : 0) /*save files*/
+        + snapshotFiles.size() /*snapshots*/ + 1 /*save batch file*/;
     stepProgress = 1 / (double) numSteps;
   }
 
@@ -126,9 +144,13 @@ public class RawDataFileSaveHandler extends AbstractTask {
 
   public boolean saveRawDataFilesAsBatch() throws IOException, ParserConfigurationException {
 
-    List<BatchQueue> cleanedBatchQueues = List.of(RawDataSavingUtils.makeBatchQueue(files));
+    List<BatchQueue> cleanedBatchQueues = List.of(RawDataSavingUtils.makeBatchQueue(batchFiles));
     progress += stepProgress;
 
+    if (!saveSnapshots()) {
+      return false;
+    }
+
     if (saveFilesInProject) {
       description = prefix + "Zipping raw data files.";
       replaceRawFilePaths(cleanedBatchQueues);
@@ -173,6 +195,28 @@ public class RawDataFileSaveHandler extends AbstractTask {
     return true;
   }
 
+  /**
+   * Saves the snapshots of processed raw data files. These files do not need to be copied to the
+   * project, as the snapshots contain all data.
+   */
+  private boolean saveSnapshots() throws IOException {
+    for (int i = 0; i < snapshotFiles.size(); i++) {
+      if (isCanceled()) {
+        return false;
+      }
+      final RawDataFile file = snapshotFiles.get(i);
+      description = prefix + "Saving snapshot of " + file.getName();
+      try {
+        new RawDataSnapshotWriter(file, i).write(zipStream);
+      } catch (XMLStreamException | ParserConfigurationException | TransformerException e) {
+        logger.log(Level.WARNING, "Could not save snapshot of " + file.getName(), e);
+        return false;
+      }
+      progress += stepProgress;
+    }
+    return true;
+  }
+
   /**
    * Copies the raw data files to the zip folder (MZmine project file).
    *
@@ -180,7 +224,7 @@ public class RawDataFileSaveHandler extends AbstractTask {
    */
   private void copyRawDataFilesToZip() throws IOException {
 
-    for (final RawDataFile file : files) {
+    for (final RawDataFile file : batchFiles) {
       if (file.getAbsolutePath() == null || !Files.exists(Paths.get(file.getAbsolutePath()))) {
         progress += stepProgress;
         continue;
@@ -0,0 +1,363 @@
+/*
+ * Copyright (c) 2004-2022 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.io.projectsave;
+
+import com.google.common.collect.Range;
+import com.sun.xml.txw2.output.IndentingXMLStreamWriter;
+import io.github.mzmine.datamodel.MassList;
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.Scan;
+import io.github.mzmine.datamodel.features.FeatureList.FeatureListAppliedMethod;
+import io.github.mzmine.datamodel.msms.MsMsInfo;
+import io.github.mzmine.modules.io.projectload.version_3_0.CONST;
+import io.github.mzmine.project.impl.RawDataFileImpl;
+import io.github.mzmine.util.ParsingUtils;
+import io.github.mzmine.util.XMLUtils;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Objects;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import javax.xml.transform.TransformerException;
+import org.jetbrains.annotations.NotNull;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+/**
+ * Writes a snapshot of a processed raw data file to the project. The snapshot consists of a
+ * metadata file (name, path, color, applied methods), a scan metadata file and a binary data file
+ * that contains the data points of all scans and mass lists in contiguous blocks. The binary file
+ * is stored uncompressed and memory mapped when the project is opened, so the file does not need to
+ * be imported and processed again.
+ * <p>
+ * Binary layout (big endian): magic, version, number of scans, reserved (int each), number of scan
+ * data points, number of mass list data points (long each), the number of data points of each scan,
+ * the number of data points of each mass list (-1 if the scan has no mass list), the base peak
+ * index of each mass list (int arrays), padding to 8 bytes, and the double blocks of all scan m/z
+ * values, scan intensities, mass list m/z values and mass list intensities.
+ */
+public class RawDataSnapshotWriter {
+
+  public static final String SNAPSHOT_FOLDER = "msdatasnapshots/";
+  public static final String METADATA_SUFFIX = "_metadata.xml";
+  public static final String SCANS_SUFFIX = "_scans.xml";
+  public static final String DATA_SUFFIX = "_data.bin";
+  public static final int MAGIC = 0x4D5A5253;
+  public static final int VERSION = 1;
+
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  private final RawDataFile file;
+  private final String prefix;
+
+  /**
+   * @param file  the file to save, see {@link #canSnapshot(RawDataFile)}
+   * @param index unique index of the file in the project
+   */
+  public RawDataSnapshotWriter(@NotNull RawDataFile file, int index) {
+    this.file = file;
+    this.prefix = SNAPSHOT_FOLDER + index;
+  }
+
+  /**
+   * Only LC-MS files are saved as snapshots. Ion mobility and imaging files are still imported
+   * from the raw data files.
+   */
+  public static boolean canSnapshot(@NotNull RawDataFile file) {
+    return file.getClass().equals(RawDataFileImpl.class) && file.getNumOfScans() > 0;
+  }
+
+  public static int getHeaderSize(int numScans) {
+    final int size = 4 * Integer.BYTES + 2 * Long.BYTES + 3 * numScans * Integer.BYTES;
+    return (size + Double.BYTES - 1) / Double.BYTES * Double.BYTES;
+  }
+
+  public void write(@NotNull ZipOutputStream zipStream)
+      throws IOException, XMLStreamException, ParserConfigurationException, TransformerException {
+    writeMetadata(zipStream);
+    writeScans(zipStream);
+    writeData(zipStream);
+  }
+
+  private void writeMetadata(ZipOutputStream zipStream)
+      throws IOException, ParserConfigurationException, TransformerException {
+    final Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+        .newDocument();
+    final Element root = document.createElement(CONST.XML_ROOT_ELEMENT);
+    document.appendChild(root);
+
+    final Element fileElement = document.createElement(CONST.XML_RAW_FILE_ELEMENT);
+    root.appendChild(fileElement);
+
+    final Element nameElement = document.createElement(CONST.XML_RAW_FILE_NAME_ELEMENT);
+    nameElement.setTextContent(file.getName());
+    fileElement.appendChild(nameElement);
+
+    final Element pathElement = document.createElement(CONST.XML_RAW_FILE_PATH_ELEMENT);
+    pathElement.setTextContent(
+        file.getAbsolutePath() != null ? file.getAbsolutePath() : CONST.XML_NULL_VALUE);
+    fileElement.appendChild(pathElement);
+
+    final Element colorElement = document.createElement(CONST.XML_RAW_FILE_COLOR_ELEMENT);
+    colorElement.setTextContent(file.getColor().toString());
+    fileElement.appendChild(colorElement);
+
+    final Element appliedMethodsList = document.createElement(
+        CONST.XML_FLIST_APPLIED_METHODS_LIST_ELEMENT);
+    for (FeatureListAppliedMethod appliedMethod : file.getAppliedMethods()) {
+      final Element methodElement = document.createElement(CONST.XML_FLIST_APPLIED_METHOD_ELEMENT);
+      appliedMethod.saveValueToXML(methodElement);
+      appliedMethodsList.appendChild(methodElement);
+    }
+    fileElement.appendChild(appliedMethodsList);
+
+    final File tempFile = File.createTempFile("mzmine_rawsnapshot_metadata", ".tmp");
+    try {
+      XMLUtils.saveToFile(tempFile, document);
+      zipStream.putNextEntry(new ZipEntry(prefix + METADATA_SUFFIX));
+      copyToZip(tempFile, zipStream);
+    } finally {
+      tempFile.delete();
+    }
+  }
+
+  private void writeScans(ZipOutputStream zipStream) throws IOException, XMLStreamException {
+    final File tempFile = File.createTempFile("mzmine_rawsnapshot_scans", ".tmp");
+    try {
+      try (OutputStream os = new FileOutputStream(tempFile)) {
+        final XMLOutputFactory xof = XMLOutputFactory.newInstance();
+        final XMLStreamWriter writer = new IndentingXMLStreamWriter(
+            xof.createXMLStreamWriter(os, "UTF-8"));
+        writer.writeStartDocument("UTF-8", "1.0");
+        writer.writeStartElement(CONST.XML_SCAN_LIST_ELEMENT);
+        writer.writeAttribute(CONST.XML_NUM_VALUES_ATTR, String.valueOf(file.getNumOfScans()));
+
+        final List<Scan> scans = file.getScans();
+        for (int i = 0; i < scans.size(); i++) {
+          final Scan scan = scans.get(i);
+          writer.writeStartElement(CONST.XML_RAW_FILE_SCAN_ELEMENT);
+          writer.writeAttribute(CONST.XML_RAW_FILE_SCAN_INDEX_ATTR, String.valueOf(i));
+          writer.writeAttribute(CONST.XML_SCAN_NUMBER_ATTR, String.valueOf(scan.getScanNumber()));
+          writer.writeAttribute(CONST.XML_MSLEVEL_ATTR, String.valueOf(scan.getMSLevel()));
+          writer.writeAttribute(CONST.XML_RT_ATTR, String.valueOf(scan.getRetentionTime()));
+          writer.writeAttribute(CONST.XML_POLARITY_ATTR, scan.getPolarity().name());
+          writer.writeAttribute(CONST.XML_SPECTRUM_TYPE_ATTR, scan.getSpectrumType().name());
+          writer.writeAttribute(CONST.XML_SCAN_DEF_ATTR,
+              Objects.requireNonNullElse(scan.getScanDefinition(), ""));
+          writer.writeAttribute(CONST.XML_INJECTION_TIME_ATTR,
+              ParsingUtils.numberToString(scan.getInjectionTime()));
+          if (scan.getScanningMZRange() != null) {
+            writer.writeAttribute(CONST.XML_SCAN_MZ_RANGE_ATTR,
+                ParsingUtils.rangeToString((Range) scan.getScanningMZRange()));
+          }
+
+          final MsMsInfo msMsInfo = scan.getMsMsInfo();
+          if (msMsInfo != null) {
+            msMsInfo.writeToXML(writer);
+          }
+          writer.writeEndElement();
+        }
+
+        writer.writeEndElement();
+        writer.writeEndDocument();
+        writer.flush();
+        writer.close();
+      }
+
+      zipStream.putNextEntry(new ZipEntry(prefix + SCANS_SUFFIX));
+      copyToZip(tempFile, zipStream);
+    } finally {
+      tempFile.delete();
+    }
+  }
+
+  /**
+   * The data file is written uncompressed, so the zip entry needs the size and CRC before it is
+   * added.
+   */
+  private void writeData(ZipOutputStream zipStream) throws IOException {
+    final List<Scan> scans = file.getScans();
+    final int numScans = scans.size();
+
+    final int[] scanPoints = new int[numScans];
+    final int[] massListPoints = new int[numScans];
+    final int[] basePeaks = new int[numScans];
+    long numScanPoints = 0;
+    long numMassListPoints = 0;
+    for (int i = 0; i < numScans; i++) {
+      final Scan scan = scans.get(i);
+      scanPoints[i] = scan.getNumberOfDataPoints();
+      numScanPoints += scanPoints[i];
+
+      final MassList massList = scan.getMassList();
+      massListPoints[i] = massList != null ? massList.getNumberOfDataPoints() : -1;
+      basePeaks[i] = massList != null && massList.getBasePeakIndex() != null
+          ? massList.getBasePeakIndex() : -1;
+      numMassListPoints += Math.max(0, massListPoints[i]);
+    }
+
+    final File tempFile = File.createTempFile("mzmine_rawsnapshot_data", ".tmp");
+    try {
+      final CRC32 crc = new CRC32();
+      long size;
+      try (FileChannel channel = FileChannel.open(tempFile.toPath(), StandardOpenOption.WRITE)) {
+        final ChannelOutput out = new ChannelOutput(channel, crc);
+        out.putInt(MAGIC);
+        out.putInt(VERSION);
+        out.putInt(numScans);
+        out.putInt(0);
+        out.putLong(numScanPoints);
+        out.putLong(numMassListPoints);
+        for (int v : scanPoints) {
+          out.putInt(v);
+        }
+        for (int v : massListPoints) {
+          out.putInt(v);
+        }
+        for (int v : basePeaks) {
+          out.putInt(v);
+        }
+        while (out.getPosition() < getHeaderSize(numScans)) {
+          out.putInt(0);
+        }
+
+        final int maxPoints = Math.max(file.getMaxRawDataPoints(),
+            file.getMaxCentroidDataPoints());
+        double[] buffer = new double[maxPoints];
+        for (Scan scan : scans) {
+          buffer = scan.getMzValues(buffer);
+          out.putDoubles(buffer, scan.getNumberOfDataPoints());
+        }
+        for (Scan scan : scans) {
+          buffer = scan.getIntensityValues(buffer);
+          out.putDoubles(buffer, scan.getNumberOfDataPoints());
+        }
+        for (Scan scan : scans) {
+          final MassList massList = scan.getMassList();
+          if (massList != null) {
+            buffer = massList.getMzValues(buffer);
+            out.putDoubles(buffer, massList.getNumberOfDataPoints());
+          }
+        }
+        for (Scan scan : scans) {
+          final MassList massList = scan.getMassList();
+          if (massList != null) {
+            buffer = massList.getIntensityValues(buffer);
+            out.putDoubles(buffer, massList.getNumberOfDataPoints());
+          }
+        }
+        out.flush();
+        size = out.getPosition();
+      }
+
+      final ZipEntry entry = new ZipEntry(prefix + DATA_SUFFIX);
+      entry.setMethod(ZipEntry.STORED);
+      entry.setSize(size);
+      entry.setCompressedSize(size);
+      entry.setCrc(crc.getValue());
+      zipStream.putNextEntry(entry);
+      copyToZip(tempFile, zipStream);
+    } finally {
+      tempFile.delete();
+    }
+  }
+
+  private static void copyToZip(File file, ZipOutputStream zipStream) throws IOException {
+    try (InputStream is = new FileInputStream(file)) {
+      is.transferTo(zipStream);
+    }
+    zipStream.closeEntry();
+  }
+
+  /**
+   * Buffered writing of primitive values to a file channel that also updates a checksum.
+   */
+  private static class ChannelOutput {
+
+    private final FileChannel channel;
+    private final CRC32 crc;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private long position = 0;
+
+    private ChannelOutput(FileChannel channel, CRC32 crc) {
+      this.channel = channel;
+      this.crc = crc;
+    }
+
+    void putInt(int value) throws IOException {
+      ensureRemaining(Integer.BYTES);
+      buffer.putInt(value);
+      position += Integer.BYTES;
+    }
+
+    void putLong(long value) throws IOException {
+      ensureRemaining(Long.BYTES);
+      buffer.putLong(value);
+      position += Long.BYTES;
+    }
+
+    void putDoubles(double[] values, int length) throws IOException {
+      for (int i = 0; i < length; i++) {
+        ensureRemaining(Double.BYTES);
+        buffer.putDouble(values[i]);
+      }
+      position += (long) length * Double.BYTES;
+    }
+
+    long getPosition() {
+      return position;
+    }
+
+    private void ensureRemaining(int bytes) throws IOException {
+      if (buffer.remaining() < bytes) {
+        flush();
+      }
+    }
+
+    void flush() throws IOException {
+      buffer.flip();
+      crc.update(buffer.array(), 0, buffer.limit());
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+      buffer.clear();
+    }
+  }
+}
@@ -103,6 +103,7 @@ public class WizardBatchBuilderImagingDda extends BaseWizardBatchBuilder {
         .getModuleParameters(JoinAlignerModule.class).cloneParameterSet();
     param.setParameter(JoinAlignerParameters.peakLists,
         new FeatureListsSelection(FeatureListsSelectionType.BATCH_LAST_FEATURELISTS));
+    param.setParameter(JoinAlignerParameters.extendAlignedList, false);
     param.setParameter(JoinAlignerParameters.peakListName, "Aligned feature list");
     param.setParameter(JoinAlignerParameters.MZTolerance, mzTolInterSample);
     param.setParameter(JoinAlignerParameters.MZWeight, 3d);
@@ -30,8 +30,10 @@ import com.google.common.primitives.Ints;
 import io.github.mzmine.datamodel.DataPoint;
 import io.github.mzmine.datamodel.RawDataFile;
 import io.github.mzmine.datamodel.Scan;
+import io.github.mzmine.datamodel.data_access.EfficientDataAccess.ScanDataType;
 import io.github.mzmine.datamodel.features.Feature;
 import io.github.mzmine.datamodel.features.ModularFeature;
+import io.github.mzmine.datamodel.impl.ScanMzIndex;
 import io.github.mzmine.gui.chartbasics.simplechart.datasets.AbstractTaskXYZDataset;
 import io.github.mzmine.main.MZmineCore;
 import io.github.mzmine.taskcontrol.TaskPriority;
@@ -363,6 +365,19 @@ public class TICDataSet extends AbstractTaskXYZDataset {
       MZmineCore.runLater(() -> axis.setLabel("Scan number"));
     }
 
+    // extract all values at once if the raw data file provides an m/z index
+    final ScanMzIndex xicIndex = dataFile.getXicIndex(ScanDataType.RAW);
+    double[] indexedIntensities = null;
+    double[] indexedSums = null;
+    if (xicIndex != null) {
+      indexedIntensities = new double[totalScans];
+      indexedSums = new double[totalScans];
+      if (!xicIndex.extractIonTrace(mzRange, scans, basePeakMZValues, indexedIntensities,
+          indexedSums)) {
+        indexedIntensities = null;
+      }
+    }
+
     // Process each scan.
     for (int index = 0; status != TaskStatus.CANCELED && index < totalScans; index++) {
 
@@ -370,12 +385,15 @@ public class TICDataSet extends AbstractTaskXYZDataset {
       final Scan scan = scans.get(index);
 
       // Determine base peak value.
-      DataPoint basePeak = ScanUtils.findBasePeak(scan, mzRange);
       Double basePeakIntensity = null;
-
-      if (basePeak != null) {
-        basePeakMZValues[index] = basePeak.getMZ();
-        basePeakIntensity = basePeak.getIntensity();
+      if (indexedIntensities != null) {
+        basePeakIntensity = indexedIntensities[index] > 0 ? indexedIntensities[index] : null;
+      } else {
+        DataPoint basePeak = ScanUtils.findBasePeak(scan, mzRange);
+        if (basePeak != null) {
+          basePeakMZValues[index] = basePeak.getMZ();
+          basePeakIntensity = basePeak.getIntensity();
+        }
       }
 
       // Determine peak intensity.
@@ -383,8 +401,12 @@ public class TICDataSet extends AbstractTaskXYZDataset {
       if (plotType == TICPlotType.TIC) {
 
         // Total ion count.
-        intensity = mzRange.encloses(scan.getDataPointMZRange()) ? scan.getTIC()
-            : ScanUtils.calculateTIC(scan, mzRange);
+        if (mzRange.encloses(scan.getDataPointMZRange())) {
+          intensity = scan.getTIC();
+        } else {
+          intensity = indexedIntensities != null ? indexedSums[index]
+              : ScanUtils.calculateTIC(scan, mzRange);
+        }
 
       } else if (plotType == TICPlotType.BASEPEAK && basePeakIntensity != null) {
 
@@ -39,6 +39,7 @@ import io.github.mzmine.datamodel.data_access.MobilityScanDataAccess;
 import io.github.mzmine.datamodel.data_access.ScanDataAccess;
 import io.github.mzmine.datamodel.featuredata.IonTimeSeries;
 import io.github.mzmine.datamodel.featuredata.impl.SimpleIonTimeSeries;
+import io.github.mzmine.datamodel.impl.ScanMzIndex;
 import io.github.mzmine.gui.chartbasics.chartutils.paintscales.PaintScaleTransform;
 import io.github.mzmine.gui.chartbasics.simplechart.providers.PlotXYZDataProvider;
 import io.github.mzmine.gui.preferences.ImageNormalization;
@@ -207,12 +208,34 @@ public class RawImageProvider implements PlotXYZDataProvider {
     }
   }
 
+  /**
+   * Uses the {@link ScanMzIndex} of the raw data file, which only reads the data points within the
+   * m/z range. Reads all scans if the index is disabled.
+   */
   @NotNull
   private SimpleIonTimeSeries extractFromScans() {
+    logger.info("ImageViewer: Start data point extraction");
+    final ScanMzIndex index = raw.getImagingMzIndex();
+    if (index == null) {
+      return extractFromAllScans();
+    }
+    finishedPercentage = 0.5d;
+
+    final List<Scan> scans = scanSelection.getMatchingScans(index.getScans());
+    final double[] mzs = new double[scans.size()];
+    final double[] maxIntensities = new double[scans.size()];
+    final double[] intensities = new double[scans.size()];
+    index.extractIonTrace(mzRange, scans, mzs, maxIntensities, intensities);
+
+    finishedPercentage = 1d;
+    return new SimpleIonTimeSeries(null, mzs, intensities, scans);
+  }
+
+  @NotNull
+  private SimpleIonTimeSeries extractFromAllScans() {
     double minMz = mzRange.lowerEndpoint();
     double maxMz = mzRange.upperEndpoint();
 
-    logger.info("ImageViewer: Start data point extraction");
     ScanDataAccess scanAccess = EfficientDataAccess.of(raw, ScanDataType.RAW, scanSelection);
     int numberOfScans = scanAccess.getNumberOfScans();
     DoubleArrayList mzs = new DoubleArrayList(numberOfScans);
@@ -220,7 +243,7 @@ public class RawImageProvider implements PlotXYZDataProvider {
     List<Scan> scans = new ArrayList<>(numberOfScans);
     int finished = 0;
     while (scanAccess.hasNextScan()) {
-      finishedPercentage = finished / numberOfScans;
+      finishedPercentage = finished / (double) numberOfScans;
       finished++;
       Scan scan = scanAccess.nextScan();
       if (!(scan instanceof ImagingScan)) {
@@ -32,27 +32,20 @@ import io.github.mzmine.gui.chartbasics.simplechart.datasets.AbstractTaskXYDatas
 import io.github.mzmine.main.MZmineCore;
 import io.github.mzmine.taskcontrol.TaskPriority;
 import io.github.mzmine.taskcontrol.TaskStatus;
-import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
 import javafx.application.Platform;
 
 class TwoDDataSet extends AbstractTaskXYDataset {
 
   private final RawDataFile rawDataFile;
 
-  private final float[] retentionTimes;
-  private final double[] basePeaks;
-  private final double[][] mzValues;
-  private final double[][] intensityValues;
-
   private final Range<Double> totalMZRange;
   private final Range<Float> totalRTRange;
   private final int totalScans;
   private final Scan[] scans;
-  private int processedScans;
+  private final AtomicInteger processedScans = new AtomicInteger(0);
 
-  public double curMaxIntensity;
-  private ArrayList<Float> rtValuesInUserRange;
+  private volatile TwoDIntensityPyramid pyramid;
 
   TwoDDataSet(RawDataFile rawDataFile, Scan[] scans, Range<Float> rtRange, Range<Double> mzRange,
       TwoDVisualizerTab visualizer) {
@@ -66,11 +59,6 @@ class TwoDDataSet extends AbstractTaskXYDataset {
 
     totalScans = scans.length;
 
-    mzValues = new double[totalScans][];
-    intensityValues = new double[totalScans][];
-    retentionTimes = new float[totalScans];
-    basePeaks = new double[totalScans];
-
     MZmineCore.getTaskController().addTask(this, TaskPriority.HIGH);
 
   }
@@ -80,22 +68,19 @@ class TwoDDataSet extends AbstractTaskXYDataset {
 
     setStatus(TaskStatus.PROCESSING);
 
-    for (int index = 0; index < totalScans; index++) {
+    final TwoDIntensityPyramid result = TwoDIntensityPyramid.build(scans, totalMZRange,
+        processedScans, this::isCanceled);
 
-      // Cancel?
+    // Cancel?
+    if (result == null) {
+      return;
+    }
+    synchronized (this) {
       if (isCanceled()) {
+        result.dispose();
         return;
       }
-
-      Scan scan = scans[index];
-      Double scanBasePeakInt = scan.getBasePeakIntensity();
-      retentionTimes[index] = scan.getRetentionTime();
-      basePeaks[index] = (scanBasePeakInt == null ? 0 : scanBasePeakInt);
-      mzValues[index] = new double[scan.getNumberOfDataPoints()];
-      scan.getMzValues(mzValues[index]);
-      intensityValues[index] = new double[scan.getNumberOfDataPoints()];
-      scan.getIntensityValues(intensityValues[index]);
-      processedScans++;
+      pyramid = result;
     }
 
     Platform.runLater(() -> fireDatasetChanged());
@@ -151,118 +136,32 @@ class TwoDDataSet extends AbstractTaskXYDataset {
     }
   }
 
-  double upperEndpointIntensity(Range<Float> rtRange, Range<Double> mzRange, PlotMode plotMode) {
-
-    double maxIntensity = 0;
-
-    float[] searchRetentionTimes = retentionTimes;
-    if (processedScans < totalScans) {
-      searchRetentionTimes = new float[processedScans];
-      System.arraycopy(retentionTimes, 0, searchRetentionTimes, 0, searchRetentionTimes.length);
-    }
-
-    int startScanIndex = Arrays.binarySearch(searchRetentionTimes, rtRange.lowerEndpoint());
-
-    if (startScanIndex < 0) {
-      startScanIndex = (startScanIndex * -1) - 1;
-    }
-
-    if (startScanIndex >= searchRetentionTimes.length) {
-      return 0;
-    }
-
-    if (searchRetentionTimes[startScanIndex] > rtRange.upperEndpoint()) {
-      if (startScanIndex == 0) {
-        return 0;
-      }
-
-      if (startScanIndex == searchRetentionTimes.length - 1) {
-        return upperEndpointIntensity(startScanIndex - 1, mzRange, plotMode);
-      }
-
-      // find which scan point is closer
-      double diffNext = searchRetentionTimes[startScanIndex] - rtRange.upperEndpoint();
-      double diffPrev = rtRange.lowerEndpoint() - searchRetentionTimes[startScanIndex - 1];
-
-      if (diffPrev < diffNext) {
-        return upperEndpointIntensity(startScanIndex - 1, mzRange, plotMode);
-      } else {
-        return upperEndpointIntensity(startScanIndex, mzRange, plotMode);
-      }
-    }
-
-    for (int scanIndex = startScanIndex;
-        ((scanIndex < searchRetentionTimes.length) && (searchRetentionTimes[scanIndex]
-            <= rtRange.upperEndpoint())); scanIndex++) {
-
-      // ignore scans where all peaks are smaller than current max
-      if (basePeaks[scanIndex] < maxIntensity) {
-        continue;
-      }
-
-      double scanMax = upperEndpointIntensity(scanIndex, mzRange, plotMode);
-
-      if (scanMax > maxIntensity) {
-        maxIntensity = scanMax;
-      }
-
+  /**
+   * Fills the maximum intensity of each pixel of the visible area into values[x][y], where x is
+   * the retention time and y the m/z pixel index. The values remain 0 until the data set was
+   * computed.
+   */
+  void fillIntensityGrid(double[][] values, double rtMin, double rtMax, double mzMin,
+      double mzMax, PlotMode plotMode) {
+    final TwoDIntensityPyramid pyramid = this.pyramid;
+    if (pyramid == null) {
+      return;
     }
-
-    return maxIntensity;
-
+    pyramid.fillIntensityGrid(values, rtMin, rtMax, mzMin, mzMax, plotMode);
   }
 
-  public ArrayList getrtValuesInUserRange() {
-    return rtValuesInUserRange;
-  }
-
-  private double upperEndpointIntensity(int index, Range<Double> mzRange, PlotMode plotMode) {
-
-    double maxIntensity = 0;
-
-    int startMZIndex = Arrays.binarySearch(mzValues[index], mzRange.lowerEndpoint());
-    if (startMZIndex < 0) {
-      startMZIndex = (startMZIndex * -1) - 1;
-    }
-
-    if (startMZIndex >= mzValues[index].length) {
-      return 0;
-    }
-
-    if (mzValues[index][startMZIndex] > mzRange.upperEndpoint()) {
-      if (plotMode != PlotMode.CENTROID) {
-        if (startMZIndex == 0) {
-          return 0;
-        }
-        if (startMZIndex == mzValues[index].length - 1) {
-          return intensityValues[index][startMZIndex - 1];
-        }
-
-        // find which data point is closer
-        double diffNext = mzValues[index][startMZIndex] - mzRange.upperEndpoint();
-        double diffPrev = mzRange.lowerEndpoint() - mzValues[index][startMZIndex - 1];
-
-        if (diffPrev < diffNext) {
-          return intensityValues[index][startMZIndex - 1];
-        } else {
-          return intensityValues[index][startMZIndex];
-        }
-      } else {
-        return 0;
-      }
-
+  /**
+   * Stops the computation and releases the intensity pyramid. Called when the plot is closed or
+   * the data set is replaced.
+   */
+  synchronized void dispose() {
+    if (!isFinished()) {
+      cancel();
     }
-
-    for (int mzIndex = startMZIndex;
-        ((mzIndex < mzValues[index].length) && (mzValues[index][mzIndex]
-            <= mzRange.upperEndpoint())); mzIndex++) {
-      if (intensityValues[index][mzIndex] > maxIntensity) {
-        maxIntensity = intensityValues[index][mzIndex];
-      }
+    if (pyramid != null) {
+      pyramid.dispose();
+      pyramid = null;
     }
-
-    return maxIntensity;
-
   }
 
   @Override
@@ -270,7 +169,7 @@ class TwoDDataSet extends AbstractTaskXYDataset {
     if (totalScans == 0) {
       return 0;
     }
-    return (double) processedScans / totalScans;
+    return (double) processedScans.get() / totalScans;
   }
 
   @Override
@@ -0,0 +1,429 @@
+/*
+ * Copyright (c) 2004-2022 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.visualization.twod;
+
+import com.google.common.collect.Range;
+import io.github.mzmine.datamodel.Scan;
+import io.github.mzmine.datamodel.featuredata.impl.StorageUtils;
+import io.github.mzmine.main.MZmineCore;
+import io.github.mzmine.util.MemoryMapStorage;
+import io.github.mzmine.util.collections.BinarySearch;
+import java.io.IOException;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.logging.Logger;
+import java.util.stream.IntStream;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Precomputed multi-resolution RT x m/z intensity grid of a set of scans. The finest level has one
+ * cell per scan and a fixed number of equally sized m/z bins. Every coarser level halves the
+ * resolution in both dimensions. Each level keeps the maximum intensity of its cells, stored in
+ * tiles of {@link #TILE_RT_CELLS} retention time cells in a {@link MemoryMapStorage} owned by the
+ * pyramid. The plot only reads the cells of the level that
+ * matches the current zoom, so rendering does not depend on the number of data points in the file.
+ * Views that are zoomed in further than the finest m/z bins are computed directly from the scans.
+ * <p>
+ * The storage is released by {@link #dispose()} once the plot is closed.
+ */
+class TwoDIntensityPyramid {
+
+  /**
+   * Number of retention time cells per stored tile
+   */
+  private static final int TILE_RT_CELLS = 128;
+  private static final int MAX_BASE_MZ_BINS = 4096;
+  /**
+   * Limits the size of the finest level for files with many scans (2^26 cells = 256 MB per value
+   * type)
+   */
+  private static final long MAX_BASE_CELLS = 1L << 26;
+  /**
+   * No coarser levels are created once both dimensions are below this number of cells
+   */
+  private static final int MIN_LEVEL_CELLS = 64;
+
+  private static final Logger logger = Logger.getLogger(TwoDIntensityPyramid.class.getName());
+
+  private final MemoryMapStorage storage = MemoryMapStorage.create();
+  private final Scan[] scans;
+  private final float[] scanRTs;
+  private final Range<Double> mzRange;
+  private final int baseMzBins;
+  private final double baseMzBinWidth;
+  private final List<Level> levels = new ArrayList<>();
+
+  private TwoDIntensityPyramid(Scan[] scans, Range<Double> mzRange) {
+    this.scans = scans;
+    this.mzRange = mzRange;
+    scanRTs = new float[scans.length];
+    for (int i = 0; i < scans.length; i++) {
+      scanRTs[i] = scans[i].getRetentionTime();
+    }
+
+    final double mzWidth = mzRange.upperEndpoint() - mzRange.lowerEndpoint();
+    int mzBins = (int) Math.min(MAX_BASE_MZ_BINS,
+        Math.max(MIN_LEVEL_CELLS, MAX_BASE_CELLS / Math.max(1, scans.length)));
+    if (mzWidth <= 0) {
+      mzBins = 1;
+    }
+    baseMzBins = mzBins;
+    baseMzBinWidth = mzWidth > 0 ? mzWidth / mzBins : 1d;
+  }
+
+  /**
+   * Builds the pyramid of the given scans. The caller owns the pyramid and has to
+   * {@link #dispose()} it.
+   *
+   * @param processedScans incremented for every scan added to the finest level
+   * @param isCanceled     stops the computation
+   * @return the pyramid or null if the computation was canceled
+   */
+  @Nullable
+  static TwoDIntensityPyramid build(@NotNull Scan[] scans, @NotNull Range<Double> mzRange,
+      @NotNull AtomicInteger processedScans, @NotNull BooleanSupplier isCanceled) {
+    final TwoDIntensityPyramid pyramid = new TwoDIntensityPyramid(scans, mzRange);
+    if (!pyramid.build(processedScans, isCanceled)) {
+      pyramid.dispose();
+      return null;
+    }
+    return pyramid;
+  }
+
+  /**
+   * Releases the storage of this pyramid. The pyramid must not be used afterwards.
+   */
+  void dispose() {
+    final List<MemoryMapStorage> storages = MZmineCore.getStorageList();
+    synchronized (storages) {
+      storages.remove(storage);
+    }
+    try {
+      // the mapped buffers are released by the garbage collector
+      storage.discard(null);
+    } catch (IOException e) {
+      logger.log(java.util.logging.Level.WARNING, "Cannot discard temporary files of the 2D plot",
+          e);
+    }
+  }
+
+  private boolean build(AtomicInteger processedScans, BooleanSupplier isCanceled) {
+    final int mzBins = baseMzBins;
+    final Level base = new Level(scans.length, mzBins, baseMzBinWidth);
+    System.arraycopy(scanRTs, 0, base.rtStart, 0, scans.length);
+    System.arraycopy(scanRTs, 0, base.rtEnd, 0, scans.length);
+
+    // the finest level reads all data points, so tiles are computed in parallel
+    IntStream.range(0, base.numTiles()).parallel().forEach(tile -> {
+      if (isCanceled.getAsBoolean()) {
+        return;
+      }
+      final int firstCell = tile * TILE_RT_CELLS;
+      final int cells = Math.min(TILE_RT_CELLS, base.rtCells - firstCell);
+      final float[] max = new float[cells * mzBins];
+
+      for (int c = 0; c < cells; c++) {
+        final Scan scan = scans[firstCell + c];
+        final int offset = c * mzBins;
+        for (int dp = 0, numDp = scan.getNumberOfDataPoints(); dp < numDp; dp++) {
+          final double mz = scan.getMzValue(dp);
+          if (!mzRange.contains(mz)) {
+            continue;
+          }
+          // the upper endpoint belongs to the last bin
+          final int bin = Math.min(mzBins - 1, base.mzBinOf(mz, mzRange.lowerEndpoint()));
+          final float intensity = (float) scan.getIntensityValue(dp);
+          if (intensity > max[offset + bin]) {
+            max[offset + bin] = intensity;
+          }
+        }
+        processedScans.incrementAndGet();
+      }
+      base.maxTiles[tile] = StorageUtils.storeValuesToFloatBuffer(storage, max);
+    });
+
+    if (isCanceled.getAsBoolean()) {
+      return false;
+    }
+    levels.add(base);
+
+    Level finer = base;
+    while (finer.rtCells > MIN_LEVEL_CELLS || finer.mzBins > MIN_LEVEL_CELLS) {
+      if (isCanceled.getAsBoolean()) {
+        return false;
+      }
+      finer = coarsen(finer);
+      levels.add(finer);
+    }
+    return true;
+  }
+
+  /**
+   * Combines 2x2 cells of the finer level into one cell.
+   */
+  private Level coarsen(Level finer) {
+    final Level coarse = new Level((finer.rtCells + 1) / 2, (finer.mzBins + 1) / 2,
+        finer.mzBinWidth * 2);
+    for (int r = 0; r < coarse.rtCells; r++) {
+      final int last = Math.min(2 * r + 1, finer.rtCells - 1);
+      coarse.rtStart[r] = finer.rtStart[2 * r];
+      coarse.rtEnd[r] = finer.rtEnd[last];
+    }
+
+    for (int tile = 0; tile < coarse.numTiles(); tile++) {
+      final int firstCell = tile * TILE_RT_CELLS;
+      final int cells = Math.min(TILE_RT_CELLS, coarse.rtCells - firstCell);
+      final float[] max = new float[cells * coarse.mzBins];
+
+      for (int c = 0; c < cells; c++) {
+        final int r = firstCell + c;
+        for (int fineR = 2 * r; fineR <= Math.min(2 * r + 1, finer.rtCells - 1); fineR++) {
+          for (int fineM = 0; fineM < finer.mzBins; fineM++) {
+            final int index = c * coarse.mzBins + fineM / 2;
+            max[index] = Math.max(max[index], finer.getMax(fineR, fineM));
+          }
+        }
+      }
+      coarse.maxTiles[tile] = StorageUtils.storeValuesToFloatBuffer(storage, max);
+    }
+    return coarse;
+  }
+
+  /**
+   * Fills the maximum intensity of each pixel of the visible area. values[x][y] corresponds to the
+   * pixel in the x-th retention time and the y-th m/z interval. Pixels outside the retention time
+   * and m/z range of the data remain 0.
+   *
+   * @param values   the destination grid (width x height)
+   * @param plotMode in continuous mode, pixels without data points are set to the intensity of the
+   *                 closest data point (only if the values are calculated from the scans)
+   */
+  void fillIntensityGrid(double[][] values, double rtMin, double rtMax, double mzMin,
+      double mzMax, PlotMode plotMode) {
+    final int width = values.length;
+    if (width == 0 || values[0].length == 0 || scans.length == 0) {
+      return;
+    }
+    final int height = values[0].length;
+    final double rtStep = (rtMax - rtMin) / width;
+    final double mzStep = (mzMax - mzMin) / height;
+
+    if (levels.get(0).mzBinWidth > mzStep) {
+      // zoomed in further than the finest level - use the scans directly
+      fillFromScans(values, rtMin, rtStep, mzMin, mzStep, plotMode);
+      return;
+    }
+
+    final Level level = selectLevel(rtMin, rtMax, width, mzStep);
+    final double mzOffset = mzRange.lowerEndpoint();
+
+    for (int x = 0; x < width; x++) {
+      final double pixelRTMin = rtMin + x * rtStep;
+      final double pixelRTMax = pixelRTMin + rtStep;
+      int first = level.firstCellEndingAfter(pixelRTMin);
+      int last = first;
+      while (last < level.rtCells && level.rtStart[last] <= pixelRTMax) {
+        last++;
+      }
+      if (first == last) {
+        // no cell in this pixel, use the closest one within the data
+        final double rt = (pixelRTMin + pixelRTMax) / 2;
+        if (rt < level.rtStart[0] || rt > level.rtEnd[level.rtCells - 1]) {
+          continue;
+        }
+        first = level.closestCell(rt);
+        if (first < 0) {
+          continue;
+        }
+        last = first + 1;
+      }
+
+      final double[] column = values[x];
+      for (int cell = first; cell < last; cell++) {
+        for (int y = 0; y < height; y++) {
+          final double pixelMzMin = mzMin + y * mzStep;
+          // no bins for pixels outside the m/z range
+          final int firstBin = Math.max(0, level.mzBinOf(pixelMzMin, mzOffset));
+          final int lastBin = Math.min(level.mzBins - 1,
+              level.mzBinOf(pixelMzMin + mzStep, mzOffset));
+          for (int bin = firstBin; bin <= lastBin; bin++) {
+            column[y] = Math.max(column[y], level.getMax(cell, bin));
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * @return the coarsest level that still provides at least one cell per pixel
+   */
+  private Level selectLevel(double rtMin, double rtMax, int width, double mzStep) {
+    for (int i = levels.size() - 1; i > 0; i--) {
+      final Level level = levels.get(i);
+      if (level.mzBinWidth > mzStep) {
+        continue;
+      }
+      final int visibleCells = level.firstCellEndingAfter(rtMax) - level.firstCellEndingAfter(
+          rtMin);
+      if (visibleCells >= width) {
+        return level;
+      }
+    }
+    return levels.get(0);
+  }
+
+  private void fillFromScans(double[][] values, double rtMin, double rtStep, double mzMin,
+      double mzStep, PlotMode plotMode) {
+    final int height = values[0].length;
+    final double[] scanColumn = new double[height];
+
+    for (int x = 0; x < values.length; x++) {
+      final double pixelRTMin = rtMin + x * rtStep;
+      final double pixelRTMax = pixelRTMin + rtStep;
+      int first = Arrays.binarySearch(scanRTs, (float) pixelRTMin);
+      first = first < 0 ? -first - 1 : first;
+      int last = first;
+      while (last < scanRTs.length && scanRTs[last] <= pixelRTMax) {
+        last++;
+      }
+      if (first == last) {
+        // no scan in this pixel, use the closest one within the data
+        final double rt = (pixelRTMin + pixelRTMax) / 2;
+        if (rt < scanRTs[0] || rt > scanRTs[scanRTs.length - 1]) {
+          continue;
+        }
+        first = BinarySearch.binarySearch(rt, true, scanRTs.length, i -> scanRTs[i]);
+        last = first + 1;
+      }
+
+      for (int i = first; i < last; i++) {
+        Arrays.fill(scanColumn, 0d);
+        fillScanColumn(scans[i], scanColumn, mzMin, mzStep, plotMode);
+        for (int y = 0; y < height; y++) {
+          values[x][y] = Math.max(values[x][y], scanColumn[y]);
+        }
+      }
+    }
+  }
+
+  /**
+   * Maps the data points of a single scan onto the m/z pixels of one column.
+   */
+  private static void fillScanColumn(Scan scan, double[] column, double mzMin, double mzStep,
+      PlotMode plotMode) {
+    final int numDp = scan.getNumberOfDataPoints();
+    if (numDp == 0) {
+      return;
+    }
+    int dp = scan.binarySearch(mzMin, false);
+    dp = dp < 0 ? -dp - 1 : dp;
+
+    for (int y = 0; y < column.length; y++) {
+      final double pixelMzMin = mzMin + y * mzStep;
+      final double pixelMzMax = pixelMzMin + mzStep;
+      final int firstDp = dp;
+      while (dp < numDp && scan.getMzValue(dp) <= pixelMzMax) {
+        final double intensity = scan.getIntensityValue(dp);
+        column[y] = Math.max(column[y], intensity);
+        dp++;
+      }
+
+      if (dp == firstDp && plotMode != PlotMode.CENTROID && dp > 0 && dp < numDp) {
+        // no data point in this pixel, use the closer neighbour in profile mode
+        final double diffPrev = pixelMzMin - scan.getMzValue(dp - 1);
+        final double diffNext = scan.getMzValue(dp) - pixelMzMax;
+        column[y] = scan.getIntensityValue(diffPrev < diffNext ? dp - 1 : dp);
+      }
+    }
+  }
+
+  /**
+   * One resolution level of the pyramid. Values are stored row-wise (one row of m/z bins per
+   * retention time cell) in tiles of {@link #TILE_RT_CELLS} rows.
+   */
+  private static final class Level {
+
+    private final int rtCells;
+    private final int mzBins;
+    private final double mzBinWidth;
+    private final float[] rtStart;
+    private final float[] rtEnd;
+    private final FloatBuffer[] maxTiles;
+
+    private Level(int rtCells, int mzBins, double mzBinWidth) {
+      this.rtCells = rtCells;
+      this.mzBins = mzBins;
+      this.mzBinWidth = mzBinWidth;
+      rtStart = new float[rtCells];
+      rtEnd = new float[rtCells];
+      final int numTiles = (rtCells + TILE_RT_CELLS - 1) / TILE_RT_CELLS;
+      maxTiles = new FloatBuffer[numTiles];
+    }
+
+    private int numTiles() {
+      return maxTiles.length;
+    }
+
+    /**
+     * @return the m/z bin, negative or >= mzBins outside the m/z range
+     */
+    private int mzBinOf(double mz, double mzOffset) {
+      return (int) Math.floor((mz - mzOffset) / mzBinWidth);
+    }
+
+    private float getMax(int rtCell, int mzBin) {
+      return maxTiles[rtCell / TILE_RT_CELLS].get((rtCell % TILE_RT_CELLS) * mzBins + mzBin);
+    }
+
+    /**
+     * @return index of the first cell that ends at or after the given rt or rtCells if there is
+     * none
+     */
+    private int firstCellEndingAfter(double rt) {
+      int low = 0;
+      int high = rtCells;
+      while (low < high) {
+        final int mid = (low + high) >>> 1;
+        if (rtEnd[mid] < rt) {
+          low = mid + 1;
+        } else {
+          high = mid;
+        }
+      }
+      return low;
+    }
+
+    private int closestCell(double rt) {
+      return BinarySearch.binarySearch(rt, true, rtCells,
+          i -> (rtStart[i] + rtEnd[i]) / 2d);
+    }
+  }
+}
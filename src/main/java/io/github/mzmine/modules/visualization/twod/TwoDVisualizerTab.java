@@ -183,6 +183,9 @@ public class TwoDVisualizerTab extends MZmineTab {
 
     updateTitle();
 
+    // release the intensity pyramid of the plot
+    setOnClosed(e -> dataset.dispose());
+
     // After we have constructed everything, load the feature lists into the
     // bottom panel
     // bottomPanel.rebuildPeakListSelector();
@@ -254,6 +257,7 @@ public class TwoDVisualizerTab extends MZmineTab {
     Scan newScans[] = scanSel.getMatchingScans(newFile);
     TwoDDataSet newDataset = new TwoDDataSet(newFile, newScans, rtRange, mzRange, this);
     twoDPlot.addTwoDDataSet(newDataset);
+    dataset.dispose();
 
     dataFile = newFile;
     dataset = newDataset;
@@ -27,6 +27,8 @@ package io.github.mzmine.project.impl;
 
 import io.github.mzmine.datamodel.ImagingRawDataFile;
 import io.github.mzmine.datamodel.ImagingScan;
+import io.github.mzmine.datamodel.data_access.EfficientDataAccess.ScanDataType;
+import io.github.mzmine.datamodel.impl.ScanMzIndex;
 import io.github.mzmine.datamodel.Scan;
 import io.github.mzmine.modules.io.import_rawdata_imzml.Coordinates;
 import io.github.mzmine.modules.io.import_rawdata_imzml.ImagingParameters;
@@ -49,6 +51,9 @@ public class ImagingRawDataFileImpl extends RawDataFileImpl implements ImagingRa
   // TODO add ms level - one array for each level
   private Scan[][][] xyzScanNumbers;
 
+  // lazily created index for ion image extraction
+  private volatile ScanMzIndex.Lazy imagingMzIndex;
+
 
   public ImagingRawDataFileImpl(String dataFileName, @Nullable final String absPath,
       MemoryMapStorage storage) throws IOException {
@@ -144,4 +149,23 @@ public class ImagingRawDataFileImpl extends RawDataFileImpl implements ImagingRa
     return xyzScanNumbers;
   }
 
+  @Override
+  public @Nullable ScanMzIndex getImagingMzIndex() {
+    if (!ScanMzIndex.isImagingIndexEnabled()) {
+      return null;
+    }
+    ScanMzIndex.Lazy index = imagingMzIndex;
+    if (index == null) {
+      // only take the snapshot of the scans under the lock, the index is built outside
+      synchronized (this) {
+        if (imagingMzIndex == null) {
+          imagingMzIndex = new ScanMzIndex.Lazy(
+              getScans().stream().filter(ImagingScan.class::isInstance).toList(),
+              ScanDataType.RAW, getMemoryMapStorage());
+        }
+        index = imagingMzIndex;
+      }
+    }
+    return index.get();
+  }
 }
@@ -35,11 +35,13 @@ import io.github.mzmine.modules.io.projectload.CachedIMSRawDataFile;
 import io.github.mzmine.modules.visualization.projectmetadata.table.MetadataTable;
 import io.github.mzmine.parameters.UserParameter;
 import io.github.mzmine.project.impl.ProjectChangeEvent.Type;
+import io.github.mzmine.util.MemoryMapStorage;
 import io.github.mzmine.util.files.FileAndPathUtil;
 import io.github.mzmine.util.spectraldb.entry.SpectralLibrary;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Hashtable;
 import java.util.List;
@@ -68,6 +70,8 @@ public class MZmineProjectImpl implements MZmineProject {
   // use read lock to allow unlimited reads while no write is happening
   private final ReadWriteLock rawLock = new ReentrantReadWriteLock();
   private final ReadWriteLock featureLock = new ReentrantReadWriteLock();
+  // feature list storages of removed feature lists, guarded by the feature lock
+  private final List<MemoryMapStorage> removedFeatureListStorages = new ArrayList<>();
 
   private Hashtable<UserParameter<?, ?>, Hashtable<RawDataFile, Object>> projectParametersAndValues;
   private final MetadataTable projectMetadata;
@@ -277,6 +281,7 @@ public class MZmineProjectImpl implements MZmineProject {
       featureLock.writeLock().lock();
 
       featureLists.removeAll(featureList);
+      trackStoragesOfRemovedFeatureLists(Arrays.asList(featureList));
       fireFeatureListsChangeEvent(List.of(featureList), Type.REMOVED);
     } finally {
       featureLock.writeLock().unlock();
@@ -328,12 +333,48 @@ public class MZmineProjectImpl implements MZmineProject {
       featureLock.writeLock().lock();
 
       this.featureLists.removeAll(featureLists);
+      trackStoragesOfRemovedFeatureLists(featureLists);
       fireFeatureListsChangeEvent(List.copyOf(featureLists), Type.REMOVED);
     } finally {
       featureLock.writeLock().unlock();
     }
   }
 
+  /**
+   * Call with the feature write lock
+   */
+  private void trackStoragesOfRemovedFeatureLists(@NotNull List<FeatureList> removed) {
+    for (FeatureList flist : removed) {
+      if (flist instanceof ModularFeatureList mflist) {
+        final MemoryMapStorage storage = mflist.getMemoryMapStorage();
+        if (storage != null && storage.isFeatureListStorage()
+            && !removedFeatureListStorages.contains(storage)) {
+          removedFeatureListStorages.add(storage);
+        }
+      }
+    }
+  }
+
+  @Override
+  public @NotNull List<MemoryMapStorage> getStoragesOfRemovedFeatureLists() {
+    try {
+      featureLock.readLock().lock();
+      return List.copyOf(removedFeatureListStorages);
+    } finally {
+      featureLock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public void forgetStoragesOfRemovedFeatureLists(@NotNull Collection<MemoryMapStorage> storages) {
+    try {
+      featureLock.writeLock().lock();
+      removedFeatureListStorages.removeAll(storages);
+    } finally {
+      featureLock.writeLock().unlock();
+    }
+  }
+
   @Override
   public ModularFeatureList[] getFeatureLists(RawDataFile file) {
     return getCurrentFeatureLists().stream()
@@ -33,7 +33,9 @@ import io.github.mzmine.datamodel.MassSpectrumType;
 import io.github.mzmine.datamodel.PolarityType;
 import io.github.mzmine.datamodel.RawDataFile;
 import io.github.mzmine.datamodel.Scan;
+import io.github.mzmine.datamodel.data_access.EfficientDataAccess.ScanDataType;
 import io.github.mzmine.datamodel.features.FeatureList.FeatureListAppliedMethod;
+import io.github.mzmine.datamodel.impl.ScanMzIndex;
 import io.github.mzmine.main.MZmineCore;
 import io.github.mzmine.util.MemoryMapStorage;
 import io.github.mzmine.util.collections.BinarySearch;
@@ -47,6 +49,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 import javafx.beans.property.ObjectProperty;
@@ -82,6 +85,9 @@ public class RawDataFileImpl implements RawDataFile {
   private final Map<Integer, Range<Float>> dataRTRange = new HashMap<>();
   private final Int2DoubleOpenHashMap dataMaxBasePeakIntensity = new Int2DoubleOpenHashMap(2);
   private final Int2DoubleOpenHashMap dataMaxTIC = new Int2DoubleOpenHashMap(2);
+  // lazily created m/z indices for ion chromatogram extraction
+  // built outside the monitor of this file, invalidated without locking
+  private final Map<ScanDataType, ScanMzIndex.Lazy> xicIndices = new ConcurrentHashMap<>();
   // Temporary file for scan data storage
   private final MemoryMapStorage storageMemoryMap;
   private final ObjectProperty<Color> color = new SimpleObjectProperty<>();
@@ -121,6 +127,22 @@ public class RawDataFileImpl implements RawDataFile {
     return storageMemoryMap;
   }
 
+  @Override
+  public @Nullable ScanMzIndex getXicIndex(@NotNull ScanDataType type) {
+    if (!ScanMzIndex.isXicIndexEnabled()) {
+      return null;
+    }
+    ScanMzIndex.Lazy index = xicIndices.get(type);
+    if (index == null) {
+      // only take the snapshot of the scans under the lock, the index is built outside
+      synchronized (this) {
+        index = xicIndices.computeIfAbsent(type,
+            t -> new ScanMzIndex.Lazy(List.copyOf(scans), t, storageMemoryMap));
+      }
+    }
+    return index.get();
+  }
+
   @Override
   public RawDataFile clone() throws CloneNotSupportedException {
     return (RawDataFile) super.clone();
@@ -325,6 +347,7 @@ public class RawDataFileImpl implements RawDataFile {
     dataRTRange.clear();
     dataMaxBasePeakIntensity.clear();
     dataMaxTIC.clear();
+    xicIndices.clear();
   }
 
   @Override
@@ -548,6 +571,7 @@ public class RawDataFileImpl implements RawDataFile {
    */
   @Override
   public void applyMassListChanged(Scan scan, MassList old, MassList masses) {
+    xicIndices.remove(ScanDataType.CENTROID);
   }
 
   @Nullable
@@ -49,6 +49,10 @@ public abstract class AbstractTask implements Task {
   private TaskStatus status = TaskStatus.WAITING;
 
   private String errorMessage = null;
+  // resources used from the start of processing until the final status
+  private final Object resourceLock = new Object();
+  private TaskResourceTracker resourceTracker;
+  private TaskResourceUsage resourceUsage;
   // listener to control status changes
   private List<TaskStatusListener> listener;
   private final StringProperty name = new SimpleStringProperty("Task name");
@@ -94,6 +98,7 @@ public abstract class AbstractTask implements Task {
   public final void setStatus(TaskStatus newStatus) {
     TaskStatus old = status;
     this.status = newStatus;
+    trackResources(newStatus);
     if (listener != null && !status.equals(old)) {
       for (int i = 0; i < listener.size(); i++) {
         listener.get(i).taskStatusChanged(this, status, old);
@@ -101,6 +106,32 @@ public abstract class AbstractTask implements Task {
     }
   }
 
+  /**
+   * Starts the resource tracking when processing starts and stops it on the first final status.
+   */
+  private void trackResources(TaskStatus newStatus) {
+    synchronized (resourceLock) {
+      if (newStatus == TaskStatus.PROCESSING) {
+        if (resourceTracker == null) {
+          resourceTracker = new TaskResourceTracker(storage);
+        }
+      } else if (newStatus != TaskStatus.WAITING && resourceTracker != null
+          && resourceUsage == null) {
+        final int processedItems =
+            this instanceof ProcessedItemsCounter counter ? counter.getProcessedItems() : -1;
+        resourceUsage = resourceTracker.stop(storage, processedItems);
+      }
+    }
+  }
+
+  @Override
+  @Nullable
+  public TaskResourceUsage getResourceUsage() {
+    synchronized (resourceLock) {
+      return resourceUsage;
+    }
+  }
+
   /**
    * Convenience method for determining if this task has been canceled. Also returns true if the
    * task encountered an error.
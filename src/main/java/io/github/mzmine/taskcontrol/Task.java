@@ -25,6 +25,8 @@
 
 package io.github.mzmine.taskcontrol;
 
+import org.jetbrains.annotations.Nullable;
+
 /**
  *
  */
@@ -55,4 +57,13 @@ public interface Task extends Runnable {
   boolean removeTaskStatusListener(TaskStatusListener list);
 
   void clearTaskStatusListener();
+
+  /**
+   * @return the resources used by this task or null if the task did not finish processing or does
+   * not track its resources
+   */
+  @Nullable
+  default TaskResourceUsage getResourceUsage() {
+    return null;
+  }
 }
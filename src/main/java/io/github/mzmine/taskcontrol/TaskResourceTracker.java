@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2004-2022 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.taskcontrol;
+
+import io.github.mzmine.util.MemoryMapStorage;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Takes the resource counters of the current thread when a task starts processing and calculates
+ * the {@link TaskResourceUsage} when it stops. The stop may be called from another thread, e.g.,
+ * if the task is canceled.
+ */
+class TaskResourceTracker {
+
+  private static final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+
+  private final long threadId;
+  private final long startNanos;
+  private final long startCpuTime;
+  private final long startAllocatedBytes;
+  private final long startStorageBytes;
+
+  TaskResourceTracker(@Nullable MemoryMapStorage storage) {
+    threadId = Thread.currentThread().threadId();
+    startNanos = System.nanoTime();
+    startCpuTime = getCpuTime(threadId);
+    startAllocatedBytes = getAllocatedBytes(threadId);
+    startStorageBytes = storage != null ? storage.getStoredBytes() : 0L;
+  }
+
+  /**
+   * @return the thread CPU time in ns or -1 if not supported or the thread has terminated
+   */
+  private static long getCpuTime(long threadId) {
+    if (!threadBean.isThreadCpuTimeSupported() || !threadBean.isThreadCpuTimeEnabled()) {
+      return -1L;
+    }
+    return threadBean.getThreadCpuTime(threadId);
+  }
+
+  /**
+   * @return the allocated bytes of the thread or -1 if not supported or the thread has terminated
+   */
+  private static long getAllocatedBytes(long threadId) {
+    if (threadBean instanceof com.sun.management.ThreadMXBean sunBean
+        && sunBean.isThreadAllocatedMemorySupported() && sunBean.isThreadAllocatedMemoryEnabled()) {
+      return sunBean.getThreadAllocatedBytes(threadId);
+    }
+    return -1L;
+  }
+
+  private static long difference(long start, long end) {
+    return start < 0 || end < 0 ? -1L : end - start;
+  }
+
+  @NotNull
+  TaskResourceUsage stop(@Nullable MemoryMapStorage storage, int processedItems) {
+    final long wallTime = System.nanoTime() - startNanos;
+    final long cpuTime = difference(startCpuTime, getCpuTime(threadId));
+    final long allocated = difference(startAllocatedBytes, getAllocatedBytes(threadId));
+    final long storageBytes = storage != null ? storage.getStoredBytes() - startStorageBytes : 0L;
+    return new TaskResourceUsage(wallTime / 1_000_000L, cpuTime < 0 ? -1L : cpuTime / 1_000_000L,
+        allocated, storageBytes, processedItems);
+  }
+}
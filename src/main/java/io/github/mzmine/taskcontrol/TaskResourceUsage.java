@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2004-2022 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.taskcontrol;
+
+/**
+ * Resources used by a task from the start of processing until it finished, was canceled or ran
+ * into an error. CPU time and allocations are only measured for the thread that processed the
+ * task. Work delegated to other threads (e.g., parallel streams in the shared fork join pool) is
+ * only included in the wall time, as these threads are shared with other tasks.
+ *
+ * @param wallTimeMillis            the processing time
+ * @param taskThreadCpuTimeMillis   the CPU time of the task thread only or -1 if not supported by
+ *                                  the JVM
+ * @param taskThreadAllocatedBytes  the bytes allocated on the heap by the task thread only or -1
+ *                                  if not supported by the JVM
+ * @param storageBytes              the bytes written to the
+ *                                  {@link io.github.mzmine.util.MemoryMapStorage} of the task.
+ *                                  Tasks of the same module call may share one storage and
+ *                                  include the bytes of each other, if they run at the same time.
+ * @param processedItems            the number of processed items of a
+ *                                  {@link ProcessedItemsCounter} or -1
+ */
+public record TaskResourceUsage(long wallTimeMillis, long taskThreadCpuTimeMillis,
+                                long taskThreadAllocatedBytes, long storageBytes,
+                                int processedItems) {
+
+}
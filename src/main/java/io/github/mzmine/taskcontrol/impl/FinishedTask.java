@@ -27,7 +27,9 @@ package io.github.mzmine.taskcontrol.impl;
 
 import io.github.mzmine.taskcontrol.AbstractTask;
 import io.github.mzmine.taskcontrol.Task;
+import io.github.mzmine.taskcontrol.TaskResourceUsage;
 import java.time.Instant;
+import org.jetbrains.annotations.Nullable;
 
 /**
  * This class serves as a replacement for Task within the task controller queue, after the Task is
@@ -38,6 +40,7 @@ public class FinishedTask extends AbstractTask {
 
   private String description;
   private double finishedPercentage;
+  private final TaskResourceUsage resourceUsage;
 
   public FinishedTask(Task task) {
     super(null, Instant.now()); // date is irrelevant
@@ -45,6 +48,7 @@ public class FinishedTask extends AbstractTask {
     setErrorMessage(task.getErrorMessage());
     description = task.getTaskDescription();
     finishedPercentage = task.getFinishedPercentage();
+    resourceUsage = task.getResourceUsage();
   }
 
   public String getTaskDescription() {
@@ -63,4 +67,9 @@ public class FinishedTask extends AbstractTask {
     return finishedPercentage;
   }
 
+  @Override
+  public @Nullable TaskResourceUsage getResourceUsage() {
+    return resourceUsage;
+  }
+
 }
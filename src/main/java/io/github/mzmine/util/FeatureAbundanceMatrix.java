@@ -0,0 +1,217 @@
+/*
+ * Copyright (c) 2004-2022 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.util;
+
+import io.github.mzmine.datamodel.AbundanceMeasure;
+import io.github.mzmine.datamodel.FeatureStatus;
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.features.Feature;
+import io.github.mzmine.datamodel.features.FeatureListRow;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.DoubleBinaryOperator;
+import java.util.stream.IntStream;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * The abundances of the features of aligned rows in multiple raw data files, extracted once into a
+ * primitive row-major matrix. Used by the normalization and filter modules to compute their per
+ * file statistics with parallel column reductions instead of rescanning the rows for every file.
+ * Missing features are NaN.
+ */
+public class FeatureAbundanceMatrix {
+
+  /**
+   * Number of rows that are reduced by one thread at once
+   */
+  private static final int ROW_BLOCK = 1024;
+
+  private final double[] values;
+  private final int numRows;
+  private final int numFiles;
+
+  /**
+   * @param values   row-major matrix, values[row * numFiles + file]. Missing values are NaN.
+   * @param numRows  number of rows
+   * @param numFiles number of files (columns)
+   */
+  public FeatureAbundanceMatrix(@NotNull double[] values, int numRows, int numFiles) {
+    if (values.length != numRows * numFiles) {
+      throw new IllegalArgumentException(
+          "Matrix of " + numRows + " rows and " + numFiles + " files needs " + (numRows
+              * numFiles) + " values, but has " + values.length);
+    }
+    this.values = values;
+    this.numRows = numRows;
+    this.numFiles = numFiles;
+  }
+
+  /**
+   * Extracts the abundances of all rows in parallel.
+   *
+   * @param rows         the rows of the matrix
+   * @param files        the files (columns) of the matrix
+   * @param measure      height or area
+   * @param detectedOnly true: features with {@link FeatureStatus#UNKNOWN} are treated as missing
+   * @return the matrix
+   */
+  public static FeatureAbundanceMatrix of(@NotNull List<? extends FeatureListRow> rows,
+      @NotNull List<RawDataFile> files, @NotNull AbundanceMeasure measure,
+      boolean detectedOnly) {
+    final int numRows = rows.size();
+    final int numFiles = files.size();
+    final RawDataFile[] fileArray = files.toArray(RawDataFile[]::new);
+    final double[] values = new double[Math.multiplyExact(numRows, numFiles)];
+    IntStream.range(0, numRows).parallel().forEach(row -> {
+      final FeatureListRow flRow = rows.get(row);
+      for (int file = 0; file < numFiles; file++) {
+        final Feature feature = flRow.getFeature(fileArray[file]);
+        values[row * numFiles + file] = getAbundance(feature, measure, detectedOnly);
+      }
+    });
+    return new FeatureAbundanceMatrix(values, numRows, numFiles);
+  }
+
+  private static double getAbundance(Feature feature, AbundanceMeasure measure,
+      boolean detectedOnly) {
+    if (feature == null || (detectedOnly
+        && feature.getFeatureStatus() == FeatureStatus.UNKNOWN)) {
+      return Double.NaN;
+    }
+    final Float abundance =
+        measure == AbundanceMeasure.Height ? feature.getHeight() : feature.getArea();
+    return abundance != null ? abundance : Double.NaN;
+  }
+
+  public int getNumberOfRows() {
+    return numRows;
+  }
+
+  public int getNumberOfFiles() {
+    return numFiles;
+  }
+
+  /**
+   * @return the abundance or NaN if the feature is missing
+   */
+  public double get(int row, int file) {
+    return values[row * numFiles + file];
+  }
+
+  public boolean isDetected(int row, int file) {
+    return !Double.isNaN(get(row, file));
+  }
+
+  /**
+   * @return the number of values of each file
+   */
+  public int[] countPerFile() {
+    final double[] counts = reduceColumns(0d, (a, v) -> a + 1, Double::sum);
+    final int[] result = new int[numFiles];
+    for (int i = 0; i < numFiles; i++) {
+      result[i] = (int) counts[i];
+    }
+    return result;
+  }
+
+  /**
+   * @param squared true: sum of the squared values
+   * @return the sum of the values of each file
+   */
+  public double[] sumPerFile(boolean squared) {
+    return squared ? reduceColumns(0d, (a, v) -> a + v * v, Double::sum)
+        : reduceColumns(0d, Double::sum, Double::sum);
+  }
+
+  /**
+   * @param squared true: mean of the squared values
+   * @return the mean of the values of each file. NaN for files without values.
+   */
+  public double[] meanPerFile(boolean squared) {
+    final double[] sums = sumPerFile(squared);
+    final int[] counts = countPerFile();
+    for (int i = 0; i < numFiles; i++) {
+      sums[i] = counts[i] > 0 ? sums[i] / counts[i] : Double.NaN;
+    }
+    return sums;
+  }
+
+  /**
+   * @return the maximum value of each file or 0 if all values are missing or smaller.
+   */
+  public double[] maxPerFile() {
+    return reduceColumns(0d, Math::max, Math::max);
+  }
+
+  /**
+   * @return the maximum of all values or 0 if all values are missing or smaller
+   */
+  public double max() {
+    double max = 0d;
+    for (double v : maxPerFile()) {
+      max = Math.max(max, v);
+    }
+    return max;
+  }
+
+  /**
+   * Reduces each file (column) over all rows. Blocks of rows are reduced in parallel and merged
+   * afterwards. Missing values are skipped.
+   *
+   * @param identity   the start value of each partial result
+   * @param accumulate adds a value to a partial result
+   * @param merge      merges two partial results
+   */
+  private double[] reduceColumns(double identity, DoubleBinaryOperator accumulate,
+      DoubleBinaryOperator merge) {
+    final int numBlocks = (numRows + ROW_BLOCK - 1) / ROW_BLOCK;
+    return IntStream.range(0, numBlocks).parallel().mapToObj(block -> {
+      final double[] partial = new double[numFiles];
+      Arrays.fill(partial, identity);
+      final int last = Math.min(numRows, (block + 1) * ROW_BLOCK);
+      for (int row = block * ROW_BLOCK; row < last; row++) {
+        final int offset = row * numFiles;
+        for (int file = 0; file < numFiles; file++) {
+          final double v = values[offset + file];
+          if (!Double.isNaN(v)) {
+            partial[file] = accumulate.applyAsDouble(partial[file], v);
+          }
+        }
+      }
+      return partial;
+    }).reduce((a, b) -> {
+      for (int file = 0; file < numFiles; file++) {
+        a[file] = merge.applyAsDouble(a[file], b[file]);
+      }
+      return a;
+    }).orElseGet(() -> {
+      final double[] empty = new double[numFiles];
+      Arrays.fill(empty, identity);
+      return empty;
+    });
+  }
+}
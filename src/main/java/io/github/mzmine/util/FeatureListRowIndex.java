@@ -0,0 +1,277 @@
+/*
+ * Copyright (c) 2004-2022 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.util;
+
+import com.google.common.collect.Range;
+import io.github.mzmine.datamodel.features.FeatureListRow;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Read-only index of feature list rows by their average m/z, RT and mobility. The rows are sorted
+ * by m/z and split into buckets of consecutive rows. Within each bucket, the rows are additionally
+ * sorted by RT, so crowded m/z regions are narrowed down by binary searches instead of linear
+ * filtering. Build the index once per list and query it from multiple threads; the index is
+ * immutable but does not follow later changes of the row averages.
+ * <p>
+ * The results match {@link FeatureListUtils#getCandidatesWithinRanges(Range, Range, Range, List,
+ * boolean)}: rows without RT or mobility are not filtered by the respective range.
+ *
+ * @param <T> the row type
+ */
+public class FeatureListRowIndex<T extends FeatureListRow> {
+
+  /**
+   * Rows per bucket. Small enough to narrow down crowded m/z regions, large enough to keep the
+   * binary searches per bucket cheap.
+   */
+  private static final int BUCKET_SIZE = 64;
+
+  // sorted by ascending m/z, rows without m/z last
+  private final List<T> rows;
+  private final double[] mzs;
+  // NaN if the row has no average RT or mobility
+  private final float[] rts;
+  private final float[] mobilities;
+  // row indices of each bucket sorted by RT, rows without RT last in their bucket
+  private final int[] rtOrder;
+  private final float[] sortedRts;
+  // number of rows with RT in each bucket
+  private final int[] bucketRtCount;
+  private final int numRowsWithMz;
+
+  /**
+   * @param rows the rows to index, any order.
+   */
+  public FeatureListRowIndex(@NotNull List<? extends T> rows) {
+    final int n = rows.size();
+    final List<T> input = List.copyOf(rows);
+    final double[] inputMzs = new double[n];
+    final float[] inputRts = new float[n];
+    final float[] inputMobilities = new float[n];
+    IntStream.range(0, n).parallel().forEach(i -> {
+      final T row = input.get(i);
+      final Double mz = row.getAverageMZ();
+      final Float rt = row.getAverageRT();
+      final Float mobility = row.getAverageMobility();
+      inputMzs[i] = mz != null ? mz : Double.NaN;
+      inputRts[i] = rt != null ? rt : Float.NaN;
+      inputMobilities[i] = mobility != null ? mobility : Float.NaN;
+    });
+
+    // Double.compare sorts NaN last
+    final int[] mzOrder = IntStream.range(0, n).toArray();
+    IntArrays.parallelQuickSort(mzOrder, (a, b) -> Double.compare(inputMzs[a], inputMzs[b]));
+
+    final List<T> sortedRows = new ArrayList<>(n);
+    mzs = new double[n];
+    rts = new float[n];
+    mobilities = new float[n];
+    int withMz = 0;
+    for (int i = 0; i < n; i++) {
+      final int index = mzOrder[i];
+      sortedRows.add(input.get(index));
+      mzs[i] = inputMzs[index];
+      rts[i] = inputRts[index];
+      mobilities[i] = inputMobilities[index];
+      if (!Double.isNaN(mzs[i])) {
+        withMz++;
+      }
+    }
+    this.rows = sortedRows;
+    numRowsWithMz = withMz;
+
+    final int numBuckets = (n + BUCKET_SIZE - 1) / BUCKET_SIZE;
+    rtOrder = IntStream.range(0, n).toArray();
+    sortedRts = new float[n];
+    bucketRtCount = new int[numBuckets];
+    IntStream.range(0, numBuckets).parallel().forEach(b -> {
+      final int from = b * BUCKET_SIZE;
+      final int to = Math.min(n, from + BUCKET_SIZE);
+      // Float.compare sorts NaN last
+      IntArrays.quickSort(rtOrder, from, to, (x, y) -> Float.compare(rts[x], rts[y]));
+      int count = 0;
+      for (int i = from; i < to; i++) {
+        sortedRts[i] = rts[rtOrder[i]];
+        if (!Float.isNaN(sortedRts[i])) {
+          count++;
+        }
+      }
+      bucketRtCount[b] = count;
+    });
+  }
+
+  /**
+   * @return the number of indexed rows
+   */
+  public int size() {
+    return rows.size();
+  }
+
+  /**
+   * @return the indexed rows sorted by ascending m/z (unmodifiable)
+   */
+  public @NotNull List<T> getRowsByMz() {
+    return Collections.unmodifiableList(rows);
+  }
+
+  /**
+   * All rows within all ranges. Use Range.all() for ranges that shall not be checked.
+   *
+   * @param mzRange       search range in m/z
+   * @param rtRange       search range in retention time, provide Range.all() if no RT
+   * @param mobilityRange search range in ion mobility, provide Range.all() if no mobility
+   * @return a new, modifiable and unsorted list of candidates within all three ranges
+   */
+  public @NotNull List<T> getCandidatesWithinRanges(@NotNull Range<Double> mzRange,
+      @NotNull Range<Float> rtRange, @NotNull Range<Float> mobilityRange) {
+    final List<T> candidates = new ArrayList<>();
+    forEachCandidate(mzRange, rtRange, mobilityRange, candidates::add);
+    return candidates;
+  }
+
+  /**
+   * Counts the rows within all ranges without collecting them.
+   *
+   * @see #getCandidatesWithinRanges(Range, Range, Range)
+   */
+  public int countCandidatesWithinRanges(@NotNull Range<Double> mzRange,
+      @NotNull Range<Float> rtRange, @NotNull Range<Float> mobilityRange) {
+    final int[] count = {0};
+    forEachCandidate(mzRange, rtRange, mobilityRange, row -> count[0]++);
+    return count[0];
+  }
+
+  /**
+   * Passes all rows within all ranges to the consumer, in no particular order.
+   *
+   * @see #getCandidatesWithinRanges(Range, Range, Range)
+   */
+  public void forEachCandidate(@NotNull Range<Double> mzRange, @NotNull Range<Float> rtRange,
+      @NotNull Range<Float> mobilityRange, @NotNull Consumer<? super T> consumer) {
+    final int first = mzRange.hasLowerBound() ? lowerBound(mzRange.lowerEndpoint()) : 0;
+    final int last =
+        mzRange.hasUpperBound() ? upperBound(mzRange.upperEndpoint()) : numRowsWithMz;
+    if (first >= last) {
+      return;
+    }
+
+    final boolean filterRt = rtRange.hasLowerBound() || rtRange.hasUpperBound();
+    for (int b = first / BUCKET_SIZE; b <= (last - 1) / BUCKET_SIZE; b++) {
+      final int from = b * BUCKET_SIZE;
+      final int to = Math.min(rows.size(), from + BUCKET_SIZE);
+      if (!filterRt || from < first || to > last) {
+        // partially covered bucket or no RT filter: check the rows in m/z order
+        for (int i = Math.max(from, first); i < Math.min(to, last); i++) {
+          acceptIfWithinRanges(i, mzRange, rtRange, mobilityRange, consumer);
+        }
+        continue;
+      }
+
+      // fully covered bucket: only visit rows within the RT range and rows without RT
+      final int withRt = from + bucketRtCount[b];
+      int k = rtRange.hasLowerBound() ? rtLowerBound(from, withRt, rtRange.lowerEndpoint()) : from;
+      for (; k < withRt; k++) {
+        if (rtRange.hasUpperBound() && sortedRts[k] > rtRange.upperEndpoint()) {
+          break;
+        }
+        acceptIfWithinRanges(rtOrder[k], mzRange, rtRange, mobilityRange, consumer);
+      }
+      for (k = withRt; k < to; k++) {
+        acceptIfWithinRanges(rtOrder[k], mzRange, rtRange, mobilityRange, consumer);
+      }
+    }
+  }
+
+  /**
+   * Exact checks of the ranges, also handles open range bounds. Missing RT and mobility values
+   * always pass.
+   */
+  private void acceptIfWithinRanges(int i, Range<Double> mzRange, Range<Float> rtRange,
+      Range<Float> mobilityRange, Consumer<? super T> consumer) {
+    if (mzRange.contains(mzs[i]) && (Float.isNaN(rts[i]) || rtRange.contains(rts[i])) && (
+        Float.isNaN(mobilities[i]) || mobilityRange.contains(mobilities[i]))) {
+      consumer.accept(rows.get(i));
+    }
+  }
+
+  /**
+   * @return the first index with an m/z >= the given value
+   */
+  private int lowerBound(double mz) {
+    int low = 0;
+    int high = numRowsWithMz;
+    while (low < high) {
+      final int mid = (low + high) >>> 1;
+      if (mzs[mid] < mz) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * @return the first index with an m/z > the given value
+   */
+  private int upperBound(double mz) {
+    int low = 0;
+    int high = numRowsWithMz;
+    while (low < high) {
+      final int mid = (low + high) >>> 1;
+      if (mzs[mid] <= mz) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * @return the first index in [from, to) of the RT sorted bucket with an RT >= the given value
+   */
+  private int rtLowerBound(int from, int to, float rt) {
+    int low = from;
+    int high = to;
+    while (low < high) {
+      final int mid = (low + high) >>> 1;
+      if (sortedRts[mid] < rt) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+}
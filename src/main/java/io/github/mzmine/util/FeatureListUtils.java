@@ -67,7 +67,8 @@ public class FeatureListUtils {
 
   /**
    * All features within all ranges. Use a sorted list to speed up search. Use range.all() instead
-   * of null for missign ranges
+   * of null for missign ranges. For repeated searches in the same rows, build a
+   * {@link FeatureListRowIndex} once and query it instead.
    *
    * @param mzRange             search range
    * @param rtRange             search range in retention time, provide Range.all() if no RT
@@ -266,6 +267,25 @@ public class FeatureListUtils {
     });
   }
 
+  /**
+   * Scores the alignment of the samples of the calculator and merges the scores with the previous
+   * scores of each row, e.g., when new samples were added to an aligned feature list. Rows without
+   * previous scores were not found in the previous samples.
+   *
+   * @param previousSamples the number of samples the previous scores are based on
+   */
+  public static void addAlignmentScores(@NotNull FeatureList alignedFeatureList,
+      RowAlignmentScoreCalculator calculator, int previousSamples) {
+    alignedFeatureList.addRowType(DataTypes.get(AlignmentMainType.class));
+
+    final int samples = calculator.getTotalSamples();
+    alignedFeatureList.getRows().stream().parallel().forEach(alignedRow -> {
+      final AlignmentScores oldScore = alignedRow.get(AlignmentMainType.class);
+      alignedRow.set(AlignmentMainType.class,
+          calculator.calcScore(alignedRow).merge(samples, oldScore, previousSamples));
+    });
+  }
+
   /**
    * Compare row average values to ranges (during alignment or annotation to other mz, rt, and
    * mobility values based on tolerances -> ranges). General score is SUM((difference
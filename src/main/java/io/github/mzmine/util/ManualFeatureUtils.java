@@ -29,9 +29,12 @@ import com.google.common.collect.Range;
 import io.github.mzmine.datamodel.DataPoint;
 import io.github.mzmine.datamodel.RawDataFile;
 import io.github.mzmine.datamodel.Scan;
+import io.github.mzmine.datamodel.data_access.EfficientDataAccess.ScanDataType;
+import io.github.mzmine.datamodel.impl.ScanMzIndex;
 import io.github.mzmine.datamodel.impl.SimpleDataPoint;
 import io.github.mzmine.modules.dataprocessing.featdet_manual.ManualFeature;
 import io.github.mzmine.util.scans.ScanUtils;
+import java.util.Arrays;
 
 /**
  * @author SteffenHeu (steffen.heuckeroth@gmx.de / steffen.heuckeroth@uni-muenster.de)
@@ -51,9 +54,23 @@ public class ManualFeatureUtils {
 
     Scan[] scanNumbers = dataFile.getScanNumbers(1, rtRange);
 
-    for (Scan scan : scanNumbers) {
+    // extract all base peaks at once if the raw data file provides an m/z index
+    final ScanMzIndex xicIndex = dataFile.getXicIndex(ScanDataType.RAW);
+    final double[] indexedMzs = new double[scanNumbers.length];
+    final double[] indexedIntensities = new double[scanNumbers.length];
+    final boolean indexed = xicIndex != null && xicIndex.extractIonTrace(mzRange,
+        Arrays.asList(scanNumbers), indexedMzs, indexedIntensities, null);
+
+    for (int i = 0; i < scanNumbers.length; i++) {
+      final Scan scan = scanNumbers[i];
       // Find most intense m/z feature
-      DataPoint basePeak = ScanUtils.findBasePeak(scan, mzRange);
+      DataPoint basePeak;
+      if (indexed) {
+        basePeak = indexedIntensities[i] > 0 ? new SimpleDataPoint(indexedMzs[i],
+            indexedIntensities[i]) : null;
+      } else {
+        basePeak = ScanUtils.findBasePeak(scan, mzRange);
+      }
 
       if (basePeak != null) {
         if (basePeak.getIntensity() > 0) {
@@ -78,6 +78,8 @@ public class MemoryMapStorage {
   private final Logger logger = Logger.getLogger(this.getClass().getName());
   private final Set<File> temporaryFiles = new HashSet<>();
   private final List<MappedByteBuffer> mappedByteBufferList = new ArrayList<>();
+  // only holds feature data, see forFeatureList()
+  private final boolean featureListStorage;
 
   private static boolean storeFeaturesInRam = false;
   private static boolean storeRawFilesInRam = false;
@@ -88,7 +90,7 @@ public class MemoryMapStorage {
    */
   @Nullable
   public static MemoryMapStorage forFeatureList() {
-    return storeFeaturesInRam ? null : new MemoryMapStorage();
+    return storeFeaturesInRam ? null : new MemoryMapStorage(true);
   }
 
   /**
@@ -113,6 +115,11 @@ public class MemoryMapStorage {
   }
 
   private MemoryMapStorage() {
+    this(false);
+  }
+
+  private MemoryMapStorage(boolean featureListStorage) {
+    this.featureListStorage = featureListStorage;
     // register this storage to MZmineCore, so we can delete all temp files later.
     MZmineCore.registerStorage(this);
   }
@@ -122,6 +129,11 @@ public class MemoryMapStorage {
    */
   private MappedByteBuffer currentMappedFile = null;
 
+  /**
+   * Total number of bytes stored so far, used to report the storage usage of tasks.
+   */
+  private long storedBytes = 0L;
+
   /**
    * Creates a new temporary file, maps it into memory, and returns the corresponding
    * MappedByteBuffer. The capacity of the buffer is STORAGE_FILE_CAPACITY bytes.
@@ -205,6 +217,7 @@ public class MemoryMapStorage {
 
     // Update the position and the main buffer so we are ready to store the next array
     currentMappedFile.position(savedPosition + length * Double.BYTES);
+    storedBytes += (long) length * Double.BYTES;
 
     // Create a read-only version of the new buffer slice
     final DoubleBuffer readOnlySlice = sliceDoubleView.asReadOnlyBuffer();
@@ -262,6 +275,7 @@ public class MemoryMapStorage {
 
     // Update the position and the main buffer so we are ready to store the next array
     currentMappedFile.position(savedPosition + length * Float.BYTES);
+    storedBytes += (long) length * Float.BYTES;
 
     // Create a read-only version of the new buffer slice
     final FloatBuffer readOnlySlice = sliceFloatView.asReadOnlyBuffer();
@@ -318,6 +332,7 @@ public class MemoryMapStorage {
 
     // Update the position and the main buffer so we are ready to store the next array
     currentMappedFile.position(savedPosition + length * Integer.BYTES);
+    storedBytes += (long) length * Integer.BYTES;
 
     // Create a read-only version of the new buffer slice
     final IntBuffer readOnlySlice = sliceIntView.asReadOnlyBuffer();
@@ -326,6 +341,29 @@ public class MemoryMapStorage {
 
   }
 
+  /**
+   * @return true if this storage was created by {@link #forFeatureList()} and only holds feature
+   * data
+   */
+  public boolean isFeatureListStorage() {
+    return featureListStorage;
+  }
+
+  /**
+   * @return the number of bytes stored in this storage
+   */
+  public synchronized long getStoredBytes() {
+    return storedBytes;
+  }
+
+  /**
+   * Adds an existing file to the temporary files of this storage, e.g., a file that was extracted
+   * and mapped during a project import. The file is deleted when this storage is discarded.
+   */
+  public synchronized void registerTemporaryFile(@NotNull File file) {
+    temporaryFiles.add(file);
+  }
+
   /**
    * Discard this memory-mapped storage and remove all the associated temporary files.
    */
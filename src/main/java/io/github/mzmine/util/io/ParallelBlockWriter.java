@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2004-2022 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.util.io;
+
+import com.google.common.collect.Lists;
+import io.github.mzmine.main.MZmineCore;
+import io.github.mzmine.util.files.FileAndPathUtil;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Prepares and formats the entries of an export in blocks on multiple threads and writes the
+ * blocks in the original order. Used by the spectral exporters, which spend most of their time in
+ * the selection and merging of spectra and the formatting of data points.
+ * <p>
+ * Files ending with .gz are written gzip compressed.
+ */
+public class ParallelBlockWriter {
+
+  public static final String GZIP_EXTENSION = ".gz";
+  private static final int BLOCK_SIZE = 32;
+
+  /**
+   * Writes one entry into the buffer of its block. Must be thread safe.
+   *
+   * @param <T> the item type
+   */
+  @FunctionalInterface
+  public interface EntryWriter<T> {
+
+    /**
+     * @return true if an entry was written for this item
+     */
+    boolean write(T item, BufferedWriter blockWriter) throws IOException;
+  }
+
+  /**
+   * Writes the entries of all items in the order of the list. Blocks of items are formatted in
+   * parallel, only a limited number of formatted blocks is kept in memory.
+   *
+   * @param items       the items to export
+   * @param writer      the destination
+   * @param entryWriter writes the entry of an item to the block buffer
+   * @param isCanceled  stops the export if true
+   * @return the number of written entries
+   */
+  public static <T> int writeInOrder(List<T> items, Writer writer, EntryWriter<T> entryWriter,
+      BooleanSupplier isCanceled) throws IOException {
+    final List<List<T>> blocks = Lists.partition(items, BLOCK_SIZE);
+    // two blocks per thread are formatted before they are written
+    final int blocksPerStep = Math.max(1, MZmineCore.getConfiguration().getNumOfThreads()) * 2;
+    final AtomicInteger written = new AtomicInteger(0);
+
+    try {
+      for (List<List<T>> step : Lists.partition(blocks, blocksPerStep)) {
+        if (isCanceled.getAsBoolean()) {
+          break;
+        }
+        final List<String> formatted = step.parallelStream()
+            .map(block -> formatBlock(block, entryWriter, written, isCanceled)).toList();
+        for (String block : formatted) {
+          writer.write(block);
+        }
+      }
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+    return written.get();
+  }
+
+  private static <T> String formatBlock(List<T> block, EntryWriter<T> entryWriter,
+      AtomicInteger written, BooleanSupplier isCanceled) {
+    final StringWriter buffer = new StringWriter();
+    try (BufferedWriter blockWriter = new BufferedWriter(buffer)) {
+      for (T item : block) {
+        if (isCanceled.getAsBoolean()) {
+          break;
+        }
+        if (entryWriter.write(item, blockWriter)) {
+          written.incrementAndGet();
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return buffer.toString();
+  }
+
+  /**
+   * @return true if the file shall be written gzip compressed
+   */
+  public static boolean isCompressed(File file) {
+    return file.getName().toLowerCase().endsWith(GZIP_EXTENSION);
+  }
+
+  /**
+   * Same as {@link FileAndPathUtil#getRealFilePath(File, String)} but keeps a trailing .gz
+   * extension, e.g., export.mgf.gz
+   */
+  public static File getRealFilePath(File file, String format) {
+    if (!isCompressed(file)) {
+      return FileAndPathUtil.getRealFilePath(file, format);
+    }
+    final String name = file.getName();
+    final File uncompressed = new File(file.getParentFile(),
+        name.substring(0, name.length() - GZIP_EXTENSION.length()));
+    final File real = FileAndPathUtil.getRealFilePath(uncompressed, format);
+    return new File(real.getParentFile(), real.getName() + GZIP_EXTENSION);
+  }
+
+  /**
+   * Opens a UTF-8 writer, gzip compressed if the file name ends with .gz
+   */
+  public static BufferedWriter newBufferedWriter(File file) throws IOException {
+    if (isCompressed(file)) {
+      return new BufferedWriter(new OutputStreamWriter(
+          new GZIPOutputStream(Files.newOutputStream(file.toPath()), 1 << 16),
+          StandardCharsets.UTF_8));
+    }
+    return Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8);
+  }
+}
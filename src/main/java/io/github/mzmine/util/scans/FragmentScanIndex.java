@@ -0,0 +1,257 @@
+/*
+ * Copyright (c) 2004-2022 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.util.scans;
+
+import com.google.common.collect.Range;
+import io.github.mzmine.datamodel.Frame;
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.Scan;
+import io.github.mzmine.datamodel.impl.MSnInfoImpl;
+import io.github.mzmine.datamodel.msms.DDAMsMsInfo;
+import io.github.mzmine.datamodel.msms.PasefMsMsInfo;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.ToDoubleFunction;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Read-only index of the fragment scans (or PASEF precursors) of a raw data file by retention time
+ * and precursor m/z. Replaces a pass over all scans of a file for each feature by binary searches.
+ * The index is immutable and may be queried by multiple threads.
+ *
+ * @param <T> the indexed items, {@link Scan} or {@link PasefPrecursor}
+ */
+public class FragmentScanIndex<T> {
+
+  // sorted by retention time
+  private final List<T> items;
+  private final float[] rts;
+  private final double[] mzs;
+  // item indices sorted by precursor m/z
+  private final int[] mzOrder;
+  private final double[] sortedMzs;
+
+  private FragmentScanIndex(@NotNull List<T> items, @NotNull ToDoubleFunction<T> rtFunction,
+      @NotNull ToDoubleFunction<T> mzFunction) {
+    // stable sort, items with the same retention time keep their order
+    this.items = new ArrayList<>(items);
+    this.items.sort(Comparator.comparingDouble(rtFunction));
+
+    final int n = this.items.size();
+    rts = new float[n];
+    mzs = new double[n];
+    mzOrder = new int[n];
+    for (int i = 0; i < n; i++) {
+      rts[i] = (float) rtFunction.applyAsDouble(this.items.get(i));
+      mzs[i] = mzFunction.applyAsDouble(this.items.get(i));
+      mzOrder[i] = i;
+    }
+    IntArrays.mergeSort(mzOrder, (a, b) -> Double.compare(mzs[a], mzs[b]));
+    sortedMzs = new double[n];
+    for (int i = 0; i < n; i++) {
+      sortedMzs[i] = mzs[mzOrder[i]];
+    }
+  }
+
+  /**
+   * Indexes all scans with MS level > 1 and a precursor m/z.
+   */
+  public static FragmentScanIndex<Scan> forScans(@NotNull RawDataFile raw) {
+    final List<Scan> scans = new ArrayList<>();
+    for (Scan scan : raw.getScans()) {
+      if (scan.getMSLevel() > 1 && getPrecursorMz(scan) != 0) {
+        scans.add(scan);
+      }
+    }
+    return new FragmentScanIndex<>(scans, Scan::getRetentionTime,
+        FragmentScanIndex::getPrecursorMz);
+  }
+
+  /**
+   * Indexes the PASEF precursors of all MS2 frames by the retention time of the frame and the
+   * isolation m/z.
+   */
+  public static FragmentScanIndex<PasefPrecursor> forPasefPrecursors(@NotNull RawDataFile raw) {
+    final List<PasefPrecursor> precursors = new ArrayList<>();
+    for (Scan scan : raw.getScanNumbers(2)) {
+      if (scan instanceof Frame frame) {
+        for (PasefMsMsInfo info : frame.getImsMsMsInfos()) {
+          precursors.add(new PasefPrecursor(frame, info));
+        }
+      }
+    }
+    return new FragmentScanIndex<>(precursors, p -> p.frame().getRetentionTime(),
+        p -> p.info().getIsolationMz());
+  }
+
+  /**
+   * @return the precursor m/z of MSn, DDA or other fragment scans or 0 if not available
+   */
+  public static double getPrecursorMz(@NotNull Scan scan) {
+    if (scan.getMsMsInfo() instanceof MSnInfoImpl msn) {
+      return msn.getMS2PrecursorMz();
+    } else if (scan.getMsMsInfo() instanceof DDAMsMsInfo info) {
+      return info.getIsolationMz();
+    } else {
+      return Objects.requireNonNullElse(scan.getPrecursorMz(), 0d);
+    }
+  }
+
+  /**
+   * All items within both ranges, ordered by retention time. The smaller one of the retention time
+   * and m/z windows is scanned.
+   *
+   * @param rtRange the retention time range or null for all retention times
+   * @param mzRange the precursor m/z range
+   */
+  @NotNull
+  public List<T> getItems(@Nullable Range<Float> rtRange, @NotNull Range<Double> mzRange) {
+    final int n = items.size();
+    final int rtStart = rtRange == null || !rtRange.hasLowerBound() ? 0
+        : lowerBound(rts, rtRange.lowerEndpoint());
+    final int rtEnd = rtRange == null || !rtRange.hasUpperBound() ? n
+        : upperBound(rts, rtRange.upperEndpoint());
+    final int mzStart =
+        mzRange.hasLowerBound() ? lowerBound(sortedMzs, mzRange.lowerEndpoint()) : 0;
+    final int mzEnd = mzRange.hasUpperBound() ? upperBound(sortedMzs, mzRange.upperEndpoint()) : n;
+
+    final List<T> result = new ArrayList<>();
+    if (rtEnd - rtStart <= mzEnd - mzStart) {
+      for (int i = rtStart; i < rtEnd; i++) {
+        if (matches(i, rtRange, mzRange)) {
+          result.add(items.get(i));
+        }
+      }
+      return result;
+    }
+
+    final IntArrayList matches = new IntArrayList();
+    for (int j = mzStart; j < mzEnd; j++) {
+      final int i = mzOrder[j];
+      if (matches(i, rtRange, mzRange)) {
+        matches.add(i);
+      }
+    }
+    // back to retention time order
+    matches.sort(null);
+    for (int i = 0; i < matches.size(); i++) {
+      result.add(items.get(matches.getInt(i)));
+    }
+    return result;
+  }
+
+  private boolean matches(int i, @Nullable Range<Float> rtRange, @NotNull Range<Double> mzRange) {
+    return (rtRange == null || rtRange.contains(rts[i])) && mzRange.contains(mzs[i]);
+  }
+
+  /**
+   * @return the number of indexed items
+   */
+  public int size() {
+    return items.size();
+  }
+
+  /**
+   * @return the first index with a value >= key
+   */
+  private static int lowerBound(float[] values, float key) {
+    int low = 0;
+    int high = values.length;
+    while (low < high) {
+      final int mid = (low + high) >>> 1;
+      if (values[mid] < key) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * @return the first index with a value > key
+   */
+  private static int upperBound(float[] values, float key) {
+    int low = 0;
+    int high = values.length;
+    while (low < high) {
+      final int mid = (low + high) >>> 1;
+      if (values[mid] <= key) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * @return the first index with a value >= key
+   */
+  private static int lowerBound(double[] values, double key) {
+    int low = 0;
+    int high = values.length;
+    while (low < high) {
+      final int mid = (low + high) >>> 1;
+      if (values[mid] < key) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * @return the first index with a value > key
+   */
+  private static int upperBound(double[] values, double key) {
+    int low = 0;
+    int high = values.length;
+    while (low < high) {
+      final int mid = (low + high) >>> 1;
+      if (values[mid] <= key) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * A PASEF precursor and the MS2 frame it was fragmented in.
+   */
+  public record PasefPrecursor(@NotNull Frame frame, @NotNull PasefMsMsInfo info) {
+
+  }
+}
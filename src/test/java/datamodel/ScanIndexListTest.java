@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2004-2022 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package datamodel;
+
+import com.google.common.collect.Range;
+import io.github.mzmine.datamodel.MassSpectrumType;
+import io.github.mzmine.datamodel.PolarityType;
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.Scan;
+import io.github.mzmine.datamodel.featuredata.impl.ScanIndexList;
+import io.github.mzmine.datamodel.impl.SimpleScan;
+import io.github.mzmine.project.impl.RawDataFileImpl;
+import io.github.mzmine.util.MemoryMapStorage;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import javafx.scene.paint.Color;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class ScanIndexListTest {
+
+  private static RawDataFile file;
+
+  @BeforeAll
+  static void init() throws IOException {
+    file = new RawDataFileImpl("test", null, null, Color.BLACK);
+    for (int i = 0; i < 20; i++) {
+      file.addScan(new SimpleScan(file, i, i % 2 + 1, i * 0.1f, null, new double[]{100d},
+          new double[]{1E5}, MassSpectrumType.CENTROIDED, PolarityType.POSITIVE, "",
+          Range.closed(50d, 500d)));
+    }
+  }
+
+  @Test
+  void testRuns() {
+    final List<Scan> scans = new ArrayList<>(file.getScans().subList(2, 12));
+    scans.addAll(file.getScans().subList(15, 18));
+
+    final List<Scan> compact = ScanIndexList.of(null, scans, file.getScans());
+    Assertions.assertTrue(compact instanceof ScanIndexList);
+    Assertions.assertEquals(scans, compact);
+    for (int i = 0; i < scans.size(); i++) {
+      Assertions.assertSame(scans.get(i), compact.get(i));
+    }
+  }
+
+  @Test
+  void testIndices() {
+    final List<Scan> scans = file.getScans().stream().filter(s -> s.getMSLevel() == 1).toList();
+
+    final List<Scan> compact = ScanIndexList.of(null, scans, file.getScans());
+    Assertions.assertTrue(compact instanceof ScanIndexList);
+    Assertions.assertEquals(scans, compact);
+    Assertions.assertSame(scans.get(scans.size() - 1), compact.get(compact.size() - 1));
+  }
+
+  @Test
+  void testCopyToStorage() {
+    final List<Scan> scans = file.getScans().stream().filter(s -> s.getMSLevel() == 1).toList();
+    final MemoryMapStorage storage = MemoryMapStorage.create();
+
+    final List<Scan> compact = ScanIndexList.of(storage, scans, file.getScans());
+    Assertions.assertSame(compact, ScanIndexList.of(storage, compact, file.getScans()));
+
+    // indices are copied out of the old storage
+    final List<Scan> copy = ScanIndexList.of(null, compact, file.getScans());
+    Assertions.assertNotSame(compact, copy);
+    Assertions.assertTrue(copy instanceof ScanIndexList);
+    Assertions.assertEquals(scans, copy);
+  }
+
+  @Test
+  void testUnknownScan() throws IOException {
+    final Scan other = new SimpleScan(file, 5, 1, 0.5f, null, new double[]{100d},
+        new double[]{1E5}, MassSpectrumType.CENTROIDED, PolarityType.POSITIVE, "",
+        Range.closed(50d, 500d));
+    final List<Scan> scans = List.of(file.getScan(4), other);
+
+    Assertions.assertSame(scans, ScanIndexList.of(null, scans, file.getScans()));
+  }
+}
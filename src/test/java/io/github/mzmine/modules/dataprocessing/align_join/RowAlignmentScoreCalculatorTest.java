@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2004-2022 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.dataprocessing.align_join;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import io.github.mzmine.datamodel.FeatureStatus;
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.features.FeatureListRow;
+import io.github.mzmine.datamodel.features.ModularFeature;
+import io.github.mzmine.datamodel.features.ModularFeatureList;
+import io.github.mzmine.datamodel.features.ModularFeatureListRow;
+import io.github.mzmine.datamodel.features.types.DataTypes;
+import io.github.mzmine.datamodel.features.types.DetectionType;
+import io.github.mzmine.datamodel.features.types.RawFileType;
+import io.github.mzmine.datamodel.features.types.alignment.AlignmentMainType;
+import io.github.mzmine.datamodel.features.types.alignment.AlignmentScores;
+import io.github.mzmine.datamodel.features.types.numbers.MZType;
+import io.github.mzmine.datamodel.features.types.numbers.RTType;
+import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
+import io.github.mzmine.parameters.parametertypes.tolerances.RTTolerance;
+import io.github.mzmine.parameters.parametertypes.tolerances.RTTolerance.Unit;
+import io.github.mzmine.util.FeatureListUtils;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+/**
+ * Scores of an aligned feature list that is extended with new samples
+ */
+@ExtendWith(MockitoExtension.class)
+class RowAlignmentScoreCalculatorTest {
+
+  private static final int PREVIOUS_SAMPLES = 500;
+
+  @Mock
+  RawDataFile oldRaw;
+  @Mock
+  RawDataFile newRaw;
+
+  ModularFeatureList aligned;
+  RowAlignmentScoreCalculator calculator;
+
+  @BeforeEach
+  void setUp() {
+    final ModularFeatureList newList = new ModularFeatureList("new", null, newRaw);
+    newList.addRow(createRow(newList, 1, newRaw, 300d, 8f));
+
+    aligned = new ModularFeatureList("aligned", null, oldRaw, newRaw);
+    aligned.addRowType(DataTypes.get(AlignmentMainType.class));
+    calculator = new RowAlignmentScoreCalculator(List.of(newList), new MZTolerance(0.005, 10),
+        new RTTolerance(0.1f, Unit.MINUTES), null, 3, 1, 0);
+  }
+
+  private static ModularFeatureListRow createRow(ModularFeatureList flist, int id,
+      RawDataFile raw, double mz, float rt) {
+    final ModularFeature f = new ModularFeature(flist);
+    f.set(RawFileType.class, raw);
+    f.set(MZType.class, mz);
+    f.set(RTType.class, rt);
+    f.set(DetectionType.class, FeatureStatus.DETECTED);
+    return new ModularFeatureListRow(flist, id, f);
+  }
+
+  @Test
+  void rowWithoutNewFeaturesKeepsScores() {
+    final FeatureListRow row = createRow(aligned, 1, oldRaw, 100d, 5f);
+    row.set(AlignmentMainType.class,
+        new AlignmentScores(1f, PREVIOUS_SAMPLES, 2, 0.9f, 1.5f, 0.0002, 0.05f, null));
+    aligned.addRow(row);
+
+    final AlignmentScores newScore = calculator.calcScore(row);
+    assertEquals(0, newScore.alignedFeatures());
+    assertNull(newScore.mzDelta());
+    assertNull(newScore.weightedDistanceScore());
+
+    FeatureListUtils.addAlignmentScores(aligned, calculator, PREVIOUS_SAMPLES);
+    final AlignmentScores score = row.get(AlignmentMainType.class);
+    assertNotNull(score);
+    assertEquals(PREVIOUS_SAMPLES / (float) (PREVIOUS_SAMPLES + 1), score.rate(), 1e-6);
+    assertEquals(PREVIOUS_SAMPLES, score.alignedFeatures());
+    assertEquals(0.9f, score.weightedDistanceScore(), 1e-6);
+    assertEquals(1.5f, score.mzPpmDelta(), 1e-6);
+    assertEquals(0.0002, score.mzDelta(), 1e-9);
+    assertEquals(0.05f, score.rtDelta(), 1e-6);
+  }
+
+  @Test
+  void newRowRateIncludesPreviousSamples() {
+    final FeatureListRow row = createRow(aligned, 2, newRaw, 300d, 8f);
+    aligned.addRow(row);
+
+    FeatureListUtils.addAlignmentScores(aligned, calculator, PREVIOUS_SAMPLES);
+    final AlignmentScores score = row.get(AlignmentMainType.class);
+    assertNotNull(score);
+    assertEquals(1f / (PREVIOUS_SAMPLES + 1), score.rate(), 1e-6);
+    assertEquals(1, score.alignedFeatures());
+    assertEquals(0d, score.mzDelta(), 1e-9);
+  }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2004-2022 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.google.common.collect.Range;
+import io.github.mzmine.datamodel.FeatureStatus;
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.features.FeatureListRow;
+import io.github.mzmine.datamodel.features.ModularFeature;
+import io.github.mzmine.datamodel.features.ModularFeatureList;
+import io.github.mzmine.datamodel.features.ModularFeatureListRow;
+import io.github.mzmine.datamodel.features.types.DetectionType;
+import io.github.mzmine.datamodel.features.types.RawFileType;
+import io.github.mzmine.datamodel.features.types.numbers.MZType;
+import io.github.mzmine.datamodel.features.types.numbers.MobilityType;
+import io.github.mzmine.datamodel.features.types.numbers.RTType;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class FeatureListRowIndexTest {
+
+  @Mock
+  RawDataFile raw;
+
+  ModularFeatureList flist;
+
+  List<FeatureListRow> rows;
+
+  @BeforeEach
+  void setUp() {
+    flist = new ModularFeatureList("List", null, raw);
+    rows = new ArrayList<>();
+    // crowded m/z region with several buckets, some rows without RT or mobility
+    final Random random = new Random(42);
+    for (int i = 0; i < 500; i++) {
+      final double mz = 200 + random.nextDouble() * 2;
+      final Float rt = i % 50 == 0 ? null : random.nextFloat() * 20f;
+      final Float mobility = i % 7 == 0 ? null : 0.5f + random.nextFloat();
+      rows.add(getRow(mz, rt, mobility));
+    }
+  }
+
+  private FeatureListRow getRow(double mz, Float rt, Float mobility) {
+    ModularFeature f = new ModularFeature(flist);
+    f.set(RawFileType.class, raw);
+    f.set(MZType.class, mz);
+    if (rt != null) {
+      f.set(RTType.class, rt);
+    }
+    if (mobility != null) {
+      f.set(MobilityType.class, mobility);
+    }
+    f.set(DetectionType.class, FeatureStatus.DETECTED);
+    return new ModularFeatureListRow(flist, 1, f);
+  }
+
+  @Test
+  void sameCandidatesAsLinearSearch() {
+    final FeatureListRowIndex<FeatureListRow> index = new FeatureListRowIndex<>(rows);
+    assertEquals(rows.size(), index.size());
+
+    final Random random = new Random(7);
+    for (int i = 0; i < 200; i++) {
+      final double mz = 199.9 + random.nextDouble() * 2.2;
+      final float rt = random.nextFloat() * 20f;
+      final float mobility = 0.5f + random.nextFloat();
+      final Range<Double> mzRange = Range.closed(mz - 0.05, mz + 0.05);
+      final Range<Float> rtRange = i % 5 == 0 ? Range.all() : Range.closed(rt - 1f, rt + 1f);
+      final Range<Float> mobilityRange =
+          i % 3 == 0 ? Range.all() : Range.closed(mobility - 0.1f, mobility + 0.1f);
+
+      final List<FeatureListRow> expected = FeatureListUtils.getCandidatesWithinRanges(mzRange,
+          rtRange, mobilityRange, rows, false);
+      final List<FeatureListRow> actual = index.getCandidatesWithinRanges(mzRange, rtRange,
+          mobilityRange);
+      assertEquals(expected.size(), actual.size());
+      assertEquals(new HashSet<>(expected), new HashSet<>(actual));
+      assertEquals(expected.size(),
+          index.countCandidatesWithinRanges(mzRange, rtRange, mobilityRange));
+    }
+  }
+
+  @Test
+  void openAndUnboundedRanges() {
+    final FeatureListRowIndex<FeatureListRow> index = new FeatureListRowIndex<>(rows);
+    assertEquals(rows.size(), index.countCandidatesWithinRanges(Range.all(), Range.all(),
+        Range.all()));
+    assertEquals(0, index.countCandidatesWithinRanges(Range.open(300d, 301d), Range.all(),
+        Range.all()));
+
+    final long expected = rows.stream().filter(r -> r.getAverageMZ() > 201d
+        && (r.getAverageRT() == null || r.getAverageRT() < 10f)).count();
+    assertEquals(expected, index.countCandidatesWithinRanges(Range.greaterThan(201d),
+        Range.lessThan(10f), Range.all()));
+  }
+}
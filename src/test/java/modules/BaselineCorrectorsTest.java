@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2004-2022 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package modules;
+
+import io.github.mzmine.modules.dataprocessing.filter_baselinecorrection.correctors.AsymmetryCorrector;
+import io.github.mzmine.modules.dataprocessing.filter_baselinecorrection.correctors.BaselineUtils;
+import io.github.mzmine.modules.dataprocessing.filter_baselinecorrection.correctors.LocMinLoessCorrector;
+import io.github.mzmine.modules.dataprocessing.filter_baselinecorrection.correctors.PeakDetectionCorrector;
+import io.github.mzmine.modules.dataprocessing.filter_baselinecorrection.correctors.RollingBallCorrector;
+import io.github.mzmine.modules.dataprocessing.filter_baselinecorrection.correctors.RubberBandCorrector;
+import java.util.Random;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks the baseline correctors on a linear baseline with noise and two peaks.
+ */
+public class BaselineCorrectorsTest {
+
+  private static final int N = 300;
+  private static final double[] baseline = new double[N];
+  private static final double[] chromatogram = new double[N];
+
+  static {
+    final Random random = new Random(1);
+    for (int i = 0; i < N; i++) {
+      baseline[i] = 100 + 0.5 * i;
+      chromatogram[i] = baseline[i] + random.nextGaussian() * 2 + 1000 * Math.exp(
+          -Math.pow((i - 100) / 4d, 2)) + 500 * Math.exp(-Math.pow((i - 200) / 3d, 2));
+    }
+  }
+
+  private static double meanAbsoluteError(double[] estimated) {
+    Assertions.assertEquals(N, estimated.length);
+    double sum = 0;
+    for (int i = 0; i < N; i++) {
+      sum += Math.abs(estimated[i] - baseline[i]);
+    }
+    return sum / N;
+  }
+
+  @Test
+  void testWindowFunctions() {
+    final double[] values = {5, 3, 8, 1, 9, 2, 7};
+    Assertions.assertArrayEquals(new double[]{3, 3, 1, 1, 1, 2, 2},
+        BaselineUtils.runningMin(values, 1));
+    Assertions.assertArrayEquals(new double[]{5, 8, 8, 9, 9, 9, 7},
+        BaselineUtils.runningMax(values, 1));
+    Assertions.assertArrayEquals(new double[]{4, 5, 3, 8, 2, 7, 4.5},
+        BaselineUtils.runningMedian(values, 1));
+    Assertions.assertArrayEquals(new double[]{1, 1, 2, 3, 3},
+        BaselineUtils.interpolateLinear(new int[]{1, 3}, new double[]{1, 3}, 5));
+  }
+
+  @Test
+  void testAsymmetricLeastSquares() {
+    // no smoothing reproduces the values, straight lines are not penalized
+    final double[] values = {1, 2, 3, 4, 10};
+    Assertions.assertArrayEquals(values,
+        AsymmetryCorrector.asymmetricLeastSquares(values, 0, 0.5), 1E-9);
+    final double[] line = {1, 2, 3, 4, 5, 6};
+    Assertions.assertArrayEquals(line, AsymmetryCorrector.asymmetricLeastSquares(line, 1E6, 0.5),
+        1E-6);
+
+    Assertions.assertTrue(
+        meanAbsoluteError(AsymmetryCorrector.asymmetricLeastSquares(chromatogram, 1E5, 0.001))
+            < 5);
+  }
+
+  @Test
+  void testCorrectors() {
+    Assertions.assertTrue(
+        meanAbsoluteError(RollingBallCorrector.rollingBall(chromatogram, 20, 5)) < 5);
+    Assertions.assertTrue(
+        meanAbsoluteError(RubberBandCorrector.rubberBand(chromatogram, 0, false, 0)) < 7);
+    Assertions.assertTrue(
+        meanAbsoluteError(LocMinLoessCorrector.locMinLoess(chromatogram, true, 0.3, 30, 0)) < 5);
+    Assertions.assertTrue(
+        meanAbsoluteError(LocMinLoessCorrector.locMinLoess(chromatogram, false, 0.3, 30, 0)) < 5);
+    Assertions.assertTrue(meanAbsoluteError(
+        PeakDetectionCorrector.peakDetection(chromatogram, 2, 10, 5, 10, 3, 0, 1)) < 8);
+  }
+}
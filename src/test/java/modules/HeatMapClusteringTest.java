@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2004-2022 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package modules;
+
+import io.github.mzmine.modules.dataanalysis.heatmaps.HeatMapClustering;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class HeatMapClusteringTest {
+
+  @Test
+  void testDistanceWithMissingValues() {
+    final double[] a = {1, Double.NaN, 3, 4};
+    final double[] b = {2, 5, Double.NaN, 6};
+    // (1 + 4) * 4 / 2 like dist in R
+    Assertions.assertEquals(Math.sqrt(10), HeatMapClustering.distance(a, b), 1E-12);
+    Assertions.assertTrue(Double.isNaN(
+        HeatMapClustering.distance(new double[]{1, Double.NaN}, new double[]{Double.NaN, 1})));
+  }
+
+  @Test
+  void testComparableVectors() {
+    final double[][] vectors = {{1, Double.NaN}, {2, 3}, {Double.NaN, 4}};
+    Assertions.assertArrayEquals(new boolean[]{true, true, false},
+        HeatMapClustering.findComparableVectors(vectors));
+  }
+
+  @Test
+  void testOrder() {
+    // two clusters, {1, 3} with high and {0, 2, 4} with low values
+    final double[][] vectors = {{0, 0}, {10, 10}, {0.5, 0}, {10, 11}, {0, 1}};
+    final double[] weights = {0, 10, 0.25, 10.5, 0.5};
+    final int[] order = HeatMapClustering.order(vectors, weights);
+
+    Assertions.assertEquals(5, order.length);
+    // the lighter cluster comes first, leaves of both clusters are contiguous
+    for (int i = 0; i < 3; i++) {
+      Assertions.assertTrue(order[i] == 0 || order[i] == 2 || order[i] == 4);
+    }
+    Assertions.assertArrayEquals(new int[]{1, 3}, new int[]{order[3], order[4]});
+    // the first merge is 0 and 2 (summed weight 0.25), 4 (weight 0.5) joins later
+    Assertions.assertArrayEquals(new int[]{0, 2, 4}, new int[]{order[0], order[1], order[2]});
+  }
+}
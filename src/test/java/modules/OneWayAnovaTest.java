@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2004-2022 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package modules;
+
+import io.github.mzmine.modules.dataanalysis.anova.OneWayAnova;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class OneWayAnovaTest {
+
+  @Test
+  void testPValue() {
+    // three groups of six values, F = 9.26 with 2 and 15 degrees of freedom
+    final double[] values = {6, 8, 4, 5, 3, 4, 8, 12, 9, 11, 6, 8, 13, 9, 11, 8, 7, 12,
+        // second row without variance within the groups
+        1, 1, 1, 1, 1, 1, 2, 2, 2, 2, 2, 2, 3, 3, 3, 3, 3, 3};
+    final int[] groupOfFile = {0, 0, 0, 0, 0, 0, 1, 1, 1, 1, 1, 1, 2, 2, 2, 2, 2, 2};
+
+    final double[] pValues = OneWayAnova.pValues(values, groupOfFile, 3);
+    Assertions.assertEquals(2, pValues.length);
+    Assertions.assertEquals(0.00240, pValues[0], 1E-5);
+    Assertions.assertTrue(Double.isNaN(pValues[1]));
+
+    // missing values and files without group are ignored
+    final double[] withMissing = {6, 8, 4, 5, 3, 4, 8, 12, 9, 11, 6, 8, 13, 9, 11, 8, 7, 12,
+        Double.NaN, 100};
+    final int[] groupsWithMissing = {0, 0, 0, 0, 0, 0, 1, 1, 1, 1, 1, 1, 2, 2, 2, 2, 2, 2, 0, -1};
+    Assertions.assertEquals(pValues[0], OneWayAnova.pValue(withMissing, 0, groupsWithMissing, 3),
+        1E-12);
+  }
+
+  @Test
+  void testBenjaminiHochberg() {
+    final double[] pValues = {0.01, 0.04, Double.NaN, 0.03, 0.5};
+    final double[] adjusted = OneWayAnova.benjaminiHochberg(pValues);
+    // m = 4: 0.01 * 4 / 1, 0.03 * 4 / 2 is larger than the next rank 0.04 * 4 / 3, 0.5 * 4 / 4
+    Assertions.assertEquals(0.04, adjusted[0], 1E-12);
+    Assertions.assertEquals(0.04 * 4 / 3, adjusted[1], 1E-12);
+    Assertions.assertTrue(Double.isNaN(adjusted[2]));
+    Assertions.assertEquals(0.04 * 4 / 3, adjusted[3], 1E-12);
+    Assertions.assertEquals(0.5, adjusted[4], 1E-12);
+  }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2004-2022 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package modules;
+
+import io.github.mzmine.modules.dataanalysis.projectionplots.ProjectionMatrix;
+import java.util.Arrays;
+import java.util.Random;
+import org.apache.commons.math3.linear.Array2DRowRealMatrix;
+import org.apache.commons.math3.linear.SingularValueDecomposition;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Compares the randomized PCA of the projection plots to the scores of a full singular value
+ * decomposition.
+ */
+public class ProjectionMatrixTest {
+
+  private static final int SAMPLES = 30;
+  private static final int FEATURES = 2000;
+
+  /**
+   * Three latent factors with decreasing weights plus noise.
+   */
+  private static ProjectionMatrix createMatrix() {
+    final Random random = new Random(3);
+    final double[][] factors = new double[3][SAMPLES];
+    final double[][] loadings = new double[3][FEATURES];
+    for (int f = 0; f < 3; f++) {
+      for (int s = 0; s < SAMPLES; s++) {
+        factors[f][s] = random.nextGaussian() * (3 - f) * 10;
+      }
+      for (int i = 0; i < FEATURES; i++) {
+        loadings[f][i] = random.nextGaussian();
+      }
+    }
+
+    final double[] values = new double[SAMPLES * FEATURES];
+    for (int i = 0; i < FEATURES; i++) {
+      for (int s = 0; s < SAMPLES; s++) {
+        double value = 1000 + random.nextGaussian();
+        for (int f = 0; f < 3; f++) {
+          value += factors[f][s] * loadings[f][i];
+        }
+        values[i * SAMPLES + s] = value;
+      }
+    }
+    return new ProjectionMatrix(values, SAMPLES, FEATURES);
+  }
+
+  @Test
+  void testScaling() {
+    final double[][] data = createMatrix().toSampleArrays();
+    for (int i = 0; i < FEATURES; i += 100) {
+      double mean = 0;
+      double variance = 0;
+      for (int s = 0; s < SAMPLES; s++) {
+        mean += data[s][i];
+        variance += data[s][i] * data[s][i];
+      }
+      Assertions.assertEquals(0d, mean / SAMPLES, 1E-10);
+      Assertions.assertEquals(1d, variance / (SAMPLES - 1), 1E-10);
+    }
+  }
+
+  @Test
+  void testPrincipalComponents() {
+    final ProjectionMatrix matrix = createMatrix();
+    final double[][] scores = matrix.getPrincipalComponents(3);
+    Assertions.assertEquals(3, scores.length);
+
+    final SingularValueDecomposition svd = new SingularValueDecomposition(
+        new Array2DRowRealMatrix(matrix.toSampleArrays(), false));
+    final double[] singularValues = svd.getSingularValues();
+    for (int c = 0; c < 3; c++) {
+      // the sign of a component is arbitrary
+      final double sign = Math.signum(scores[c][0] * svd.getU().getEntry(0, c));
+      for (int s = 0; s < SAMPLES; s++) {
+        final double expected = svd.getU().getEntry(s, c) * singularValues[c];
+        Assertions.assertEquals(expected, sign * scores[c][s], Math.abs(singularValues[c]) * 1E-6);
+      }
+    }
+  }
+
+  @Test
+  void testConstantFeatures() {
+    final double[] values = new double[4 * 3];
+    Arrays.fill(values, 5d);
+    final ProjectionMatrix matrix = new ProjectionMatrix(values, 4, 3);
+    final double[][] scores = matrix.getPrincipalComponents(2);
+    for (double[] component : scores) {
+      for (double score : component) {
+        Assertions.assertEquals(0d, score);
+      }
+    }
+  }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2004-2022 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package util;
+
+import io.github.mzmine.util.FeatureAbundanceMatrix;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class FeatureAbundanceMatrixTest {
+
+  private static final double NaN = Double.NaN;
+
+  @Test
+  void testColumnReductions() {
+    // three rows and two files, missing features are NaN
+    final FeatureAbundanceMatrix matrix = new FeatureAbundanceMatrix(
+        new double[]{1, NaN, 3, 4, NaN, 8}, 3, 2);
+
+    Assertions.assertArrayEquals(new int[]{2, 2}, matrix.countPerFile());
+    Assertions.assertArrayEquals(new double[]{4, 12}, matrix.sumPerFile(false), 1e-12);
+    Assertions.assertArrayEquals(new double[]{10, 80}, matrix.sumPerFile(true), 1e-12);
+    Assertions.assertArrayEquals(new double[]{2, 6}, matrix.meanPerFile(false), 1e-12);
+    Assertions.assertArrayEquals(new double[]{3, 8}, matrix.maxPerFile(), 1e-12);
+    Assertions.assertEquals(8, matrix.max(), 1e-12);
+    Assertions.assertFalse(matrix.isDetected(0, 1));
+    Assertions.assertTrue(matrix.isDetected(2, 1));
+  }
+
+  @Test
+  void testManyRowBlocks() {
+    final int numRows = 5000;
+    final double[] values = new double[numRows * 2];
+    for (int i = 0; i < numRows; i++) {
+      values[i * 2] = i;
+      values[i * 2 + 1] = i % 2 == 0 ? NaN : 1;
+    }
+    final FeatureAbundanceMatrix matrix = new FeatureAbundanceMatrix(values, numRows, 2);
+
+    Assertions.assertArrayEquals(new int[]{numRows, numRows / 2}, matrix.countPerFile());
+    Assertions.assertArrayEquals(new double[]{numRows * (numRows - 1) / 2d, numRows / 2d},
+        matrix.sumPerFile(false), 1e-6);
+    Assertions.assertArrayEquals(new double[]{numRows - 1, 1}, matrix.maxPerFile(), 1e-12);
+    // a file without values has no mean
+    final double[] mean = new FeatureAbundanceMatrix(new double[]{1, NaN}, 1, 2).meanPerFile(
+        false);
+    Assertions.assertTrue(Double.isNaN(mean[1]));
+  }
+}